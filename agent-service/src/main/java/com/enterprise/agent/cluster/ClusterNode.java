@@ -0,0 +1,60 @@
+package com.enterprise.agent.cluster;
+
+import java.util.Objects;
+
+/**
+ * 集群成员节点
+ */
+public final class ClusterNode {
+
+    private final String id;
+    private final String baseUrl;
+
+    public ClusterNode(String id, String baseUrl) {
+        this.id = id;
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+    }
+
+    /**
+     * 解析成员描述：节点ID=基础地址
+     *
+     * @throws IllegalArgumentException 格式不正确
+     */
+    public static ClusterNode parse(String spec) {
+        int eq = spec.indexOf('=');
+        if (eq <= 0 || eq == spec.length() - 1) {
+            throw new IllegalArgumentException("成员格式应为 节点ID=基础地址: " + spec);
+        }
+        return new ClusterNode(spec.substring(0, eq).trim(), spec.substring(eq + 1).trim());
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ClusterNode)) {
+            return false;
+        }
+        ClusterNode that = (ClusterNode) o;
+        return id.equals(that.id) && baseUrl.equals(that.baseUrl);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, baseUrl);
+    }
+
+    @Override
+    public String toString() {
+        return id + "=" + baseUrl;
+    }
+}
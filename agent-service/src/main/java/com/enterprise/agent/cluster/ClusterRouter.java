@@ -0,0 +1,224 @@
+package com.enterprise.agent.cluster;
+
+import com.enterprise.agent.config.ClusterConfig;
+import com.enterprise.agent.config.SessionConfig;
+import com.enterprise.agent.log.MetricsCollector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 会话路由器
+ *
+ * 职责：
+ * - 维护集群成员与一致性哈希环（静态配置，或定期重新加载的成员文件）
+ * - 判断会话归属节点：归属本节点的会话在本地处理，其余会话由 RequestForwarder 转发给归属节点
+ * - 校验转发请求：来源须为当前成员且共享密钥一致，否则忽略转发头按归属正常路由
+ * - 成员变化时重建哈希环并记录归属变化的键空间比例
+ *
+ * 集群模式要求 redis 会话存储（启动时校验）：成员变化后会话的新归属节点直接从 Redis 读取，
+ * 本节点不做会话迁移。memory / tiered 存储的会话只在本节点内存中，归属变化后会在新节点上从空会话开始，
+ * 且旧节点的过期副本会在环切回时再次被使用，因此不支持。
+ * 环切换瞬间仍有一个小窗口：旧归属节点尚未回写的保存（write-behind-interval-millis）与近端缓存
+ * （near-cache-ttl-millis）内的副本可能比 Redis 新或旧。
+ *
+ * 禁止：
+ * - 在请求路径上读取成员文件
+ * - 成员文件解析失败时清空成员（保留上一次的有效成员）
+ */
+@Component
+public class ClusterRouter {
+
+    private static final Logger log = LoggerFactory.getLogger(ClusterRouter.class);
+
+    private static final String REQUIRED_SESSION_STORE = "redis";
+
+    private final ClusterConfig clusterConfig;
+    private final MetricsCollector metrics;
+    private final ScheduledExecutorService refresher;
+
+    private volatile ConsistentHashRing ring = ConsistentHashRing.build(Collections.emptyList(), 1);
+
+    @Autowired
+    public ClusterRouter(ClusterConfig clusterConfig, SessionConfig sessionConfig, MetricsCollector metrics) {
+        this.clusterConfig = clusterConfig;
+        this.metrics = metrics;
+        metrics.registerGauge("cluster.members", () -> ring.nodes().size());
+
+        if (!clusterConfig.isEnabled()) {
+            this.refresher = null;
+            return;
+        }
+        if (clusterConfig.getNodeId() == null || clusterConfig.getNodeId().isEmpty()) {
+            throw new IllegalStateException("集群模式须配置 agent.cluster.node-id");
+        }
+        if (clusterConfig.getSharedSecret() == null || clusterConfig.getSharedSecret().isEmpty()) {
+            throw new IllegalStateException("集群模式须配置 agent.cluster.shared-secret");
+        }
+        if (!REQUIRED_SESSION_STORE.equals(sessionConfig.getStore())) {
+            throw new IllegalStateException("集群模式须使用 redis 会话存储（agent.session.store=redis），当前为 "
+                    + sessionConfig.getStore() + "：成员变化时本节点不迁移会话");
+        }
+        List<ClusterNode> members = loadMembers();
+        if (members == null) {
+            throw new IllegalStateException("集群成员加载失败");
+        }
+        applyMembers(members);
+
+        if (clusterConfig.getMembersFile() != null && !clusterConfig.getMembersFile().isEmpty()) {
+            this.refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "cluster-members");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long interval = clusterConfig.getMembersRefreshMillis();
+            refresher.scheduleWithFixedDelay(this::refresh, interval, interval, TimeUnit.MILLISECONDS);
+        } else {
+            this.refresher = null;
+        }
+    }
+
+    /**
+     * 会话的归属节点；集群未启用或归属本节点时返回 null（本地处理）
+     */
+    public ClusterNode remoteOwnerOf(String sessionId) {
+        if (!clusterConfig.isEnabled() || sessionId == null) {
+            return null;
+        }
+        ClusterNode owner = ring.locate(sessionId);
+        if (owner == null || owner.getId().equals(clusterConfig.getNodeId())) {
+            return null;
+        }
+        return owner;
+    }
+
+    /**
+     * 请求的归属节点；本地处理时返回 null
+     *
+     * 携带转发头的请求只有来源为当前成员、且共享密钥一致时才按已转发请求本地处理（不再二次转发）；
+     * 否则视为外部请求，忽略转发头正常路由，避免外部客户端在非归属节点处理会话、使会话状态分裂
+     *
+     * @param forwardedBy   转发来源节点请求头，外部请求为 null
+     * @param clusterSecret 集群共享密钥请求头
+     */
+    public ClusterNode remoteOwnerOf(String sessionId, String forwardedBy, String clusterSecret) {
+        if (forwardedBy != null) {
+            if (isTrustedForward(forwardedBy, clusterSecret)) {
+                return null;
+            }
+            metrics.increment("cluster.forward.untrusted");
+            log.debug("忽略不可信的转发请求头: forwardedBy={}, sessionId={}", forwardedBy, sessionId);
+        }
+        return remoteOwnerOf(sessionId);
+    }
+
+    private boolean isTrustedForward(String forwardedBy, String clusterSecret) {
+        if (!clusterConfig.isEnabled() || clusterSecret == null) {
+            return false;
+        }
+        byte[] expected = clusterConfig.getSharedSecret().getBytes(StandardCharsets.UTF_8);
+        if (!MessageDigest.isEqual(expected, clusterSecret.getBytes(StandardCharsets.UTF_8))) {
+            return false;
+        }
+        for (ClusterNode member : ring.nodes()) {
+            if (member.getId().equals(forwardedBy)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public String getNodeId() {
+        return clusterConfig.getNodeId();
+    }
+
+    public List<ClusterNode> getMembers() {
+        return ring.nodes();
+    }
+
+    private void refresh() {
+        try {
+            List<ClusterNode> members = loadMembers();
+            if (members != null && !members.equals(ring.nodes())) {
+                applyMembers(members);
+            }
+        } catch (RuntimeException e) {
+            log.warn("刷新集群成员异常: {}", e.getMessage());
+        }
+    }
+
+    private void applyMembers(List<ClusterNode> members) {
+        boolean containsSelf = false;
+        for (ClusterNode member : members) {
+            if (member.getId().equals(clusterConfig.getNodeId())) {
+                containsSelf = true;
+                break;
+            }
+        }
+        if (!containsSelf) {
+            log.warn("集群成员中不包含本节点 {}，本节点不再持有任何会话分片", clusterConfig.getNodeId());
+        }
+
+        ConsistentHashRing previous = ring;
+        ConsistentHashRing next = ConsistentHashRing.build(members, clusterConfig.getVirtualNodes());
+        ring = next;
+        metrics.increment("cluster.membership.changes");
+        log.info("集群成员已更新: members={}, 归属变化的会话比例={}",
+                members, String.format("%.1f%%", previous.movedFraction(next) * 100));
+    }
+
+    /**
+     * 加载成员（成员文件优先）；文件读取或解析失败时返回 null
+     */
+    private List<ClusterNode> loadMembers() {
+        List<String> specs = clusterConfig.getMembers();
+        if (clusterConfig.getMembersFile() != null && !clusterConfig.getMembersFile().isEmpty()) {
+            Path path = Paths.get(clusterConfig.getMembersFile());
+            try {
+                specs = Files.readAllLines(path, StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                log.warn("读取集群成员文件失败: file={}, error={}", path, e.getMessage());
+                return null;
+            }
+        }
+
+        List<ClusterNode> members = new ArrayList<>();
+        for (String spec : specs) {
+            String line = spec.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            try {
+                members.add(ClusterNode.parse(line));
+            } catch (IllegalArgumentException e) {
+                log.warn("集群成员格式错误，保留当前成员: {}", e.getMessage());
+                return null;
+            }
+        }
+        // 排序后比较，成员文件行序变化不触发重建
+        members.sort((a, b) -> a.getId().compareTo(b.getId()));
+        return members;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+}
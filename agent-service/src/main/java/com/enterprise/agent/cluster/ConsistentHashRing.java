@@ -0,0 +1,136 @@
+package com.enterprise.agent.cluster;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 带虚拟节点的一致性哈希环（不可变，成员变化时整体重建后替换）
+ *
+ * - 每个节点在环上放置 virtualNodes 个点，点的位置只取决于节点 ID 与序号，
+ *   因此增删一个节点只改变与其相邻区间的归属，其余会话的归属不变
+ * - 查找为有序数组上的二分查找：O(log(节点数 × 虚拟节点数))，无锁、无装箱
+ */
+final class ConsistentHashRing {
+
+    private final long[] points;
+    private final ClusterNode[] owners;
+    private final List<ClusterNode> nodes;
+
+    private ConsistentHashRing(long[] points, ClusterNode[] owners, List<ClusterNode> nodes) {
+        this.points = points;
+        this.owners = owners;
+        this.nodes = nodes;
+    }
+
+    static ConsistentHashRing build(List<ClusterNode> nodes, int virtualNodes) {
+        int replicas = Math.max(1, virtualNodes);
+        long[][] entries = new long[nodes.size() * replicas][];
+        int n = 0;
+        for (int i = 0; i < nodes.size(); i++) {
+            for (int r = 0; r < replicas; r++) {
+                entries[n++] = new long[]{hash(nodes.get(i).getId() + "#" + r), i};
+            }
+        }
+        // 按无符号哈希值排序；同一位置冲突时按节点 ID 决定，保证各节点建出的环一致
+        Arrays.sort(entries, (a, b) -> {
+            int c = Long.compareUnsigned(a[0], b[0]);
+            return c != 0 ? c : nodes.get((int) a[1]).getId().compareTo(nodes.get((int) b[1]).getId());
+        });
+
+        long[] points = new long[entries.length];
+        ClusterNode[] owners = new ClusterNode[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            points[i] = entries[i][0];
+            owners[i] = nodes.get((int) entries[i][1]);
+        }
+        return new ConsistentHashRing(points, owners, Collections.unmodifiableList(new ArrayList<>(nodes)));
+    }
+
+    /**
+     * 键的归属节点（环为空时返回 null）
+     */
+    ClusterNode locate(String key) {
+        return points.length == 0 ? null : owners[indexOf(hash(key))];
+    }
+
+    List<ClusterNode> nodes() {
+        return nodes;
+    }
+
+    /**
+     * 与另一个环相比归属发生变化的键空间比例（0 ~ 1）
+     *
+     * 合并两个环的全部点后，相邻两点之间的区间在两个环中各自归属于区间右端点的后继，逐段比较即可
+     */
+    double movedFraction(ConsistentHashRing other) {
+        if (points.length == 0 || other.points.length == 0) {
+            return points.length == other.points.length ? 0 : 1;
+        }
+        long[] merged = new long[points.length + other.points.length];
+        System.arraycopy(points, 0, merged, 0, points.length);
+        System.arraycopy(other.points, 0, merged, points.length, other.points.length);
+        // 无符号排序：翻转符号位后按有符号排序
+        for (int i = 0; i < merged.length; i++) {
+            merged[i] ^= Long.MIN_VALUE;
+        }
+        Arrays.sort(merged);
+        for (int i = 0; i < merged.length; i++) {
+            merged[i] ^= Long.MIN_VALUE;
+        }
+
+        double moved = 0;
+        for (int i = 0; i < merged.length; i++) {
+            long end = merged[i];
+            long start = merged[i == 0 ? merged.length - 1 : i - 1];
+            long length = end - start;
+            if (length == 0 && merged.length > 1) {
+                continue;
+            }
+            if (!owners[indexOf(end)].getId().equals(other.owners[other.indexOf(end)].getId())) {
+                moved += toUnsignedDouble(length);
+            }
+        }
+        return Math.min(1.0, moved / 18446744073709551616.0);
+    }
+
+    /**
+     * 第一个不小于 hash 的点（无符号比较），超过末尾时回绕到 0
+     */
+    private int indexOf(long hash) {
+        int low = 0;
+        int high = points.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (Long.compareUnsigned(points[mid], hash) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low == points.length ? 0 : low;
+    }
+
+    private static double toUnsignedDouble(long value) {
+        double d = (double) (value >>> 1) * 2.0;
+        return d + (value & 1);
+    }
+
+    /**
+     * 64 位 FNV-1a 后接 MurmurHash3 fmix64 终结混合，保证相近键在环上充分分散
+     */
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
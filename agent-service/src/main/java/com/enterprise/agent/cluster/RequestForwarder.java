@@ -0,0 +1,360 @@
+package com.enterprise.agent.cluster;
+
+import com.alibaba.fastjson2.JSON;
+import com.enterprise.agent.common.RequestDeadline;
+import com.enterprise.agent.config.ClusterConfig;
+import com.enterprise.agent.controller.dto.ChatRequest;
+import com.enterprise.agent.controller.dto.ChatResponse;
+import com.enterprise.agent.log.MetricsCollector;
+import org.apache.hc.client5.http.async.methods.AbstractBinResponseConsumer;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.async.methods.SimpleRequestProducer;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayOutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+
+/**
+ * 请求转发器
+ *
+ * 职责：
+ * - 把不归属本节点的会话请求通过 HTTP 转发给归属节点，原样返回其响应
+ * - 流式请求逐个转发 SSE 事件
+ * - 转发请求携带来源节点、集群共享密钥与 traceId，接收方校验后直接在本地处理，不再二次转发
+ * - 对话转发的超时收紧到请求的剩余预算以内，并把剩余预算传给归属节点，由其在同一预算内处理
+ *
+ * 禁止：
+ * - 转发失败时在本节点处理该会话（会破坏会话归属与串行顺序）
+ * - 重试已发出的请求（对话轮次不幂等）
+ */
+@Component
+public class RequestForwarder {
+
+    private static final Logger log = LoggerFactory.getLogger(RequestForwarder.class);
+
+    /**
+     * 转发来源节点请求头
+     */
+    public static final String FORWARDED_BY_HEADER = "X-Agent-Forwarded-By";
+
+    /**
+     * 集群共享密钥请求头（与来源节点一起校验，防止外部请求伪造转发头）
+     */
+    public static final String CLUSTER_SECRET_HEADER = "X-Agent-Cluster-Secret";
+
+    /**
+     * 剩余预算请求头（毫秒），归属节点据此创建请求截止时间
+     */
+    public static final String DEADLINE_HEADER = "X-Agent-Deadline-Remaining-Ms";
+
+    /**
+     * 转发请求的 traceId 请求头
+     */
+    public static final String TRACE_ID_HEADER = "X-Agent-Trace-Id";
+
+    private final ClusterConfig clusterConfig;
+    private final MetricsCollector metrics;
+    private final CloseableHttpAsyncClient httpClient;
+
+    @Autowired
+    public RequestForwarder(ClusterConfig clusterConfig, MetricsCollector metrics) {
+        this.clusterConfig = clusterConfig;
+        this.metrics = metrics;
+        if (clusterConfig.isEnabled()) {
+            this.httpClient = createHttpClient(clusterConfig);
+            this.httpClient.start();
+        } else {
+            this.httpClient = null;
+        }
+    }
+
+    /**
+     * 转发对话请求
+     */
+    public ChatResponse forwardChat(ClusterNode owner, ChatRequest request, String traceId, RequestDeadline deadline) {
+        return post(owner, "/api/agent/chat", JSON.toJSONString(request), traceId, deadline);
+    }
+
+    /**
+     * 异步转发对话请求（等待归属节点响应期间不占用线程，超时由请求的响应超时控制）
+     *
+     * @return 完成时为归属节点的响应或 503（不会异常完成）
+     */
+    public CompletableFuture<ChatResponse> forwardChatAsync(ClusterNode owner, ChatRequest request, String traceId,
+            RequestDeadline deadline) {
+        CompletableFuture<ChatResponse> result = new CompletableFuture<>();
+        httpClient.execute(buildRequest(owner, "/api/agent/chat", JSON.toJSONString(request), traceId,
+                ContentType.APPLICATION_JSON.getMimeType(), deadline), new FutureCallback<SimpleHttpResponse>() {
+                    @Override
+                    public void completed(SimpleHttpResponse httpResponse) {
+                        if (httpResponse.getCode() != 200) {
+                            result.complete(failure(owner, traceId, "HTTP_" + httpResponse.getCode()));
+                            return;
+                        }
+                        try {
+                            ChatResponse response = JSON.parseObject(httpResponse.getBodyBytes(), ChatResponse.class);
+                            metrics.increment("cluster.forward.ok");
+                            result.complete(response);
+                        } catch (RuntimeException e) {
+                            result.complete(failure(owner, traceId, "解析响应失败: " + e.getMessage()));
+                        }
+                    }
+
+                    @Override
+                    public void failed(Exception e) {
+                        result.complete(failure(owner, traceId, e.getMessage()));
+                    }
+
+                    @Override
+                    public void cancelled() {
+                        result.complete(failure(owner, traceId, "cancelled"));
+                    }
+                });
+        return result;
+    }
+
+    /**
+     * 转发结束会话请求
+     */
+    public ChatResponse forwardEndSession(ClusterNode owner, String sessionId, String traceId) {
+        String path = "/api/agent/session/end?sessionId=" + urlEncode(sessionId);
+        return post(owner, path, null, traceId, RequestDeadline.NONE);
+    }
+
+    /**
+     * 转发流式对话请求，归属节点的每个 SSE 事件交给 eventSink(事件名, JSON 数据)
+     *
+     * @return 转发失败时的错误响应；成功时返回 null（done 事件已经过 eventSink 下发）
+     */
+    public ChatResponse forwardStream(ClusterNode owner, ChatRequest request, String traceId,
+            RequestDeadline deadline, BiConsumer<String, String> eventSink) {
+        SimpleHttpRequest httpRequest = buildRequest(owner, "/api/agent/chat/stream",
+                JSON.toJSONString(request), traceId, "text/event-stream", deadline);
+        Future<Integer> future = httpClient.execute(
+                SimpleRequestProducer.create(httpRequest), new SseRelayConsumer(eventSink), null);
+        try {
+            int code = future.get(deadline.capTimeout(clusterConfig.getForwardTimeoutMillis()), TimeUnit.MILLISECONDS);
+            if (code != 200) {
+                return failure(owner, traceId, "HTTP_" + code);
+            }
+            metrics.increment("cluster.forward.ok");
+            return null;
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            return failure(owner, traceId, "timeout");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            return failure(owner, traceId, "interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            return failure(owner, traceId, cause.getMessage());
+        }
+    }
+
+    private ChatResponse post(ClusterNode owner, String path, String body, String traceId, RequestDeadline deadline) {
+        Future<SimpleHttpResponse> future = httpClient.execute(
+                buildRequest(owner, path, body, traceId, ContentType.APPLICATION_JSON.getMimeType(), deadline), null);
+        try {
+            SimpleHttpResponse httpResponse = future.get(
+                    deadline.capTimeout(clusterConfig.getForwardTimeoutMillis()), TimeUnit.MILLISECONDS);
+            if (httpResponse.getCode() != 200) {
+                return failure(owner, traceId, "HTTP_" + httpResponse.getCode());
+            }
+            ChatResponse response = JSON.parseObject(httpResponse.getBodyBytes(), ChatResponse.class);
+            metrics.increment("cluster.forward.ok");
+            return response;
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            return failure(owner, traceId, "timeout");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            return failure(owner, traceId, "interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            return failure(owner, traceId, cause.getMessage());
+        } catch (RuntimeException e) {
+            return failure(owner, traceId, "解析响应失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 构建转发请求：超时收紧到剩余预算以内，有截止时间时携带剩余预算
+     */
+    private SimpleHttpRequest buildRequest(ClusterNode owner, String path, String body, String traceId, String accept,
+            RequestDeadline deadline) {
+        Timeout timeout = Timeout.ofMilliseconds(deadline.capTimeout(clusterConfig.getForwardTimeoutMillis()));
+        SimpleRequestBuilder builder = SimpleRequestBuilder.post(owner.getBaseUrl() + path)
+                .setHeader(HttpHeaders.ACCEPT, accept)
+                .setHeader(FORWARDED_BY_HEADER, clusterConfig.getNodeId())
+                .setHeader(CLUSTER_SECRET_HEADER, clusterConfig.getSharedSecret())
+                .setHeader(TRACE_ID_HEADER, traceId)
+                .setRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(timeout)
+                        .setResponseTimeout(timeout)
+                        .build());
+        if (deadline.isBounded()) {
+            builder.setHeader(DEADLINE_HEADER, Long.toString(deadline.remainingMillis()));
+        }
+        if (body != null) {
+            builder.setBody(body, ContentType.APPLICATION_JSON);
+        }
+        return builder.build();
+    }
+
+    private ChatResponse failure(ClusterNode owner, String traceId, String reason) {
+        metrics.increment("cluster.forward.failures");
+        log.warn("[{}] 转发请求失败: owner={}, reason={}", traceId, owner.getId(), reason);
+        ChatResponse response = ChatResponse.error(503, "系统繁忙，请稍后重试");
+        response.setTraceId(traceId);
+        return response;
+    }
+
+    private static String urlEncode(String value) {
+        try {
+            return URLEncoder.encode(value, StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static CloseableHttpAsyncClient createHttpClient(ClusterConfig config) {
+        Timeout timeout = Timeout.ofMilliseconds(config.getForwardTimeoutMillis());
+        PoolingAsyncClientConnectionManager connectionManager = PoolingAsyncClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(config.getForwardMaxConnections())
+                .setMaxConnPerRoute(config.getForwardMaxConnections())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofSeconds(2))
+                        .setSocketTimeout(timeout)
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(5))
+                        .build())
+                .build();
+
+        return HttpAsyncClients.custom()
+                .setConnectionManager(connectionManager)
+                .setIOReactorConfig(IOReactorConfig.custom()
+                        .setSoKeepAlive(true)
+                        .setTcpNoDelay(true)
+                        .build())
+                .evictIdleConnections(TimeValue.ofSeconds(60))
+                .disableAutomaticRetries()
+                .disableCookieManagement()
+                .disableRedirectHandling()
+                .build();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (httpClient != null) {
+            httpClient.close(CloseMode.GRACEFUL);
+        }
+    }
+
+    /**
+     * SSE 转发消费者：按行解析 event / data，空行时下发一个事件
+     */
+    private static final class SseRelayConsumer extends AbstractBinResponseConsumer<Integer> {
+
+        private final BiConsumer<String, String> eventSink;
+        private final ByteArrayOutputStream lineBuffer = new ByteArrayOutputStream(256);
+        private final StringBuilder data = new StringBuilder();
+        private String event;
+        private int statusCode;
+
+        SseRelayConsumer(BiConsumer<String, String> eventSink) {
+            this.eventSink = eventSink;
+        }
+
+        @Override
+        protected void start(HttpResponse response, ContentType contentType) {
+            statusCode = response.getCode();
+        }
+
+        @Override
+        protected int capacityIncrement() {
+            return Integer.MAX_VALUE;
+        }
+
+        @Override
+        protected void data(ByteBuffer src, boolean endOfStream) {
+            while (src.hasRemaining()) {
+                byte b = src.get();
+                if (b == '\n') {
+                    flushLine();
+                } else if (b != '\r') {
+                    lineBuffer.write(b);
+                }
+            }
+            if (endOfStream) {
+                flushLine();
+                dispatch();
+            }
+        }
+
+        private void flushLine() {
+            if (statusCode != 200) {
+                lineBuffer.reset();
+                return;
+            }
+            String line = new String(lineBuffer.toByteArray(), StandardCharsets.UTF_8);
+            lineBuffer.reset();
+            if (line.isEmpty()) {
+                dispatch();
+            } else if (line.startsWith("event:")) {
+                event = line.substring(6).trim();
+            } else if (line.startsWith("data:")) {
+                if (data.length() > 0) {
+                    data.append('\n');
+                }
+                data.append(line.substring(5));
+            }
+        }
+
+        private void dispatch() {
+            if (event != null && data.length() > 0) {
+                eventSink.accept(event, data.toString());
+            }
+            event = null;
+            data.setLength(0);
+        }
+
+        @Override
+        protected Integer buildResult() {
+            return statusCode;
+        }
+
+        @Override
+        public void releaseResources() {
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.enterprise.agent.common;
+
+/**
+ * 请求截止时间（端到端时间预算）
+ *
+ * 职责：
+ * - 由 AgentController 在请求入口按 requestTimeoutMs 创建，经 ConversationContext、ToolContext、
+ *   LLMRequest 传递到各阶段
+ * - 各阶段据剩余预算收紧自身超时；剩余预算不足一次 LLM 调用时改用更廉价的策略
+ *   （本地意图模型、正则槽位、模板回复），预算耗尽时直接结束请求
+ *
+ * 基于 System.nanoTime()，只在本进程内有效；转发时以剩余毫秒数随请求传递，归属节点据此在同一预算内重建。不可变，线程安全。
+ */
+public final class RequestDeadline {
+
+    /**
+     * 无截止时间（未经 Controller 创建的上下文，如离线工具、压测）
+     */
+    public static final RequestDeadline NONE = new RequestDeadline(0, 0, false);
+
+    private final long deadlineNanos;
+    private final long llmReserveMillis;
+    private final boolean bounded;
+
+    private RequestDeadline(long deadlineNanos, long llmReserveMillis, boolean bounded) {
+        this.deadlineNanos = deadlineNanos;
+        this.llmReserveMillis = llmReserveMillis;
+        this.bounded = bounded;
+    }
+
+    /**
+     * @param timeoutMillis    从现在起的总预算
+     * @param llmReserveMillis 发起一次 LLM 调用至少需要的剩余预算
+     */
+    public static RequestDeadline after(long timeoutMillis, long llmReserveMillis) {
+        return new RequestDeadline(System.nanoTime() + Math.max(0, timeoutMillis) * 1_000_000L,
+                llmReserveMillis, true);
+    }
+
+    /**
+     * 剩余毫秒数（已过期为 0，无截止时间为 Long.MAX_VALUE）
+     */
+    public long remainingMillis() {
+        if (!bounded) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, (deadlineNanos - System.nanoTime()) / 1_000_000L);
+    }
+
+    public boolean isExpired() {
+        return bounded && deadlineNanos - System.nanoTime() <= 0;
+    }
+
+    /**
+     * 剩余预算是否还够发起一次 LLM 调用
+     */
+    public boolean allowsLlmCall() {
+        return !bounded || remainingMillis() >= llmReserveMillis;
+    }
+
+    /**
+     * 把某一步自身的超时收紧到剩余预算以内
+     */
+    public long capTimeout(long timeoutMillis) {
+        return Math.min(timeoutMillis, remainingMillis());
+    }
+
+    public boolean isBounded() {
+        return bounded;
+    }
+
+    @Override
+    public String toString() {
+        return bounded ? "RequestDeadline{remaining=" + remainingMillis() + "ms}" : "RequestDeadline{none}";
+    }
+}
@@ -41,4 +41,72 @@ public class AgentConfig {
      * 是否启用调试模式
      */
     private boolean debugMode = false;
+
+    /**
+     * 请求处理模式：
+     * blocking（请求线程同步执行全部阶段）/
+     * async（编排各阶段返回 CompletableFuture，等待 LLM 期间不占用线程）
+     */
+    private String pipelineMode = "blocking";
+
+    /**
+     * 业务线程池大小（流式响应、异步编排的非 LLM 阶段）
+     */
+    private int taskExecutorThreads = 64;
+
+    /**
+     * 业务线程池队列容量
+     */
+    private int taskExecutorQueueCapacity = 500;
+
+    /**
+     * 流式响应超时时间（毫秒）
+     */
+    private long streamTimeoutMs = 60000;
+
+    /**
+     * 单次请求的端到端预算（毫秒），应小于客户端自身的超时；0 表示不限
+     */
+    private long requestTimeoutMs = 15000;
+
+    /**
+     * 发起一次 LLM 调用至少需要的剩余预算（毫秒），不足时改用本地意图模型、正则槽位、模板回复
+     */
+    private long llmMinBudgetMs = 1500;
+
+    /**
+     * 意图理解模式：
+     * sequential（意图识别、槽位抽取分两次调用）/ joint（一次调用同时返回）/
+     * speculative（意图识别同时按本地预判的候选意图并行抽取槽位）
+     */
+    private String understandingMode = "sequential";
+
+    /**
+     * 推测模式下最多并行抽取的候选意图数
+     */
+    private int speculationMaxCandidates = 2;
+
+    /**
+     * 推测执行线程数
+     */
+    private int speculationThreads = 32;
+
+    /**
+     * 一条消息最多处理的意图数（主意图 + 附带意图），1 表示只处理主意图
+     */
+    private int maxIntentsPerMessage = 3;
+
+    /**
+     * 工具并行执行线程数（多意图消息的各工具并发执行）
+     */
+    private int toolExecutorThreads = 32;
+
+    /**
+     * 本地意图模型文件（支持 file: / classpath: 前缀），为空则不启用本地分类
+     */
+    private String localModelPath = "";
+
+    public boolean isAsyncPipeline() {
+        return "async".equalsIgnoreCase(pipelineMode);
+    }
 }
@@ -0,0 +1,62 @@
+package com.enterprise.agent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 集群配置（会话按一致性哈希分片到各节点）
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "agent.cluster")
+public class ClusterConfig {
+
+    /**
+     * 是否启用集群模式（关闭时单节点处理全部会话）；启用时须使用 redis 会话存储
+     */
+    private boolean enabled = false;
+
+    /**
+     * 本节点 ID（须出现在成员列表中）
+     */
+    private String nodeId;
+
+    /**
+     * 静态成员列表，每项格式：节点ID=基础地址，如 node-1=http://10.0.0.1:8080
+     */
+    private List<String> members = new ArrayList<>();
+
+    /**
+     * 成员文件（每行一个成员，格式同 members，# 开头为注释）；配置后优先于 members 并定期重新加载
+     */
+    private String membersFile;
+
+    /**
+     * 成员文件重新加载间隔（毫秒）
+     */
+    private long membersRefreshMillis = 5000;
+
+    /**
+     * 集群共享密钥（集群模式必填）：转发请求携带，接收方校验一致且来源为当前成员时才按已转发请求本地处理
+     */
+    private String sharedSecret;
+
+    /**
+     * 每个节点在哈希环上的虚拟节点数
+     */
+    private int virtualNodes = 160;
+
+    /**
+     * 转发请求超时（毫秒）
+     */
+    private int forwardTimeoutMillis = 30000;
+
+    /**
+     * 转发连接池最大连接数
+     */
+    private int forwardMaxConnections = 200;
+}
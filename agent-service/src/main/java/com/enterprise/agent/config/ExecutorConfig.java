@@ -0,0 +1,69 @@
+package com.enterprise.agent.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 线程池配置
+ */
+@Configuration
+public class ExecutorConfig {
+
+    /**
+     * 业务线程池（有界队列，满时由调用方处理拒绝）
+     */
+    @Bean(name = "agentTaskExecutor")
+    public ThreadPoolTaskExecutor agentTaskExecutor(AgentConfig agentConfig) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(agentConfig.getTaskExecutorThreads());
+        executor.setMaxPoolSize(agentConfig.getTaskExecutorThreads());
+        executor.setQueueCapacity(agentConfig.getTaskExecutorQueueCapacity());
+        executor.setThreadNamePrefix("agent-task-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    /**
+     * 推测执行线程池（与业务线程池隔离，避免嵌套提交互相等待；满时直接放弃推测）
+     */
+    @Bean(name = "speculationExecutor")
+    public ThreadPoolTaskExecutor speculationExecutor(AgentConfig agentConfig) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(agentConfig.getSpeculationThreads());
+        executor.setMaxPoolSize(agentConfig.getSpeculationThreads());
+        executor.setQueueCapacity(agentConfig.getSpeculationThreads());
+        executor.setThreadNamePrefix("agent-speculation-");
+        return executor;
+    }
+
+    /**
+     * 工具并行执行线程池（多意图消息的各工具并发执行；满时由调用线程执行，不丢弃）
+     */
+    @Bean(name = "toolExecutor")
+    public ThreadPoolTaskExecutor toolExecutor(AgentConfig agentConfig) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(agentConfig.getToolExecutorThreads());
+        executor.setMaxPoolSize(agentConfig.getToolExecutorThreads());
+        executor.setQueueCapacity(agentConfig.getToolExecutorThreads() * 4);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setThreadNamePrefix("agent-tool-");
+        return executor;
+    }
+
+    /**
+     * 对话摘要线程池（请求路径之外异步执行；满时放弃本次摘要）
+     */
+    @Bean(name = "summaryExecutor")
+    public ThreadPoolTaskExecutor summaryExecutor(SessionConfig sessionConfig) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(sessionConfig.getSummaryThreads());
+        executor.setMaxPoolSize(sessionConfig.getSummaryThreads());
+        executor.setQueueCapacity(sessionConfig.getSummaryThreads() * 50);
+        executor.setThreadNamePrefix("agent-summary-");
+        return executor;
+    }
+}
@@ -0,0 +1,69 @@
+package com.enterprise.agent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 意图快速通道配置（规则命中时不调用 LLM）
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "agent.fast-path")
+public class FastPathConfig {
+
+    /**
+     * 是否启用快速通道
+     */
+    private boolean enabled = true;
+
+    /**
+     * 分类规则
+     */
+    private List<Rule> rules = new ArrayList<>();
+
+    /**
+     * 分类规则：关键词（任一命中）与正则（须匹配）同时满足、且未命中排除词时判定为该意图
+     */
+    @Data
+    public static class Rule {
+
+        /**
+         * 规则名称（用于日志与审计）
+         */
+        private String name;
+
+        /**
+         * 意图代码（必须为 IntentType 中预定义的 code）
+         */
+        private String intent;
+
+        /**
+         * 关键词，任一命中即可；为空表示不要求关键词
+         */
+        private List<String> keywords = new ArrayList<>();
+
+        /**
+         * 排除词，任一命中则规则不生效（如否定表达）
+         */
+        private List<String> excludeKeywords = new ArrayList<>();
+
+        /**
+         * 正则，须在输入中找到匹配；为空表示不要求
+         */
+        private String pattern;
+
+        /**
+         * 输入最大长度（去除首尾空白后），0 表示不限制；用于只匹配简短、无歧义的输入
+         */
+        private int maxLength = 0;
+
+        /**
+         * 命中时的置信度
+         */
+        private double confidence = 0.98;
+    }
+}
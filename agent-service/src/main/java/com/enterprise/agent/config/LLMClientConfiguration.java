@@ -0,0 +1,49 @@
+package com.enterprise.agent.config;
+
+import com.enterprise.agent.llm.LLMClient;
+import com.enterprise.agent.llm.SingleFlightLLMClient;
+import com.enterprise.agent.llm.cache.CachingLLMClient;
+import com.enterprise.agent.log.MetricsCollector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+/**
+ * LLM 客户端装配
+ *
+ * 底层实现（Mock / HTTP）以 {@link #PROVIDER} 限定名注册，
+ * 此处在其外层按配置叠加装饰器，业务组件注入的是装饰后的 {@link LLMClient}。
+ *
+ * 装饰顺序（由外到内）：缓存 -> 在途请求合并 -> 底层实现，
+ * 缓存未命中的并发相同请求在合并层汇成一次上游调用。
+ */
+@Configuration
+public class LLMClientConfiguration {
+
+    private static final Logger log = LoggerFactory.getLogger(LLMClientConfiguration.class);
+
+    /**
+     * 底层 LLM 客户端实现的限定名
+     */
+    public static final String PROVIDER = "llmProvider";
+
+    @Bean
+    @Primary
+    public LLMClient llmClient(@Qualifier(PROVIDER) LLMClient provider,
+            LLMConfig config,
+            MetricsCollector metrics) {
+        LLMClient client = provider;
+        if (config.isCoalesceEnabled()) {
+            client = new SingleFlightLLMClient(client, config, metrics);
+        }
+        if (config.isCacheEnabled()) {
+            client = new CachingLLMClient(client, config, metrics);
+        }
+        log.info("LLM 客户端装配完成: provider={}, coalesce={}, cache={}",
+                provider.getClass().getSimpleName(), config.isCoalesceEnabled(), config.isCacheEnabled());
+        return client;
+    }
+}
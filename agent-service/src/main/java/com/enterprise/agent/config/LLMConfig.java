@@ -12,6 +12,11 @@ import org.springframework.stereotype.Component;
 @ConfigurationProperties(prefix = "agent.llm")
 public class LLMConfig {
 
+    /**
+     * LLM 客户端实现：mock / http（OpenAI 兼容协议，如 DeepSeek）
+     */
+    private String provider = "mock";
+
     /**
      * API URL
      */
@@ -36,4 +41,69 @@ public class LLMConfig {
      * 最大重试次数
      */
     private int maxRetries = 3;
+
+    /**
+     * 连接池最大连接数
+     */
+    private int maxConnTotal = 200;
+
+    /**
+     * 单个目标地址最大连接数
+     */
+    private int maxConnPerRoute = 100;
+
+    /**
+     * 空闲连接保活时间（秒），超过后由后台线程回收
+     */
+    private int keepAliveSeconds = 60;
+
+    /**
+     * 是否启用 HTTP/2（TLS ALPN 协商，多路复用同一连接）
+     */
+    private boolean http2Enabled = false;
+
+    /**
+     * IO 线程数（0 表示使用 CPU 核数）
+     */
+    private int ioThreads = 0;
+
+    /**
+     * Mock 客户端流式输出时每个 token 的模拟延迟（毫秒）
+     */
+    private long mockTokenDelayMs = 0;
+
+    /**
+     * Mock 客户端每次调用的模拟响应延迟（毫秒，压测线程占用时使用）
+     */
+    private long mockLatencyMs = 0;
+
+    /**
+     * 是否合并并发的相同请求（single-flight）
+     */
+    private boolean coalesceEnabled = true;
+
+    /**
+     * 是否启用补全结果缓存
+     */
+    private boolean cacheEnabled = true;
+
+    /**
+     * 缓存最大条目数
+     */
+    private int cacheMaxEntries = 10000;
+
+    /**
+     * 缓存最大权重（按 key 与内容字符数估算）
+     */
+    private long cacheMaxWeight = 8 * 1024 * 1024;
+
+    /**
+     * 缓存条目过期时间（秒）
+     */
+    private long cacheTtlSeconds = 600;
+
+    /**
+     * 可缓存请求的最高温度（高温度生成结果不确定，不缓存）
+     */
+    private double cacheMaxTemperature = 0.2;
 }
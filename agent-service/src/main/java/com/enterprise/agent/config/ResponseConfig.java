@@ -0,0 +1,35 @@
+package com.enterprise.agent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 响应生成配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "agent.response")
+public class ResponseConfig {
+
+    /**
+     * 默认响应模式：llm（LLM 改写工具数据）/ template（模板直接渲染）
+     */
+    private String defaultMode = "llm";
+
+    /**
+     * 按意图指定响应模式（key 为意图代码）
+     */
+    private Map<String, String> modes = new HashMap<>();
+
+    /**
+     * 按意图指定回复模板（key 为意图代码）
+     *
+     * 占位符 {{FIELD}} 替换为工具结果中的字段值，{{*}} 替换为全部字段列表（字段名转为中文）；
+     * 未配置模板的 template 模式意图使用通用字段列表
+     */
+    private Map<String, String> templates = new HashMap<>();
+}
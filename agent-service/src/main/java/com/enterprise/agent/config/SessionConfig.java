@@ -0,0 +1,139 @@
+package com.enterprise.agent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 会话存储配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "agent.session")
+public class SessionConfig {
+
+    /**
+     * 会话存储：memory（单节点内存）/ tiered（单节点，空闲会话移到堆外）/ redis（多节点共享）
+     */
+    private String store = "memory";
+
+    /**
+     * 会话空闲超时（分钟）
+     */
+    private int timeoutMinutes = 30;
+
+    /**
+     * 过期时间轮的 tick 间隔（毫秒），即过期触发的时间精度
+     */
+    private long expiryTickMillis = 1000;
+
+    /**
+     * Redis key 前缀
+     */
+    private String keyPrefix = "agent:session:";
+
+    /**
+     * 会话编码时是否压缩对话历史（Deflate）
+     */
+    private boolean codecCompressHistory = true;
+
+    /**
+     * 对话历史编码后达到该字节数才压缩
+     */
+    private int codecCompressMinBytes = 512;
+
+    /**
+     * 单个会话最多排队的请求数（不含执行中的一个），超出时直接拒绝
+     */
+    private int mailboxCapacity = 2;
+
+    /**
+     * 同会话请求排队的最长等待时间（毫秒），超时拒绝
+     */
+    private long mailboxWaitMillis = 10000;
+
+    /**
+     * 对话历史压缩：off（不压缩）/ deterministic（按记录的意图、槽位生成摘要）/ llm（另由 LLM 异步生成摘要文本）
+     */
+    private String historyCompaction = "off";
+
+    /**
+     * 对话历史估算 token 数超过该值时折叠早期对话
+     */
+    private int historyTokenBudget = 1200;
+
+    /**
+     * 折叠时保留的最近对话轮数
+     */
+    private int historyKeepRounds = 3;
+
+    /**
+     * LLM 摘要文本最大字符数
+     */
+    private int historySummaryMaxChars = 300;
+
+    /**
+     * LLM 摘要线程数（满时放弃本次摘要，只保留确定性部分）
+     */
+    private int summaryThreads = 2;
+
+    /**
+     * tiered 存储：会话空闲超过该秒数后编码移到堆外
+     */
+    private int tieredIdleSeconds = 60;
+
+    /**
+     * tiered 存储：空闲会话扫描间隔（毫秒）
+     */
+    private long tieredScanIntervalMillis = 1000;
+
+    /**
+     * tiered 存储：堆外 slab 大小（KB）
+     */
+    private int offHeapSlabKb = 1024;
+
+    /**
+     * tiered 存储：堆外内存上限（MB），用满后空闲会话留在堆上
+     */
+    private int offHeapMaxMb = 1024;
+
+    /**
+     * 是否把会话增量快照到本地磁盘（重启后恢复）
+     */
+    private boolean snapshotEnabled = false;
+
+    /**
+     * 快照日志目录
+     */
+    private String snapshotDir = "data/session-snapshot";
+
+    /**
+     * 快照间隔（毫秒）
+     */
+    private long snapshotIntervalMillis = 1000;
+
+    /**
+     * 快照日志段大小（MB）
+     */
+    private int snapshotSegmentMb = 64;
+
+    /**
+     * 本地近端缓存最大会话数
+     */
+    private int nearCacheMaxEntries = 10000;
+
+    /**
+     * 本地近端缓存有效期（毫秒），决定不使用粘性路由时跨节点读取的最大陈旧时间
+     */
+    private long nearCacheTtlMillis = 1000;
+
+    /**
+     * 异步回写间隔（毫秒），间隔内同一会话的多次保存合并为一次写入
+     */
+    private long writeBehindIntervalMillis = 20;
+
+    /**
+     * 单次回写（pipeline）最大会话数
+     */
+    private int writeBehindMaxBatch = 500;
+}
@@ -1,18 +1,37 @@
 package com.enterprise.agent.controller;
 
+import com.enterprise.agent.cluster.ClusterNode;
+import com.enterprise.agent.cluster.ClusterRouter;
+import com.enterprise.agent.cluster.RequestForwarder;
+import com.enterprise.agent.common.RequestDeadline;
 import com.enterprise.agent.controller.dto.ChatRequest;
 import com.enterprise.agent.controller.dto.ChatResponse;
+import com.enterprise.agent.config.AgentConfig;
 import com.enterprise.agent.log.AgentLogger;
+import com.enterprise.agent.log.MetricsCollector;
 import com.enterprise.agent.orchestrator.AgentOrchestrator;
+import com.enterprise.agent.orchestrator.StageLatencyRecorder;
 import com.enterprise.agent.security.RiskController;
 import com.enterprise.agent.session.ConversationContext;
+import com.enterprise.agent.session.SessionMailbox;
 import com.enterprise.agent.session.SessionManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
 
 /**
  * Agent 主入口 Controller
@@ -20,9 +39,11 @@ import java.util.UUID;
  * 职责：
  * - 接收 HTTP 请求，校验请求格式
  * - 生成 traceId，贯穿全链路
+ * - 创建请求截止时间（RequestDeadline），由各阶段据剩余预算收紧超时或降级
  * - 调用风控层进行前置拦截
- * - 将请求转发给 Orchestrator
- * - 返回响应
+ * - 集群模式下把不归属本节点的会话请求转发给归属节点
+ * - 将请求转发给 Orchestrator（同一会话的请求经 SessionMailbox 串行执行）
+ * - 返回响应（普通 JSON 或 SSE 流式）
  * 
  * 禁止：
  * - 在此层做任何业务逻辑判断
@@ -38,78 +59,349 @@ public class AgentController {
 
     private final AgentOrchestrator orchestrator;
     private final SessionManager sessionManager;
+    private final SessionMailbox sessionMailbox;
+    private final ClusterRouter clusterRouter;
+    private final RequestForwarder requestForwarder;
     private final RiskController riskController;
     private final AgentLogger agentLogger;
+    private final AgentConfig agentConfig;
+    private final MetricsCollector metricsCollector;
+    private final StageLatencyRecorder stageLatencyRecorder;
+    private final Executor taskExecutor;
 
     @Autowired
     public AgentController(AgentOrchestrator orchestrator,
             SessionManager sessionManager,
+            SessionMailbox sessionMailbox,
+            ClusterRouter clusterRouter,
+            RequestForwarder requestForwarder,
             RiskController riskController,
-            AgentLogger agentLogger) {
+            AgentLogger agentLogger,
+            AgentConfig agentConfig,
+            MetricsCollector metricsCollector,
+            StageLatencyRecorder stageLatencyRecorder,
+            @Qualifier("agentTaskExecutor") Executor taskExecutor) {
         this.orchestrator = orchestrator;
         this.sessionManager = sessionManager;
+        this.sessionMailbox = sessionMailbox;
+        this.clusterRouter = clusterRouter;
+        this.requestForwarder = requestForwarder;
         this.riskController = riskController;
         this.agentLogger = agentLogger;
+        this.agentConfig = agentConfig;
+        this.metricsCollector = metricsCollector;
+        this.stageLatencyRecorder = stageLatencyRecorder;
+        this.taskExecutor = taskExecutor;
     }
 
     /**
      * 对话接口
+     *
+     * async 模式下返回未完成的 CompletableFuture（Servlet 异步请求），等待 LLM 期间不占用请求线程；
+     * blocking 模式下在请求线程上同步处理。
      */
     @PostMapping("/chat")
-    public ChatResponse chat(@RequestBody ChatRequest request) {
-        // 1. 生成追踪ID
-        String traceId = generateTraceId();
+    public CompletableFuture<ChatResponse> chat(@RequestBody ChatRequest request,
+            @RequestHeader(value = RequestForwarder.FORWARDED_BY_HEADER, required = false) String forwardedBy,
+            @RequestHeader(value = RequestForwarder.CLUSTER_SECRET_HEADER, required = false) String clusterSecret,
+            @RequestHeader(value = RequestForwarder.TRACE_ID_HEADER, required = false) String forwardedTraceId,
+            @RequestHeader(value = RequestForwarder.DEADLINE_HEADER, required = false) Long forwardedBudgetMs) {
+        // 1. 生成追踪ID（转发请求沿用来源节点的 traceId）
+        String traceId = forwardedTraceId != null ? forwardedTraceId : generateTraceId();
+        RequestDeadline deadline = newDeadline(forwardedBudgetMs);
+        boolean async = agentConfig.isAsyncPipeline();
+
+        // 集群模式：会话不归属本节点时转发给归属节点（经校验的已转发请求直接本地处理）
+        ClusterNode owner = clusterRouter.remoteOwnerOf(request.getSessionId(), forwardedBy, clusterSecret);
+        if (owner != null) {
+            return async
+                    ? requestForwarder.forwardChatAsync(owner, request, traceId, deadline)
+                    : CompletableFuture.completedFuture(requestForwarder.forwardChat(owner, request, traceId, deadline));
+        }
 
         try {
-            // 2. 参数校验
-            String validateError = request.validate();
-            if (validateError != null) {
-                log.warn("[{}] 请求参数校验失败: {}", traceId, validateError);
-                ChatResponse response = ChatResponse.error(400, validateError);
-                response.setTraceId(traceId);
-                return response;
+            // 2. 前置校验（参数、风控）
+            ChatResponse rejected = precheck(traceId, request);
+            if (rejected != null) {
+                return CompletableFuture.completedFuture(rejected);
             }
 
-            // 3. 记录请求日志
-            agentLogger.logRequest(traceId, request.getSessionId(),
-                    request.getUserId(), request.getMessage());
+            // 3. 同会话串行：加载会话 → 编排 → 保存
+            if (!async) {
+                ChatResponse response = sessionMailbox.execute(request.getSessionId(), () -> {
+                    ConversationContext context = openSession(traceId, request, deadline);
+                    return closeSession(traceId, request, context, orchestrator.process(context, request.getMessage()));
+                });
+                // 4. 记录响应日志
+                agentLogger.logResponse(traceId, response);
+                return CompletableFuture.completedFuture(response);
+            }
 
-            // 4. 风控检查（限流、黑名单等）
-            if (!riskController.checkRisk(request.getUserId(), request.getMessage())) {
-                log.warn("[{}] 风控拦截: userId={}", traceId, request.getUserId());
-                ChatResponse response = ChatResponse.error(403, "请求被拒绝，请稍后重试");
-                response.setTraceId(traceId);
+            return submitTurn(traceId, request, deadline, null).handle((response, error) -> {
+                if (error != null) {
+                    return failedTurn(traceId, error);
+                }
+                // 4. 记录响应日志
                 agentLogger.logResponse(traceId, response);
                 return response;
-            }
+            });
+
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(sessionBusy(traceId));
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(failedTurn(traceId, e));
+        }
+    }
+
+    /**
+     * 流式对话接口（Server-Sent Events）
+     *
+     * 事件类型：
+     * - token：响应生成阶段的增量文本，data 为 {"content": "..."}
+     * - done：处理结束，data 为完整的 ChatResponse
+     */
+    @PostMapping(value = "/chat/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter chatStream(@RequestBody ChatRequest request,
+            @RequestHeader(value = RequestForwarder.FORWARDED_BY_HEADER, required = false) String forwardedBy,
+            @RequestHeader(value = RequestForwarder.CLUSTER_SECRET_HEADER, required = false) String clusterSecret,
+            @RequestHeader(value = RequestForwarder.TRACE_ID_HEADER, required = false) String forwardedTraceId,
+            @RequestHeader(value = RequestForwarder.DEADLINE_HEADER, required = false) Long forwardedBudgetMs) {
+        String traceId = forwardedTraceId != null ? forwardedTraceId : generateTraceId();
+        RequestDeadline deadline = newDeadline(forwardedBudgetMs);
+        SseEmitter emitter = new SseEmitter(agentConfig.getStreamTimeoutMs());
 
-            // 5. 加载或创建会话上下文
-            ConversationContext context = sessionManager.getOrCreate(
-                    request.getSessionId(),
-                    request.getUserId());
-            context.setTraceId(traceId);
+        ClusterNode owner = clusterRouter.remoteOwnerOf(request.getSessionId(), forwardedBy, clusterSecret);
+        if (owner != null) {
+            submitStream(traceId, emitter, () -> forwardStream(owner, traceId, request, deadline, emitter));
+            return emitter;
+        }
+
+        ChatResponse rejected = precheck(traceId, request);
+        if (rejected != null) {
+            sendEvent(emitter, "done", rejected);
+            emitter.complete();
+            return emitter;
+        }
 
-            // 6. 调用编排器处理
-            ChatResponse response = orchestrator.process(context, request.getMessage());
+        if (agentConfig.isAsyncPipeline()) {
+            processStreamAsync(traceId, request, deadline, emitter);
+        } else {
+            submitStream(traceId, emitter, () -> processStream(traceId, request, deadline, emitter));
+        }
+        return emitter;
+    }
+
+    private void submitStream(String traceId, SseEmitter emitter, Runnable task) {
+        try {
+            taskExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            log.warn("[{}] 流式任务被拒绝: 线程池已满", traceId);
+            ChatResponse response = ChatResponse.error(503, "系统繁忙，请稍后重试");
             response.setTraceId(traceId);
-            response.setSessionId(request.getSessionId());
+            sendEvent(emitter, "done", response);
+            emitter.complete();
+        }
+    }
 
-            // 7. 保存会话状态
-            sessionManager.save(context);
+    /**
+     * 流式请求转发给归属节点，逐个转发其 SSE 事件
+     */
+    private void forwardStream(ClusterNode owner, String traceId, ChatRequest request, RequestDeadline deadline,
+            SseEmitter emitter) {
+        try {
+            ChatResponse failure = requestForwarder.forwardStream(owner, request, traceId, deadline,
+                    (name, data) -> sendRawEvent(emitter, name, data));
+            if (failure != null) {
+                sendEvent(emitter, "done", failure);
+            }
+        } finally {
+            emitter.complete();
+        }
+    }
 
-            // 8. 记录响应日志
+    /**
+     * 在业务线程池中执行流式处理
+     */
+    private void processStream(String traceId, ChatRequest request, RequestDeadline deadline, SseEmitter emitter) {
+        try {
+            ChatResponse response = sessionMailbox.execute(request.getSessionId(), () -> {
+                ConversationContext context = openSession(traceId, request, deadline);
+                ChatResponse result = orchestrator.process(context, request.getMessage(),
+                        token -> sendEvent(emitter, "token", Collections.singletonMap("content", token)));
+                return closeSession(traceId, request, context, result);
+            });
             agentLogger.logResponse(traceId, response);
 
-            return response;
+            sendEvent(emitter, "done", response);
 
+        } catch (RejectedExecutionException e) {
+            sendEvent(emitter, "done", sessionBusy(traceId));
         } catch (Exception e) {
-            log.error("[{}] Agent 处理异常: {}", traceId, e.getMessage(), e);
-            agentLogger.logError(traceId, e);
+            sendEvent(emitter, "done", failedTurn(traceId, e));
+        } finally {
+            emitter.complete();
+        }
+    }
+
+    /**
+     * 异步流式处理：token 由 LLM 回调线程直接下发，结束时发送 done 事件
+     */
+    private void processStreamAsync(String traceId, ChatRequest request, RequestDeadline deadline,
+            SseEmitter emitter) {
+        CompletableFuture<ChatResponse> turn;
+        try {
+            turn = submitTurn(traceId, request, deadline,
+                    token -> sendEvent(emitter, "token", Collections.singletonMap("content", token)));
+        } catch (RejectedExecutionException e) {
+            sendEvent(emitter, "done", sessionBusy(traceId));
+            emitter.complete();
+            return;
+        }
+        turn.whenComplete((response, error) -> {
+            if (error != null) {
+                sendEvent(emitter, "done", failedTurn(traceId, error));
+            } else {
+                agentLogger.logResponse(traceId, response);
+                sendEvent(emitter, "done", response);
+            }
+            emitter.complete();
+        });
+    }
+
+    /**
+     * 异步处理一轮对话（经 SessionMailbox 与同会话的其他请求串行）
+     *
+     * 加载、保存会话在业务线程池执行，编排由 AgentOrchestrator.processAsync 完成。
+     *
+     * @throws RejectedExecutionException 同会话排队已满
+     */
+    private CompletableFuture<ChatResponse> submitTurn(String traceId, ChatRequest request, RequestDeadline deadline,
+            Consumer<String> tokenSink) {
+        return sessionMailbox.submit(request.getSessionId(), () -> CompletableFuture
+                .supplyAsync(() -> openSession(traceId, request, deadline), taskExecutor)
+                .thenCompose(context -> orchestrator.processAsync(context, request.getMessage(), tokenSink)
+                        .thenApplyAsync(result -> closeSession(traceId, request, context, result), taskExecutor)));
+    }
+
+    /**
+     * 按 requestTimeoutMs 创建请求截止时间（在转发、排队之前创建，同会话排队等待也计入预算）
+     *
+     * @param forwardedBudgetMs 转发请求携带的来源节点剩余预算，取与 requestTimeoutMs 的较小值（只会缩短预算）
+     */
+    private RequestDeadline newDeadline(Long forwardedBudgetMs) {
+        long timeoutMs = agentConfig.getRequestTimeoutMs();
+        if (forwardedBudgetMs != null) {
+            long forwarded = Math.max(0, forwardedBudgetMs);
+            timeoutMs = timeoutMs > 0 ? Math.min(timeoutMs, forwarded) : forwarded;
+            return RequestDeadline.after(timeoutMs, agentConfig.getLlmMinBudgetMs());
+        }
+        return timeoutMs > 0
+                ? RequestDeadline.after(timeoutMs, agentConfig.getLlmMinBudgetMs())
+                : RequestDeadline.NONE;
+    }
 
-            ChatResponse response = ChatResponse.error(500, "系统繁忙，请稍后重试");
+    /**
+     * 加载（或创建）会话并绑定 traceId、请求截止时间
+     */
+    private ConversationContext openSession(String traceId, ChatRequest request, RequestDeadline deadline) {
+        ConversationContext context = sessionManager.getOrCreate(request.getSessionId(), request.getUserId());
+        context.setTraceId(traceId);
+        context.setDeadline(deadline);
+        return context;
+    }
+
+    /**
+     * 填充响应的追踪信息并保存会话
+     */
+    private ChatResponse closeSession(String traceId, ChatRequest request, ConversationContext context,
+            ChatResponse result) {
+        result.setTraceId(traceId);
+        result.setSessionId(request.getSessionId());
+        context.setDeadline(null);
+        sessionManager.save(context);
+        return result;
+    }
+
+    /**
+     * 处理异常时的响应：业务线程池已满返回 503，其余记录错误后返回 500
+     */
+    private ChatResponse failedTurn(String traceId, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        ChatResponse response;
+        if (cause instanceof RejectedExecutionException) {
+            log.warn("[{}] 异步任务被拒绝: 线程池已满", traceId);
+            response = ChatResponse.error(503, "系统繁忙，请稍后重试");
+        } else {
+            log.error("[{}] Agent 处理异常: {}", traceId, cause.getMessage(), cause);
+            agentLogger.logError(traceId, cause instanceof Exception ? (Exception) cause : new RuntimeException(cause));
+            response = ChatResponse.error(500, "系统繁忙，请稍后重试");
+        }
+        response.setTraceId(traceId);
+        return response;
+    }
+
+    /**
+     * 前置校验：参数校验 + 风控检查
+     *
+     * @return 校验失败时的响应，通过返回 null
+     */
+    private ChatResponse precheck(String traceId, ChatRequest request) {
+        // 参数校验
+        String validateError = request.validate();
+        if (validateError != null) {
+            log.warn("[{}] 请求参数校验失败: {}", traceId, validateError);
+            ChatResponse response = ChatResponse.error(400, validateError);
             response.setTraceId(traceId);
             return response;
         }
+
+        // 记录请求日志
+        agentLogger.logRequest(traceId, request.getSessionId(),
+                request.getUserId(), request.getMessage());
+
+        // 风控检查（限流、黑名单等）
+        if (!riskController.checkRisk(request.getUserId(), request.getMessage())) {
+            log.warn("[{}] 风控拦截: userId={}", traceId, request.getUserId());
+            ChatResponse response = ChatResponse.error(403, "请求被拒绝，请稍后重试");
+            response.setTraceId(traceId);
+            agentLogger.logResponse(traceId, response);
+            return response;
+        }
+
+        return null;
+    }
+
+    /**
+     * 同会话已有请求在处理且排队已满（或排队超时）
+     */
+    private ChatResponse sessionBusy(String traceId) {
+        log.warn("[{}] 同会话请求排队已满", traceId);
+        ChatResponse response = ChatResponse.error(429, "上一条消息仍在处理中，请稍后再试");
+        response.setTraceId(traceId);
+        agentLogger.logResponse(traceId, response);
+        return response;
+    }
+
+    /**
+     * 发送 SSE 事件（客户端断开时忽略，不中断后续处理）
+     */
+    private void sendEvent(SseEmitter emitter, String name, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException e) {
+            log.debug("SSE 发送失败(客户端可能已断开): {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 发送已序列化为 JSON 的 SSE 事件（转发归属节点的事件）
+     */
+    private void sendRawEvent(SseEmitter emitter, String name, String json) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(json));
+        } catch (IOException | IllegalStateException e) {
+            log.debug("SSE 发送失败(客户端可能已断开): {}", e.getMessage());
+        }
     }
 
     /**
@@ -120,12 +412,35 @@ public class AgentController {
         return "OK";
     }
 
+    /**
+     * 运行指标
+     */
+    @GetMapping("/metrics")
+    public Map<String, Object> metrics() {
+        return metricsCollector.snapshot();
+    }
+
+    /**
+     * 各阶段耗时分位数（毫秒），键为 状态/意图
+     */
+    @GetMapping("/metrics/stages")
+    public Map<String, Map<String, Object>> stageLatency() {
+        return stageLatencyRecorder.snapshot();
+    }
+
     /**
      * 结束会话
      */
     @PostMapping("/session/end")
-    public ChatResponse endSession(@RequestParam String sessionId) {
-        String traceId = generateTraceId();
+    public ChatResponse endSession(@RequestParam String sessionId,
+            @RequestHeader(value = RequestForwarder.FORWARDED_BY_HEADER, required = false) String forwardedBy,
+            @RequestHeader(value = RequestForwarder.CLUSTER_SECRET_HEADER, required = false) String clusterSecret,
+            @RequestHeader(value = RequestForwarder.TRACE_ID_HEADER, required = false) String forwardedTraceId) {
+        String traceId = forwardedTraceId != null ? forwardedTraceId : generateTraceId();
+        ClusterNode owner = clusterRouter.remoteOwnerOf(sessionId, forwardedBy, clusterSecret);
+        if (owner != null) {
+            return requestForwarder.forwardEndSession(owner, sessionId, traceId);
+        }
         log.info("[{}] 结束会话: sessionId={}", traceId, sessionId);
 
         sessionManager.remove(sessionId);
@@ -0,0 +1,171 @@
+package com.enterprise.agent.intent;
+
+import com.enterprise.agent.config.FastPathConfig;
+import com.enterprise.agent.log.MetricsCollector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * 意图快速通道（规则预分类）
+ *
+ * 职责：
+ * - 在 LLM 意图识别之前，用配置的关键词自动机 + 正则对简短、无歧义的输入直接分类
+ * - 命中规则的意图唯一时返回高置信度结果，否则返回 null 交由 LLM 识别
+ * - 统计快速通道命中次数
+ *
+ * 禁止：
+ * - 输出非预定义意图（规则中的非法意图代码在启动时丢弃）
+ * - 在多个意图同时命中时猜测结果
+ */
+@Component
+public class FastPathClassifier {
+
+    private static final Logger log = LoggerFactory.getLogger(FastPathClassifier.class);
+
+    private final FastPathConfig config;
+    private final MetricsCollector metrics;
+    private final List<CompiledRule> rules = new ArrayList<>();
+    private final KeywordAutomaton automaton;
+
+    @Autowired
+    public FastPathClassifier(FastPathConfig config, MetricsCollector metrics) {
+        this.config = config;
+        this.metrics = metrics;
+
+        // 所有规则的关键词共用一个自动机，规则只记录关键词下标
+        Map<String, Integer> keywordIds = new HashMap<>();
+        List<String> keywords = new ArrayList<>();
+        for (FastPathConfig.Rule rule : config.getRules()) {
+            IntentType intentType = IntentType.fromCode(rule.getIntent());
+            if (intentType == IntentType.UNKNOWN) {
+                log.warn("快速通道规则意图代码无效, 已忽略: rule={}, intent={}", rule.getName(), rule.getIntent());
+                continue;
+            }
+            rules.add(new CompiledRule(rule, intentType,
+                    toIds(rule.getKeywords(), keywordIds, keywords),
+                    toIds(rule.getExcludeKeywords(), keywordIds, keywords)));
+        }
+        this.automaton = new KeywordAutomaton(keywords);
+        log.info("意图快速通道已加载: enabled={}, rules={}, keywords={}",
+                config.isEnabled(), rules.size(), keywords.size());
+    }
+
+    /**
+     * 尝试规则分类
+     *
+     * @return 唯一命中时的识别结果；未命中或有歧义时返回 null
+     */
+    public IntentResult classify(String userMessage) {
+        if (!config.isEnabled() || rules.isEmpty() || userMessage == null) {
+            return null;
+        }
+
+        String text = userMessage.trim().toLowerCase(Locale.ROOT);
+        BitSet matchedKeywords = automaton.match(text);
+
+        CompiledRule winner = null;
+        for (CompiledRule rule : rules) {
+            if (!rule.matches(text, matchedKeywords)) {
+                continue;
+            }
+            if (winner != null && winner.intentType != rule.intentType) {
+                metrics.increment("intent.fastpath.ambiguous");
+                return null;
+            }
+            if (winner == null) {
+                winner = rule;
+            }
+        }
+
+        if (winner == null) {
+            metrics.increment("intent.fastpath.misses");
+            return null;
+        }
+
+        metrics.increment("intent.fastpath.hits");
+        metrics.increment("intent.fastpath.hits." + winner.intentType.getCode());
+        return IntentResult.builder()
+                .intentType(winner.intentType)
+                .confidence(winner.confidence)
+                .rawInput(userMessage)
+                .llmRawResponse("fast-path:" + winner.name)
+                .build();
+    }
+
+    private static int[] toIds(List<String> words, Map<String, Integer> keywordIds, List<String> keywords) {
+        if (words == null) {
+            return new int[0];
+        }
+        int[] ids = new int[words.size()];
+        for (int i = 0; i < words.size(); i++) {
+            String word = words.get(i).toLowerCase(Locale.ROOT);
+            Integer id = keywordIds.get(word);
+            if (id == null) {
+                id = keywords.size();
+                keywords.add(word);
+                keywordIds.put(word, id);
+            }
+            ids[i] = id;
+        }
+        return ids;
+    }
+
+    /**
+     * 编译后的规则
+     */
+    private static final class CompiledRule {
+        final String name;
+        final IntentType intentType;
+        final double confidence;
+        final int maxLength;
+        final Pattern pattern;
+        final int[] keywordIds;
+        final int[] excludeIds;
+
+        CompiledRule(FastPathConfig.Rule rule, IntentType intentType, int[] keywordIds, int[] excludeIds) {
+            this.name = rule.getName() != null ? rule.getName() : rule.getIntent();
+            this.intentType = intentType;
+            this.confidence = rule.getConfidence();
+            this.maxLength = rule.getMaxLength();
+            this.pattern = rule.getPattern() != null && !rule.getPattern().isEmpty()
+                    ? Pattern.compile(rule.getPattern(), Pattern.CASE_INSENSITIVE)
+                    : null;
+            this.keywordIds = keywordIds;
+            this.excludeIds = excludeIds;
+        }
+
+        boolean matches(String text, BitSet matchedKeywords) {
+            if (maxLength > 0 && text.length() > maxLength) {
+                return false;
+            }
+            for (int id : excludeIds) {
+                if (matchedKeywords.get(id)) {
+                    return false;
+                }
+            }
+            if (keywordIds.length > 0 && !anyMatched(matchedKeywords)) {
+                return false;
+            }
+            return pattern == null || pattern.matcher(text).find();
+        }
+
+        private boolean anyMatched(BitSet matchedKeywords) {
+            for (int id : keywordIds) {
+                if (matchedKeywords.get(id)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
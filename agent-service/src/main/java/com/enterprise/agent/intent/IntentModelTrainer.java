@@ -0,0 +1,251 @@
+package com.enterprise.agent.intent;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 本地意图模型离线训练 / 评估工具
+ *
+ * 用法：
+ * <pre>
+ * train  &lt;样本文件&gt; &lt;模型文件&gt; [--bucket-bits 16] [--alpha 0.1] [--holdout 0.1] [--min-confidence 0.7]
+ * report &lt;模型文件&gt; &lt;样本文件&gt; [--min-confidence 0.7]
+ * </pre>
+ *
+ * 样本文件每行一条，支持两种格式：
+ * - AgentLogger 输出的 INTENT 日志行（只取 source=llm 且置信度达标的记录）
+ * - 制表符分隔的 "意图代码\t用户输入"
+ *
+ * report 输出本地模型与 LLM 标注的逐条一致率、各阈值下的覆盖率/准确率以及各意图的精确率/召回率。
+ */
+public final class IntentModelTrainer {
+
+    private static final String INTENT_LOG_MARKER = " INTENT: ";
+    private static final double[] REPORT_THRESHOLDS = {0.5, 0.6, 0.7, 0.8, 0.9, 0.95, 0.99};
+
+    private IntentModelTrainer() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            printUsage();
+            System.exit(1);
+        }
+        Map<String, String> options = parseOptions(args);
+        double minConfidence = Double.parseDouble(option(options, "min-confidence", "0.7"));
+
+        if ("train".equals(args[0])) {
+            int bucketBits = Integer.parseInt(option(options, "bucket-bits", "16"));
+            double alpha = Double.parseDouble(option(options, "alpha", "0.1"));
+            double holdout = Double.parseDouble(option(options, "holdout", "0.1"));
+
+            List<NaiveBayesIntentModel.Sample> samples = readSamples(Paths.get(args[1]), minConfidence);
+            List<NaiveBayesIntentModel.Sample> training = new ArrayList<>();
+            List<NaiveBayesIntentModel.Sample> evaluation = new ArrayList<>();
+            for (NaiveBayesIntentModel.Sample sample : samples) {
+                // 按文本哈希切分，相同输入不会同时出现在训练集与评估集
+                boolean held = (sample.getText().hashCode() & 0x7fffffff) % 1000 < holdout * 1000;
+                (held ? evaluation : training).add(sample);
+            }
+
+            NaiveBayesIntentModel model = NaiveBayesIntentModel.train(training, bucketBits, alpha);
+            Path output = Paths.get(args[2]);
+            try (OutputStream out = Files.newOutputStream(output)) {
+                model.writeTo(out);
+            }
+            System.out.printf("训练完成: samples=%d, training=%d, holdout=%d, intents=%d, model=%s (%d bytes)%n",
+                    samples.size(), training.size(), evaluation.size(), model.getIntents().size(),
+                    output, Files.size(output));
+
+            if (!evaluation.isEmpty()) {
+                report(model, evaluation, System.out);
+            }
+
+        } else if ("report".equals(args[0])) {
+            NaiveBayesIntentModel model;
+            try (InputStream in = Files.newInputStream(Paths.get(args[1]))) {
+                model = NaiveBayesIntentModel.readFrom(in);
+            }
+            report(model, readSamples(Paths.get(args[2]), minConfidence), System.out);
+
+        } else {
+            printUsage();
+            System.exit(1);
+        }
+    }
+
+    /**
+     * 输出本地模型与标注（LLM 结果）的对照报告
+     */
+    static void report(NaiveBayesIntentModel model, List<NaiveBayesIntentModel.Sample> samples, PrintStream out) {
+        NaiveBayesIntentModel.Scratch scratch = model.newScratch();
+        int total = samples.size();
+        IntentType[] predicted = new IntentType[total];
+        double[] confidence = new double[total];
+        int agree = 0;
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < total; i++) {
+            predicted[i] = model.classify(samples.get(i).getText(), scratch);
+            confidence[i] = scratch.getConfidence();
+            if (predicted[i] == samples.get(i).getIntent()) {
+                agree++;
+            }
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+
+        out.printf("%n==== 本地模型 vs LLM 对照报告 ====%n");
+        out.printf("样本数: %d, 逐条一致率: %.2f%%, 平均分类耗时: %.2f us%n",
+                total, percent(agree, total), total > 0 ? elapsedNanos / 1000.0 / total : 0.0);
+
+        out.printf("%n%-10s %-10s %-12s%n", "阈值", "覆盖率", "覆盖部分准确率");
+        for (double threshold : REPORT_THRESHOLDS) {
+            int covered = 0;
+            int correct = 0;
+            for (int i = 0; i < total; i++) {
+                if (predicted[i] != IntentType.UNKNOWN && confidence[i] >= threshold) {
+                    covered++;
+                    if (predicted[i] == samples.get(i).getIntent()) {
+                        correct++;
+                    }
+                }
+            }
+            out.printf("%-12.2f %-12s %-12s%n", threshold,
+                    String.format("%.2f%%", percent(covered, total)),
+                    String.format("%.2f%%", percent(correct, covered)));
+        }
+
+        Map<IntentType, int[]> perIntent = new TreeMap<>();
+        Map<String, Integer> confusions = new LinkedHashMap<>();
+        for (int i = 0; i < total; i++) {
+            IntentType actual = samples.get(i).getIntent();
+            // [support, predicted, correct]
+            perIntent.computeIfAbsent(actual, k -> new int[3])[0]++;
+            perIntent.computeIfAbsent(predicted[i], k -> new int[3])[1]++;
+            if (predicted[i] == actual) {
+                perIntent.get(actual)[2]++;
+            } else {
+                String key = actual.getCode() + " -> " + predicted[i].getCode();
+                confusions.merge(key, 1, Integer::sum);
+            }
+        }
+
+        out.printf("%n%-20s %-8s %-10s %-10s%n", "意图", "样本数", "精确率", "召回率");
+        for (Map.Entry<IntentType, int[]> entry : perIntent.entrySet()) {
+            int[] stats = entry.getValue();
+            out.printf("%-22s %-10d %-12s %-12s%n", entry.getKey().getCode(), stats[0],
+                    String.format("%.2f%%", percent(stats[2], stats[1])),
+                    String.format("%.2f%%", percent(stats[2], stats[0])));
+        }
+
+        if (!confusions.isEmpty()) {
+            out.printf("%n主要分歧（LLM -> 本地）:%n");
+            confusions.entrySet().stream()
+                    .sorted((a, b) -> b.getValue() - a.getValue())
+                    .limit(10)
+                    .forEach(e -> out.printf("  %-45s %d%n", e.getKey(), e.getValue()));
+        }
+    }
+
+    /**
+     * 读取样本
+     */
+    static List<NaiveBayesIntentModel.Sample> readSamples(Path path, double minConfidence) throws IOException {
+        List<NaiveBayesIntentModel.Sample> samples = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                NaiveBayesIntentModel.Sample sample = line.contains(INTENT_LOG_MARKER)
+                        ? parseIntentLog(line, minConfidence)
+                        : parseTsv(line);
+                if (sample != null) {
+                    samples.add(sample);
+                }
+            }
+        }
+        return samples;
+    }
+
+    /**
+     * 解析 AgentLogger INTENT 日志：source=llm, intent=xxx, confidence=0.9, message=...
+     */
+    private static NaiveBayesIntentModel.Sample parseIntentLog(String line, double minConfidence) {
+        String body = line.substring(line.indexOf(INTENT_LOG_MARKER) + INTENT_LOG_MARKER.length());
+        int messageIndex = body.indexOf("message=");
+        if (messageIndex < 0 || !"llm".equals(field(body, "source"))) {
+            return null;
+        }
+        IntentType intent = IntentType.fromCode(field(body, "intent"));
+        double confidence;
+        try {
+            confidence = Double.parseDouble(field(body, "confidence"));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        String message = body.substring(messageIndex + "message=".length()).trim();
+        if (confidence < minConfidence || message.isEmpty() || "null".equals(message)) {
+            return null;
+        }
+        return new NaiveBayesIntentModel.Sample(intent, message);
+    }
+
+    private static NaiveBayesIntentModel.Sample parseTsv(String line) {
+        int tab = line.indexOf('\t');
+        if (tab <= 0 || tab == line.length() - 1) {
+            return null;
+        }
+        String code = line.substring(0, tab).trim();
+        IntentType intent = IntentType.fromCode(code);
+        if (!intent.getCode().equalsIgnoreCase(code)) {
+            return null;
+        }
+        return new NaiveBayesIntentModel.Sample(intent, line.substring(tab + 1).trim());
+    }
+
+    private static String field(String body, String name) {
+        String key = name + "=";
+        int start = body.indexOf(key);
+        if (start < 0) {
+            return "";
+        }
+        start += key.length();
+        int end = body.indexOf(',', start);
+        return (end < 0 ? body.substring(start) : body.substring(start, end)).trim();
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (int i = 3; i + 1 < args.length; i += 2) {
+            if (args[i].startsWith("--")) {
+                options.put(args[i].substring(2), args[i + 1]);
+            }
+        }
+        return options;
+    }
+
+    private static String option(Map<String, String> options, String name, String defaultValue) {
+        String value = options.get(name);
+        return value != null ? value : defaultValue;
+    }
+
+    private static double percent(int numerator, int denominator) {
+        return denominator > 0 ? 100.0 * numerator / denominator : 0.0;
+    }
+
+    private static void printUsage() {
+        System.err.println("用法:");
+        System.err.println("  train  <样本文件> <模型文件> [--bucket-bits 16] [--alpha 0.1] [--holdout 0.1] [--min-confidence 0.7]");
+        System.err.println("  report <模型文件> <样本文件> [--min-confidence 0.7]");
+    }
+}
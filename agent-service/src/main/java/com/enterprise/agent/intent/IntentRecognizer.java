@@ -9,12 +9,18 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * 意图识别器
  * 
  * 职责：
  * - 调用 LLM 将用户自然语言输入转换为预定义的意图类型
  * - 返回意图类型（IntentType 枚举）和置信度分数
+ * - 一条消息包含多个问题时，其余意图随主意图一并返回（additionalIntents）
  * - 提供对话历史摘要给 LLM 作为上下文参考
  * 
  * 禁止：
@@ -39,6 +45,20 @@ public class IntentRecognizer {
      * 识别用户意图
      */
     public IntentResult recognize(ConversationContext context, String userMessage) {
+        return recognize(context, userMessage, false).join();
+    }
+
+    /**
+     * 异步识别用户意图（等待 LLM 期间不占用调用线程）
+     */
+    public CompletableFuture<IntentResult> recognizeAsync(ConversationContext context, String userMessage) {
+        return recognize(context, userMessage, true);
+    }
+
+    /**
+     * Prompt 在调用线程上构建（读取会话历史），async 为 false 时同步调用 LLM 并返回已完成的 future
+     */
+    private CompletableFuture<IntentResult> recognize(ConversationContext context, String userMessage, boolean async) {
         String traceId = context.getTraceId();
 
         try {
@@ -50,24 +70,34 @@ public class IntentRecognizer {
                     .prompt(prompt)
                     .maxTokens(200)
                     .temperature(0.1) // 低温度以获得更确定的结果
+                    .deadline(context.getDeadline())
                     .build();
 
-            LLMResponse response = llmClient.complete(request);
-
-            if (!response.isSuccess()) {
-                log.error("[{}] LLM 调用失败: {}", traceId, response.getErrorMessage());
-                return IntentResult.failed(userMessage, response.getErrorMessage());
-            }
-
-            // 3. 解析 LLM 响应
-            return parseIntentResponse(response.getContent(), userMessage);
+            CompletableFuture<LLMResponse> response = async
+                    ? llmClient.completeAsync(request)
+                    : CompletableFuture.completedFuture(llmClient.complete(request));
+            return response.handle((result, error) -> toIntentResult(traceId, userMessage, result, error));
 
         } catch (Exception e) {
             log.error("[{}] 意图识别异常: {}", traceId, e.getMessage(), e);
-            return IntentResult.failed(userMessage, e.getMessage());
+            return CompletableFuture.completedFuture(IntentResult.failed(userMessage, e.getMessage()));
         }
     }
 
+    private IntentResult toIntentResult(String traceId, String userMessage, LLMResponse response, Throwable error) {
+        if (error != null) {
+            log.error("[{}] 意图识别异常: {}", traceId, error.getMessage(), error);
+            return IntentResult.failed(userMessage, error.getMessage());
+        }
+        if (!response.isSuccess()) {
+            log.error("[{}] LLM 调用失败: {}", traceId, response.getErrorMessage());
+            return IntentResult.failed(userMessage, response.getErrorMessage());
+        }
+
+        // 3. 解析 LLM 响应
+        return parseIntentResponse(response.getContent(), userMessage);
+    }
+
     /**
      * 构建意图识别 Prompt
      */
@@ -75,8 +105,8 @@ public class IntentRecognizer {
         // 获取所有意图类型列表
         String intentList = IntentType.getAllCodesForPrompt();
 
-        // 构建历史对话摘要（最近3轮）
-        String historyBrief = context.getRecentHistoryBrief(3);
+        // 构建历史对话摘要（早期对话摘要 + 最近3轮）
+        String historyBrief = context.getPromptHistory();
 
         return "你是一个意图识别专家。请根据用户输入，识别其意图。\n\n" +
                 "【可选意图列表】（只能从以下选项中选择）：\n" +
@@ -87,17 +117,19 @@ public class IntentRecognizer {
                 userMessage + "\n\n" +
                 "【输出要求】：\n" +
                 "请以严格的 JSON 格式返回，不要包含任何其他内容：\n" +
-                "{\"intent\": \"意图代码\", \"confidence\": 0.xx}\n\n" +
+                "{\"intent\": \"意图代码\", \"confidence\": 0.xx, \"also\": []}\n\n" +
                 "注意：\n" +
                 "1. intent 必须是上述意图列表中的 code\n" +
-                "2. 如果无法确定，返回 {\"intent\": \"unknown\", \"confidence\": 0.0}\n" +
-                "3. confidence 范围 0.0-1.0";
+                "2. 如果无法确定，返回 {\"intent\": \"unknown\", \"confidence\": 0.0, \"also\": []}\n" +
+                "3. confidence 范围 0.0-1.0\n" +
+                "4. 用户在同一条消息中还提出了其他问题时，intent 为第一个问题的意图，" +
+                "其余问题的意图 code 按顺序放入 also，否则 also 为空数组";
     }
 
     /**
-     * 解析 LLM 响应
+     * 解析 LLM 响应（联合识别模式复用）
      */
-    private IntentResult parseIntentResponse(String llmResponse, String rawInput) {
+    IntentResult parseIntentResponse(String llmResponse, String rawInput) {
         try {
             // 提取 JSON 部分
             String jsonStr = extractJson(llmResponse);
@@ -120,6 +152,7 @@ public class IntentRecognizer {
                     .confidence(confidence)
                     .rawInput(rawInput)
                     .llmRawResponse(llmResponse)
+                    .additionalIntents(parseAdditionalIntents(jsonStr, intentType, confidence, rawInput))
                     .build();
 
         } catch (Exception e) {
@@ -128,6 +161,36 @@ public class IntentRecognizer {
         }
     }
 
+    /**
+     * 解析 also 数组：丢弃未知、重复及与主意图相同的意图，置信度沿用主意图
+     */
+    private List<IntentResult> parseAdditionalIntents(String json, IntentType primary, double confidence,
+            String rawInput) {
+        int keyIndex = json.indexOf("\"also\"");
+        int start = keyIndex < 0 ? -1 : json.indexOf('[', keyIndex);
+        int end = start < 0 ? -1 : json.indexOf(']', start);
+        if (end < 0) {
+            return Collections.emptyList();
+        }
+        List<IntentResult> additional = new ArrayList<>();
+        List<IntentType> seen = new ArrayList<>();
+        seen.add(primary);
+        for (String code : json.substring(start + 1, end).split(",")) {
+            IntentType intentType = IntentType.fromCode(code.replace("\"", ""));
+            if (intentType == IntentType.UNKNOWN || seen.contains(intentType)) {
+                continue;
+            }
+            seen.add(intentType);
+            additional.add(IntentResult.builder()
+                    .intentType(intentType)
+                    .confidence(confidence)
+                    .rawInput(rawInput)
+                    .llmRawResponse("also")
+                    .build());
+        }
+        return additional;
+    }
+
     /**
      * 从 LLM 响应中提取 JSON
      */
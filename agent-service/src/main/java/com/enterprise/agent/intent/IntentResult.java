@@ -44,6 +44,16 @@ public class IntentResult implements Serializable {
      */
     private String llmRawResponse;
 
+    /**
+     * 槽位是否已完成抽取（联合识别模式下随意图一并返回）
+     */
+    private boolean slotsExtracted;
+
+    /**
+     * 同一条消息中的其他意图（多意图消息，按出现顺序；本身不再嵌套）
+     */
+    private List<IntentResult> additionalIntents;
+
     /**
      * 私有构造函数，使用 Builder 创建实例
      */
@@ -78,6 +88,7 @@ public class IntentResult implements Serializable {
         result.llmRawResponse = reason;
         result.slots = Collections.emptyMap();
         result.missingSlots = Collections.emptyList();
+        result.additionalIntents = Collections.emptyList();
         return result;
     }
 
@@ -138,6 +149,22 @@ public class IntentResult implements Serializable {
         this.llmRawResponse = llmRawResponse;
     }
 
+    public boolean isSlotsExtracted() {
+        return slotsExtracted;
+    }
+
+    public void setSlotsExtracted(boolean slotsExtracted) {
+        this.slotsExtracted = slotsExtracted;
+    }
+
+    public List<IntentResult> getAdditionalIntents() {
+        return additionalIntents != null ? additionalIntents : Collections.<IntentResult>emptyList();
+    }
+
+    public void setAdditionalIntents(List<IntentResult> additionalIntents) {
+        this.additionalIntents = additionalIntents;
+    }
+
     @Override
     public String toString() {
         return "IntentResult{" +
@@ -145,6 +172,7 @@ public class IntentResult implements Serializable {
                 ", confidence=" + confidence +
                 ", slots=" + slots +
                 ", missingSlots=" + missingSlots +
+                ", additionalIntents=" + getAdditionalIntents().size() +
                 ", rawInput='" + rawInput + '\'' +
                 '}';
     }
@@ -184,6 +212,11 @@ public class IntentResult implements Serializable {
             return this;
         }
 
+        public Builder additionalIntents(List<IntentResult> additionalIntents) {
+            result.additionalIntents = additionalIntents;
+            return this;
+        }
+
         public IntentResult build() {
             if (result.slots == null) {
                 result.slots = Collections.emptyMap();
@@ -191,6 +224,9 @@ public class IntentResult implements Serializable {
             if (result.missingSlots == null) {
                 result.missingSlots = Collections.emptyList();
             }
+            if (result.additionalIntents == null) {
+                result.additionalIntents = Collections.emptyList();
+            }
             return result;
         }
     }
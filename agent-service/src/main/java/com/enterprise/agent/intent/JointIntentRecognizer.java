@@ -0,0 +1,159 @@
+package com.enterprise.agent.intent;
+
+import com.enterprise.agent.llm.LLMClient;
+import com.enterprise.agent.llm.LLMRequest;
+import com.enterprise.agent.llm.LLMResponse;
+import com.enterprise.agent.session.ConversationContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 意图与槽位联合识别器
+ *
+ * 职责：
+ * - 一次 LLM 调用同时返回意图、置信度及该意图的槽位值，省去单独的槽位抽取调用
+ * - 意图解析复用 IntentRecognizer，槽位校验与缺失判定复用 SlotExtractor
+ *
+ * 禁止：
+ * - 接受 LLM 返回的非预定义意图类型或槽位名
+ * - 绕过 SlotExtractor 的格式校验
+ * - 直接修改会话状态
+ */
+@Component
+public class JointIntentRecognizer {
+
+    private static final Logger log = LoggerFactory.getLogger(JointIntentRecognizer.class);
+
+    private final LLMClient llmClient;
+    private final IntentRecognizer intentRecognizer;
+    private final SlotExtractor slotExtractor;
+
+    /**
+     * 各意图槽位说明（由 SlotExtractor 的槽位定义生成，启动时构建一次）
+     */
+    private final String slotCatalog;
+
+    @Autowired
+    public JointIntentRecognizer(LLMClient llmClient,
+            IntentRecognizer intentRecognizer,
+            SlotExtractor slotExtractor) {
+        this.llmClient = llmClient;
+        this.intentRecognizer = intentRecognizer;
+        this.slotExtractor = slotExtractor;
+        this.slotCatalog = buildSlotCatalog();
+    }
+
+    /**
+     * 识别意图并抽取槽位
+     *
+     * LLM 未返回 slots 字段时不标记槽位已抽取，由调用方回退到 SlotExtractor.extractSlots
+     */
+    public IntentResult recognize(ConversationContext context, String userMessage) {
+        return recognize(context, userMessage, false).join();
+    }
+
+    /**
+     * 异步识别意图并抽取槽位（等待 LLM 期间不占用调用线程）
+     */
+    public CompletableFuture<IntentResult> recognizeAsync(ConversationContext context, String userMessage) {
+        return recognize(context, userMessage, true);
+    }
+
+    private CompletableFuture<IntentResult> recognize(ConversationContext context, String userMessage, boolean async) {
+        String traceId = context.getTraceId();
+
+        try {
+            String prompt = buildJointPrompt(context, userMessage);
+
+            LLMRequest request = LLMRequest.builder()
+                    .prompt(prompt)
+                    .maxTokens(300)
+                    .temperature(0.1)
+                    .deadline(context.getDeadline())
+                    .build();
+
+            CompletableFuture<LLMResponse> response = async
+                    ? llmClient.completeAsync(request)
+                    : CompletableFuture.completedFuture(llmClient.complete(request));
+            return response.handle((result, error) -> toIntentResult(traceId, userMessage, result, error));
+
+        } catch (Exception e) {
+            log.error("[{}] 联合识别异常: {}", traceId, e.getMessage(), e);
+            return CompletableFuture.completedFuture(IntentResult.failed(userMessage, e.getMessage()));
+        }
+    }
+
+    private IntentResult toIntentResult(String traceId, String userMessage, LLMResponse response, Throwable error) {
+        if (error != null) {
+            log.error("[{}] 联合识别异常: {}", traceId, error.getMessage(), error);
+            return IntentResult.failed(userMessage, error.getMessage());
+        }
+        if (!response.isSuccess()) {
+            log.error("[{}] 联合识别 LLM 调用失败: {}", traceId, response.getErrorMessage());
+            return IntentResult.failed(userMessage, response.getErrorMessage());
+        }
+
+        String content = response.getContent();
+        IntentResult intentResult = intentRecognizer.parseIntentResponse(content, userMessage);
+        if (intentResult.isRecognized() && content.contains("\"slots\"")) {
+            slotExtractor.applySlots(intentResult, content);
+        }
+        return intentResult;
+    }
+
+    /**
+     * 构建联合识别 Prompt
+     */
+    private String buildJointPrompt(ConversationContext context, String userMessage) {
+        String intentList = IntentType.getAllCodesForPrompt();
+        String historyBrief = context.getPromptHistory();
+
+        return "你是一个意图与参数联合识别专家。请识别用户意图，并提取该意图需要的参数。\n\n" +
+                "【可选意图列表】（只能从以下选项中选择）：\n" +
+                intentList + "\n" +
+                "【各意图需要的参数】（未列出的意图无需参数）：\n" +
+                slotCatalog + "\n" +
+                "【历史对话摘要】：\n" +
+                historyBrief + "\n" +
+                "【当前用户输入】：\n" +
+                userMessage + "\n\n" +
+                "【输出要求】：\n" +
+                "请以严格的 JSON 格式返回，不要包含任何其他内容：\n" +
+                "{\"intent\": \"意图代码\", \"confidence\": 0.xx, \"slots\": {\"参数名\": \"参数值\"}, \"also\": []}\n\n" +
+                "注意：\n" +
+                "1. intent 必须是上述意图列表中的 code\n" +
+                "2. 如果无法确定，返回 {\"intent\": \"unknown\", \"confidence\": 0.0, \"slots\": {}, \"also\": []}\n" +
+                "3. confidence 范围 0.0-1.0\n" +
+                "4. slots 只包含所选意图的参数，只提取用户明确提到的信息，无法提取的参数值设为 null\n" +
+                "5. 不要推断或补全任何信息\n" +
+                "6. 用户在同一条消息中还提出了其他问题时，intent 与 slots 对应第一个问题，" +
+                "其余问题的意图 code 按顺序放入 also（其参数由系统另行抽取），否则 also 为空数组";
+    }
+
+    private static String buildSlotCatalog() {
+        StringBuilder catalog = new StringBuilder();
+        for (IntentType intentType : IntentType.values()) {
+            List<SlotExtractor.SlotDefinition> slotDefs = SlotExtractor.getSlotDefinitions(intentType);
+            if (slotDefs.isEmpty()) {
+                continue;
+            }
+            catalog.append("- ").append(intentType.getCode()).append(": ");
+            for (int i = 0; i < slotDefs.size(); i++) {
+                SlotExtractor.SlotDefinition def = slotDefs.get(i);
+                if (i > 0) {
+                    catalog.append(", ");
+                }
+                catalog.append(def.getName())
+                        .append("(").append(def.getDescription())
+                        .append(", ").append(def.isRequired() ? "必填" : "选填").append(")");
+            }
+            catalog.append("\n");
+        }
+        return catalog.toString();
+    }
+}
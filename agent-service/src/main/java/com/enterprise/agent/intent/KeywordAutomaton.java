@@ -0,0 +1,121 @@
+package com.enterprise.agent.intent;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * 多模式关键词匹配自动机（Aho-Corasick）
+ *
+ * 构建后只读，线程安全；一次扫描输入即可找出全部命中的关键词，耗时与关键词数量无关
+ *
+ * 以 ASCII 字母数字开头（结尾）的关键词要求命中位置之前（之后）不紧邻 ASCII 字母数字，
+ * 即英文按整词匹配（"hello" 不命中 "helloworld"）；中文无词边界，仍按子串匹配
+ */
+final class KeywordAutomaton {
+
+    private final List<Map<Character, Integer>> transitions = new ArrayList<>();
+    private final int[] failure;
+    private final int[][] outputs;
+    private final String[] keywords;
+
+    /**
+     * @param keywords 关键词列表，命中结果以其下标表示
+     */
+    KeywordAutomaton(List<String> keywords) {
+        this.keywords = keywords.toArray(new String[0]);
+        List<List<Integer>> outputLists = new ArrayList<>();
+        transitions.add(new HashMap<>());
+        outputLists.add(new ArrayList<>());
+
+        // 1. 构建 trie
+        for (int id = 0; id < keywords.size(); id++) {
+            String keyword = keywords.get(id);
+            int state = 0;
+            for (int i = 0; i < keyword.length(); i++) {
+                char c = keyword.charAt(i);
+                Integer next = transitions.get(state).get(c);
+                if (next == null) {
+                    next = transitions.size();
+                    transitions.add(new HashMap<>());
+                    outputLists.add(new ArrayList<>());
+                    transitions.get(state).put(c, next);
+                }
+                state = next;
+            }
+            if (!keyword.isEmpty()) {
+                outputLists.get(state).add(id);
+            }
+        }
+
+        // 2. BFS 计算失败指针，并合并后缀状态的输出
+        failure = new int[transitions.size()];
+        Queue<Integer> queue = new ArrayDeque<>(transitions.get(0).values());
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (Map.Entry<Character, Integer> edge : transitions.get(state).entrySet()) {
+                int child = edge.getValue();
+                int fallback = failure[state];
+                while (fallback != 0 && !transitions.get(fallback).containsKey(edge.getKey())) {
+                    fallback = failure[fallback];
+                }
+                Integer target = transitions.get(fallback).get(edge.getKey());
+                failure[child] = (target != null && target != child) ? target : 0;
+                outputLists.get(child).addAll(outputLists.get(failure[child]));
+                queue.add(child);
+            }
+        }
+
+        outputs = new int[outputLists.size()][];
+        for (int state = 0; state < outputLists.size(); state++) {
+            List<Integer> list = outputLists.get(state);
+            outputs[state] = new int[list.size()];
+            for (int i = 0; i < list.size(); i++) {
+                outputs[state][i] = list.get(i);
+            }
+        }
+    }
+
+    /**
+     * 扫描文本，返回命中的关键词下标集合
+     */
+    BitSet match(CharSequence text) {
+        BitSet matched = new BitSet();
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            Integer next = transitions.get(state).get(c);
+            while (next == null && state != 0) {
+                state = failure[state];
+                next = transitions.get(state).get(c);
+            }
+            state = next != null ? next : 0;
+            for (int id : outputs[state]) {
+                if (atWordBoundary(text, i + 1 - keywords[id].length(), i, keywords[id])) {
+                    matched.set(id);
+                }
+            }
+        }
+        return matched;
+    }
+
+    /**
+     * 命中位置 [start, end] 两端是否满足英文整词要求
+     */
+    private static boolean atWordBoundary(CharSequence text, int start, int end, String keyword) {
+        if (isAsciiLetterOrDigit(keyword.charAt(0)) && start > 0 && isAsciiLetterOrDigit(text.charAt(start - 1))) {
+            return false;
+        }
+        return !isAsciiLetterOrDigit(keyword.charAt(keyword.length() - 1))
+                || end + 1 >= text.length()
+                || !isAsciiLetterOrDigit(text.charAt(end + 1));
+    }
+
+    private static boolean isAsciiLetterOrDigit(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+    }
+}
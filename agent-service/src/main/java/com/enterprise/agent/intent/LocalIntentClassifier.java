@@ -0,0 +1,112 @@
+package com.enterprise.agent.intent;
+
+import com.enterprise.agent.config.AgentConfig;
+import com.enterprise.agent.log.MetricsCollector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 本地意图分类器
+ *
+ * 职责：
+ * - 启动时加载离线训练的朴素贝叶斯模型（agent.local-model-path，未配置则不启用）
+ * - 置信度达到 AgentConfig.intentConfidenceThreshold 时直接给出意图，低于阈值交由 LLM
+ * - 对升级到 LLM 的请求统计本地预测与 LLM 结果的一致率
+ *
+ * 禁止：
+ * - 输出非预定义意图
+ * - 以本地模型的 UNKNOWN 结论代替 LLM 判断（UNKNOWN 一律升级）
+ */
+@Component
+public class LocalIntentClassifier {
+
+    private static final Logger log = LoggerFactory.getLogger(LocalIntentClassifier.class);
+
+    private final AgentConfig agentConfig;
+    private final MetricsCollector metrics;
+    private final NaiveBayesIntentModel model;
+    private final ThreadLocal<NaiveBayesIntentModel.Scratch> scratch;
+
+    @Autowired
+    public LocalIntentClassifier(AgentConfig agentConfig, MetricsCollector metrics, ResourceLoader resourceLoader) {
+        this.agentConfig = agentConfig;
+        this.metrics = metrics;
+        this.model = loadModel(agentConfig.getLocalModelPath(), resourceLoader);
+        this.scratch = model != null ? ThreadLocal.withInitial(model::newScratch) : null;
+    }
+
+    /**
+     * 本地分类
+     *
+     * @return 分类结果（置信度可能低于阈值）；未启用模型时返回 null
+     */
+    public IntentResult classify(String userMessage) {
+        if (model == null || userMessage == null) {
+            return null;
+        }
+        NaiveBayesIntentModel.Scratch buffer = scratch.get();
+        IntentType intentType = model.classify(userMessage, buffer);
+        return IntentResult.builder()
+                .intentType(intentType)
+                .confidence(buffer.getConfidence())
+                .rawInput(userMessage)
+                .llmRawResponse("local-model")
+                .build();
+    }
+
+    /**
+     * 本地结果是否可直接采用
+     */
+    public boolean isConfident(IntentResult localResult) {
+        boolean confident = meetsThreshold(localResult);
+        if (localResult != null) {
+            metrics.increment(confident ? "intent.local.hits" : "intent.local.escalated");
+        }
+        return confident;
+    }
+
+    /**
+     * 本地结果是否达到置信度阈值（不计入命中 / 升级统计，用于续接前的辅助判断）
+     */
+    public boolean meetsThreshold(IntentResult localResult) {
+        return localResult != null
+                && localResult.getIntentType() != IntentType.UNKNOWN
+                && localResult.getConfidence() >= agentConfig.getIntentConfidenceThreshold();
+    }
+
+    /**
+     * 记录升级请求中本地预测与 LLM 结果是否一致
+     */
+    public void recordAgreement(IntentResult localResult, IntentResult llmResult) {
+        if (localResult == null || llmResult.getIntentType() == IntentType.UNKNOWN) {
+            return;
+        }
+        metrics.increment(localResult.getIntentType() == llmResult.getIntentType()
+                ? "intent.local.agree"
+                : "intent.local.disagree");
+    }
+
+    private static NaiveBayesIntentModel loadModel(String path, ResourceLoader resourceLoader) {
+        if (path == null || path.trim().isEmpty()) {
+            log.info("未配置本地意图模型, 意图识别全部走 LLM");
+            return null;
+        }
+        Resource resource = resourceLoader.getResource(path.trim());
+        try (InputStream input = resource.getInputStream()) {
+            NaiveBayesIntentModel model = NaiveBayesIntentModel.readFrom(input);
+            log.info("本地意图模型已加载: path={}, intents={}, bucketBits={}",
+                    path, model.getIntents().size(), model.getBucketBits());
+            return model;
+        } catch (IOException e) {
+            log.error("加载本地意图模型失败, 意图识别全部走 LLM: path={}, error={}", path, e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,349 @@
+package com.enterprise.agent.intent;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 多项式朴素贝叶斯意图模型（字符 1-gram + 2-gram，特征哈希）
+ *
+ * - 特征：归一化后的单字与相邻字对（含首尾边界），哈希到 2^bucketBits 个桶
+ * - 参数按 桶 × 类别 连续存放，分类时顺序访问
+ * - 置信度 = 后验概率 × 特征覆盖率（训练中出现过的特征占比），
+ *   避免训练集外的输入因朴素贝叶斯后验过度自信而被误判为高置信度
+ * - 分类只使用调用方提供的 {@link Scratch}，不产生对象分配
+ * - 模型文件：GZIP 压缩的二进制（魔数、版本、桶位数、类别表、对数概率）
+ *
+ * 构建后只读，线程安全。
+ */
+public final class NaiveBayesIntentModel {
+
+    private static final int MAGIC = 0x4A54494D;
+    private static final int VERSION = 1;
+
+    /**
+     * 参与分类的最大字符数（超出部分忽略）
+     */
+    public static final int MAX_CHARS = 256;
+
+    private static final int BOUNDARY = 0xFFFE;
+
+    private final int bucketBits;
+    private final int bucketMask;
+    private final IntentType[] intents;
+    private final float[] logPriors;
+
+    /**
+     * 对数似然，下标为 bucket * classCount + classIndex
+     */
+    private final float[] logLikelihoods;
+
+    /**
+     * 训练中出现过的特征桶
+     */
+    private final BitSet knownBuckets;
+
+    private NaiveBayesIntentModel(int bucketBits, IntentType[] intents, float[] logPriors, float[] logLikelihoods) {
+        this.bucketBits = bucketBits;
+        this.bucketMask = (1 << bucketBits) - 1;
+        this.intents = intents;
+        this.logPriors = logPriors;
+        this.logLikelihoods = logLikelihoods;
+        this.knownBuckets = findKnownBuckets(intents.length, logLikelihoods);
+    }
+
+    /**
+     * 未出现的特征在各类别上都取平滑下限值，高于下限即为训练中出现过
+     */
+    private static BitSet findKnownBuckets(int classCount, float[] logLikelihoods) {
+        float[] floors = new float[classCount];
+        Arrays.fill(floors, Float.POSITIVE_INFINITY);
+        for (int i = 0; i < logLikelihoods.length; i++) {
+            floors[i % classCount] = Math.min(floors[i % classCount], logLikelihoods[i]);
+        }
+        BitSet known = new BitSet(logLikelihoods.length / classCount);
+        for (int i = 0; i < logLikelihoods.length; i++) {
+            if (logLikelihoods[i] > floors[i % classCount]) {
+                known.set(i / classCount);
+            }
+        }
+        return known;
+    }
+
+    // ==================== 分类 ====================
+
+    /**
+     * 分类
+     *
+     * @return 概率最大的意图；置信度（后验概率 × 特征覆盖率）写入 scratch.confidence
+     */
+    public IntentType classify(CharSequence text, Scratch scratch) {
+        int classCount = intents.length;
+        double[] scores = scratch.scores;
+        for (int c = 0; c < classCount; c++) {
+            scores[c] = logPriors[c];
+        }
+
+        int featureCount = extractFeatures(text, scratch.features, bucketMask);
+        int knownCount = 0;
+        for (int i = 0; i < featureCount; i++) {
+            if (knownBuckets.get(scratch.features[i])) {
+                knownCount++;
+            }
+            int offset = scratch.features[i] * classCount;
+            for (int c = 0; c < classCount; c++) {
+                scores[c] += logLikelihoods[offset + c];
+            }
+        }
+
+        int best = 0;
+        for (int c = 1; c < classCount; c++) {
+            if (scores[c] > scores[best]) {
+                best = c;
+            }
+        }
+        double sum = 0.0;
+        for (int c = 0; c < classCount; c++) {
+            sum += Math.exp(scores[c] - scores[best]);
+        }
+        double coverage = featureCount > 0 ? (double) knownCount / featureCount : 0.0;
+        scratch.confidence = coverage / sum;
+        return intents[best];
+    }
+
+    /**
+     * 为当前模型创建分类缓冲区（每个线程一份）
+     */
+    public Scratch newScratch() {
+        return new Scratch(intents.length);
+    }
+
+    public int getBucketBits() {
+        return bucketBits;
+    }
+
+    public List<IntentType> getIntents() {
+        List<IntentType> list = new ArrayList<>(intents.length);
+        for (IntentType intent : intents) {
+            list.add(intent);
+        }
+        return list;
+    }
+
+    /**
+     * 分类缓冲区
+     */
+    public static final class Scratch {
+        final double[] scores;
+        final int[] features = new int[2 * MAX_CHARS + 1];
+        double confidence;
+
+        private Scratch(int classCount) {
+            this.scores = new double[classCount];
+        }
+
+        public double getConfidence() {
+            return confidence;
+        }
+    }
+
+    // ==================== 特征 ====================
+
+    /**
+     * 提取特征桶号，返回特征数
+     */
+    static int extractFeatures(CharSequence text, int[] out, int mask) {
+        int count = 0;
+        int prev = BOUNDARY;
+        int length = Math.min(text.length(), MAX_CHARS);
+        for (int i = 0; i < length; i++) {
+            int ch = normalize(text.charAt(i));
+            if (ch < 0) {
+                continue;
+            }
+            out[count++] = bucket(ch, mask);
+            out[count++] = bucket((prev << 16) | ch, mask);
+            prev = ch;
+        }
+        if (prev != BOUNDARY) {
+            out[count++] = bucket((prev << 16) | BOUNDARY, mask);
+        }
+        return count;
+    }
+
+    /**
+     * 字符归一化：忽略空白与标点，数字统一为 0，ASCII 大写转小写
+     */
+    private static int normalize(char c) {
+        if (Character.isWhitespace(c)) {
+            return -1;
+        }
+        if (c >= '0' && c <= '9') {
+            return '0';
+        }
+        if (c >= 'A' && c <= 'Z') {
+            return c + ('a' - 'A');
+        }
+        switch (Character.getType(c)) {
+            case Character.CONNECTOR_PUNCTUATION:
+            case Character.DASH_PUNCTUATION:
+            case Character.START_PUNCTUATION:
+            case Character.END_PUNCTUATION:
+            case Character.INITIAL_QUOTE_PUNCTUATION:
+            case Character.FINAL_QUOTE_PUNCTUATION:
+            case Character.OTHER_PUNCTUATION:
+                return -1;
+            default:
+                return c;
+        }
+    }
+
+    private static int bucket(int feature, int mask) {
+        int h = feature * 0x9E3779B1;
+        h ^= h >>> 15;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        return h & mask;
+    }
+
+    // ==================== 训练 ====================
+
+    /**
+     * 训练模型
+     *
+     * @param samples    训练样本（意图、文本）
+     * @param bucketBits 特征桶位数（桶数 = 2^bucketBits）
+     * @param alpha      拉普拉斯平滑系数
+     */
+    public static NaiveBayesIntentModel train(List<Sample> samples, int bucketBits, double alpha) {
+        if (samples.isEmpty()) {
+            throw new IllegalArgumentException("训练样本为空");
+        }
+        int buckets = 1 << bucketBits;
+        int mask = buckets - 1;
+
+        Map<IntentType, Integer> classIndex = new LinkedHashMap<>();
+        for (Sample sample : samples) {
+            if (!classIndex.containsKey(sample.intent)) {
+                classIndex.put(sample.intent, classIndex.size());
+            }
+        }
+        int classCount = classIndex.size();
+
+        long[] docCounts = new long[classCount];
+        long[] featureTotals = new long[classCount];
+        int[] counts = new int[buckets * classCount];
+        int[] features = new int[2 * MAX_CHARS + 1];
+        for (Sample sample : samples) {
+            int c = classIndex.get(sample.intent);
+            docCounts[c]++;
+            int featureCount = extractFeatures(sample.text, features, mask);
+            for (int i = 0; i < featureCount; i++) {
+                counts[features[i] * classCount + c]++;
+            }
+            featureTotals[c] += featureCount;
+        }
+
+        IntentType[] intents = classIndex.keySet().toArray(new IntentType[0]);
+        float[] logPriors = new float[classCount];
+        float[] logLikelihoods = new float[buckets * classCount];
+        for (int c = 0; c < classCount; c++) {
+            logPriors[c] = (float) Math.log((double) docCounts[c] / samples.size());
+            double denominator = featureTotals[c] + alpha * buckets;
+            for (int b = 0; b < buckets; b++) {
+                int index = b * classCount + c;
+                logLikelihoods[index] = (float) Math.log((counts[index] + alpha) / denominator);
+            }
+        }
+        return new NaiveBayesIntentModel(bucketBits, intents, logPriors, logLikelihoods);
+    }
+
+    /**
+     * 训练样本
+     */
+    public static final class Sample {
+        final IntentType intent;
+        final String text;
+
+        public Sample(IntentType intent, String text) {
+            this.intent = intent;
+            this.text = text;
+        }
+
+        public IntentType getIntent() {
+            return intent;
+        }
+
+        public String getText() {
+            return text;
+        }
+    }
+
+    // ==================== 序列化 ====================
+
+    /**
+     * 写出模型文件
+     */
+    public void writeTo(OutputStream output) throws IOException {
+        GZIPOutputStream gzip = new GZIPOutputStream(output, 64 * 1024);
+        DataOutputStream out = new DataOutputStream(gzip);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(bucketBits);
+        out.writeInt(intents.length);
+        for (int c = 0; c < intents.length; c++) {
+            out.writeUTF(intents[c].getCode());
+            out.writeFloat(logPriors[c]);
+        }
+        for (float value : logLikelihoods) {
+            out.writeFloat(value);
+        }
+        out.flush();
+        gzip.finish();
+    }
+
+    /**
+     * 读取模型文件
+     */
+    public static NaiveBayesIntentModel readFrom(InputStream input) throws IOException {
+        DataInputStream in = new DataInputStream(new GZIPInputStream(input, 64 * 1024));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("不是意图模型文件");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("不支持的意图模型版本: " + version);
+        }
+        int bucketBits = in.readInt();
+        int classCount = in.readInt();
+        if (bucketBits <= 0 || bucketBits > 24 || classCount <= 0) {
+            throw new IOException("意图模型文件已损坏");
+        }
+
+        IntentType[] intents = new IntentType[classCount];
+        float[] logPriors = new float[classCount];
+        for (int c = 0; c < classCount; c++) {
+            String code = in.readUTF();
+            intents[c] = IntentType.fromCode(code);
+            if (!intents[c].getCode().equals(code)) {
+                throw new IOException("意图模型包含未定义的意图: " + code);
+            }
+            logPriors[c] = in.readFloat();
+        }
+        float[] logLikelihoods = new float[(1 << bucketBits) * classCount];
+        for (int i = 0; i < logLikelihoods.length; i++) {
+            logLikelihoods[i] = in.readFloat();
+        }
+        return new NaiveBayesIntentModel(bucketBits, intents, logPriors, logLikelihoods);
+    }
+}
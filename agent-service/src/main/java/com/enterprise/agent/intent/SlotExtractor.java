@@ -1,23 +1,31 @@
 package com.enterprise.agent.intent;
 
+import com.enterprise.agent.common.RequestDeadline;
 import com.enterprise.agent.llm.LLMClient;
 import com.enterprise.agent.llm.LLMRequest;
 import com.enterprise.agent.llm.LLMResponse;
+import com.enterprise.agent.log.MetricsCollector;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * 槽位抽取器
  * 
  * 职责：
  * - 根据已识别的意图类型，确定需要抽取的槽位列表
- * - 调用 LLM 从用户输入中抽取槽位值
+ * - 有格式定义的槽位直接用正则从用户输入中抽取（确定性，不调用 LLM）
+ * - 仅当仍有自由文本槽位缺失时调用 LLM，且只抽取这些槽位
  * - 对抽取结果进行格式校验
  * - 明确标记哪些必填槽位缺失
+ * - 多轮补充信息时只抽取待补充意图缺失的槽位并合并（续接），新消息不像槽位回答时交回意图识别
  * 
  * 禁止：
  * - 推断或补全用户未明确提供的信息
@@ -30,7 +38,18 @@ public class SlotExtractor {
 
     private static final Logger log = LoggerFactory.getLogger(SlotExtractor.class);
 
+    /**
+     * 续接时格式化槽位之外允许的最多字母数字字符（如"订单号是"），超出视为新的请求
+     */
+    private static final int RESUME_MAX_RESIDUE_CHARS = 10;
+
+    /**
+     * 续接时格式化槽位之外不应出现的其他意图关键词（如待补充查询订单时回复"ORD-... 取消"），命中则视为新的请求
+     */
+    private static final Map<IntentType, List<String>> RESUME_CONFLICT_KEYWORDS = new EnumMap<>(IntentType.class);
+
     private final LLMClient llmClient;
+    private final MetricsCollector metrics;
 
     /**
      * 各意图需要的槽位定义
@@ -63,17 +82,269 @@ public class SlotExtractor {
 
         // 查询账户信息
         SLOT_DEFINITIONS.put(IntentType.QUERY_ACCOUNT, Collections.emptyList());
+
+        RESUME_CONFLICT_KEYWORDS.put(IntentType.QUERY_LOGISTICS, Arrays.asList("物流", "快递", "到哪"));
+        RESUME_CONFLICT_KEYWORDS.put(IntentType.CANCEL_ORDER, Arrays.asList("取消", "不要了"));
+        RESUME_CONFLICT_KEYWORDS.put(IntentType.MODIFY_ORDER, Arrays.asList("修改", "改地址"));
+        RESUME_CONFLICT_KEYWORDS.put(IntentType.REQUEST_REFUND, Arrays.asList("退款", "退货", "退钱"));
+        RESUME_CONFLICT_KEYWORDS.put(IntentType.COMPLAINT, Arrays.asList("投诉"));
+        RESUME_CONFLICT_KEYWORDS.put(IntentType.HUMAN_HANDOFF, Arrays.asList("人工"));
+        RESUME_CONFLICT_KEYWORDS.put(IntentType.END_CONVERSATION, Arrays.asList("再见", "结束"));
     }
 
     @Autowired
-    public SlotExtractor(LLMClient llmClient) {
+    public SlotExtractor(LLMClient llmClient, MetricsCollector metrics) {
         this.llmClient = llmClient;
+        this.metrics = metrics;
+    }
+
+    /**
+     * 获取意图的槽位定义（无槽位的意图返回空列表）
+     */
+    public static List<SlotDefinition> getSlotDefinitions(IntentType intentType) {
+        List<SlotDefinition> slotDefs = SLOT_DEFINITIONS.get(intentType);
+        return slotDefs != null ? Collections.unmodifiableList(slotDefs) : Collections.<SlotDefinition>emptyList();
+    }
+
+    /**
+     * 应用 LLM 已抽取的槽位（联合识别模式）
+     *
+     * 与 extractSlots 使用相同的格式校验与缺失判定，只是不再单独调用 LLM
+     */
+    public IntentResult applySlots(IntentResult intentResult, String llmResponse) {
+        List<SlotDefinition> slotDefs = SLOT_DEFINITIONS.get(intentResult.getIntentType());
+        if (slotDefs == null || slotDefs.isEmpty()) {
+            intentResult.setSlots(Collections.emptyMap());
+            intentResult.setMissingSlots(Collections.emptyList());
+        } else {
+            Map<String, Object> slots = parseAndValidateSlots(llmResponse, slotDefs);
+            // LLM 未给出的格式化槽位，用正则从原始输入补抽
+            Map<String, Object> patternSlots = extractByPattern(intentResult.getRawInput(), slotDefs);
+            for (Map.Entry<String, Object> entry : patternSlots.entrySet()) {
+                if (slots.get(entry.getKey()) == null) {
+                    slots.put(entry.getKey(), entry.getValue());
+                }
+            }
+            intentResult.setSlots(slots);
+            intentResult.setMissingSlots(findMissingRequiredSlots(slots, slotDefs));
+        }
+        intentResult.setSlotsExtracted(true);
+        return intentResult;
     }
 
     /**
      * 抽取槽位
+     *
+     * @param deadline 请求截止时间；剩余预算不足一次 LLM 调用时只做正则抽取，自由文本槽位留给追问
+     */
+    public IntentResult extractSlots(IntentResult intentResult, RequestDeadline deadline) {
+        return extractSlots(intentResult, deadline, null, false).join();
+    }
+
+    /**
+     * 推测抽取槽位：发起 LLM 调用前检查推测是否已作废，已作废时不调用，返回的结果不标记槽位已抽取
+     */
+    public IntentResult extractSlots(IntentResult intentResult, RequestDeadline deadline, Speculation speculation) {
+        return extractSlots(intentResult, deadline, speculation, false).join();
+    }
+
+    /**
+     * 异步抽取槽位（需要 LLM 时等待期间不占用调用线程；正则即可完成时返回已完成的 future）
+     */
+    public CompletableFuture<IntentResult> extractSlotsAsync(IntentResult intentResult, RequestDeadline deadline) {
+        return extractSlots(intentResult, deadline, null, true);
+    }
+
+    /**
+     * 异步推测抽取槽位，作废检查同 extractSlots(IntentResult, RequestDeadline, Speculation)
+     */
+    public CompletableFuture<IntentResult> extractSlotsAsync(IntentResult intentResult, RequestDeadline deadline,
+            Speculation speculation) {
+        return extractSlots(intentResult, deadline, speculation, true);
+    }
+
+    /**
+     * 只做正则抽取，不调用 LLM（多意图消息的附带意图）；缺失的自由文本槽位保留在 missingSlots 中
+     */
+    public IntentResult extractSlotsByPattern(IntentResult intentResult) {
+        List<SlotDefinition> slotDefs = SLOT_DEFINITIONS.get(intentResult.getIntentType());
+        if (slotDefs == null || slotDefs.isEmpty()) {
+            intentResult.setSlots(Collections.emptyMap());
+            intentResult.setMissingSlots(Collections.emptyList());
+        } else {
+            Map<String, Object> slots = extractByPattern(intentResult.getRawInput(), slotDefs);
+            intentResult.setSlots(slots);
+            intentResult.setMissingSlots(findMissingRequiredSlots(slots, slotDefs));
+        }
+        intentResult.setSlotsExtracted(true);
+        return intentResult;
+    }
+
+    /**
+     * 续接待补充的意图：只抽取其缺失的必填槽位，与已有槽位合并
+     *
+     * 判定新消息是否为槽位回答：
+     * - 缺失格式化槽位时，须正则抽到其中之一，其余内容不含其他意图的关键词，且不超过 RESUME_MAX_RESIDUE_CHARS
+     *   （同时缺失自由文本槽位时其余内容交给 LLM 抽取，不受长度限制）
+     * - 只缺自由文本槽位时调用 LLM 只抽取这些槽位，抽到至少一个才算回答
+     *
+     * @param async false 时同步调用 LLM，返回已完成的 future
+     * @return 合并后的新结果（槽位已抽取）；不像槽位回答时为 null
+     */
+    public CompletableFuture<IntentResult> resume(IntentResult pending, String userMessage, RequestDeadline deadline,
+            boolean async) {
+        List<SlotDefinition> slotDefs = SLOT_DEFINITIONS.get(pending.getIntentType());
+        if (slotDefs == null || slotDefs.isEmpty() || userMessage == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        Map<String, Object> slots = new HashMap<>(pending.getSlots());
+        List<SlotDefinition> missingPatternDefs = new ArrayList<>();
+        List<SlotDefinition> missingFreeTextDefs = new ArrayList<>();
+        for (SlotDefinition def : slotDefs) {
+            if (def.isRequired() && slots.get(def.getName()) == null) {
+                (def.getPattern() != null ? missingPatternDefs : missingFreeTextDefs).add(def);
+            }
+        }
+        if (missingPatternDefs.isEmpty() && missingFreeTextDefs.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        // 1. 格式化槽位：正则抽取，要求消息基本只包含槽位值
+        if (!missingPatternDefs.isEmpty()) {
+            Map<String, Object> found = extractByPattern(userMessage, missingPatternDefs);
+            found.values().removeIf(Objects::isNull);
+            if (found.isEmpty()) {
+                return CompletableFuture.completedFuture(null);
+            }
+            String residue = residueOf(userMessage, missingPatternDefs);
+            if (hasConflictKeyword(residue, pending.getIntentType())) {
+                log.debug("续接消息含其他意图关键词: intent={}, residue={}", pending.getIntentType(), residue);
+                return CompletableFuture.completedFuture(null);
+            }
+            if (missingFreeTextDefs.isEmpty() && letterOrDigitCount(residue) > RESUME_MAX_RESIDUE_CHARS) {
+                return CompletableFuture.completedFuture(null);
+            }
+            slots.putAll(found);
+        }
+
+        IntentResult resumed = IntentResult.builder()
+                .intentType(pending.getIntentType())
+                .confidence(pending.getConfidence())
+                .rawInput(pending.getRawInput() + "\n" + userMessage)
+                .llmRawResponse("resume")
+                .build();
+        resumed.setSlots(slots);
+        resumed.setSlotsExtracted(true);
+
+        // 2. 自由文本槽位：只对缺失的这些调用 LLM（预算不足时留给追问）
+        if (missingFreeTextDefs.isEmpty() || !deadline.allowsLlmCall()) {
+            if (!missingFreeTextDefs.isEmpty()) {
+                metrics.increment("deadline.degraded.slots");
+            }
+            if (missingPatternDefs.isEmpty()) {
+                return CompletableFuture.completedFuture(null);
+            }
+            resumed.setMissingSlots(findMissingRequiredSlots(slots, slotDefs));
+            return CompletableFuture.completedFuture(resumed);
+        }
+
+        metrics.increment("slot.llm.calls");
+        LLMRequest request = LLMRequest.builder()
+                .prompt(buildSlotPrompt(pending.getIntentType(), missingFreeTextDefs, userMessage))
+                .maxTokens(300)
+                .temperature(0.1)
+                .deadline(deadline)
+                .build();
+        CompletableFuture<LLMResponse> response;
+        try {
+            response = async
+                    ? llmClient.completeAsync(request)
+                    : CompletableFuture.completedFuture(llmClient.complete(request));
+        } catch (Exception e) {
+            log.error("续接槽位抽取异常: {}", e.getMessage(), e);
+            response = CompletableFuture.completedFuture(LLMResponse.fail("CLIENT_ERROR", e.getMessage()));
+        }
+        boolean answeredPattern = !missingPatternDefs.isEmpty();
+        return response.handle((result, error) -> {
+            if (error == null && result.isSuccess()) {
+                Map<String, Object> extracted = parseAndValidateSlots(result.getContent(), missingFreeTextDefs);
+                extracted.values().removeIf(Objects::isNull);
+                if (extracted.isEmpty() && !answeredPattern) {
+                    return null;
+                }
+                slots.putAll(extracted);
+            } else {
+                log.error("续接槽位抽取 LLM 调用失败: {}",
+                        error != null ? error.getMessage() : result.getErrorMessage());
+                if (!answeredPattern) {
+                    return null;
+                }
+            }
+            resumed.setMissingSlots(findMissingRequiredSlots(slots, slotDefs));
+            return resumed;
+        });
+    }
+
+    /**
+     * 续接消息去掉待补充意图缺失的格式化槽位值之后的其余内容
+     *
+     * @return 待补充意图未缺失格式化槽位、或消息中没有这些槽位值时为 null
+     */
+    public String resumeResidue(IntentResult pending, String userMessage) {
+        List<SlotDefinition> slotDefs = SLOT_DEFINITIONS.get(pending.getIntentType());
+        if (slotDefs == null || userMessage == null) {
+            return null;
+        }
+        List<SlotDefinition> missingPatternDefs = new ArrayList<>();
+        for (SlotDefinition def : slotDefs) {
+            if (def.isRequired() && def.getPattern() != null && pending.getSlots().get(def.getName()) == null) {
+                missingPatternDefs.add(def);
+            }
+        }
+        if (missingPatternDefs.isEmpty()) {
+            return null;
+        }
+        String residue = residueOf(userMessage, missingPatternDefs);
+        return residue.length() < userMessage.length() ? residue.trim() : null;
+    }
+
+    private static String residueOf(String userMessage, List<SlotDefinition> slotDefs) {
+        String residue = userMessage;
+        for (SlotDefinition def : slotDefs) {
+            residue = def.getSearchPattern().matcher(residue).replaceAll("");
+        }
+        return residue;
+    }
+
+    private static boolean hasConflictKeyword(String residue, IntentType pendingType) {
+        for (Map.Entry<IntentType, List<String>> entry : RESUME_CONFLICT_KEYWORDS.entrySet()) {
+            if (entry.getKey() == pendingType) {
+                continue;
+            }
+            for (String keyword : entry.getValue()) {
+                if (residue.contains(keyword)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 去掉格式化槽位匹配后剩余的字母数字字符数（标点、空白不计）
      */
-    public IntentResult extractSlots(IntentResult intentResult) {
+    private static int letterOrDigitCount(String residue) {
+        int length = 0;
+        for (int i = 0; i < residue.length(); i++) {
+            if (Character.isLetterOrDigit(residue.charAt(i))) {
+                length++;
+            }
+        }
+        return length;
+    }
+
+    private CompletableFuture<IntentResult> extractSlots(IntentResult intentResult, RequestDeadline deadline,
+            Speculation speculation, boolean async) {
         IntentType intentType = intentResult.getIntentType();
         String userMessage = intentResult.getRawInput();
 
@@ -82,44 +353,126 @@ public class SlotExtractor {
             // 该意图不需要槽位
             intentResult.setSlots(Collections.emptyMap());
             intentResult.setMissingSlots(Collections.emptyList());
-            return intentResult;
+            intentResult.setSlotsExtracted(true);
+            return CompletableFuture.completedFuture(intentResult);
+        }
+
+        // 1. 确定性抽取：有格式定义的槽位直接正则匹配
+        Map<String, Object> slots = extractByPattern(userMessage, slotDefs);
+
+        // 2. 只有自由文本槽位仍缺失、且剩余预算够一次调用时才调用 LLM
+        List<SlotDefinition> pendingDefs = findPendingFreeTextSlots(slots, slotDefs);
+        if (pendingDefs.isEmpty() || !deadline.allowsLlmCall()) {
+            metrics.increment(pendingDefs.isEmpty() ? "slot.llm.skipped" : "deadline.degraded.slots");
+            intentResult.setSlots(slots);
+            intentResult.setMissingSlots(findMissingRequiredSlots(slots, slotDefs));
+            intentResult.setSlotsExtracted(true);
+            return CompletableFuture.completedFuture(intentResult);
+        }
+
+        // 推测已作废（意图识别已先完成且不是该候选）时不再发起调用
+        if (speculation != null && !speculation.tryStartLlmCall()) {
+            intentResult.setSlots(slots);
+            intentResult.setMissingSlots(findMissingRequiredSlots(slots, slotDefs));
+            return CompletableFuture.completedFuture(intentResult);
         }
 
         try {
-            // 1. 构建 Prompt
-            String prompt = buildSlotPrompt(intentType, slotDefs, userMessage);
+            // 3. 构建 Prompt（只包含待抽取的自由文本槽位）
+            String prompt = buildSlotPrompt(intentType, pendingDefs, userMessage);
 
-            // 2. 调用 LLM
+            // 4. 调用 LLM
+            metrics.increment("slot.llm.calls");
             LLMRequest request = LLMRequest.builder()
                     .prompt(prompt)
                     .maxTokens(300)
                     .temperature(0.1)
+                    .deadline(deadline)
                     .build();
 
-            LLMResponse response = llmClient.complete(request);
+            CompletableFuture<LLMResponse> response = async
+                    ? llmClient.completeAsync(request)
+                    : CompletableFuture.completedFuture(llmClient.complete(request));
+            return response.handle((result, error) ->
+                    applyLlmSlots(intentResult, slots, slotDefs, pendingDefs, result, error));
 
-            if (!response.isSuccess()) {
-                log.error("槽位抽取 LLM 调用失败: {}", response.getErrorMessage());
-                intentResult.setMissingSlots(getRequiredSlotNames(slotDefs));
+        } catch (Exception e) {
+            log.error("槽位抽取异常: {}", e.getMessage(), e);
+            intentResult.setSlots(slots);
+            intentResult.setMissingSlots(findMissingRequiredSlots(slots, slotDefs));
+            return CompletableFuture.completedFuture(intentResult);
+        }
+    }
+
+    private IntentResult applyLlmSlots(IntentResult intentResult, Map<String, Object> slots,
+            List<SlotDefinition> slotDefs, List<SlotDefinition> pendingDefs, LLMResponse response, Throwable error) {
+        try {
+            if (error != null || !response.isSuccess()) {
+                log.error("槽位抽取 LLM 调用失败: {}",
+                        error != null ? error.getMessage() : response.getErrorMessage());
+                intentResult.setSlots(slots);
+                intentResult.setMissingSlots(findMissingRequiredSlots(slots, slotDefs));
                 return intentResult;
             }
 
-            // 3. 解析并校验
-            Map<String, Object> slots = parseAndValidateSlots(response.getContent(), slotDefs);
+            // 5. 解析并校验
+            slots.putAll(parseAndValidateSlots(response.getContent(), pendingDefs));
             List<String> missingSlots = findMissingRequiredSlots(slots, slotDefs);
 
             intentResult.setSlots(slots);
             intentResult.setMissingSlots(missingSlots);
+            intentResult.setSlotsExtracted(true);
 
             return intentResult;
 
         } catch (Exception e) {
             log.error("槽位抽取异常: {}", e.getMessage(), e);
-            intentResult.setMissingSlots(getRequiredSlotNames(slotDefs));
+            intentResult.setSlots(slots);
+            intentResult.setMissingSlots(findMissingRequiredSlots(slots, slotDefs));
             return intentResult;
         }
     }
 
+    /**
+     * 正则抽取有格式定义的槽位
+     *
+     * 输入中出现多个不同匹配值时视为歧义，不填充（由缺失槽位追问澄清）
+     */
+    private Map<String, Object> extractByPattern(String userMessage, List<SlotDefinition> slotDefs) {
+        Map<String, Object> result = new HashMap<>();
+        for (SlotDefinition def : slotDefs) {
+            if (def.getSearchPattern() == null || userMessage == null) {
+                continue;
+            }
+            Matcher matcher = def.getSearchPattern().matcher(userMessage);
+            String found = null;
+            while (matcher.find()) {
+                if (found == null) {
+                    found = matcher.group();
+                } else if (!found.equals(matcher.group())) {
+                    log.info("槽位 {} 匹配到多个值, 交由用户澄清", def.getName());
+                    found = null;
+                    break;
+                }
+            }
+            result.put(def.getName(), found);
+        }
+        return result;
+    }
+
+    /**
+     * 查找仍缺失的自由文本槽位（无格式定义，只能由 LLM 抽取）
+     */
+    private List<SlotDefinition> findPendingFreeTextSlots(Map<String, Object> slots, List<SlotDefinition> slotDefs) {
+        List<SlotDefinition> pending = new ArrayList<>();
+        for (SlotDefinition def : slotDefs) {
+            if (def.getPattern() == null && slots.get(def.getName()) == null) {
+                pending.add(def);
+            }
+        }
+        return pending;
+    }
+
     /**
      * 构建槽位抽取 Prompt
      */
@@ -163,7 +516,7 @@ public class SlotExtractor {
                 }
 
                 // 格式校验
-                if (def.getPattern() != null && !value.matches(def.getPattern())) {
+                if (!def.isValid(value)) {
                     log.warn("槽位 {} 格式校验失败: {}", def.getName(), value);
                     result.put(def.getName(), null);
                     continue;
@@ -192,19 +545,6 @@ public class SlotExtractor {
         return missing;
     }
 
-    /**
-     * 获取所有必填槽位名称
-     */
-    private List<String> getRequiredSlotNames(List<SlotDefinition> slotDefs) {
-        List<String> required = new ArrayList<>();
-        for (SlotDefinition def : slotDefs) {
-            if (def.isRequired()) {
-                required.add(def.getName());
-            }
-        }
-        return required;
-    }
-
     private String extractJson(String response) {
         int start = response.indexOf('{');
         int end = response.lastIndexOf('}');
@@ -244,6 +584,34 @@ public class SlotExtractor {
         return json.substring(valueStart, valueEnd).trim();
     }
 
+    /**
+     * 推测抽取的作废标记
+     *
+     * 抽取方发起 LLM 调用前、调用方作废推测时各尝试一次状态切换，二者只有一方成功：
+     * 作废在先则不再调用 LLM；调用在先则作废失败，说明这次 LLM 调用已经发出
+     */
+    public static final class Speculation {
+
+        private static final int PENDING = 0;
+        private static final int CALLING = 1;
+        private static final int CANCELLED = 2;
+
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+
+        boolean tryStartLlmCall() {
+            return state.compareAndSet(PENDING, CALLING);
+        }
+
+        /**
+         * 作废推测
+         *
+         * @return LLM 调用是否已经发出（作废来不及阻止）
+         */
+        public boolean cancel() {
+            return !state.compareAndSet(PENDING, CANCELLED) && state.get() == CALLING;
+        }
+    }
+
     /**
      * 槽位定义
      */
@@ -253,11 +621,32 @@ public class SlotExtractor {
         private final boolean required;
         private final String pattern;
 
+        /**
+         * 校验用（整串匹配）
+         */
+        private final Pattern compiledPattern;
+
+        /**
+         * 抽取用（前后不能紧邻字母数字，避免截取更长编号的一部分）
+         */
+        private final Pattern searchPattern;
+
         public SlotDefinition(String name, String description, boolean required, String pattern) {
             this.name = name;
             this.description = description;
             this.required = required;
             this.pattern = pattern;
+            this.compiledPattern = pattern != null ? Pattern.compile(pattern) : null;
+            this.searchPattern = pattern != null
+                    ? Pattern.compile("(?<![A-Za-z0-9])(?:" + pattern + ")(?![A-Za-z0-9])")
+                    : null;
+        }
+
+        /**
+         * 格式校验（无格式定义时恒为 true）
+         */
+        public boolean isValid(String value) {
+            return compiledPattern == null || compiledPattern.matcher(value).matches();
         }
 
         public String getName() {
@@ -275,5 +664,9 @@ public class SlotExtractor {
         public String getPattern() {
             return pattern;
         }
+
+        Pattern getSearchPattern() {
+            return searchPattern;
+        }
     }
 }
@@ -0,0 +1,251 @@
+package com.enterprise.agent.intent;
+
+import com.enterprise.agent.config.AgentConfig;
+import com.enterprise.agent.intent.SlotExtractor.Speculation;
+import com.enterprise.agent.config.LLMConfig;
+import com.enterprise.agent.log.MetricsCollector;
+import com.enterprise.agent.session.ConversationContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Pattern;
+
+/**
+ * 推测式意图识别器
+ *
+ * 职责：
+ * - 根据本地预判（订单号、关键词）选出候选意图，在意图识别进行的同时并行抽取其槽位
+ * - 意图识别完成后只保留与最终意图一致的抽取结果，其余作废
+ * - 关键路径耗时由 意图 + 槽位 变为 max(意图, 槽位)
+ *
+ * 结果与顺序模式一致：槽位抽取只依赖意图类型与用户输入，推测结果与事后抽取相同；
+ * 候选未命中或推测失败时不标记槽位已抽取，由编排器按顺序模式补抽。
+ * 未命中的推测立即作废：尚未执行的任务取消，尚未发出的 LLM 调用不再发出。
+ *
+ * 禁止：
+ * - 采用与最终意图不一致的推测结果
+ * - 推测线程池满时阻塞调用方（直接放弃推测）
+ */
+@Component
+public class SpeculativeIntentRecognizer {
+
+    private static final Logger log = LoggerFactory.getLogger(SpeculativeIntentRecognizer.class);
+
+    private static final Pattern ORDER_ID_PATTERN = Pattern.compile("ORD-\\d{4}-\\d{6}");
+
+    /**
+     * 关键词 → 候选意图（按优先级排列）
+     */
+    private static final Map<String, IntentType> KEYWORD_CANDIDATES = new LinkedHashMap<>();
+
+    static {
+        KEYWORD_CANDIDATES.put("物流", IntentType.QUERY_LOGISTICS);
+        KEYWORD_CANDIDATES.put("快递", IntentType.QUERY_LOGISTICS);
+        KEYWORD_CANDIDATES.put("发货", IntentType.QUERY_LOGISTICS);
+        KEYWORD_CANDIDATES.put("退款", IntentType.REQUEST_REFUND);
+        KEYWORD_CANDIDATES.put("退货", IntentType.REQUEST_REFUND);
+        KEYWORD_CANDIDATES.put("取消", IntentType.CANCEL_ORDER);
+        KEYWORD_CANDIDATES.put("投诉", IntentType.COMPLAINT);
+        KEYWORD_CANDIDATES.put("状态", IntentType.QUERY_ORDER_STATUS);
+        KEYWORD_CANDIDATES.put("订单", IntentType.QUERY_ORDER_STATUS);
+    }
+
+    private final IntentRecognizer intentRecognizer;
+    private final SlotExtractor slotExtractor;
+    private final Executor speculationExecutor;
+    private final AgentConfig agentConfig;
+    private final LLMConfig llmConfig;
+    private final MetricsCollector metrics;
+
+    @Autowired
+    public SpeculativeIntentRecognizer(IntentRecognizer intentRecognizer,
+            SlotExtractor slotExtractor,
+            @Qualifier("speculationExecutor") Executor speculationExecutor,
+            AgentConfig agentConfig,
+            LLMConfig llmConfig,
+            MetricsCollector metrics) {
+        this.intentRecognizer = intentRecognizer;
+        this.slotExtractor = slotExtractor;
+        this.speculationExecutor = speculationExecutor;
+        this.agentConfig = agentConfig;
+        this.llmConfig = llmConfig;
+        this.metrics = metrics;
+    }
+
+    /**
+     * 识别意图，并尽量复用推测的槽位抽取结果
+     */
+    public IntentResult recognize(ConversationContext context, String userMessage) {
+        String traceId = context.getTraceId();
+
+        // 1. 启动候选意图的槽位抽取
+        Map<IntentType, Launched> speculations = new LinkedHashMap<>();
+        for (IntentType candidate : selectCandidates(userMessage)) {
+            IntentResult speculative = IntentResult.builder()
+                    .intentType(candidate)
+                    .rawInput(userMessage)
+                    .build();
+            Speculation speculation = new Speculation();
+            try {
+                speculations.put(candidate, new Launched(speculation, CompletableFuture.supplyAsync(
+                        () -> slotExtractor.extractSlots(speculative, context.getDeadline(), speculation),
+                        speculationExecutor)));
+                metrics.increment("understanding.speculative.launched");
+            } catch (RejectedExecutionException e) {
+                metrics.increment("understanding.speculative.rejected");
+                break;
+            }
+        }
+
+        // 2. 当前线程执行意图识别
+        IntentResult intentResult = intentRecognizer.recognize(context, userMessage);
+
+        // 3. 只保留与最终意图一致的推测结果，其余作废
+        Launched matched = intentResult.isRecognized()
+                ? speculations.remove(intentResult.getIntentType())
+                : null;
+        discard(speculations);
+        if (matched == null) {
+            if (intentResult.isRecognized() && !SlotExtractor.getSlotDefinitions(intentResult.getIntentType()).isEmpty()) {
+                metrics.increment("understanding.speculative.missed");
+            }
+            return intentResult;
+        }
+
+        try {
+            IntentResult speculative = matched.future.get(
+                    context.getDeadline().capTimeout(llmConfig.getTimeout()), TimeUnit.MILLISECONDS);
+            if (speculative.isSlotsExtracted()) {
+                intentResult.setSlots(speculative.getSlots());
+                intentResult.setMissingSlots(speculative.getMissingSlots());
+                intentResult.setSlotsExtracted(true);
+                metrics.increment("understanding.speculative.used");
+            }
+        } catch (TimeoutException e) {
+            log.warn("[{}] 推测槽位抽取超时, 回退顺序抽取", traceId);
+            metrics.increment("understanding.speculative.timeout");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.warn("[{}] 推测槽位抽取异常, 回退顺序抽取: {}", traceId, e.getMessage());
+        }
+        return intentResult;
+    }
+
+    /**
+     * 异步识别意图：候选意图的槽位抽取与意图识别同时发起，都不占用调用线程
+     *
+     * 推测抽取直接使用 SlotExtractor.extractSlotsAsync，不经推测线程池。
+     */
+    public CompletableFuture<IntentResult> recognizeAsync(ConversationContext context, String userMessage) {
+        String traceId = context.getTraceId();
+
+        Map<IntentType, Launched> speculations = new LinkedHashMap<>();
+        for (IntentType candidate : selectCandidates(userMessage)) {
+            Speculation speculation = new Speculation();
+            speculations.put(candidate, new Launched(speculation, slotExtractor.extractSlotsAsync(IntentResult.builder()
+                    .intentType(candidate)
+                    .rawInput(userMessage)
+                    .build(), context.getDeadline(), speculation)));
+            metrics.increment("understanding.speculative.launched");
+        }
+
+        return intentRecognizer.recognizeAsync(context, userMessage).thenCompose(intentResult -> {
+            Launched matched = intentResult.isRecognized()
+                    ? speculations.remove(intentResult.getIntentType())
+                    : null;
+            discard(speculations);
+            if (matched == null) {
+                if (intentResult.isRecognized() && !SlotExtractor.getSlotDefinitions(intentResult.getIntentType()).isEmpty()) {
+                    metrics.increment("understanding.speculative.missed");
+                }
+                return CompletableFuture.completedFuture(intentResult);
+            }
+            return matched.future.handle((speculative, error) -> {
+                if (error != null) {
+                    log.warn("[{}] 推测槽位抽取异常, 回退顺序抽取: {}", traceId, error.getMessage());
+                } else if (speculative.isSlotsExtracted()) {
+                    intentResult.setSlots(speculative.getSlots());
+                    intentResult.setMissingSlots(speculative.getMissingSlots());
+                    intentResult.setSlotsExtracted(true);
+                    metrics.increment("understanding.speculative.used");
+                }
+                return intentResult;
+            });
+        });
+    }
+
+    /**
+     * 作废未命中的推测：取消尚未执行的任务并拦截尚未发出的 LLM 调用
+     *
+     * 只有已经发出的 LLM 调用计为 wasted，发出前拦截的计为 cancelled
+     */
+    private void discard(Map<IntentType, Launched> speculations) {
+        int wasted = 0;
+        for (Launched launched : speculations.values()) {
+            if (launched.speculation.cancel()) {
+                wasted++;
+            }
+            launched.future.cancel(false);
+        }
+        if (wasted > 0) {
+            metrics.add("understanding.speculative.wasted", wasted);
+        }
+        if (speculations.size() > wasted) {
+            metrics.add("understanding.speculative.cancelled", speculations.size() - wasted);
+        }
+    }
+
+    /**
+     * 本地预判候选意图（只考虑需要槽位的意图）
+     */
+    private List<IntentType> selectCandidates(String userMessage) {
+        List<IntentType> candidates = new ArrayList<>();
+        int maxCandidates = agentConfig.getSpeculationMaxCandidates();
+
+        for (Map.Entry<String, IntentType> entry : KEYWORD_CANDIDATES.entrySet()) {
+            if (candidates.size() >= maxCandidates) {
+                return candidates;
+            }
+            if (userMessage.contains(entry.getKey()) && !candidates.contains(entry.getValue())) {
+                candidates.add(entry.getValue());
+            }
+        }
+
+        // 有订单号但无关键词：最常见的是查状态和查物流
+        if (candidates.isEmpty() && ORDER_ID_PATTERN.matcher(userMessage).find()) {
+            candidates.add(IntentType.QUERY_ORDER_STATUS);
+            if (maxCandidates > 1) {
+                candidates.add(IntentType.QUERY_LOGISTICS);
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * 已启动的一个推测
+     */
+    private static final class Launched {
+
+        private final Speculation speculation;
+        private final CompletableFuture<IntentResult> future;
+
+        private Launched(Speculation speculation, CompletableFuture<IntentResult> future) {
+            this.speculation = speculation;
+            this.future = future;
+        }
+    }
+}
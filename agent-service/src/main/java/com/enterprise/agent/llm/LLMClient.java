@@ -1,5 +1,7 @@
 package com.enterprise.agent.llm;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * LLM 客户端接口
  * 
@@ -26,6 +28,25 @@ public interface LLMClient {
      */
     LLMResponse complete(LLMRequest request);
 
+    /**
+     * 异步文本生成：等待模型返回期间不占用调用线程
+     *
+     * 返回的 future 在实现自己的回调线程（如 HTTP IO 线程）上完成，调用方的后续处理不得阻塞该线程。
+     * 默认实现在调用线程上同步执行 complete，不支持异步的实现无需覆盖。
+     *
+     * @param request 请求参数
+     * @return 生成结果（失败以 LLMResponse.fail 表示，而不是异常完成）
+     */
+    default CompletableFuture<LLMResponse> completeAsync(LLMRequest request) {
+        CompletableFuture<LLMResponse> future = new CompletableFuture<>();
+        try {
+            future.complete(complete(request));
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
     /**
      * 多轮对话
      *
@@ -34,6 +55,43 @@ public interface LLMClient {
      */
     LLMResponse chat(LLMRequest request);
 
+    /**
+     * 流式文本生成
+     *
+     * 生成过程中通过 listener 逐段回调 token，方法在流结束（onComplete 回调之后）才返回。
+     * 默认实现退化为一次性生成后整体回调，不支持流式的实现无需覆盖。
+     *
+     * @param request  请求参数
+     * @param listener 流式监听器
+     */
+    default void stream(LLMRequest request, LLMStreamListener listener) {
+        LLMResponse response = complete(request);
+        if (response.isSuccess() && response.getContent() != null && !response.getContent().isEmpty()) {
+            listener.onToken(response.getContent());
+        }
+        listener.onComplete(response);
+    }
+
+    /**
+     * 异步流式文本生成：token 与 onComplete 在实现的回调线程上回调，流结束后 future 完成
+     *
+     * 默认实现在调用线程上同步执行 stream。
+     *
+     * @param request  请求参数
+     * @param listener 流式监听器
+     * @return onComplete 回调之后完成
+     */
+    default CompletableFuture<Void> streamAsync(LLMRequest request, LLMStreamListener listener) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        try {
+            stream(request, listener);
+            future.complete(null);
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
     /**
      * 获取模型名称
      * 
@@ -1,6 +1,11 @@
 package com.enterprise.agent.llm;
 
+import com.enterprise.agent.common.RequestDeadline;
+
 import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.List;
 
 /**
@@ -45,6 +50,16 @@ public class LLMRequest implements Serializable {
      */
     private List<String> stopWords;
 
+    /**
+     * 所属请求的截止时间（客户端据此收紧超时；不参与指纹）
+     */
+    private transient RequestDeadline deadline;
+
+    /**
+     * 请求指纹（惰性计算）
+     */
+    private transient String fingerprint;
+
     private LLMRequest() {
     }
 
@@ -82,6 +97,69 @@ public class LLMRequest implements Serializable {
         return stopWords;
     }
 
+    public RequestDeadline getDeadline() {
+        return deadline != null ? deadline : RequestDeadline.NONE;
+    }
+
+    /**
+     * 请求指纹
+     *
+     * 对 prompt、系统提示词、消息历史、采样参数与停止词做规范化编码后取 SHA-256，
+     * 参数完全相同的请求指纹一致，用于缓存与请求合并。字符串按长度前缀编码，避免拼接歧义。
+     */
+    public String fingerprint() {
+        String result = fingerprint;
+        if (result == null) {
+            result = computeFingerprint();
+            fingerprint = result;
+        }
+        return result;
+    }
+
+    private String computeFingerprint() {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+        StringBuilder canonical = new StringBuilder(64 + (prompt != null ? prompt.length() : 0));
+        appendField(canonical, prompt);
+        appendField(canonical, systemPrompt);
+        canonical.append(messages != null ? messages.size() : -1).append('|');
+        if (messages != null) {
+            for (Message message : messages) {
+                appendField(canonical, message.getRole());
+                appendField(canonical, message.getContent());
+            }
+        }
+        canonical.append(maxTokens).append('|')
+                .append(Double.doubleToLongBits(temperature)).append('|')
+                .append(Double.doubleToLongBits(topP)).append('|');
+        canonical.append(stopWords != null ? stopWords.size() : -1).append('|');
+        if (stopWords != null) {
+            for (String stopWord : stopWords) {
+                appendField(canonical, stopWord);
+            }
+        }
+
+        byte[] hash = digest.digest(canonical.toString().getBytes(StandardCharsets.UTF_8));
+        char[] hex = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i++) {
+            hex[i * 2] = Character.forDigit((hash[i] >> 4) & 0xf, 16);
+            hex[i * 2 + 1] = Character.forDigit(hash[i] & 0xf, 16);
+        }
+        return new String(hex);
+    }
+
+    private static void appendField(StringBuilder canonical, String value) {
+        if (value == null) {
+            canonical.append("-1|");
+        } else {
+            canonical.append(value.length()).append(':').append(value).append('|');
+        }
+    }
+
     // ==================== Message ====================
 
     public static class Message implements Serializable {
@@ -155,6 +233,11 @@ public class LLMRequest implements Serializable {
             return this;
         }
 
+        public Builder deadline(RequestDeadline deadline) {
+            request.deadline = deadline;
+            return this;
+        }
+
         public LLMRequest build() {
             return request;
         }
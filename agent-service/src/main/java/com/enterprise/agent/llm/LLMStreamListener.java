@@ -0,0 +1,23 @@
+package com.enterprise.agent.llm;
+
+/**
+ * LLM 流式输出监听器
+ *
+ * 由 LLMClient.stream() 在生成过程中回调，回调线程由具体实现决定
+ */
+public interface LLMStreamListener {
+
+    /**
+     * 收到增量 token 片段
+     *
+     * @param token 增量文本（非空）
+     */
+    void onToken(String token);
+
+    /**
+     * 生成结束（成功或失败）
+     *
+     * @param response 完整结果，成功时 content 为全部已输出内容
+     */
+    void onComplete(LLMResponse response);
+}
@@ -0,0 +1,253 @@
+package com.enterprise.agent.llm;
+
+import com.enterprise.agent.config.LLMConfig;
+import com.enterprise.agent.log.MetricsCollector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 在途请求合并（single-flight）
+ *
+ * 职责：
+ * - 同一时刻指纹相同的 complete() / completeAsync() 请求只发起一次上游调用
+ * - 首个请求（leader）执行调用，其余请求（follower）等待并共享结果
+ * - 失败结果同样共享给本轮等待者；调用结束即移除在途记录，下一轮重新发起
+ * - 指纹不含截止时间：leader 因自身预算较短而超时时，仍有 LLM 预算的 follower 改为自行发起一次上游调用
+ *
+ * 禁止：
+ * - 缓存已完成的结果（只合并在途请求，不引入任何过期数据）
+ * - follower 无限等待（同步、异步均以 LLMConfig.timeout 与自身请求的剩余预算为上限）
+ */
+public class SingleFlightLLMClient implements LLMClient {
+
+    private static final Logger log = LoggerFactory.getLogger(SingleFlightLLMClient.class);
+
+    private static final String TIMEOUT = "TIMEOUT";
+
+    private final LLMClient delegate;
+    private final LLMConfig config;
+    private final MetricsCollector metrics;
+    private final ConcurrentMap<String, Flight> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * 异步 follower 的等待超时计时
+     */
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "llm-singleflight-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public SingleFlightLLMClient(LLMClient delegate, LLMConfig config, MetricsCollector metrics) {
+        this.delegate = delegate;
+        this.config = config;
+        this.metrics = metrics;
+        metrics.registerGauge("llm.singleflight.inflight", inFlight::size);
+    }
+
+    @Override
+    public LLMResponse complete(LLMRequest request) {
+        String key = request.fingerprint();
+        Flight flight = new Flight(isCappedByDeadline(request));
+        Flight existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            return await(existing, request);
+        }
+
+        metrics.increment("llm.singleflight.leaders");
+        LLMResponse response;
+        try {
+            response = delegate.complete(request);
+        } catch (RuntimeException e) {
+            inFlight.remove(key, flight);
+            flight.completeExceptionally(e);
+            throw e;
+        }
+        // 先移除再完成：完成之后到达的请求发起新调用，而不是拿到刚结束的结果
+        inFlight.remove(key, flight);
+        flight.complete(response);
+        return response;
+    }
+
+    /**
+     * 异步合并：follower 直接挂在 leader 的 future 上，不占用线程等待；
+     * 等待以自身请求的剩余预算为上限，到时以 TIMEOUT 完成
+     */
+    @Override
+    public CompletableFuture<LLMResponse> completeAsync(LLMRequest request) {
+        String key = request.fingerprint();
+        Flight flight = new Flight(isCappedByDeadline(request));
+        Flight existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            return followAsync(existing, request);
+        }
+
+        metrics.increment("llm.singleflight.leaders");
+        CompletableFuture<LLMResponse> upstream;
+        try {
+            upstream = delegate.completeAsync(request);
+        } catch (RuntimeException e) {
+            upstream = new CompletableFuture<>();
+            upstream.completeExceptionally(e);
+        }
+        upstream.whenComplete((response, error) -> {
+            inFlight.remove(key, flight);
+            if (error != null) {
+                flight.completeExceptionally(error);
+            } else {
+                flight.complete(response);
+            }
+        });
+        return upstream;
+    }
+
+    @Override
+    public LLMResponse chat(LLMRequest request) {
+        return delegate.chat(request);
+    }
+
+    @Override
+    public void stream(LLMRequest request, LLMStreamListener listener) {
+        delegate.stream(request, listener);
+    }
+
+    @Override
+    public CompletableFuture<Void> streamAsync(LLMRequest request, LLMStreamListener listener) {
+        return delegate.streamAsync(request, listener);
+    }
+
+    @Override
+    public String getModelName() {
+        return delegate.getModelName();
+    }
+
+    @Override
+    public boolean isHealthy() {
+        return delegate.isHealthy();
+    }
+
+    /**
+     * follower 等待 leader 结果
+     */
+    private LLMResponse await(Flight flight, LLMRequest request) {
+        metrics.increment("llm.singleflight.followers");
+        long timeoutMs = request.getDeadline().capTimeout(config.getTimeout());
+        try {
+            LLMResponse response = flight.get(timeoutMs, TimeUnit.MILLISECONDS);
+            if (shouldRetryAlone(flight, response, request)) {
+                return delegate.complete(request);
+            }
+            return copyOf(response);
+        } catch (TimeoutException e) {
+            metrics.increment("llm.singleflight.follower_timeouts");
+            log.warn("等待合并请求结果超时: timeout={}ms", timeoutMs);
+            return LLMResponse.fail(TIMEOUT, "LLM 调用超时");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return LLMResponse.fail("INTERRUPTED", "LLM 调用被中断");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            log.warn("合并请求的上游调用异常: {}", cause.getMessage());
+            return LLMResponse.fail("UPSTREAM_ERROR", cause.getMessage());
+        }
+    }
+
+    /**
+     * 异步 follower：leader 完成或自身预算到期，先到者决定结果
+     */
+    private CompletableFuture<LLMResponse> followAsync(Flight flight, LLMRequest request) {
+        metrics.increment("llm.singleflight.followers");
+        long timeoutMs = request.getDeadline().capTimeout(config.getTimeout());
+        CompletableFuture<LLMResponse> result = new CompletableFuture<>();
+        ScheduledFuture<?> timeout = timer.schedule(() -> {
+            if (result.complete(LLMResponse.fail(TIMEOUT, "LLM 调用超时"))) {
+                metrics.increment("llm.singleflight.follower_timeouts");
+                log.warn("等待合并请求结果超时: timeout={}ms", timeoutMs);
+            }
+        }, timeoutMs, TimeUnit.MILLISECONDS);
+
+        flight.whenComplete((response, error) -> {
+            timeout.cancel(false);
+            if (result.isDone()) {
+                return;
+            }
+            if (error != null) {
+                Throwable cause = error.getCause() != null ? error.getCause() : error;
+                log.warn("合并请求的上游调用异常: {}", cause.getMessage());
+                result.complete(LLMResponse.fail("UPSTREAM_ERROR", cause.getMessage()));
+            } else if (shouldRetryAlone(flight, response, request)) {
+                CompletableFuture<LLMResponse> own;
+                try {
+                    own = delegate.completeAsync(request);
+                } catch (RuntimeException e) {
+                    result.complete(LLMResponse.fail("UPSTREAM_ERROR", e.getMessage()));
+                    return;
+                }
+                own.whenComplete((ownResponse, ownError) -> result.complete(ownError == null
+                        ? ownResponse
+                        : LLMResponse.fail("UPSTREAM_ERROR", ownError.getMessage())));
+            } else {
+                result.complete(copyOf(response));
+            }
+        });
+        return result;
+    }
+
+    /**
+     * leader 因自身预算较短而超时、本请求仍有 LLM 预算时，由本请求单独发起一次上游调用
+     *
+     * leader 以完整的 LLMConfig.timeout 超时说明上游本身慢，不重试
+     */
+    private boolean shouldRetryAlone(Flight flight, LLMResponse leaderResponse, LLMRequest request) {
+        if (!flight.cappedByDeadline || leaderResponse.isSuccess() || !TIMEOUT.equals(leaderResponse.getErrorCode())
+                || !request.getDeadline().allowsLlmCall()) {
+            return false;
+        }
+        metrics.increment("llm.singleflight.follower_retries");
+        return true;
+    }
+
+    /**
+     * 请求的剩余预算是否短于 LLMConfig.timeout（其超时由截止时间而非上游决定）
+     */
+    private boolean isCappedByDeadline(LLMRequest request) {
+        return request.getDeadline().remainingMillis() < config.getTimeout();
+    }
+
+    /**
+     * 每个 follower 拿到独立副本（LLMResponse 可变）
+     */
+    private static LLMResponse copyOf(LLMResponse source) {
+        LLMResponse copy = source.isSuccess()
+                ? LLMResponse.success(source.getContent())
+                : LLMResponse.fail(source.getErrorCode(), source.getErrorMessage());
+        copy.setModel(source.getModel());
+        copy.setPromptTokens(source.getPromptTokens());
+        copy.setCompletionTokens(source.getCompletionTokens());
+        copy.setTotalTokens(source.getTotalTokens());
+        copy.setLatencyMs(source.getLatencyMs());
+        return copy;
+    }
+
+    /**
+     * 一次在途调用，记录 leader 的超时是否受其截止时间限制
+     */
+    private static final class Flight extends CompletableFuture<LLMResponse> {
+
+        private final boolean cappedByDeadline;
+
+        Flight(boolean cappedByDeadline) {
+            this.cappedByDeadline = cappedByDeadline;
+        }
+    }
+}
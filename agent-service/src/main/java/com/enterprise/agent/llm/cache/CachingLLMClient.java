@@ -0,0 +1,146 @@
+package com.enterprise.agent.llm.cache;
+
+import com.enterprise.agent.config.LLMConfig;
+import com.enterprise.agent.llm.LLMClient;
+import com.enterprise.agent.llm.LLMRequest;
+import com.enterprise.agent.llm.LLMResponse;
+import com.enterprise.agent.llm.LLMStreamListener;
+import com.enterprise.agent.log.MetricsCollector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 补全结果缓存（精确匹配）
+ *
+ * 职责：
+ * - 以 LLMRequest.fingerprint() 为 key 缓存 complete() / completeAsync() 的成功结果
+ * - 只缓存低温度请求（意图识别、槽位抽取等确定性调用）
+ * - 淘汰策略 W-TinyLFU，受条目数、权重与 TTL 约束
+ *
+ * 禁止：
+ * - 缓存失败响应
+ * - 缓存多轮对话（chat）与流式输出
+ */
+public class CachingLLMClient implements LLMClient {
+
+    private static final Logger log = LoggerFactory.getLogger(CachingLLMClient.class);
+
+    /**
+     * 每个条目的固定开销（节点、响应对象等）
+     */
+    private static final int ENTRY_OVERHEAD = 64;
+
+    private final LLMClient delegate;
+    private final LLMConfig config;
+    private final MetricsCollector metrics;
+    private final WTinyLfuCache<String, LLMResponse> cache;
+
+    public CachingLLMClient(LLMClient delegate, LLMConfig config, MetricsCollector metrics) {
+        this.delegate = delegate;
+        this.config = config;
+        this.metrics = metrics;
+        this.cache = new WTinyLfuCache<>(
+                config.getCacheMaxEntries(),
+                config.getCacheMaxWeight(),
+                config.getCacheTtlSeconds() * 1000L,
+                CachingLLMClient::weigh);
+
+        metrics.registerGauge("llm.cache.size", cache::size);
+        metrics.registerGauge("llm.cache.weight", cache::weightedSize);
+        metrics.registerGauge("llm.cache.hits", cache::hitCount);
+        metrics.registerGauge("llm.cache.misses", cache::missCount);
+        metrics.registerGauge("llm.cache.evictions", cache::evictionCount);
+        metrics.registerGauge("llm.cache.expirations", cache::expirationCount);
+        log.info("LLM 补全缓存已启用: maxEntries={}, maxWeight={}, ttl={}s, maxTemperature={}",
+                config.getCacheMaxEntries(), config.getCacheMaxWeight(),
+                config.getCacheTtlSeconds(), config.getCacheMaxTemperature());
+    }
+
+    @Override
+    public LLMResponse complete(LLMRequest request) {
+        if (request.getTemperature() > config.getCacheMaxTemperature()) {
+            metrics.increment("llm.cache.bypass");
+            return delegate.complete(request);
+        }
+
+        String key = request.fingerprint();
+        LLMResponse cached = cache.get(key);
+        if (cached != null) {
+            return copyOf(cached);
+        }
+
+        LLMResponse response = delegate.complete(request);
+        if (response.isSuccess() && response.getContent() != null) {
+            cache.put(key, copyOf(response));
+        }
+        return response;
+    }
+
+    @Override
+    public CompletableFuture<LLMResponse> completeAsync(LLMRequest request) {
+        if (request.getTemperature() > config.getCacheMaxTemperature()) {
+            metrics.increment("llm.cache.bypass");
+            return delegate.completeAsync(request);
+        }
+
+        String key = request.fingerprint();
+        LLMResponse cached = cache.get(key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(copyOf(cached));
+        }
+
+        return delegate.completeAsync(request).thenApply(response -> {
+            if (response.isSuccess() && response.getContent() != null) {
+                cache.put(key, copyOf(response));
+            }
+            return response;
+        });
+    }
+
+    @Override
+    public LLMResponse chat(LLMRequest request) {
+        return delegate.chat(request);
+    }
+
+    @Override
+    public void stream(LLMRequest request, LLMStreamListener listener) {
+        delegate.stream(request, listener);
+    }
+
+    @Override
+    public CompletableFuture<Void> streamAsync(LLMRequest request, LLMStreamListener listener) {
+        return delegate.streamAsync(request, listener);
+    }
+
+    @Override
+    public String getModelName() {
+        return delegate.getModelName();
+    }
+
+    @Override
+    public boolean isHealthy() {
+        return delegate.isHealthy();
+    }
+
+    /**
+     * 复制响应（调用方可能修改返回对象），命中时耗时记为 0
+     */
+    private static LLMResponse copyOf(LLMResponse source) {
+        LLMResponse copy = LLMResponse.success(source.getContent());
+        copy.setModel(source.getModel());
+        copy.setPromptTokens(source.getPromptTokens());
+        copy.setCompletionTokens(source.getCompletionTokens());
+        copy.setTotalTokens(source.getTotalTokens());
+        return copy;
+    }
+
+    /**
+     * 按字符数估算权重（Java 字符串每字符 2 字节）
+     */
+    private static int weigh(String key, LLMResponse response) {
+        int contentLength = response.getContent() != null ? response.getContent().length() : 0;
+        return ENTRY_OVERHEAD + 2 * (key.length() + contentLength);
+    }
+}
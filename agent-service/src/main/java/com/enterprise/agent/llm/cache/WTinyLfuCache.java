@@ -0,0 +1,339 @@
+package com.enterprise.agent.llm.cache;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.ToIntBiFunction;
+
+/**
+ * W-TinyLFU 有界缓存
+ *
+ * 结构：
+ * - 窗口区（window LRU，约 1% 容量）：新条目先进入窗口，吸收突发访问
+ * - 主区（SLRU）：probation（试用）+ protected（保护，约占主区 80%）
+ * - 准入：窗口淘汰出的候选与 probation 队尾受害者比较 TinyLFU 频率，频率高者留下
+ *
+ * 各区同时受条目数与权重约束，每个条目带独立过期时间（读取时惰性过期）。
+ * 所有操作在对象锁内完成：单次操作为 O(1) 链表调整，相对 LLM 调用耗时可忽略。
+ */
+public class WTinyLfuCache<K, V> {
+
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+
+    private final int maximumSize;
+    private final long maximumWeight;
+    private final long windowMaximum;
+    private final long protectedMaximum;
+    private final int windowMaximumSize;
+    private final int protectedMaximumSize;
+    private final long ttlNanos;
+    private final ToIntBiFunction<K, V> weigher;
+
+    private final Map<K, Node<K, V>> data = new HashMap<>();
+    private final AccessDeque<K, V> window = new AccessDeque<>();
+    private final AccessDeque<K, V> probation = new AccessDeque<>();
+    private final AccessDeque<K, V> protectedQueue = new AccessDeque<>();
+    private final FrequencySketch sketch;
+
+    private long windowWeight;
+    private long protectedWeight;
+    private long totalWeight;
+    private int windowSize;
+    private int protectedSize;
+
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+    private long expirationCount;
+
+    /**
+     * @param maximumSize   最大条目数
+     * @param maximumWeight 最大总权重
+     * @param ttlMillis     条目存活时间（毫秒）
+     * @param weigher       条目权重计算
+     */
+    public WTinyLfuCache(int maximumSize, long maximumWeight, long ttlMillis, ToIntBiFunction<K, V> weigher) {
+        if (maximumSize <= 0 || maximumWeight <= 0) {
+            throw new IllegalArgumentException("缓存容量必须大于 0");
+        }
+        this.maximumSize = maximumSize;
+        this.maximumWeight = maximumWeight;
+        this.windowMaximum = Math.max(1L, maximumWeight / 100);
+        this.protectedMaximum = (long) ((maximumWeight - windowMaximum) * 0.8);
+        this.windowMaximumSize = Math.max(1, maximumSize / 100);
+        this.protectedMaximumSize = (int) ((maximumSize - windowMaximumSize) * 0.8);
+        this.ttlNanos = ttlMillis * 1_000_000L;
+        this.weigher = weigher;
+        this.sketch = new FrequencySketch(maximumSize);
+    }
+
+    /**
+     * 读取缓存，未命中或已过期返回 null
+     */
+    public synchronized V get(K key) {
+        sketch.increment(key);
+        Node<K, V> node = data.get(key);
+        if (node == null) {
+            missCount++;
+            return null;
+        }
+        if (node.expireAtNanos - System.nanoTime() <= 0) {
+            removeNode(node);
+            expirationCount++;
+            missCount++;
+            return null;
+        }
+        onAccess(node);
+        hitCount++;
+        return node.value;
+    }
+
+    /**
+     * 写入缓存（权重超过上限的条目直接丢弃）
+     */
+    public synchronized void put(K key, V value) {
+        int weight = weigher.applyAsInt(key, value);
+        if (weight > maximumWeight) {
+            return;
+        }
+        long expireAtNanos = System.nanoTime() + ttlNanos;
+
+        Node<K, V> node = data.get(key);
+        if (node != null) {
+            adjustWeight(node, weight - node.weight);
+            node.value = value;
+            node.weight = weight;
+            node.expireAtNanos = expireAtNanos;
+            onAccess(node);
+        } else {
+            sketch.increment(key);
+            node = new Node<>(key, value, weight, expireAtNanos);
+            data.put(key, node);
+            node.queue = WINDOW;
+            window.addLast(node);
+            windowWeight += weight;
+            windowSize++;
+            totalWeight += weight;
+        }
+        evict();
+    }
+
+    /**
+     * 删除条目
+     */
+    public synchronized void invalidate(K key) {
+        Node<K, V> node = data.get(key);
+        if (node != null) {
+            removeNode(node);
+        }
+    }
+
+    public synchronized int size() {
+        return data.size();
+    }
+
+    public synchronized long weightedSize() {
+        return totalWeight;
+    }
+
+    public synchronized long hitCount() {
+        return hitCount;
+    }
+
+    public synchronized long missCount() {
+        return missCount;
+    }
+
+    public synchronized long evictionCount() {
+        return evictionCount;
+    }
+
+    public synchronized long expirationCount() {
+        return expirationCount;
+    }
+
+    // ==================== 内部实现 ====================
+
+    /**
+     * 命中后调整位置：窗口/保护区移到队尾（最近访问端），试用区晋升保护区
+     */
+    private void onAccess(Node<K, V> node) {
+        switch (node.queue) {
+            case WINDOW:
+                window.moveToLast(node);
+                break;
+            case PROBATION:
+                probation.remove(node);
+                node.queue = PROTECTED;
+                protectedQueue.addLast(node);
+                protectedWeight += node.weight;
+                protectedSize++;
+                demoteProtected();
+                break;
+            default:
+                protectedQueue.moveToLast(node);
+                break;
+        }
+    }
+
+    /**
+     * 保护区超限时，将最久未访问的条目降级回试用区
+     */
+    private void demoteProtected() {
+        while (protectedWeight > protectedMaximum || protectedSize > protectedMaximumSize) {
+            Node<K, V> demoted = protectedQueue.pollFirst();
+            if (demoted == null) {
+                break;
+            }
+            protectedWeight -= demoted.weight;
+            protectedSize--;
+            demoted.queue = PROBATION;
+            probation.addLast(demoted);
+        }
+    }
+
+    /**
+     * 淘汰：窗口溢出条目进入试用区作为候选，超限时与试用区受害者按频率比较
+     */
+    private void evict() {
+        while (windowWeight > windowMaximum || windowSize > windowMaximumSize) {
+            Node<K, V> candidate = window.pollFirst();
+            if (candidate == null) {
+                break;
+            }
+            windowWeight -= candidate.weight;
+            windowSize--;
+            candidate.queue = PROBATION;
+            probation.addLast(candidate);
+        }
+
+        while (totalWeight > maximumWeight || data.size() > maximumSize) {
+            Node<K, V> victim = probation.peekFirst();
+            Node<K, V> candidate = probation.peekLast();
+            if (victim == null) {
+                victim = protectedQueue.peekFirst() != null ? protectedQueue.peekFirst() : window.peekFirst();
+                if (victim == null) {
+                    break;
+                }
+                evictNode(victim);
+            } else if (victim == candidate) {
+                evictNode(victim);
+            } else if (sketch.frequency(candidate.key) > sketch.frequency(victim.key)) {
+                evictNode(victim);
+            } else {
+                evictNode(candidate);
+            }
+        }
+    }
+
+    private void evictNode(Node<K, V> node) {
+        removeNode(node);
+        evictionCount++;
+    }
+
+    private void removeNode(Node<K, V> node) {
+        data.remove(node.key);
+        adjustWeight(node, -node.weight);
+        if (node.queue == WINDOW) {
+            windowSize--;
+        } else if (node.queue == PROTECTED) {
+            protectedSize--;
+        }
+        queueOf(node).remove(node);
+    }
+
+    private void adjustWeight(Node<K, V> node, long delta) {
+        totalWeight += delta;
+        if (node.queue == WINDOW) {
+            windowWeight += delta;
+        } else if (node.queue == PROTECTED) {
+            protectedWeight += delta;
+        }
+    }
+
+    private AccessDeque<K, V> queueOf(Node<K, V> node) {
+        switch (node.queue) {
+            case WINDOW:
+                return window;
+            case PROBATION:
+                return probation;
+            default:
+                return protectedQueue;
+        }
+    }
+
+    private static final class Node<K, V> {
+        final K key;
+        V value;
+        int weight;
+        long expireAtNanos;
+        int queue;
+        Node<K, V> prev;
+        Node<K, V> next;
+
+        Node(K key, V value, int weight, long expireAtNanos) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.expireAtNanos = expireAtNanos;
+        }
+    }
+
+    /**
+     * 侵入式双向链表：队首为最久未访问，队尾为最近访问
+     */
+    private static final class AccessDeque<K, V> {
+        private Node<K, V> head;
+        private Node<K, V> tail;
+
+        Node<K, V> peekFirst() {
+            return head;
+        }
+
+        Node<K, V> peekLast() {
+            return tail;
+        }
+
+        Node<K, V> pollFirst() {
+            Node<K, V> node = head;
+            if (node != null) {
+                remove(node);
+            }
+            return node;
+        }
+
+        void addLast(Node<K, V> node) {
+            node.prev = tail;
+            node.next = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+        }
+
+        void moveToLast(Node<K, V> node) {
+            if (node != tail) {
+                remove(node);
+                addLast(node);
+            }
+        }
+
+        void remove(Node<K, V> node) {
+            if (node.prev == null) {
+                head = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                tail = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+        }
+    }
+}
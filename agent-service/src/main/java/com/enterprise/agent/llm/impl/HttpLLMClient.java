@@ -0,0 +1,645 @@
+package com.enterprise.agent.llm.impl;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONArray;
+import com.alibaba.fastjson2.JSONObject;
+import com.enterprise.agent.config.LLMClientConfiguration;
+import com.enterprise.agent.config.LLMConfig;
+import com.enterprise.agent.llm.LLMClient;
+import com.enterprise.agent.llm.LLMRequest;
+import com.enterprise.agent.llm.LLMResponse;
+import com.enterprise.agent.llm.LLMStreamListener;
+import org.apache.hc.client5.http.async.methods.AbstractBinResponseConsumer;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.async.methods.SimpleRequestProducer;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.config.TlsConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.pool.PoolReusePolicy;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.hc.core5.reactor.IOReactorStatus;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * HTTP LLM 客户端（OpenAI 兼容协议，适用于 DeepSeek / OpenAI 等）
+ *
+ * 职责：
+ * - 基于 httpclient5 异步客户端调用 /chat/completions 接口
+ * - 全局共享有界连接池，长连接复用，避免每次调用重新握手
+ * - 以 LLMConfig.timeout 作为单次调用的总截止时间（含重试），并收紧到所属请求的剩余预算以内
+ * - 超时后取消底层请求，真正中断 socket 交换
+ * - 支持 SSE 流式输出（stream=true），逐段回调 token
+ *
+ * 禁止：
+ * - 在此类中拼接用户原始输入（prompt 由上层模板生成）
+ * - 在日志中打印 API Key
+ */
+@Component
+@Qualifier(LLMClientConfiguration.PROVIDER)
+@ConditionalOnProperty(prefix = "agent.llm", name = "provider", havingValue = "http")
+public class HttpLLMClient implements LLMClient {
+
+    private static final Logger log = LoggerFactory.getLogger(HttpLLMClient.class);
+
+    /**
+     * 重试退避基数（毫秒）
+     */
+    private static final long RETRY_BACKOFF_MS = 100;
+
+    /**
+     * 错误日志中响应体最大长度
+     */
+    private static final int MAX_ERROR_BODY_LENGTH = 200;
+
+    /**
+     * SSE 结束标记
+     */
+    private static final String STREAM_DONE = "[DONE]";
+
+    private final LLMConfig config;
+    private final CloseableHttpAsyncClient httpClient;
+
+    /**
+     * 异步调用的截止时间与重试退避计时器
+     */
+    private final ScheduledExecutorService timer;
+
+    @Autowired
+    public HttpLLMClient(LLMConfig config) {
+        this.config = config;
+        this.httpClient = createHttpClient(config);
+        this.httpClient.start();
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "llm-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info("HTTP LLM 客户端已启动: url={}, model={}, maxConnTotal={}, http2={}",
+                config.getApiUrl(), config.getModelName(), config.getMaxConnTotal(), config.isHttp2Enabled());
+    }
+
+    @Override
+    public LLMResponse complete(LLMRequest request) {
+        return execute(buildRequestBody(request, buildCompletionMessages(request), false), timeoutOf(request));
+    }
+
+    @Override
+    public LLMResponse chat(LLMRequest request) {
+        JSONArray messages = new JSONArray();
+        if (request.getSystemPrompt() != null) {
+            messages.add(buildMessage("system", request.getSystemPrompt()));
+        }
+        List<LLMRequest.Message> history = request.getMessages();
+        if (history != null) {
+            for (LLMRequest.Message message : history) {
+                messages.add(buildMessage(message.getRole(), message.getContent()));
+            }
+        }
+        if (request.getPrompt() != null) {
+            messages.add(buildMessage("user", request.getPrompt()));
+        }
+        return execute(buildRequestBody(request, messages, false), timeoutOf(request));
+    }
+
+    /**
+     * 异步补全：重试策略与截止时间同 complete，等待与退避都不占用调用线程
+     */
+    @Override
+    public CompletableFuture<LLMResponse> completeAsync(LLMRequest request) {
+        CompletableFuture<LLMResponse> result = new CompletableFuture<>();
+        long startTime = System.currentTimeMillis();
+        String body = buildRequestBody(request, buildCompletionMessages(request), false);
+        executeAsync(body, startTime, startTime + timeoutOf(request), 0, null, result);
+        return result;
+    }
+
+    /**
+     * 流式生成（不重试：部分内容已下发给调用方）
+     */
+    @Override
+    public void stream(LLMRequest request, LLMStreamListener listener) {
+        long startTime = System.currentTimeMillis();
+        long timeoutMs = timeoutOf(request);
+        String body = buildRequestBody(request, buildCompletionMessages(request), true);
+        SimpleHttpRequest httpRequest = buildHttpRequest(body, timeoutMs, true);
+
+        Future<LLMResponse> future = httpClient.execute(
+                SimpleRequestProducer.create(httpRequest), new StreamResponseConsumer(listener), null);
+
+        LLMResponse response;
+        try {
+            response = future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            log.warn("LLM 流式调用超时: timeout={}ms", timeoutMs);
+            response = LLMResponse.fail("TIMEOUT", "LLM 调用超时");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            response = LLMResponse.fail("INTERRUPTED", "LLM 调用被中断");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            log.warn("LLM 流式调用异常: {}", cause.getMessage());
+            response = LLMResponse.fail("IO_ERROR", cause.getMessage());
+        }
+
+        response.setLatencyMs(System.currentTimeMillis() - startTime);
+        listener.onComplete(response);
+    }
+
+    /**
+     * 异步流式生成（不重试）：token 在 IO 线程上回调
+     */
+    @Override
+    public CompletableFuture<Void> streamAsync(LLMRequest request, LLMStreamListener listener) {
+        long startTime = System.currentTimeMillis();
+        long timeoutMs = timeoutOf(request);
+        String body = buildRequestBody(request, buildCompletionMessages(request), true);
+        SimpleHttpRequest httpRequest = buildHttpRequest(body, timeoutMs, true);
+
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        Future<LLMResponse> future = httpClient.execute(SimpleRequestProducer.create(httpRequest),
+                new StreamResponseConsumer(listener), new FutureCallback<LLMResponse>() {
+                    @Override
+                    public void completed(LLMResponse response) {
+                        finish(response);
+                    }
+
+                    @Override
+                    public void failed(Exception e) {
+                        log.warn("LLM 流式调用异常: {}", e.getMessage());
+                        finish(LLMResponse.fail("IO_ERROR", e.getMessage()));
+                    }
+
+                    @Override
+                    public void cancelled() {
+                        log.warn("LLM 流式调用超时: timeout={}ms", timeoutMs);
+                        finish(LLMResponse.fail("TIMEOUT", "LLM 调用超时"));
+                    }
+
+                    private void finish(LLMResponse response) {
+                        response.setLatencyMs(System.currentTimeMillis() - startTime);
+                        try {
+                            listener.onComplete(response);
+                        } finally {
+                            done.complete(null);
+                        }
+                    }
+                });
+        cancelAfter(future, timeoutMs, done);
+        return done;
+    }
+
+    @Override
+    public String getModelName() {
+        return config.getModelName();
+    }
+
+    @Override
+    public boolean isHealthy() {
+        return httpClient.getStatus() == IOReactorStatus.ACTIVE;
+    }
+
+    /**
+     * 关闭客户端，释放连接池与 IO 线程
+     */
+    @PreDestroy
+    public void shutdown() {
+        log.info("关闭 HTTP LLM 客户端");
+        timer.shutdownNow();
+        httpClient.close(CloseMode.GRACEFUL);
+    }
+
+    /**
+     * 单次调用的总超时：LLMConfig.timeout 与所属请求剩余预算取小
+     */
+    private long timeoutOf(LLMRequest request) {
+        return request.getDeadline().capTimeout(config.getTimeout());
+    }
+
+    /**
+     * 执行请求（在总截止时间内按 maxRetries 重试）
+     */
+    private LLMResponse execute(String body, long timeoutMs) {
+        long startTime = System.currentTimeMillis();
+        long deadline = startTime + timeoutMs;
+        LLMResponse lastFailure = null;
+
+        for (int attempt = 0; attempt <= config.getMaxRetries(); attempt++) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                break;
+            }
+
+            Future<SimpleHttpResponse> future = httpClient.execute(buildHttpRequest(body, remaining, false), null);
+            try {
+                SimpleHttpResponse httpResponse = future.get(remaining, TimeUnit.MILLISECONDS);
+                int code = httpResponse.getCode();
+                if (code == 200) {
+                    LLMResponse response = parseResponse(httpResponse.getBodyText());
+                    response.setLatencyMs(System.currentTimeMillis() - startTime);
+                    return response;
+                }
+
+                lastFailure = LLMResponse.fail("HTTP_" + code, truncate(httpResponse.getBodyText()));
+                if (!isRetryable(code)) {
+                    log.error("LLM 调用失败: code={}, body={}", code, lastFailure.getErrorMessage());
+                    return lastFailure;
+                }
+                log.warn("LLM 调用失败, 准备重试: code={}, attempt={}", code, attempt + 1);
+
+            } catch (TimeoutException e) {
+                // 取消底层交换，连接随之中止，不会继续占用连接池
+                future.cancel(true);
+                log.warn("LLM 调用超时: timeout={}ms, attempt={}", timeoutMs, attempt + 1);
+                return LLMResponse.fail("TIMEOUT", "LLM 调用超时");
+
+            } catch (InterruptedException e) {
+                future.cancel(true);
+                Thread.currentThread().interrupt();
+                return LLMResponse.fail("INTERRUPTED", "LLM 调用被中断");
+
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                lastFailure = LLMResponse.fail("IO_ERROR", cause.getMessage());
+                log.warn("LLM 调用异常, 准备重试: {}, attempt={}", cause.getMessage(), attempt + 1);
+
+            } catch (Exception e) {
+                log.error("解析 LLM 响应失败: {}", e.getMessage(), e);
+                return LLMResponse.fail("PARSE_ERROR", e.getMessage());
+            }
+
+            if (!backoff(attempt, deadline)) {
+                break;
+            }
+        }
+
+        if (lastFailure == null) {
+            lastFailure = LLMResponse.fail("TIMEOUT", "LLM 调用超时");
+        }
+        lastFailure.setLatencyMs(System.currentTimeMillis() - startTime);
+        return lastFailure;
+    }
+
+    /**
+     * 异步执行一次尝试；失败可重试时经计时器退避后发起下一次
+     */
+    private void executeAsync(String body, long startTime, long deadline, int attempt,
+            LLMResponse lastFailure, CompletableFuture<LLMResponse> result) {
+        long remaining = deadline - System.currentTimeMillis();
+        if (attempt > config.getMaxRetries() || remaining <= 0) {
+            LLMResponse failure = lastFailure != null ? lastFailure : LLMResponse.fail("TIMEOUT", "LLM 调用超时");
+            failure.setLatencyMs(System.currentTimeMillis() - startTime);
+            result.complete(failure);
+            return;
+        }
+
+        Future<SimpleHttpResponse> future = httpClient.execute(buildHttpRequest(body, remaining, false),
+                new FutureCallback<SimpleHttpResponse>() {
+                    @Override
+                    public void completed(SimpleHttpResponse httpResponse) {
+                        int code = httpResponse.getCode();
+                        if (code == 200) {
+                            LLMResponse response;
+                            try {
+                                response = parseResponse(httpResponse.getBodyText());
+                            } catch (Exception e) {
+                                log.error("解析 LLM 响应失败: {}", e.getMessage(), e);
+                                response = LLMResponse.fail("PARSE_ERROR", e.getMessage());
+                            }
+                            response.setLatencyMs(System.currentTimeMillis() - startTime);
+                            result.complete(response);
+                            return;
+                        }
+
+                        LLMResponse failure = LLMResponse.fail("HTTP_" + code, truncate(httpResponse.getBodyText()));
+                        if (!isRetryable(code)) {
+                            log.error("LLM 调用失败: code={}, body={}", code, failure.getErrorMessage());
+                            result.complete(failure);
+                            return;
+                        }
+                        log.warn("LLM 调用失败, 准备重试: code={}, attempt={}", code, attempt + 1);
+                        retryAsync(body, startTime, deadline, attempt, failure, result);
+                    }
+
+                    @Override
+                    public void failed(Exception e) {
+                        log.warn("LLM 调用异常, 准备重试: {}, attempt={}", e.getMessage(), attempt + 1);
+                        retryAsync(body, startTime, deadline, attempt, LLMResponse.fail("IO_ERROR", e.getMessage()), result);
+                    }
+
+                    @Override
+                    public void cancelled() {
+                        log.warn("LLM 调用超时: timeout={}ms, attempt={}", deadline - startTime, attempt + 1);
+                        result.complete(LLMResponse.fail("TIMEOUT", "LLM 调用超时"));
+                    }
+                });
+        cancelAfter(future, remaining, result);
+    }
+
+    private void retryAsync(String body, long startTime, long deadline, int attempt,
+            LLMResponse failure, CompletableFuture<LLMResponse> result) {
+        long sleepMs = RETRY_BACKOFF_MS << attempt;
+        if (System.currentTimeMillis() + sleepMs >= deadline) {
+            failure.setLatencyMs(System.currentTimeMillis() - startTime);
+            result.complete(failure);
+            return;
+        }
+        timer.schedule(() -> executeAsync(body, startTime, deadline, attempt + 1, failure, result),
+                sleepMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 到达截止时间仍未完成则取消底层交换（回调 cancelled），提前完成时撤销计时
+     */
+    private void cancelAfter(Future<?> future, long timeoutMs, CompletableFuture<?> completion) {
+        ScheduledFuture<?> timeout = timer.schedule(() -> future.cancel(true), timeoutMs, TimeUnit.MILLISECONDS);
+        completion.whenComplete((ignored, error) -> timeout.cancel(false));
+    }
+
+    /**
+     * 重试前退避，剩余时间不足时放弃重试
+     */
+    private boolean backoff(int attempt, long deadline) {
+        long sleepMs = RETRY_BACKOFF_MS << attempt;
+        if (System.currentTimeMillis() + sleepMs >= deadline) {
+            return false;
+        }
+        try {
+            Thread.sleep(sleepMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private boolean isRetryable(int code) {
+        return code == 429 || code >= 500;
+    }
+
+    /**
+     * 构建 HTTP 请求（响应超时取剩余时间）
+     */
+    private SimpleHttpRequest buildHttpRequest(String body, long timeoutMs, boolean stream) {
+        Timeout timeout = Timeout.ofMilliseconds(timeoutMs);
+        SimpleRequestBuilder builder = SimpleRequestBuilder.post(config.getApiUrl())
+                .setHeader(HttpHeaders.ACCEPT, stream ? "text/event-stream" : ContentType.APPLICATION_JSON.getMimeType())
+                .setBody(body, ContentType.APPLICATION_JSON)
+                .setRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(timeout)
+                        .setResponseTimeout(timeout)
+                        .build());
+        if (config.getApiKey() != null && !config.getApiKey().isEmpty()) {
+            builder.setHeader(HttpHeaders.AUTHORIZATION, "Bearer " + config.getApiKey());
+        }
+        return builder.build();
+    }
+
+    /**
+     * 构建单轮补全消息（系统提示词 + 用户 prompt）
+     */
+    private JSONArray buildCompletionMessages(LLMRequest request) {
+        JSONArray messages = new JSONArray();
+        if (request.getSystemPrompt() != null) {
+            messages.add(buildMessage("system", request.getSystemPrompt()));
+        }
+        messages.add(buildMessage("user", request.getPrompt()));
+        return messages;
+    }
+
+    /**
+     * 构建请求体
+     */
+    private String buildRequestBody(LLMRequest request, JSONArray messages, boolean stream) {
+        JSONObject body = new JSONObject();
+        body.put("model", config.getModelName());
+        body.put("messages", messages);
+        if (stream) {
+            body.put("stream", true);
+        }
+        body.put("max_tokens", request.getMaxTokens());
+        body.put("temperature", request.getTemperature());
+        body.put("top_p", request.getTopP());
+        if (request.getStopWords() != null && !request.getStopWords().isEmpty()) {
+            body.put("stop", request.getStopWords());
+        }
+        return body.toJSONString();
+    }
+
+    private JSONObject buildMessage(String role, String content) {
+        JSONObject message = new JSONObject();
+        message.put("role", role);
+        message.put("content", content);
+        return message;
+    }
+
+    /**
+     * 解析响应体
+     */
+    private LLMResponse parseResponse(String bodyText) {
+        JSONObject json = JSON.parseObject(bodyText);
+        JSONArray choices = json.getJSONArray("choices");
+        if (choices == null || choices.isEmpty()) {
+            return LLMResponse.fail("EMPTY_RESPONSE", "LLM 未返回结果");
+        }
+
+        JSONObject message = choices.getJSONObject(0).getJSONObject("message");
+        LLMResponse response = LLMResponse.success(message != null ? message.getString("content") : null);
+        response.setModel(json.getString("model"));
+
+        JSONObject usage = json.getJSONObject("usage");
+        if (usage != null) {
+            response.setPromptTokens(usage.getIntValue("prompt_tokens"));
+            response.setCompletionTokens(usage.getIntValue("completion_tokens"));
+            response.setTotalTokens(usage.getIntValue("total_tokens"));
+        }
+        return response;
+    }
+
+    private static String truncate(String text) {
+        if (text == null || text.length() <= MAX_ERROR_BODY_LENGTH) {
+            return text;
+        }
+        return text.substring(0, MAX_ERROR_BODY_LENGTH) + "...";
+    }
+
+    /**
+     * 创建共享连接池的异步客户端
+     */
+    private static CloseableHttpAsyncClient createHttpClient(LLMConfig config) {
+        Timeout timeout = Timeout.ofMilliseconds(config.getTimeout());
+
+        PoolingAsyncClientConnectionManager connectionManager = PoolingAsyncClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(config.getMaxConnTotal())
+                .setMaxConnPerRoute(config.getMaxConnPerRoute())
+                // LIFO 优先复用最近使用的热连接，冷连接自然空闲回收
+                .setConnPoolPolicy(PoolReusePolicy.LIFO)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(timeout)
+                        .setSocketTimeout(timeout)
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(5))
+                        .build())
+                .setDefaultTlsConfig(TlsConfig.custom()
+                        .setVersionPolicy(config.isHttp2Enabled()
+                                ? HttpVersionPolicy.NEGOTIATE
+                                : HttpVersionPolicy.FORCE_HTTP_1)
+                        .setHandshakeTimeout(timeout)
+                        .build())
+                .build();
+
+        IOReactorConfig.Builder ioConfig = IOReactorConfig.custom()
+                .setSoKeepAlive(true)
+                .setTcpNoDelay(true);
+        if (config.getIoThreads() > 0) {
+            ioConfig.setIoThreadCount(config.getIoThreads());
+        }
+
+        return HttpAsyncClients.custom()
+                .setConnectionManager(connectionManager)
+                .setIOReactorConfig(ioConfig.build())
+                .evictIdleConnections(TimeValue.ofSeconds(config.getKeepAliveSeconds()))
+                // 重试由 execute() 按截止时间统一控制
+                .disableAutomaticRetries()
+                .disableCookieManagement()
+                .disableRedirectHandling()
+                .build();
+    }
+
+    /**
+     * SSE 响应消费者
+     *
+     * 按字节切分行（UTF-8 多字节字符不含 '\n'），逐行解析 data 事件并回调 token
+     */
+    private static final class StreamResponseConsumer extends AbstractBinResponseConsumer<LLMResponse> {
+
+        private final LLMStreamListener listener;
+        private final ByteArrayOutputStream lineBuffer = new ByteArrayOutputStream(256);
+        private final StringBuilder content = new StringBuilder();
+        private int statusCode;
+        private String model;
+        private JSONObject usage;
+
+        StreamResponseConsumer(LLMStreamListener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        protected void start(HttpResponse response, ContentType contentType) {
+            statusCode = response.getCode();
+        }
+
+        @Override
+        protected int capacityIncrement() {
+            return Integer.MAX_VALUE;
+        }
+
+        @Override
+        protected void data(ByteBuffer src, boolean endOfStream) {
+            while (src.hasRemaining()) {
+                byte b = src.get();
+                if (b == '\n') {
+                    flushLine();
+                } else {
+                    lineBuffer.write(b);
+                }
+            }
+            if (endOfStream) {
+                flushLine();
+            }
+        }
+
+        private void flushLine() {
+            if (lineBuffer.size() == 0) {
+                return;
+            }
+            String line = new String(lineBuffer.toByteArray(), StandardCharsets.UTF_8);
+            lineBuffer.reset();
+
+            // 非 200 响应：收集响应体作为错误信息
+            if (statusCode != 200) {
+                content.append(line);
+                return;
+            }
+
+            if (!line.startsWith("data:")) {
+                return;
+            }
+            String data = line.substring(5).trim();
+            if (data.isEmpty() || STREAM_DONE.equals(data)) {
+                return;
+            }
+
+            JSONObject json = JSON.parseObject(data);
+            if (model == null) {
+                model = json.getString("model");
+            }
+            if (json.getJSONObject("usage") != null) {
+                usage = json.getJSONObject("usage");
+            }
+
+            JSONArray choices = json.getJSONArray("choices");
+            if (choices == null || choices.isEmpty()) {
+                return;
+            }
+            JSONObject delta = choices.getJSONObject(0).getJSONObject("delta");
+            String token = delta != null ? delta.getString("content") : null;
+            if (token != null && !token.isEmpty()) {
+                content.append(token);
+                listener.onToken(token);
+            }
+        }
+
+        @Override
+        protected LLMResponse buildResult() {
+            if (statusCode != 200) {
+                return LLMResponse.fail("HTTP_" + statusCode, truncate(content.toString()));
+            }
+            LLMResponse response = LLMResponse.success(content.toString());
+            response.setModel(model);
+            if (usage != null) {
+                response.setPromptTokens(usage.getIntValue("prompt_tokens"));
+                response.setCompletionTokens(usage.getIntValue("completion_tokens"));
+                response.setTotalTokens(usage.getIntValue("total_tokens"));
+            }
+            return response;
+        }
+
+        @Override
+        public void releaseResources() {
+        }
+    }
+}
@@ -1,28 +1,90 @@
 package com.enterprise.agent.llm.impl;
 
+import com.enterprise.agent.config.LLMClientConfiguration;
+import com.enterprise.agent.config.LLMConfig;
 import com.enterprise.agent.llm.LLMClient;
 import com.enterprise.agent.llm.LLMRequest;
 import com.enterprise.agent.llm.LLMResponse;
+import com.enterprise.agent.llm.LLMStreamListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PreDestroy;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Mock LLM 客户端（用于测试）
  * 
- * 实际项目中应替换为 DeepSeekClient 或 OpenAIClient
+ * 生产环境通过 agent.llm.provider=http 切换为 HttpLLMClient
  */
 @Component
+@Qualifier(LLMClientConfiguration.PROVIDER)
+@ConditionalOnProperty(prefix = "agent.llm", name = "provider", havingValue = "mock", matchIfMissing = true)
 public class MockLLMClient implements LLMClient {
 
     private static final Logger log = LoggerFactory.getLogger(MockLLMClient.class);
 
+    /**
+     * 流式输出时每个 token 的字符数
+     */
+    private static final int STREAM_TOKEN_CHARS = 2;
+
+    private final LLMConfig config;
+
+    /**
+     * 异步调用的模拟延迟计时器（不占用调用线程）
+     */
+    private final ScheduledExecutorService timer;
+
+    @Autowired
+    public MockLLMClient(LLMConfig config) {
+        this.config = config;
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "mock-llm-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
     @Override
     public LLMResponse complete(LLMRequest request) {
-        long startTime = System.currentTimeMillis();
+        long latencyMs = config.getMockLatencyMs();
+        if (latencyMs > 0) {
+            try {
+                Thread.sleep(latencyMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return LLMResponse.fail("INTERRUPTED", "Mock 调用被中断");
+            }
+        }
+        return respond(request, latencyMs);
+    }
+
+    /**
+     * 模拟延迟到期后在计时器线程上完成
+     */
+    @Override
+    public CompletableFuture<LLMResponse> completeAsync(LLMRequest request) {
+        long latencyMs = config.getMockLatencyMs();
+        if (latencyMs <= 0) {
+            return CompletableFuture.completedFuture(respond(request, 0));
+        }
+        CompletableFuture<LLMResponse> future = new CompletableFuture<>();
+        timer.schedule(() -> future.complete(respond(request, latencyMs)), latencyMs, TimeUnit.MILLISECONDS);
+        return future;
+    }
+
+    private LLMResponse respond(LLMRequest request, long latencyMs) {
+        long startTime = System.currentTimeMillis() - latencyMs;
 
         try {
             // 模拟 LLM 响应
@@ -49,6 +111,75 @@ public class MockLLMClient implements LLMClient {
         return complete(request);
     }
 
+    /**
+     * 模拟流式输出：按固定字符数切分，每段之间按配置延迟
+     */
+    @Override
+    public void stream(LLMRequest request, LLMStreamListener listener) {
+        LLMResponse response = complete(request);
+        if (!response.isSuccess()) {
+            listener.onComplete(response);
+            return;
+        }
+
+        String content = response.getContent();
+        long delayMs = config.getMockTokenDelayMs();
+        try {
+            for (int i = 0; i < content.length(); i += STREAM_TOKEN_CHARS) {
+                if (delayMs > 0) {
+                    Thread.sleep(delayMs);
+                }
+                listener.onToken(content.substring(i, Math.min(i + STREAM_TOKEN_CHARS, content.length())));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            listener.onComplete(LLMResponse.fail("INTERRUPTED", "Mock 流式输出被中断"));
+            return;
+        }
+        listener.onComplete(response);
+    }
+
+    /**
+     * 模拟异步流式输出：由计时器逐段回调，不占用调用线程
+     */
+    @Override
+    public CompletableFuture<Void> streamAsync(LLMRequest request, LLMStreamListener listener) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        completeAsync(request).thenAccept(response -> {
+            if (!response.isSuccess()) {
+                listener.onComplete(response);
+                done.complete(null);
+                return;
+            }
+            emitToken(response, 0, listener, done);
+        });
+        return done;
+    }
+
+    private void emitToken(LLMResponse response, int offset, LLMStreamListener listener, CompletableFuture<Void> done) {
+        String content = response.getContent();
+        if (offset >= content.length()) {
+            listener.onComplete(response);
+            done.complete(null);
+            return;
+        }
+        Runnable next = () -> {
+            listener.onToken(content.substring(offset, Math.min(offset + STREAM_TOKEN_CHARS, content.length())));
+            emitToken(response, offset + STREAM_TOKEN_CHARS, listener, done);
+        };
+        long delayMs = config.getMockTokenDelayMs();
+        if (delayMs > 0) {
+            timer.schedule(next, delayMs, TimeUnit.MILLISECONDS);
+        } else {
+            next.run();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+
     @Override
     public String getModelName() {
         return "mock-model";
@@ -63,33 +194,26 @@ public class MockLLMClient implements LLMClient {
      * 生成模拟响应
      */
     private String generateMockResponse(String prompt) {
+        // 对话摘要压缩
+        if (prompt.contains("对话摘要压缩")) {
+            return "用户此前咨询了订单相关问题，已提供订单号。";
+        }
+
+        // 意图与参数联合识别响应
+        if (prompt.contains("意图与参数联合识别")) {
+            String intentJson = generateMockIntent(prompt);
+            return intentJson.substring(0, intentJson.length() - 1)
+                    + ", \"slots\": " + generateMockSlots(prompt) + "}";
+        }
+
         // 意图识别响应
         if (prompt.contains("意图识别")) {
-            if (prompt.contains("订单") && prompt.contains("状态")) {
-                return "{\"intent\": \"query_order_status\", \"confidence\": 0.95}";
-            }
-            if (prompt.contains("物流")) {
-                return "{\"intent\": \"query_logistics\", \"confidence\": 0.92}";
-            }
-            if (prompt.contains("转人工") || prompt.contains("人工客服")) {
-                return "{\"intent\": \"human_handoff\", \"confidence\": 0.98}";
-            }
-            if (prompt.contains("你好") || prompt.contains("在吗")) {
-                return "{\"intent\": \"greeting\", \"confidence\": 0.90}";
-            }
-            return "{\"intent\": \"unknown\", \"confidence\": 0.3}";
+            return generateMockIntent(prompt);
         }
 
         // 槽位抽取响应
         if (prompt.contains("参数抽取")) {
-            // 尝试从 prompt 中提取订单号
-            if (prompt.contains("ORD-")) {
-                int start = prompt.indexOf("ORD-");
-                int end = Math.min(start + 15, prompt.length());
-                String orderId = prompt.substring(start, end).replaceAll("[^A-Z0-9\\-]", "");
-                return "{\"order_id\": \"" + orderId + "\", \"reason\": null}";
-            }
-            return "{\"order_id\": null, \"reason\": null}";
+            return generateMockSlots(prompt);
         }
 
         // 响应生成
@@ -99,4 +223,31 @@ public class MockLLMClient implements LLMClient {
 
         return "这是一个模拟的 LLM 响应。";
     }
+
+    private String generateMockIntent(String prompt) {
+        if (prompt.contains("订单") && prompt.contains("状态")) {
+            return "{\"intent\": \"query_order_status\", \"confidence\": 0.95}";
+        }
+        if (prompt.contains("物流")) {
+            return "{\"intent\": \"query_logistics\", \"confidence\": 0.92}";
+        }
+        if (prompt.contains("转人工") || prompt.contains("人工客服")) {
+            return "{\"intent\": \"human_handoff\", \"confidence\": 0.98}";
+        }
+        if (prompt.contains("你好") || prompt.contains("在吗")) {
+            return "{\"intent\": \"greeting\", \"confidence\": 0.90}";
+        }
+        return "{\"intent\": \"unknown\", \"confidence\": 0.3}";
+    }
+
+    private String generateMockSlots(String prompt) {
+        // 尝试从 prompt 中提取订单号
+        if (prompt.contains("ORD-")) {
+            int start = prompt.indexOf("ORD-");
+            int end = Math.min(start + 15, prompt.length());
+            String orderId = prompt.substring(start, end).replaceAll("[^A-Z0-9\\-]", "");
+            return "{\"order_id\": \"" + orderId + "\", \"reason\": null}";
+        }
+        return "{\"order_id\": null, \"reason\": null}";
+    }
 }
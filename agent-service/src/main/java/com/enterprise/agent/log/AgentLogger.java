@@ -1,6 +1,7 @@
 package com.enterprise.agent.log;
 
 import com.enterprise.agent.controller.dto.ChatResponse;
+import com.enterprise.agent.intent.IntentResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
@@ -39,6 +40,22 @@ public class AgentLogger {
                 truncate(response.getReply(), 100));
     }
 
+    /**
+     * 记录意图识别结果（单行格式，供离线训练本地意图模型使用）
+     *
+     * @param source 识别来源：fast-path / local / llm
+     */
+    public void logIntent(String traceId, String source, IntentResult intentResult) {
+        String message = intentResult.getRawInput();
+        log.info("{} [{}] INTENT: source={}, intent={}, confidence={}, message={}",
+                LOG_PREFIX,
+                traceId,
+                source,
+                intentResult.getIntentType().getCode(),
+                intentResult.getConfidence(),
+                message != null ? truncate(message.replace('\n', ' ').replace('\r', ' '), 200) : null);
+    }
+
     /**
      * 记录错误日志
      */
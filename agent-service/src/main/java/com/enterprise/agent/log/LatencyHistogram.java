@@ -0,0 +1,123 @@
+package com.enterprise.agent.log;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * 无锁延迟直方图（HdrHistogram 式对数-线性分桶）
+ *
+ * - 以微秒记录，每个 2 的幂区间再线性切分为 64 个子桶，相对误差不超过 1/64（约 1.6%）
+ * - 0 ~ 127 微秒逐一计数；超过 MAX_VALUE_MICROS 的值计入最高桶
+ * - 记录只做一次 AtomicLongArray 递增与一次最大值累积，不分配对象、不加锁
+ * - 读取时遍历全部桶（约 2000 个）计算分位数，与并发记录之间不保证原子快照
+ *
+ * 自创建起累计，不做时间窗口滚动。
+ */
+public final class LatencyHistogram {
+
+    /**
+     * 每个数量级的子桶位数（2^7 = 128 个子桶，高一半参与分桶）
+     */
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKET_HALF = 1 << (SUB_BUCKET_BITS - 1);
+    private static final long SUB_BUCKET_MASK = (1L << SUB_BUCKET_BITS) - 1;
+
+    /**
+     * 可区分的最大值（微秒），约 19 小时
+     */
+    public static final long MAX_VALUE_MICROS = (1L << 36) - 1;
+
+    private static final int BUCKET_COUNT = indexOf(MAX_VALUE_MICROS) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * 记录一次耗时
+     */
+    public void recordNanos(long nanos) {
+        recordMicros(nanos / 1000);
+    }
+
+    /**
+     * 记录一次耗时（微秒，负数按 0 计）
+     */
+    public void recordMicros(long micros) {
+        long value = Math.min(Math.max(micros, 0), MAX_VALUE_MICROS);
+        counts.incrementAndGet(indexOf(value));
+        max.accumulate(value);
+    }
+
+    /**
+     * 记录总数
+     */
+    public long getCount() {
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * 最大值（微秒）
+     */
+    public long getMaxMicros() {
+        return max.get();
+    }
+
+    /**
+     * 分位数（微秒），取所在桶的上界，不超过最大值；无记录时为 0
+     *
+     * @param percentile 0 ~ 100，如 99.9
+     */
+    public long valueAtPercentile(double percentile) {
+        return valuesAtPercentiles(percentile)[0];
+    }
+
+    /**
+     * 一次遍历计算多个分位数（微秒），percentiles 须升序
+     */
+    public long[] valuesAtPercentiles(double... percentiles) {
+        long[] snapshot = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+
+        long[] values = new long[percentiles.length];
+        if (total == 0) {
+            return values;
+        }
+        long maxMicros = max.get();
+        long cumulative = 0;
+        int bucket = 0;
+        for (int p = 0; p < percentiles.length; p++) {
+            double ratio = Math.min(Math.max(percentiles[p], 0.0), 100.0) / 100.0;
+            long target = Math.max(1, (long) Math.ceil(ratio * total));
+            while (bucket < BUCKET_COUNT && cumulative + snapshot[bucket] < target) {
+                cumulative += snapshot[bucket++];
+            }
+            values[p] = bucket < BUCKET_COUNT ? Math.min(upperBoundOf(bucket), maxMicros) : maxMicros;
+        }
+        return values;
+    }
+
+    /**
+     * 值所在桶：数量级 m 为值的位数超出子桶位数的部分，桶号 = m * 64 + (value >>> m)
+     */
+    static int indexOf(long value) {
+        int magnitude = 64 - Long.numberOfLeadingZeros(value | SUB_BUCKET_MASK) - SUB_BUCKET_BITS;
+        return magnitude * SUB_BUCKET_HALF + (int) (value >>> magnitude);
+    }
+
+    /**
+     * 桶内可表示的最大值
+     */
+    static long upperBoundOf(int index) {
+        int magnitude = index < 2 * SUB_BUCKET_HALF ? 0 : index / SUB_BUCKET_HALF - 1;
+        long subBucket = index - (long) magnitude * SUB_BUCKET_HALF;
+        return ((subBucket + 1) << magnitude) - 1;
+    }
+}
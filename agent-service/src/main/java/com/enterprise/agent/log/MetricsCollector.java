@@ -0,0 +1,74 @@
+package com.enterprise.agent.log;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 指标收集器
+ *
+ * 进程内计数器与瞬时值（gauge），供各模块记录命中率、降级次数等运行指标。
+ * 计数器基于 LongAdder，高并发递增无锁竞争。
+ */
+@Component
+public class MetricsCollector {
+
+    private final ConcurrentMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Supplier<? extends Number>> gauges = new ConcurrentHashMap<>();
+
+    /**
+     * 计数器加一
+     */
+    public void increment(String name) {
+        counter(name).increment();
+    }
+
+    /**
+     * 计数器累加
+     */
+    public void add(String name, long delta) {
+        counter(name).add(delta);
+    }
+
+    /**
+     * 获取计数器当前值
+     */
+    public long getCount(String name) {
+        LongAdder adder = counters.get(name);
+        return adder != null ? adder.sum() : 0L;
+    }
+
+    /**
+     * 注册瞬时值（读取时实时计算）
+     */
+    public void registerGauge(String name, Supplier<? extends Number> supplier) {
+        gauges.put(name, supplier);
+    }
+
+    /**
+     * 获取所有指标快照（按名称排序）
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+            snapshot.put(entry.getKey(), entry.getValue().sum());
+        }
+        for (Map.Entry<String, Supplier<? extends Number>> entry : gauges.entrySet()) {
+            snapshot.put(entry.getKey(), entry.getValue().get());
+        }
+        return snapshot;
+    }
+
+    private LongAdder counter(String name) {
+        LongAdder adder = counters.get(name);
+        if (adder == null) {
+            adder = counters.computeIfAbsent(name, k -> new LongAdder());
+        }
+        return adder;
+    }
+}
@@ -1,24 +1,43 @@
 package com.enterprise.agent.orchestrator;
 
+import com.enterprise.agent.common.RequestDeadline;
+import com.enterprise.agent.config.AgentConfig;
 import com.enterprise.agent.controller.dto.ChatResponse;
 import com.enterprise.agent.fallback.FallbackManager;
 import com.enterprise.agent.fallback.HumanHandoffService;
+import com.enterprise.agent.intent.FastPathClassifier;
 import com.enterprise.agent.intent.IntentRecognizer;
 import com.enterprise.agent.intent.IntentResult;
 import com.enterprise.agent.intent.IntentType;
+import com.enterprise.agent.intent.JointIntentRecognizer;
+import com.enterprise.agent.intent.LocalIntentClassifier;
 import com.enterprise.agent.intent.SlotExtractor;
+import com.enterprise.agent.intent.SpeculativeIntentRecognizer;
+import com.enterprise.agent.log.AgentLogger;
+import com.enterprise.agent.log.MetricsCollector;
 import com.enterprise.agent.response.ResponseGenerator;
 import com.enterprise.agent.security.PermissionChecker;
 import com.enterprise.agent.security.SensitiveWordFilter;
+import com.enterprise.agent.security.StreamingTextFilter;
 import com.enterprise.agent.session.ConversationContext;
+import com.enterprise.agent.session.HistoryCompactor;
 import com.enterprise.agent.tool.ToolContext;
 import com.enterprise.agent.tool.ToolExecutor;
+import com.enterprise.agent.tool.ToolOutcome;
 import com.enterprise.agent.tool.ToolResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
 /**
  * Agent 核心编排器
  * 
@@ -28,6 +47,12 @@ import org.springframework.stereotype.Component;
  * - 按固定顺序调用：意图识别 → 槽位抽取 → 权限校验 → 工具执行 → 响应生成
  * - 处理各类异常场景，触发对应的兜底策略
  * - 确保每次请求最终到达终态（DONE / HANDOFF / REJECT / ERROR）
+ * - 在意图识别、槽位抽取、工具执行前检查请求预算（RequestDeadline），耗尽时以超时结束本轮；
+ *   预算不足一次 LLM 调用时意图识别改用本地模型结果
+ * - 上一轮因槽位缺失追问时，本轮消息若是槽位回答则续接待补充的意图，跳过意图识别
+ * - 一条消息包含多个查询类意图时，各意图的工具并行执行，结果合并为一次回复
+ * - 提供阻塞（process）与异步（processAsync）两种执行方式，两者的阶段顺序与状态转换完全一致：
+ *   异步方式下 LLM 调用不占用线程，其余阶段在业务线程池中执行
  * 
  * 禁止：
  * - 直接调用 LLM（必须通过 IntentRecognizer / ResponseGenerator）
@@ -41,7 +66,11 @@ public class AgentOrchestrator {
     private static final Logger log = LoggerFactory.getLogger(AgentOrchestrator.class);
 
     private final StateMachine stateMachine;
+    private final FastPathClassifier fastPathClassifier;
+    private final LocalIntentClassifier localIntentClassifier;
     private final IntentRecognizer intentRecognizer;
+    private final JointIntentRecognizer jointIntentRecognizer;
+    private final SpeculativeIntentRecognizer speculativeIntentRecognizer;
     private final SlotExtractor slotExtractor;
     private final ToolExecutor toolExecutor;
     private final ResponseGenerator responseGenerator;
@@ -49,19 +78,37 @@ public class AgentOrchestrator {
     private final SensitiveWordFilter sensitiveWordFilter;
     private final FallbackManager fallbackManager;
     private final HumanHandoffService humanHandoffService;
+    private final HistoryCompactor historyCompactor;
+    private final AgentConfig agentConfig;
+    private final AgentLogger agentLogger;
+    private final MetricsCollector metrics;
+    private final Executor taskExecutor;
 
     @Autowired
     public AgentOrchestrator(StateMachine stateMachine,
+            FastPathClassifier fastPathClassifier,
+            LocalIntentClassifier localIntentClassifier,
             IntentRecognizer intentRecognizer,
+            JointIntentRecognizer jointIntentRecognizer,
+            SpeculativeIntentRecognizer speculativeIntentRecognizer,
             SlotExtractor slotExtractor,
             ToolExecutor toolExecutor,
             ResponseGenerator responseGenerator,
             PermissionChecker permissionChecker,
             SensitiveWordFilter sensitiveWordFilter,
             FallbackManager fallbackManager,
-            HumanHandoffService humanHandoffService) {
+            HumanHandoffService humanHandoffService,
+            HistoryCompactor historyCompactor,
+            AgentConfig agentConfig,
+            AgentLogger agentLogger,
+            MetricsCollector metrics,
+            @Qualifier("agentTaskExecutor") Executor taskExecutor) {
         this.stateMachine = stateMachine;
+        this.fastPathClassifier = fastPathClassifier;
+        this.localIntentClassifier = localIntentClassifier;
         this.intentRecognizer = intentRecognizer;
+        this.jointIntentRecognizer = jointIntentRecognizer;
+        this.speculativeIntentRecognizer = speculativeIntentRecognizer;
         this.slotExtractor = slotExtractor;
         this.toolExecutor = toolExecutor;
         this.responseGenerator = responseGenerator;
@@ -69,6 +116,11 @@ public class AgentOrchestrator {
         this.sensitiveWordFilter = sensitiveWordFilter;
         this.fallbackManager = fallbackManager;
         this.humanHandoffService = humanHandoffService;
+        this.historyCompactor = historyCompactor;
+        this.agentConfig = agentConfig;
+        this.agentLogger = agentLogger;
+        this.metrics = metrics;
+        this.taskExecutor = taskExecutor;
     }
 
     /**
@@ -79,13 +131,190 @@ public class AgentOrchestrator {
      * @return ChatResponse
      */
     public ChatResponse process(ConversationContext context, String userMessage) {
+        return process(context, userMessage, null);
+    }
+
+    /**
+     * 处理用户请求（流式）
+     *
+     * 响应生成阶段的 token 经敏感词过滤后交给 tokenSink；其余分支（澄清、转人工等）
+     * 不产生 token，回复内容只在返回的 ChatResponse 中。
+     *
+     * @param context     对话上下文
+     * @param userMessage 用户输入
+     * @param tokenSink   token 消费者，为 null 时不流式输出
+     * @return ChatResponse（reply 为完整回复）
+     */
+    public ChatResponse process(ConversationContext context, String userMessage, Consumer<String> tokenSink) {
+        // 1~3. 敏感词检查、记录用户消息、进入意图识别
+        ChatResponse rejected = beginTurn(context, userMessage);
+        if (rejected != null) {
+            return rejected;
+        }
+
+        try {
+            // 4. 意图识别（联合 / 推测模式下槽位可能已一并抽取）
+            ChatResponse response = checkBudget(context, "intent");
+            if (response != null) {
+                return response;
+            }
+            IntentResult intentResult = recognizeIntent(context, userMessage, false).join();
+
+            // 5~6. 特殊意图、未识别意图
+            response = afterIntent(context, intentResult);
+            if (response != null) {
+                return response;
+            }
+
+            // 7. 槽位抽取（联合识别已完成时跳过）
+            if (!intentResult.isSlotsExtracted()) {
+                response = checkBudget(context, "slots");
+                if (response != null) {
+                    return response;
+                }
+                intentResult = slotExtractor.extractSlots(intentResult, context.getDeadline());
+            }
+
+            // 8~9. 槽位完整性、权限校验
+            response = afterSlots(context, intentResult);
+            if (response != null) {
+                return response;
+            }
+
+            // 10~11. 工具执行（多意图时并行）
+            response = checkBudget(context, "tool");
+            if (response != null) {
+                return response;
+            }
+            List<IntentResult> intents = collectIntents(context, intentResult);
+            List<ToolResult> toolResults = executeTools(context, intents).join();
+            response = afterTool(context, intents, toolResults);
+            if (response != null) {
+                return response;
+            }
+
+            // 12. 生成响应（多意图合并为一次生成）
+            List<ToolOutcome> outcomes = toOutcomes(intents, toolResults);
+            String reply;
+            if (tokenSink != null) {
+                StreamingTextFilter streamingFilter = sensitiveWordFilter.newStreamingFilter(tokenSink);
+                reply = responseGenerator.generateStream(outcomes, context.getDeadline(), streamingFilter);
+                streamingFilter.flush();
+            } else {
+                reply = responseGenerator.generate(outcomes, context.getDeadline());
+            }
+
+            // 13~14. 校验过滤、完成
+            return finishTurn(context, reply);
+
+        } catch (Exception e) {
+            return failTurn(context, e);
+        }
+    }
+
+    /**
+     * 异步处理用户请求
+     *
+     * 阶段与 process 相同，每个阶段返回 CompletableFuture：等待 LLM 期间不占用线程，
+     * LLM 返回后的处理与工具执行切换到业务线程池，不在 HTTP IO 线程上执行。
+     * 同一请求的各阶段依次执行，ConversationContext 不会被并发访问。
+     *
+     * @param tokenSink token 消费者，为 null 时不流式输出
+     * @return 完成时为 ChatResponse（不会异常完成）
+     */
+    public CompletableFuture<ChatResponse> processAsync(ConversationContext context, String userMessage,
+            Consumer<String> tokenSink) {
+        ChatResponse rejected = beginTurn(context, userMessage);
+        if (rejected != null) {
+            return CompletableFuture.completedFuture(rejected);
+        }
+
+        ChatResponse exhausted = checkBudget(context, "intent");
+        if (exhausted != null) {
+            return CompletableFuture.completedFuture(exhausted);
+        }
+
+        Turn turn = new Turn();
+        CompletableFuture<ChatResponse> result;
+        try {
+            result = recognizeIntent(context, userMessage, true)
+                    .thenApplyAsync(intentResult -> {
+                        turn.intentResult = intentResult;
+                        turn.response = afterIntent(context, intentResult);
+                        if (turn.response == null && !intentResult.isSlotsExtracted()) {
+                            turn.response = checkBudget(context, "slots");
+                        }
+                        return turn;
+                    }, taskExecutor)
+                    .thenCompose(t -> t.response != null || t.intentResult.isSlotsExtracted()
+                            ? CompletableFuture.completedFuture(t)
+                            : slotExtractor.extractSlotsAsync(t.intentResult, context.getDeadline()).thenApply(withSlots -> {
+                                t.intentResult = withSlots;
+                                return t;
+                            }))
+                    .thenApplyAsync(t -> {
+                        if (t.response == null) {
+                            t.response = afterSlots(context, t.intentResult);
+                        }
+                        if (t.response == null) {
+                            t.response = checkBudget(context, "tool");
+                        }
+                        if (t.response == null) {
+                            t.intents = collectIntents(context, t.intentResult);
+                        }
+                        return t;
+                    }, taskExecutor)
+                    .thenCompose(t -> t.response != null
+                            ? CompletableFuture.completedFuture(t)
+                            : executeTools(context, t.intents).thenApplyAsync(toolResults -> {
+                                t.toolResults = toolResults;
+                                t.response = afterTool(context, t.intents, toolResults);
+                                return t;
+                            }, taskExecutor))
+                    .thenCompose(t -> t.response != null
+                            ? CompletableFuture.completedFuture(t.response)
+                            : generateAsync(context, t, tokenSink));
+        } catch (RuntimeException e) {
+            result = new CompletableFuture<>();
+            result.completeExceptionally(e);
+        }
+        return result.exceptionally(e -> failTurn(context, e));
+    }
+
+    /**
+     * 异步生成响应，完成后在业务线程池中收尾
+     */
+    private CompletableFuture<ChatResponse> generateAsync(ConversationContext context, Turn turn,
+            Consumer<String> tokenSink) {
+        if (tokenSink == null) {
+            return responseGenerator.generateAsync(toOutcomes(turn.intents, turn.toolResults), context.getDeadline())
+                    .thenApplyAsync(reply -> finishTurn(context, reply), taskExecutor);
+        }
+        StreamingTextFilter streamingFilter = sensitiveWordFilter.newStreamingFilter(tokenSink);
+        return responseGenerator.generateStreamAsync(toOutcomes(turn.intents, turn.toolResults),
+                        context.getDeadline(), streamingFilter)
+                .thenApplyAsync(reply -> {
+                    streamingFilter.flush();
+                    return finishTurn(context, reply);
+                }, taskExecutor);
+    }
+
+    /**
+     * 步骤 1~3：敏感词检查、记录用户消息、进入意图识别
+     *
+     * @return 被拒绝时的响应，通过返回 null
+     */
+    private ChatResponse beginTurn(ConversationContext context, String userMessage) {
         String traceId = context.getTraceId();
         log.info("[{}] 开始处理请求: sessionId={}", traceId, context.getSessionId());
+        context.setTurnIntent(null);
+        stateMachine.startTurn(context);
 
         // 1. 敏感词检查
         if (sensitiveWordFilter.containsSensitiveWord(userMessage)) {
             log.warn("[{}] 检测到敏感词", traceId);
             stateMachine.transition(context, AgentState.REJECT);
+            stateMachine.transition(context, AgentState.DONE);
             return ChatResponse.error(400, "您的输入包含敏感内容，无法处理。");
         }
 
@@ -94,74 +323,283 @@ public class AgentOrchestrator {
 
         // 3. 状态机初始化
         stateMachine.transition(context, AgentState.INTENT_RECOGNITION);
+        return null;
+    }
 
-        try {
-            // 4. 意图识别
-            IntentResult intentResult = intentRecognizer.recognize(context, userMessage);
-            log.info("[{}] 意图识别结果: intent={}, confidence={}",
-                    traceId, intentResult.getIntentType(), intentResult.getConfidence());
-
-            // 5. 处理特殊意图
-            ChatResponse specialResponse = handleSpecialIntent(context, intentResult);
-            if (specialResponse != null) {
-                return specialResponse;
-            }
+    /**
+     * 步骤 5~7：特殊意图与未识别意图在此结束，否则进入槽位抽取
+     */
+    private ChatResponse afterIntent(ConversationContext context, IntentResult intentResult) {
+        log.info("[{}] 意图识别结果: intent={}, confidence={}",
+                context.getTraceId(), intentResult.getIntentType(), intentResult.getConfidence());
+        context.setTurnIntent(intentResult.getIntentType());
+
+        // 5. 处理特殊意图
+        ChatResponse specialResponse = handleSpecialIntent(context, intentResult);
+        if (specialResponse != null) {
+            return specialResponse;
+        }
 
-            // 6. 未识别意图处理
-            if (!intentResult.isRecognized()) {
-                return handleUnknownIntent(context, intentResult);
-            }
+        // 6. 未识别意图处理
+        if (!intentResult.isRecognized()) {
+            return handleUnknownIntent(context, intentResult);
+        }
 
-            // 7. 槽位抽取
-            stateMachine.transition(context, AgentState.SLOT_EXTRACTION);
-            intentResult = slotExtractor.extractSlots(intentResult);
+        // 7. 槽位抽取
+        stateMachine.transition(context, AgentState.SLOT_EXTRACTION);
+        return null;
+    }
 
-            // 8. 检查槽位完整性
-            if (!intentResult.isSlotsComplete()) {
-                return handleMissingSlots(context, intentResult);
-            }
+    /**
+     * 步骤 8~10：槽位缺失与无权限在此结束，否则进入工具执行
+     */
+    private ChatResponse afterSlots(ConversationContext context, IntentResult intentResult) {
+        historyCompactor.recordTurn(context, intentResult);
 
-            // 9. 权限校验
-            stateMachine.transition(context, AgentState.SLOT_COMPLETE);
-            if (!permissionChecker.checkPermission(context.getUserId(), intentResult)) {
-                stateMachine.transition(context, AgentState.FORBIDDEN);
-                stateMachine.transition(context, AgentState.REJECT);
-                return ChatResponse.error(403, "您没有权限执行此操作。");
+        // 8. 检查槽位完整性
+        if (!intentResult.isSlotsComplete()) {
+            return handleMissingSlots(context, intentResult);
+        }
+
+        // 9. 权限校验
+        stateMachine.transition(context, AgentState.SLOT_COMPLETE);
+        if (!permissionChecker.checkPermission(context.getUserId(), intentResult)) {
+            stateMachine.transition(context, AgentState.FORBIDDEN);
+            stateMachine.transition(context, AgentState.REJECT);
+            stateMachine.transition(context, AgentState.DONE);
+            return ChatResponse.error(403, "您没有权限执行此操作。");
+        }
+
+        // 10. 工具执行
+        stateMachine.transition(context, AgentState.TOOL_EXECUTION);
+        return null;
+    }
+
+    /**
+     * 本轮要执行的意图：主意图 + 可一并执行的附带意图，最多 maxIntentsPerMessage 个
+     *
+     * 附带意图须为有对应工具的非高风险意图、槽位可由正则补全且有权限；不满足的直接忽略，不追问。
+     */
+    private List<IntentResult> collectIntents(ConversationContext context, IntentResult primary) {
+        List<IntentResult> intents = new ArrayList<>();
+        intents.add(primary);
+        for (IntentResult additional : primary.getAdditionalIntents()) {
+            if (intents.size() >= agentConfig.getMaxIntentsPerMessage()) {
+                break;
+            }
+            IntentType intentType = additional.getIntentType();
+            boolean executable = !intentType.isHighRisk()
+                    && toolExecutor.supports(intentType)
+                    && slotExtractor.extractSlotsByPattern(additional).isSlotsComplete()
+                    && permissionChecker.checkPermission(context.getUserId(), additional);
+            if (!executable) {
+                metrics.increment("intent.multi.skipped");
+                log.info("[{}] 忽略附带意图: intent={}, missingSlots={}",
+                        context.getTraceId(), intentType, additional.getMissingSlots());
+                continue;
             }
+            intents.add(additional);
+        }
+        if (intents.size() > 1) {
+            metrics.increment("intent.multi.messages");
+            log.info("[{}] 多意图并行执行: {}", context.getTraceId(), intents.size());
+        }
+        return intents;
+    }
+
+    /**
+     * 执行各意图的工具（多个时并行），结果与 intents 顺序一致
+     */
+    private CompletableFuture<List<ToolResult>> executeTools(ConversationContext context, List<IntentResult> intents) {
+        return toolExecutor.executeAll(intents, buildToolContext(context));
+    }
 
-            // 10. 工具执行
-            stateMachine.transition(context, AgentState.TOOL_EXECUTION);
-            ToolContext toolContext = buildToolContext(context);
-            ToolResult toolResult = toolExecutor.execute(
-                    intentResult.getIntentType(),
-                    intentResult.getSlots(),
-                    toolContext);
-
-            // 11. 工具执行失败处理
-            if (!toolResult.isSuccess()) {
-                return handleToolFailure(context, toolResult);
+    private static List<ToolOutcome> toOutcomes(List<IntentResult> intents, List<ToolResult> toolResults) {
+        List<ToolOutcome> outcomes = new ArrayList<>(intents.size());
+        for (int i = 0; i < intents.size(); i++) {
+            outcomes.add(new ToolOutcome(intents.get(i), toolResults.get(i)));
+        }
+        return outcomes;
+    }
+
+    /**
+     * 步骤 11~12：工具失败在此结束，否则进入响应生成
+     *
+     * 多意图时只要有一个工具成功就进入合并生成：失败的意图（包括主意图）在回复中如实说明
+     * 查询失败，不转人工，已成功的结果不丢弃；全部失败时按主意图的失败处理。
+     * 部分失败计入 intent.multi.partial_failure。
+     */
+    private ChatResponse afterTool(ConversationContext context, List<IntentResult> intents,
+            List<ToolResult> toolResults) {
+        ToolResult primary = toolResults.get(0);
+        if (toolResults.size() > 1) {
+            List<IntentType> failed = new ArrayList<>();
+            for (int i = 0; i < toolResults.size(); i++) {
+                if (!toolResults.get(i).isSuccess()) {
+                    failed.add(intents.get(i).getIntentType());
+                }
             }
+            if (!failed.isEmpty() && failed.size() < toolResults.size()) {
+                metrics.increment("intent.multi.partial_failure");
+                log.warn("[{}] 多意图部分工具失败, 合并说明: failed={}", context.getTraceId(), failed);
+                stateMachine.transition(context, AgentState.RESPONSE_GENERATION);
+                return null;
+            }
+        }
 
-            // 12. 生成响应
-            stateMachine.transition(context, AgentState.RESPONSE_GENERATION);
-            String reply = responseGenerator.generate(intentResult, toolResult);
+        // 11. 工具执行失败处理
+        if (!primary.isSuccess()) {
+            return handleToolFailure(context, primary);
+        }
 
-            // 13. 响应校验与过滤
-            reply = sensitiveWordFilter.filter(reply);
+        // 12. 生成响应
+        stateMachine.transition(context, AgentState.RESPONSE_GENERATION);
+        return null;
+    }
 
-            // 14. 完成
-            stateMachine.transition(context, AgentState.DONE);
-            context.addAssistantMessage(reply);
-            context.resetUnknownIntentCount();
+    /**
+     * 步骤 13~14：响应过滤、完成
+     */
+    private ChatResponse finishTurn(ConversationContext context, String reply) {
+        // 13. 响应校验与过滤
+        reply = sensitiveWordFilter.filter(reply);
 
-            log.info("[{}] 处理完成", traceId);
-            return ChatResponse.success(reply, context.getSessionId());
+        // 14. 完成
+        stateMachine.transition(context, AgentState.DONE);
+        context.addAssistantMessage(reply);
+        context.resetUnknownIntentCount();
 
-        } catch (Exception e) {
-            log.error("[{}] 处理请求异常: {}", traceId, e.getMessage(), e);
-            stateMachine.transition(context, AgentState.ERROR);
-            return fallbackManager.handleError(context, e);
+        log.info("[{}] 处理完成", context.getTraceId());
+        return ChatResponse.success(reply, context.getSessionId());
+    }
+
+    /**
+     * 阶段开始前检查请求预算，已耗尽时按阶段计数并以超时结束本轮
+     *
+     * @return 预算耗尽时的响应，未耗尽返回 null
+     */
+    private ChatResponse checkBudget(ConversationContext context, String stage) {
+        if (!context.getDeadline().isExpired()) {
+            return null;
         }
+        metrics.increment("deadline.exhausted." + stage);
+        log.warn("[{}] 请求预算耗尽, 结束处理: stage={}", context.getTraceId(), stage);
+        stateMachine.transition(context, AgentState.ERROR);
+        return ChatResponse.error(504, "系统响应超时，请稍后重试。");
+    }
+
+    private ChatResponse failTurn(ConversationContext context, Throwable error) {
+        Throwable e = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        log.error("[{}] 处理请求异常: {}", context.getTraceId(), e.getMessage(), e);
+        stateMachine.transition(context, AgentState.ERROR);
+        return fallbackManager.handleError(context, e instanceof Exception ? (Exception) e : new RuntimeException(e));
+    }
+
+    /**
+     * 识别意图：规则快速通道 → 续接待补充的意图（槽位回答）→ 本地模型 / LLM
+     *
+     * 续接结果的槽位已抽取，后续直接进入权限校验与工具执行。待补充的意图只尝试续接一次：
+     * 本轮无论走哪条路径（含快速通道命中）都清除；不像槽位回答、或槽位值之外的内容被本地模型
+     * 判为其他意图时丢弃，按新请求识别。
+     *
+     * @param async false 时同步调用 LLM，返回已完成的 future
+     */
+    private CompletableFuture<IntentResult> recognizeIntent(ConversationContext context, String userMessage,
+            boolean async) {
+        String traceId = context.getTraceId();
+        IntentResult pending = context.getPendingIntent();
+        context.setPendingIntent(null);
+
+        IntentResult fastPathResult = fastPathClassifier.classify(userMessage);
+        if (fastPathResult != null) {
+            log.info("[{}] 快速通道命中: {}", traceId, fastPathResult.getLlmRawResponse());
+            agentLogger.logIntent(traceId, "fast-path", fastPathResult);
+            return CompletableFuture.completedFuture(fastPathResult);
+        }
+
+        if (pending == null) {
+            return recognizeByModel(context, userMessage, async);
+        }
+        IntentType competing = competingIntent(pending, userMessage);
+        if (competing != null) {
+            metrics.increment("intent.resume.conflicts");
+            log.info("[{}] 槽位之外的内容识别为其他意图, 放弃待补充意图: pending={}, other={}",
+                    traceId, pending.getIntentType(), competing);
+            return recognizeByModel(context, userMessage, async);
+        }
+        return slotExtractor.resume(pending, userMessage, context.getDeadline(), async).thenCompose(resumed -> {
+            if (resumed == null) {
+                metrics.increment("intent.resume.misses");
+                log.info("[{}] 非槽位回答, 放弃待补充意图: intent={}", traceId, pending.getIntentType());
+                return recognizeByModel(context, userMessage, async);
+            }
+            metrics.increment("intent.resume.hits");
+            log.info("[{}] 续接待补充意图: intent={}, slots={}", traceId, resumed.getIntentType(), resumed.getSlots());
+            agentLogger.logIntent(traceId, "resume", resumed);
+            return CompletableFuture.completedFuture(resumed);
+        });
+    }
+
+    /**
+     * 续接消息中槽位值之外的内容由本地模型判为其他意图（达到置信度阈值）时返回该意图，否则为 null
+     *
+     * 快速通道已对整条消息判断过，这里不再重复；本地模型未启用时只依赖 SlotExtractor 的关键词检查。
+     */
+    private IntentType competingIntent(IntentResult pending, String userMessage) {
+        String residue = slotExtractor.resumeResidue(pending, userMessage);
+        if (residue == null || residue.isEmpty()) {
+            return null;
+        }
+        IntentResult localResult = localIntentClassifier.classify(residue);
+        if (!localIntentClassifier.meetsThreshold(localResult)
+                || localResult.getIntentType() == pending.getIntentType()) {
+            return null;
+        }
+        return localResult.getIntentType();
+    }
+
+    /**
+     * 模型识别：本地模型（置信度达标，或剩余预算不足一次 LLM 调用）→ 按配置的意图理解模式调用 LLM
+     */
+    private CompletableFuture<IntentResult> recognizeByModel(ConversationContext context, String userMessage,
+            boolean async) {
+        String traceId = context.getTraceId();
+
+        IntentResult localResult = localIntentClassifier.classify(userMessage);
+        if (localIntentClassifier.isConfident(localResult)) {
+            log.info("[{}] 本地模型命中: intent={}, confidence={}",
+                    traceId, localResult.getIntentType(), localResult.getConfidence());
+            agentLogger.logIntent(traceId, "local", localResult);
+            return CompletableFuture.completedFuture(localResult);
+        }
+        if (localResult != null && !context.getDeadline().allowsLlmCall()) {
+            metrics.increment("deadline.degraded.intent");
+            log.info("[{}] 剩余预算不足, 采用本地模型结果: intent={}, confidence={}",
+                    traceId, localResult.getIntentType(), localResult.getConfidence());
+            agentLogger.logIntent(traceId, "local", localResult);
+            return CompletableFuture.completedFuture(localResult);
+        }
+
+        CompletableFuture<IntentResult> llmResult;
+        String mode = agentConfig.getUnderstandingMode();
+        if ("joint".equalsIgnoreCase(mode)) {
+            llmResult = async
+                    ? jointIntentRecognizer.recognizeAsync(context, userMessage)
+                    : CompletableFuture.completedFuture(jointIntentRecognizer.recognize(context, userMessage));
+        } else if ("speculative".equalsIgnoreCase(mode)) {
+            llmResult = async
+                    ? speculativeIntentRecognizer.recognizeAsync(context, userMessage)
+                    : CompletableFuture.completedFuture(speculativeIntentRecognizer.recognize(context, userMessage));
+        } else {
+            llmResult = async
+                    ? intentRecognizer.recognizeAsync(context, userMessage)
+                    : CompletableFuture.completedFuture(intentRecognizer.recognize(context, userMessage));
+        }
+        return llmResult.thenApply(result -> {
+            localIntentClassifier.recordAgreement(localResult, result);
+            agentLogger.logIntent(traceId, "llm", result);
+            return result;
+        });
     }
 
     /**
@@ -320,6 +758,26 @@ public class AgentOrchestrator {
                 .traceId(context.getTraceId())
                 .permissionLevel(context.getPermissionLevel())
                 .debug(false)
+                .deadline(context.getDeadline())
                 .build();
     }
+
+    /**
+     * 异步处理中在阶段之间传递的中间结果（各阶段依次执行，不会并发访问）
+     */
+    private static final class Turn {
+
+        IntentResult intentResult;
+
+        /**
+         * 本轮执行的意图（主意图在首位）及其工具结果
+         */
+        List<IntentResult> intents;
+        List<ToolResult> toolResults;
+
+        /**
+         * 提前结束时的响应（特殊意图、槽位缺失、无权限、工具失败等）
+         */
+        ChatResponse response;
+    }
 }
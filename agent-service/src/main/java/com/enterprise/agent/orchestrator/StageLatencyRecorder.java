@@ -0,0 +1,115 @@
+package com.enterprise.agent.orchestrator;
+
+import com.enterprise.agent.intent.IntentType;
+import com.enterprise.agent.log.LatencyHistogram;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 各阶段耗时统计
+ *
+ * 职责：
+ * - 由 StateMachine 在每次状态转换时记录上一状态的停留时长，按 (AgentState, IntentType) 分别计入 LatencyHistogram
+ * - 提供 p50 / p95 / p99 / p999 快照（/api/agent/metrics/stages）
+ * - 每个新出现的 (状态, 意图) 组合注册为 Micrometer gauge：agent.stage.latency{state, intent, quantile}，单位毫秒
+ *
+ * 意图未识别前离开的状态（如敏感词拒绝）按 intent=none 统计。
+ */
+@Component
+public class StageLatencyRecorder {
+
+    public static final String METER_NAME = "agent.stage.latency";
+
+    private static final double[] PERCENTILES = {50, 95, 99, 99.9};
+    private static final String[] PERCENTILE_NAMES = {"p50", "p95", "p99", "p999"};
+    private static final String[] QUANTILE_TAGS = {"0.5", "0.95", "0.99", "0.999"};
+
+    private static final String NO_INTENT = "none";
+
+    private static final AgentState[] STATES = AgentState.values();
+    private static final IntentType[] INTENTS = IntentType.values();
+
+    /**
+     * 按 state.ordinal() * (意图数 + 1) + 意图序号 索引，最后一列为 intent=none
+     */
+    private final ConcurrentMap<Integer, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private final MeterRegistry registry;
+
+    @Autowired
+    public StageLatencyRecorder(ObjectProvider<MeterRegistry> registry) {
+        this.registry = registry.getIfAvailable(() -> Metrics.globalRegistry);
+    }
+
+    /**
+     * 记录在某状态停留的时长
+     *
+     * @param intentType 本轮识别出的意图，尚未识别时为 null
+     */
+    public void record(AgentState state, IntentType intentType, long nanos) {
+        int key = state.ordinal() * (INTENTS.length + 1) + (intentType != null ? intentType.ordinal() : INTENTS.length);
+        LatencyHistogram histogram = histograms.get(key);
+        if (histogram == null) {
+            histogram = histograms.computeIfAbsent(key, k -> register(state, intentType));
+        }
+        histogram.recordNanos(nanos);
+    }
+
+    /**
+     * 各 (状态, 意图) 的次数与分位数（毫秒），按 状态/意图 排序
+     */
+    public Map<String, Map<String, Object>> snapshot() {
+        Map<String, Map<String, Object>> snapshot = new TreeMap<>();
+        for (Map.Entry<Integer, LatencyHistogram> entry : histograms.entrySet()) {
+            int key = entry.getKey();
+            LatencyHistogram histogram = entry.getValue();
+            long[] values = histogram.valuesAtPercentiles(PERCENTILES);
+
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("count", histogram.getCount());
+            for (int i = 0; i < values.length; i++) {
+                stats.put(PERCENTILE_NAMES[i], toMillis(values[i]));
+            }
+            stats.put("max", toMillis(histogram.getMaxMicros()));
+            snapshot.put(STATES[key / (INTENTS.length + 1)] + "/" + intentTag(intentOf(key)), stats);
+        }
+        return snapshot;
+    }
+
+    private LatencyHistogram register(AgentState state, IntentType intentType) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            double percentile = PERCENTILES[i];
+            Gauge.builder(METER_NAME, histogram, h -> toMillis(h.valueAtPercentile(percentile)))
+                    .tag("state", state.name())
+                    .tag("intent", intentTag(intentType))
+                    .tag("quantile", QUANTILE_TAGS[i])
+                    .baseUnit("milliseconds")
+                    .description("各阶段（状态停留）耗时分位数")
+                    .register(registry);
+        }
+        return histogram;
+    }
+
+    private static IntentType intentOf(int key) {
+        int ordinal = key % (INTENTS.length + 1);
+        return ordinal < INTENTS.length ? INTENTS[ordinal] : null;
+    }
+
+    private static String intentTag(IntentType intentType) {
+        return intentType != null ? intentType.getCode() : NO_INTENT;
+    }
+
+    private static double toMillis(long micros) {
+        return micros / 1000.0;
+    }
+}
@@ -3,6 +3,7 @@ package com.enterprise.agent.orchestrator;
 import com.enterprise.agent.session.ConversationContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.Arrays;
@@ -17,6 +18,8 @@ import java.util.Set;
  * 
  * 代码级状态机，非 Prompt 控制
  * 明确定义所有状态转换规则
+ * 每次转换把上一状态的停留时长交给 StageLatencyRecorder；每轮开始时由 startTurn 清除进入时间，
+ * 上一轮结束时所处的状态（INIT / DONE / ERROR）到本轮第一次转换之间为轮次间的空闲，不统计
  */
 @Component
 public class StateMachine {
@@ -30,8 +33,15 @@ public class StateMachine {
 
         static {
                 // 定义合法的状态转换
+                // 新一轮对话：进入意图识别，或含敏感词直接拒绝
                 TRANSITIONS.put(AgentState.INIT, setOf(
-                                AgentState.INTENT_RECOGNITION));
+                                AgentState.INTENT_RECOGNITION,
+                                AgentState.REJECT));
+
+                // 终态之后开始新一轮对话
+                TRANSITIONS.put(AgentState.DONE, setOf(
+                                AgentState.INTENT_RECOGNITION,
+                                AgentState.REJECT));
 
                 TRANSITIONS.put(AgentState.INTENT_RECOGNITION, setOf(
                                 AgentState.SLOT_EXTRACTION,
@@ -83,12 +93,16 @@ public class StateMachine {
                 TRANSITIONS.put(AgentState.HUMAN_HANDOFF, setOf(
                                 AgentState.DONE));
 
+                // 拒绝后本轮即转到 DONE；INTENT_RECOGNITION 用于恢复此前停留在 REJECT 的会话
                 TRANSITIONS.put(AgentState.REJECT, setOf(
-                                AgentState.DONE));
+                                AgentState.DONE,
+                                AgentState.INTENT_RECOGNITION));
 
                 TRANSITIONS.put(AgentState.ERROR, setOf(
                                 AgentState.DONE,
-                                AgentState.FALLBACK));
+                                AgentState.FALLBACK,
+                                AgentState.INTENT_RECOGNITION,
+                                AgentState.REJECT));
         }
 
         /**
@@ -99,6 +113,13 @@ public class StateMachine {
                 return Collections.unmodifiableSet(new HashSet<>(Arrays.asList(elements)));
         }
 
+        private final StageLatencyRecorder latencyRecorder;
+
+        @Autowired
+        public StateMachine(StageLatencyRecorder latencyRecorder) {
+                this.latencyRecorder = latencyRecorder;
+        }
+
         /**
          * 执行状态转换
          */
@@ -112,8 +133,14 @@ public class StateMachine {
                         return false;
                 }
 
-                // 记录状态转换历史
+                // 记录状态转换历史与上一状态的停留时长
                 context.addStateHistory(currentState, targetState);
+                long now = System.nanoTime();
+                long enteredAt = context.getStateEnteredNanos();
+                if (enteredAt != 0) {
+                        latencyRecorder.record(currentState, context.getTurnIntent(), now - enteredAt);
+                }
+                context.setStateEnteredNanos(now);
 
                 // 更新状态
                 context.setState(targetState);
@@ -123,6 +150,13 @@ public class StateMachine {
                 return true;
         }
 
+        /**
+         * 开始新一轮：清除上一状态的进入时间，上一轮结束到本轮开始之间的空闲不计入停留时长
+         */
+        public void startTurn(ConversationContext context) {
+                context.setStateEnteredNanos(0);
+        }
+
         /**
          * 检查状态转换是否合法
          */
@@ -1,16 +1,27 @@
 package com.enterprise.agent.response;
 
+import com.enterprise.agent.common.RequestDeadline;
+import com.enterprise.agent.config.ResponseConfig;
 import com.enterprise.agent.intent.IntentResult;
+import com.enterprise.agent.intent.IntentType;
 import com.enterprise.agent.llm.LLMClient;
 import com.enterprise.agent.llm.LLMRequest;
 import com.enterprise.agent.llm.LLMResponse;
+import com.enterprise.agent.llm.LLMStreamListener;
+import com.enterprise.agent.log.MetricsCollector;
+import com.enterprise.agent.tool.ToolOutcome;
 import com.enterprise.agent.tool.ToolResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.EnumMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 /**
  * 响应生成器
@@ -18,49 +29,221 @@ import java.util.Map;
  * 职责：
  * - 将工具返回的结构化数据转换为自然语言回复
  * - 使用 LLM 生成友好的回复
- * - 在 LLM 失败时使用模板兜底
+ * - 配置为 template 模式的意图直接用预编译模板渲染，不调用 LLM
+ * - 在 LLM 失败或请求剩余预算不足一次 LLM 调用时使用模板兜底
+ * - 支持流式生成，边生成边下发
+ * - 多意图消息的各工具结果合并为一次回复生成（全部为 template 模式时逐项渲染后拼接）
+ * - 统计各回复路径（template / llm / fallback）的次数
  */
 @Component
 public class ResponseGenerator {
 
     private static final Logger log = LoggerFactory.getLogger(ResponseGenerator.class);
 
+    private static final String MODE_TEMPLATE = "template";
+
+    /**
+     * 通用模板：未单独配置模板的意图、LLM 失败兜底共用
+     */
+    private static final ResponseTemplate GENERIC_TEMPLATE =
+            ResponseTemplate.compile("查询结果如下：\n{{*}}\n\n请问还有其他问题吗？");
+
+    private static final String NO_DATA_REPLY = "已为您查询到相关信息，请问还有其他问题吗？";
+
+    /**
+     * 多意图中某个工具失败且没有错误说明时的渲染内容
+     */
+    private static final String QUERY_FAILED_REPLY = "该问题暂时查询失败，请稍后重试。";
+
     private final LLMClient llmClient;
+    private final MetricsCollector metrics;
+
+    /**
+     * template 模式的意图 → 预编译模板
+     */
+    private final Map<IntentType, ResponseTemplate> templates = new EnumMap<>(IntentType.class);
 
     @Autowired
-    public ResponseGenerator(LLMClient llmClient) {
+    public ResponseGenerator(LLMClient llmClient, ResponseConfig config, MetricsCollector metrics) {
         this.llmClient = llmClient;
+        this.metrics = metrics;
+        compileTemplates(config);
+    }
+
+    /**
+     * 启动时确定各意图的回复模式并编译模板
+     */
+    private void compileTemplates(ResponseConfig config) {
+        for (IntentType intentType : IntentType.values()) {
+            String mode = config.getModes().get(intentType.getCode());
+            if (!MODE_TEMPLATE.equalsIgnoreCase(mode != null ? mode : config.getDefaultMode())) {
+                continue;
+            }
+            String template = config.getTemplates().get(intentType.getCode());
+            templates.put(intentType, template != null ? ResponseTemplate.compile(template) : GENERIC_TEMPLATE);
+        }
+        for (String code : config.getModes().keySet()) {
+            if (!IntentType.fromCode(code).getCode().equals(code)) {
+                log.warn("响应模式配置的意图代码无效, 已忽略: {}", code);
+            }
+        }
+        log.info("响应模板已加载: defaultMode={}, templateIntents={}", config.getDefaultMode(), templates.keySet());
     }
 
     /**
      * 生成响应
      */
-    public String generate(IntentResult intentResult, ToolResult toolResult) {
+    public String generate(List<ToolOutcome> outcomes, RequestDeadline deadline) {
+        return generate(outcomes, deadline, false).join();
+    }
+
+    /**
+     * 异步生成响应（需要 LLM 时等待期间不占用调用线程；模板命中时返回已完成的 future）
+     */
+    public CompletableFuture<String> generateAsync(List<ToolOutcome> outcomes, RequestDeadline deadline) {
+        return generate(outcomes, deadline, true);
+    }
+
+    private CompletableFuture<String> generate(List<ToolOutcome> outcomes, RequestDeadline deadline, boolean async) {
+        String templateReply = renderTemplate(outcomes);
+        if (templateReply != null) {
+            return CompletableFuture.completedFuture(templateReply);
+        }
+        if (!deadline.allowsLlmCall()) {
+            metrics.increment("deadline.degraded.response");
+            return CompletableFuture.completedFuture(generateTemplateResponse(outcomes));
+        }
+
         try {
-            // 1. 构建 Prompt
-            String prompt = buildResponsePrompt(intentResult, toolResult);
+            // 1. 构建请求
+            LLMRequest request = buildRequest(outcomes, deadline);
 
             // 2. 调用 LLM
-            LLMRequest request = LLMRequest.builder()
-                    .prompt(prompt)
-                    .maxTokens(500)
-                    .temperature(0.3)
-                    .build();
+            CompletableFuture<LLMResponse> response = async
+                    ? llmClient.completeAsync(request)
+                    : CompletableFuture.completedFuture(llmClient.complete(request));
+            return response.handle((result, error) -> {
+                if (error == null && result.isSuccess() && result.getContent() != null) {
+                    recordPath("llm", outcomes);
+                    return result.getContent();
+                }
 
-            LLMResponse response = llmClient.complete(request);
+                // 3. LLM 失败时使用模板兜底
+                if (error != null) {
+                    log.error("响应生成异常: {}", error.getMessage(), error);
+                } else {
+                    log.warn("LLM 生成失败, 使用模板兜底");
+                }
+                return generateTemplateResponse(outcomes);
+            });
+
+        } catch (Exception e) {
+            log.error("响应生成异常: {}", e.getMessage(), e);
+            return CompletableFuture.completedFuture(generateTemplateResponse(outcomes));
+        }
+    }
+
+    /**
+     * 流式生成响应
+     *
+     * token 生成后立即交给 onToken；LLM 未输出任何内容即失败时，模板兜底内容整体下发一次。
+     *
+     * @param onToken token 消费者
+     * @return 完整回复（用于写入对话历史）
+     */
+    public String generateStream(List<ToolOutcome> outcomes, RequestDeadline deadline, Consumer<String> onToken) {
+        return generateStream(outcomes, deadline, onToken, false).join();
+    }
+
+    /**
+     * 异步流式生成响应：token 在 LLM 客户端的回调线程上交给 onToken，流结束后 future 完成
+     */
+    public CompletableFuture<String> generateStreamAsync(List<ToolOutcome> outcomes, RequestDeadline deadline,
+            Consumer<String> onToken) {
+        return generateStream(outcomes, deadline, onToken, true);
+    }
+
+    private CompletableFuture<String> generateStream(List<ToolOutcome> outcomes, RequestDeadline deadline,
+            Consumer<String> onToken, boolean async) {
+        String templateReply = renderTemplate(outcomes);
+        if (templateReply == null && !deadline.allowsLlmCall()) {
+            metrics.increment("deadline.degraded.response");
+            templateReply = generateTemplateResponse(outcomes);
+        }
+        if (templateReply != null) {
+            onToken.accept(templateReply);
+            return CompletableFuture.completedFuture(templateReply);
+        }
 
-            if (response.isSuccess() && response.getContent() != null) {
-                return response.getContent();
+        StringBuilder emitted = new StringBuilder();
+        AtomicReference<LLMResponse> result = new AtomicReference<>();
+        LLMStreamListener listener = new LLMStreamListener() {
+            @Override
+            public void onToken(String token) {
+                emitted.append(token);
+                onToken.accept(token);
             }
 
-            // 3. LLM 失败时使用模板兜底
-            log.warn("LLM 生成失败, 使用模板兜底");
-            return generateTemplateResponse(intentResult, toolResult);
+            @Override
+            public void onComplete(LLMResponse response) {
+                result.set(response);
+            }
+        };
 
+        CompletableFuture<Void> done;
+        try {
+            LLMRequest request = buildRequest(outcomes, deadline);
+            if (async) {
+                done = llmClient.streamAsync(request, listener);
+            } else {
+                llmClient.stream(request, listener);
+                done = CompletableFuture.completedFuture(null);
+            }
         } catch (Exception e) {
-            log.error("响应生成异常: {}", e.getMessage(), e);
-            return generateTemplateResponse(intentResult, toolResult);
+            log.error("流式响应生成异常: {}", e.getMessage(), e);
+            done = CompletableFuture.completedFuture(null);
+        }
+
+        return done.handle((ignored, error) -> {
+            if (error != null) {
+                log.error("流式响应生成异常: {}", error.getMessage(), error);
+            }
+            return finishStream(outcomes, onToken, emitted, result.get());
+        });
+    }
+
+    private String finishStream(List<ToolOutcome> outcomes, Consumer<String> onToken, StringBuilder emitted,
+            LLMResponse response) {
+        if (response != null && response.isSuccess() && emitted.length() > 0) {
+            recordPath("llm", outcomes);
+            return emitted.toString();
+        }
+
+        // 已下发部分内容时不再追加模板，避免回复前后矛盾
+        if (emitted.length() > 0) {
+            log.warn("流式生成中断, 返回已输出内容");
+            recordPath("llm", outcomes);
+            return emitted.toString();
         }
+
+        log.warn("LLM 流式生成失败, 使用模板兜底");
+        String reply = generateTemplateResponse(outcomes);
+        onToken.accept(reply);
+        return reply;
+    }
+
+    /**
+     * 构建 LLM 请求
+     */
+    private LLMRequest buildRequest(List<ToolOutcome> outcomes, RequestDeadline deadline) {
+        return LLMRequest.builder()
+                .prompt(outcomes.size() == 1
+                        ? buildResponsePrompt(outcomes.get(0).getIntentResult(), outcomes.get(0).getToolResult())
+                        : buildMultiResponsePrompt(outcomes))
+                .maxTokens(500)
+                .temperature(0.3)
+                .deadline(deadline)
+                .build();
     }
 
     /**
@@ -79,10 +262,35 @@ public class ResponseGenerator {
                 "4. 结尾询问用户是否还有其他问题";
     }
 
+    /**
+     * 构建多意图合并回复 Prompt（各意图的查询结果分段列出，一次生成）
+     */
+    private String buildMultiResponsePrompt(List<ToolOutcome> outcomes) {
+        StringBuilder sections = new StringBuilder();
+        for (int i = 0; i < outcomes.size(); i++) {
+            ToolOutcome outcome = outcomes.get(i);
+            sections.append("【问题").append(i + 1).append("】：")
+                    .append(outcome.getIntentResult().getIntentType().getDisplayName()).append("\n")
+                    .append("【查询结果】：\n").append(formatToolResult(outcome.getToolResult())).append("\n");
+        }
+
+        return "用户在一条消息中提出了多个问题，请根据以下结构化数据，生成一条自然语言回复。\n\n" +
+                sections +
+                "【要求】：\n" +
+                "1. 语气专业友好\n" +
+                "2. 按问题顺序逐一回答，不要遗漏\n" +
+                "3. 只使用上述数据，不要编造任何信息\n" +
+                "4. 查询失败的问题如实说明\n" +
+                "5. 结尾询问用户是否还有其他问题";
+    }
+
     /**
      * 格式化工具结果
      */
     private String formatToolResult(ToolResult toolResult) {
+        if (!toolResult.isSuccess()) {
+            return "查询失败：" + (toolResult.getErrorMessage() != null ? toolResult.getErrorMessage() : "系统暂时不可用");
+        }
         if (toolResult.getData() == null || toolResult.getData().isEmpty()) {
             return "无数据";
         }
@@ -94,31 +302,71 @@ public class ResponseGenerator {
     }
 
     /**
-     * 模板兜底响应
+     * template 模式渲染（多意图时逐项渲染后拼接）
+     *
+     * @return 渲染结果；有意图未配置为 template 模式时返回 null
+     */
+    private String renderTemplate(List<ToolOutcome> outcomes) {
+        for (ToolOutcome outcome : outcomes) {
+            if (!templates.containsKey(outcome.getIntentResult().getIntentType())) {
+                return null;
+            }
+        }
+        StringBuilder reply = new StringBuilder();
+        for (ToolOutcome outcome : outcomes) {
+            recordPath("template", outcome.getIntentResult());
+            appendSection(reply, render(templates.get(outcome.getIntentResult().getIntentType()),
+                    outcome.getToolResult()));
+        }
+        return reply.toString();
+    }
+
+    /**
+     * 模板兜底响应（多意图时 template 模式的意图仍用其模板，其余用通用模板）
      */
-    private String generateTemplateResponse(IntentResult intentResult, ToolResult toolResult) {
+    private String generateTemplateResponse(List<ToolOutcome> outcomes) {
+        StringBuilder reply = new StringBuilder();
+        for (ToolOutcome outcome : outcomes) {
+            ResponseTemplate template = templates.get(outcome.getIntentResult().getIntentType());
+            recordPath(template != null ? "template" : "fallback", outcome.getIntentResult());
+            appendSection(reply, render(template != null ? template : GENERIC_TEMPLATE, outcome.getToolResult()));
+        }
+        return reply.toString();
+    }
+
+    private static String render(ResponseTemplate template, ToolResult toolResult) {
+        if (!toolResult.isSuccess()) {
+            return toolResult.getErrorMessage() != null ? toolResult.getErrorMessage() : QUERY_FAILED_REPLY;
+        }
         Map<String, Object> data = toolResult.getData();
         if (data == null || data.isEmpty()) {
-            return "已为您查询到相关信息，请问还有其他问题吗？";
+            return NO_DATA_REPLY;
         }
+        return template.render(data);
+    }
 
-        StringBuilder sb = new StringBuilder("查询结果如下：\n");
-        for (Map.Entry<String, Object> entry : data.entrySet()) {
-            String key = entry.getKey();
-            Object value = entry.getValue();
+    private static void appendSection(StringBuilder reply, String section) {
+        if (reply.length() > 0) {
+            reply.append("\n\n");
+        }
+        reply.append(section);
+    }
 
-            // 格式化字段名
-            String displayKey = formatFieldName(key);
-            sb.append(displayKey).append("：").append(value).append("\n");
+    private void recordPath(String path, List<ToolOutcome> outcomes) {
+        for (ToolOutcome outcome : outcomes) {
+            recordPath(path, outcome.getIntentResult());
         }
-        sb.append("\n请问还有其他问题吗？");
-        return sb.toString();
+    }
+
+    private void recordPath(String path, IntentResult intentResult) {
+        metrics.increment("response.path." + path);
+        metrics.increment("response.path." + path + "." + intentResult.getIntentType().getCode());
     }
 
     /**
      * 格式化字段名（将数据库字段名转为用户友好名称）
      */
-    private String formatFieldName(String fieldName) {
+    static String formatFieldName(String fieldName) {
         switch (fieldName.toUpperCase()) {
             case "ORDER_ID":
                 return "订单编号";
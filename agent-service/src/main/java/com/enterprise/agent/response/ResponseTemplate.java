@@ -0,0 +1,89 @@
+package com.enterprise.agent.response;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 预编译回复模板
+ *
+ * 启动时将模板切分为 文本片段 / 字段占位符 序列，渲染时按序一次写入同一个 StringBuilder。
+ * 占位符：{{FIELD}} 为字段值，{{*}} 为全部字段列表（字段名经 ResponseGenerator.formatFieldName 转换）。
+ */
+final class ResponseTemplate {
+
+    private static final String OPEN = "{{";
+    private static final String CLOSE = "}}";
+    private static final String ALL_FIELDS = "*";
+
+    /**
+     * 字段缺失时的显示值
+     */
+    private static final String MISSING_VALUE = "暂无";
+
+    /**
+     * 片段：偶数下标为文本，奇数下标为字段名
+     */
+    private final String[] segments;
+    private final int literalLength;
+
+    private ResponseTemplate(String[] segments, int literalLength) {
+        this.segments = segments;
+        this.literalLength = literalLength;
+    }
+
+    /**
+     * 编译模板
+     */
+    static ResponseTemplate compile(String template) {
+        List<String> segments = new ArrayList<>();
+        int literalLength = 0;
+        int position = 0;
+        while (true) {
+            int open = template.indexOf(OPEN, position);
+            int close = open >= 0 ? template.indexOf(CLOSE, open + OPEN.length()) : -1;
+            if (open < 0 || close < 0) {
+                segments.add(template.substring(position));
+                literalLength += template.length() - position;
+                break;
+            }
+            segments.add(template.substring(position, open));
+            segments.add(template.substring(open + OPEN.length(), close).trim());
+            literalLength += open - position;
+            position = close + CLOSE.length();
+        }
+        return new ResponseTemplate(segments.toArray(new String[0]), literalLength);
+    }
+
+    /**
+     * 渲染
+     */
+    String render(Map<String, Object> data) {
+        StringBuilder out = new StringBuilder(literalLength + 32 * (segments.length / 2 + data.size()));
+        for (int i = 0; i < segments.length; i++) {
+            String segment = segments[i];
+            if ((i & 1) == 0) {
+                out.append(segment);
+            } else if (ALL_FIELDS.equals(segment)) {
+                appendAllFields(out, data);
+            } else {
+                Object value = data.get(segment);
+                out.append(value != null ? value : MISSING_VALUE);
+            }
+        }
+        return out.toString();
+    }
+
+    private static void appendAllFields(StringBuilder out, Map<String, Object> data) {
+        boolean first = true;
+        for (Map.Entry<String, Object> entry : data.entrySet()) {
+            if (!first) {
+                out.append('\n');
+            }
+            out.append(ResponseGenerator.formatFieldName(entry.getKey()))
+                    .append('：')
+                    .append(entry.getValue());
+            first = false;
+        }
+    }
+}
@@ -7,6 +7,7 @@ import org.springframework.stereotype.Component;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -82,4 +83,27 @@ public class SensitiveWordFilter {
 
         return result;
     }
+
+    /**
+     * 创建流式过滤器（按安全边界切段后再过滤下发）
+     */
+    public StreamingTextFilter newStreamingFilter(Consumer<String> downstream) {
+        return new StreamingTextFilter(this, downstream);
+    }
+
+    /**
+     * 调整切点，避免把敏感词切成两段
+     */
+    int adjustCutBeforeSensitiveWord(CharSequence text, int cut) {
+        String str = text.toString().toLowerCase();
+        int adjusted = cut;
+        for (String word : SENSITIVE_WORDS) {
+            int from = Math.max(0, cut - word.length() + 1);
+            int index = str.indexOf(word.toLowerCase(), from);
+            if (index >= 0 && index < cut && index + word.length() > cut) {
+                adjusted = Math.min(adjusted, index);
+            }
+        }
+        return adjusted;
+    }
 }
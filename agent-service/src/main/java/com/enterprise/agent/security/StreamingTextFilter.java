@@ -0,0 +1,93 @@
+package com.enterprise.agent.security;
+
+import java.util.function.Consumer;
+
+/**
+ * 流式文本过滤器
+ *
+ * 流式输出时，敏感词、身份证号、手机号可能被拆到相邻的两个 token 中，逐 token 过滤会漏判。
+ * 本类先缓冲 token，只在标点、换行等安全边界处切段，整段经 SensitiveWordFilter 过滤后再下发。
+ *
+ * 非线程安全，每次流式响应创建一个实例，结束时必须调用 flush()。
+ */
+public class StreamingTextFilter implements Consumer<String> {
+
+    /**
+     * 可安全切段的边界字符（敏感词与证件号中不会出现）
+     */
+    private static final String SEGMENT_BOUNDARIES = "。！？；，、!?;,\n";
+
+    /**
+     * 无边界时允许缓冲的最大长度，超过后强制切段
+     */
+    private static final int MAX_PENDING_LENGTH = 64;
+
+    /**
+     * 强制切段时保留的尾部长度（身份证号长度）
+     */
+    private static final int HOLD_BACK_LENGTH = 18;
+
+    private final SensitiveWordFilter filter;
+    private final Consumer<String> downstream;
+    private final StringBuilder pending = new StringBuilder();
+
+    StreamingTextFilter(SensitiveWordFilter filter, Consumer<String> downstream) {
+        this.filter = filter;
+        this.downstream = downstream;
+    }
+
+    @Override
+    public void accept(String token) {
+        if (token == null || token.isEmpty()) {
+            return;
+        }
+        pending.append(token);
+
+        int cut = lastBoundary();
+        if (cut <= 0 && pending.length() > MAX_PENDING_LENGTH) {
+            cut = forcedCut();
+        }
+        if (cut > 0) {
+            emit(cut);
+        }
+    }
+
+    /**
+     * 下发剩余缓冲内容
+     */
+    public void flush() {
+        if (pending.length() > 0) {
+            emit(pending.length());
+        }
+    }
+
+    private void emit(int end) {
+        String segment = pending.substring(0, end);
+        pending.delete(0, end);
+        downstream.accept(filter.filter(segment));
+    }
+
+    private int lastBoundary() {
+        for (int i = pending.length() - 1; i >= 0; i--) {
+            if (SEGMENT_BOUNDARIES.indexOf(pending.charAt(i)) >= 0) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 无标点时的强制切点：保留尾部，且不切断数字串和敏感词
+     */
+    private int forcedCut() {
+        int cut = pending.length() - HOLD_BACK_LENGTH;
+        while (cut > 0 && isIdentifierChar(pending.charAt(cut - 1)) && isIdentifierChar(pending.charAt(cut))) {
+            cut--;
+        }
+        return filter.adjustCutBeforeSensitiveWord(pending, cut);
+    }
+
+    private boolean isIdentifierChar(char c) {
+        return (c >= '0' && c <= '9') || c == 'X' || c == 'x';
+    }
+}
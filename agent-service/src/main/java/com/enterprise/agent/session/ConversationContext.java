@@ -1,11 +1,12 @@
 package com.enterprise.agent.session;
 
+import com.enterprise.agent.common.RequestDeadline;
 import com.enterprise.agent.intent.IntentResult;
+import com.enterprise.agent.intent.IntentType;
 import com.enterprise.agent.orchestrator.AgentState;
 
 import java.io.Serializable;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -17,6 +18,21 @@ public class ConversationContext implements Serializable {
 
     private static final long serialVersionUID = 1L;
 
+    /**
+     * 默认最大对话轮数（未按配置设置时）
+     */
+    public static final int DEFAULT_MAX_ROUNDS = 20;
+
+    /**
+     * Prompt 中携带的最近对话轮数
+     */
+    public static final int BRIEF_ROUNDS = 3;
+
+    /**
+     * 保留的最近状态转换条数（每轮约 5~8 条）
+     */
+    public static final int STATE_HISTORY_CAPACITY = 64;
+
     /**
      * 会话ID
      */
@@ -32,6 +48,21 @@ public class ConversationContext implements Serializable {
      */
     private String traceId;
 
+    /**
+     * 当前请求的截止时间（请求级，不随会话持久化）
+     */
+    private transient RequestDeadline deadline;
+
+    /**
+     * 本轮识别出的意图（请求级，阶段耗时按此分组）
+     */
+    private transient IntentType turnIntent;
+
+    /**
+     * 进入当前状态时的 System.nanoTime()（请求级，0 表示未计时）
+     */
+    private transient long stateEnteredNanos;
+
     /**
      * 当前状态
      */
@@ -43,14 +74,19 @@ public class ConversationContext implements Serializable {
     private int permissionLevel = 1;
 
     /**
-     * 对话历史
+     * 对话历史（定长环形，保留最近 maxConversationRounds 轮）
+     */
+    private MessageHistory history = new MessageHistory(DEFAULT_MAX_ROUNDS * 2, BRIEF_ROUNDS * 2);
+
+    /**
+     * 状态转换历史（定长环形，保留最近 STATE_HISTORY_CAPACITY 条）
      */
-    private List<Message> history = new ArrayList<>();
+    private StateHistory stateHistory = new StateHistory(STATE_HISTORY_CAPACITY);
 
     /**
-     * 状态转换历史
+     * 早期对话的滚动摘要（历史被折叠后生效）
      */
-    private List<StateTransition> stateHistory = new ArrayList<>();
+    private ConversationSummary summary;
 
     /**
      * 待处理的意图（用于多轮补充信息）
@@ -93,27 +129,35 @@ public class ConversationContext implements Serializable {
     }
 
     /**
-     * 获取最近的历史摘要（用于 LLM 上下文）
+     * 获取最近 BRIEF_ROUNDS 轮的历史摘要（用于 LLM 上下文，随消息追加增量维护）
      */
-    public String getRecentHistoryBrief(int rounds) {
-        if (history.isEmpty()) {
-            return "无历史对话";
-        }
+    public String getRecentHistoryBrief() {
+        return history.getBrief();
+    }
 
-        int start = Math.max(0, history.size() - rounds * 2);
-        StringBuilder sb = new StringBuilder();
-        for (int i = start; i < history.size(); i++) {
-            Message msg = history.get(i);
-            sb.append(msg.getRole()).append(": ").append(msg.getContent()).append("\n");
+    /**
+     * 获取 Prompt 使用的历史：早期对话已折叠时为 滚动摘要 + 最近 BRIEF_ROUNDS 轮，否则同 getRecentHistoryBrief()
+     */
+    public String getPromptHistory() {
+        String brief = history.getBrief();
+        if (summary == null || summary.getFoldedMessages() == 0) {
+            return brief;
         }
-        return sb.toString();
+        return summary.render() + brief;
+    }
+
+    /**
+     * 获取最近的历史摘要（用于 LLM 上下文）
+     */
+    public String getRecentHistoryBrief(int rounds) {
+        return history.getBrief(rounds * 2);
     }
 
     /**
      * 添加状态转换记录
      */
     public void addStateHistory(AgentState from, AgentState to) {
-        stateHistory.add(new StateTransition(from, to, LocalDateTime.now()));
+        stateHistory.add(from, to);
     }
 
     /**
@@ -163,6 +207,33 @@ public class ConversationContext implements Serializable {
         this.traceId = traceId;
     }
 
+    /**
+     * 当前请求的截止时间，未设置时为 RequestDeadline.NONE
+     */
+    public RequestDeadline getDeadline() {
+        return deadline != null ? deadline : RequestDeadline.NONE;
+    }
+
+    public void setDeadline(RequestDeadline deadline) {
+        this.deadline = deadline;
+    }
+
+    public IntentType getTurnIntent() {
+        return turnIntent;
+    }
+
+    public void setTurnIntent(IntentType turnIntent) {
+        this.turnIntent = turnIntent;
+    }
+
+    public long getStateEnteredNanos() {
+        return stateEnteredNanos;
+    }
+
+    public void setStateEnteredNanos(long stateEnteredNanos) {
+        this.stateEnteredNanos = stateEnteredNanos;
+    }
+
     public AgentState getState() {
         return state;
     }
@@ -179,20 +250,58 @@ public class ConversationContext implements Serializable {
         this.permissionLevel = permissionLevel;
     }
 
-    public List<Message> getHistory() {
+    public MessageHistory getHistory() {
         return history;
     }
 
+    /**
+     * 替换对话历史（超出容量时只保留最近的消息）
+     */
     public void setHistory(List<Message> history) {
-        this.history = history;
+        MessageHistory replacement = new MessageHistory(this.history.capacity(), BRIEF_ROUNDS * 2);
+        if (history != null) {
+            replacement.addAll(history);
+        }
+        this.history = replacement;
+    }
+
+    public int getMaxConversationRounds() {
+        return history.capacity() / 2;
+    }
+
+    /**
+     * 设置最大对话轮数（调整历史容量，保留最近的消息）
+     */
+    public void setMaxConversationRounds(int maxConversationRounds) {
+        if (maxConversationRounds * 2 == history.capacity()) {
+            return;
+        }
+        MessageHistory resized = new MessageHistory(Math.max(1, maxConversationRounds) * 2, BRIEF_ROUNDS * 2);
+        resized.addAll(history);
+        this.history = resized;
     }
 
-    public List<StateTransition> getStateHistory() {
+    public StateHistory getStateHistory() {
         return stateHistory;
     }
 
+    /**
+     * 替换状态转换历史（超出容量时只保留最近的记录）
+     */
     public void setStateHistory(List<StateTransition> stateHistory) {
-        this.stateHistory = stateHistory;
+        StateHistory replacement = new StateHistory(STATE_HISTORY_CAPACITY);
+        if (stateHistory != null) {
+            replacement.addAll(stateHistory);
+        }
+        this.stateHistory = replacement;
+    }
+
+    public ConversationSummary getSummary() {
+        return summary;
+    }
+
+    public void setSummary(ConversationSummary summary) {
+        this.summary = summary;
     }
 
     public IntentResult getPendingIntent() {
@@ -274,7 +383,7 @@ public class ConversationContext implements Serializable {
     }
 
     /**
-     * 状态转换记录
+     * 状态转换记录（StateHistory 按需构造的视图，修改不会写回历史）
      */
     public static class StateTransition implements Serializable {
         private static final long serialVersionUID = 1L;
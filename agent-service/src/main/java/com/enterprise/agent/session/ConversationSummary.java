@@ -0,0 +1,148 @@
+package com.enterprise.agent.session;
+
+import com.enterprise.agent.intent.IntentResult;
+import com.enterprise.agent.intent.IntentType;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 早期对话的滚动摘要
+ *
+ * - 确定性部分：逐轮记录的意图与槽位（只保留最近的若干项，大小有上界）
+ * - 文本部分：可选，由 LLM 异步压缩被折叠的对话得到
+ *
+ * 对话历史被折叠过后才会进入 Prompt（见 ConversationContext.getPromptHistory）。
+ */
+public class ConversationSummary implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int MAX_INTENTS = 8;
+    private static final int MAX_SLOTS = 16;
+
+    /**
+     * 办理过的意图代码（按最近一次出现排序）
+     */
+    private List<String> intents = new ArrayList<>();
+
+    /**
+     * 用户提供过的槽位（保留最新值）
+     */
+    private Map<String, Object> slots = new LinkedHashMap<>();
+
+    /**
+     * LLM 生成的摘要文本（异步写入）
+     */
+    private volatile String text;
+
+    /**
+     * 已折叠出历史的消息数
+     */
+    private int foldedMessages;
+
+    /**
+     * 记录一轮的意图与槽位
+     */
+    public void record(IntentResult intentResult) {
+        if (intentResult == null || !intentResult.isRecognized()) {
+            return;
+        }
+        String code = intentResult.getIntentType().getCode();
+        intents.remove(code);
+        intents.add(code);
+        if (intents.size() > MAX_INTENTS) {
+            intents.remove(0);
+        }
+
+        if (intentResult.getSlots() != null) {
+            for (Map.Entry<String, Object> entry : intentResult.getSlots().entrySet()) {
+                if (entry.getValue() == null) {
+                    continue;
+                }
+                slots.remove(entry.getKey());
+                slots.put(entry.getKey(), entry.getValue());
+            }
+            Iterator<String> eldest = slots.keySet().iterator();
+            while (slots.size() > MAX_SLOTS) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+    }
+
+    /**
+     * 渲染为 Prompt 文本
+     */
+    public String render() {
+        StringBuilder sb = new StringBuilder();
+        if (text != null && !text.isEmpty()) {
+            sb.append("早期对话摘要：").append(text).append('\n');
+        }
+        if (!intents.isEmpty()) {
+            sb.append("用户此前办理：");
+            for (int i = 0; i < intents.size(); i++) {
+                if (i > 0) {
+                    sb.append('、');
+                }
+                sb.append(IntentType.fromCode(intents.get(i)).getDisplayName());
+            }
+            sb.append('\n');
+        }
+        if (!slots.isEmpty()) {
+            sb.append("已提供信息：");
+            boolean first = true;
+            for (Map.Entry<String, Object> entry : slots.entrySet()) {
+                if (!first) {
+                    sb.append('，');
+                }
+                sb.append(entry.getKey()).append('=').append(entry.getValue());
+                first = false;
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    public void addFoldedMessages(int count) {
+        foldedMessages += count;
+    }
+
+    // ==================== Getter/Setter ====================
+
+    public List<String> getIntents() {
+        return intents;
+    }
+
+    public void setIntents(List<String> intents) {
+        this.intents = intents != null ? new ArrayList<>(intents) : new ArrayList<>();
+    }
+
+    public Map<String, Object> getSlots() {
+        return slots;
+    }
+
+    public void setSlots(Map<String, Object> slots) {
+        this.slots = slots != null ? new LinkedHashMap<>(slots) : new LinkedHashMap<>();
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+    }
+
+    public int getFoldedMessages() {
+        return foldedMessages;
+    }
+
+    public void setFoldedMessages(int foldedMessages) {
+        this.foldedMessages = foldedMessages;
+    }
+}
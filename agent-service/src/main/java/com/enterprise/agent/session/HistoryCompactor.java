@@ -0,0 +1,217 @@
+package com.enterprise.agent.session;
+
+import com.enterprise.agent.config.SessionConfig;
+import com.enterprise.agent.intent.IntentResult;
+import com.enterprise.agent.llm.LLMClient;
+import com.enterprise.agent.llm.LLMRequest;
+import com.enterprise.agent.llm.LLMResponse;
+import com.enterprise.agent.log.MetricsCollector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * 对话历史压缩器
+ *
+ * 职责：
+ * - 每轮记录识别出的意图与槽位到会话的滚动摘要（确定性部分）
+ * - 历史估算 token 数超过预算或环形缓冲已满时，把早期对话折叠进摘要，只保留最近若干轮原文
+ * - llm 模式下在请求路径之外异步调用 LLM，把被折叠的对话连同已有摘要压缩成一段短文本，
+ *   生成后交给调用方回写会话（会话此前已保存，摘要文本须重新保存才能持久化）
+ * - 同一会话已有摘要任务时，新折叠的对话排入该任务之后，任务结束前接着压缩，不遗漏
+ *
+ * 禁止：
+ * - 在请求线程上等待 LLM 摘要结果
+ * - 摘要线程修改会话的对话历史（只写入摘要文本）
+ */
+@Component
+public class HistoryCompactor {
+
+    private static final Logger log = LoggerFactory.getLogger(HistoryCompactor.class);
+
+    private static final String MODE_OFF = "off";
+    private static final String MODE_LLM = "llm";
+
+    /**
+     * 单个会话等待压缩的折叠消息上限，超出时丢弃最早的（只影响摘要文本，确定性摘要不受影响）
+     */
+    private static final int MAX_BACKLOG_MESSAGES = 64;
+
+    private final SessionConfig sessionConfig;
+    private final LLMClient llmClient;
+    private final Executor summaryExecutor;
+    private final MetricsCollector metrics;
+
+    /**
+     * 正在生成 LLM 摘要的会话（同一会话同时只有一个摘要任务），值为任务执行期间新折叠、等待压缩的消息
+     */
+    private final Map<String, List<ConversationContext.Message>> summarizing = new ConcurrentHashMap<>();
+
+    @Autowired
+    public HistoryCompactor(SessionConfig sessionConfig,
+            LLMClient llmClient,
+            @Qualifier("summaryExecutor") Executor summaryExecutor,
+            MetricsCollector metrics) {
+        this.sessionConfig = sessionConfig;
+        this.llmClient = llmClient;
+        this.summaryExecutor = summaryExecutor;
+        this.metrics = metrics;
+    }
+
+    /**
+     * 记录本轮识别结果
+     */
+    public void recordTurn(ConversationContext context, IntentResult intentResult) {
+        if (MODE_OFF.equals(sessionConfig.getHistoryCompaction())) {
+            return;
+        }
+        if (context.getSummary() == null) {
+            context.setSummary(new ConversationSummary());
+        }
+        context.getSummary().record(intentResult);
+    }
+
+    /**
+     * 需要时折叠早期对话（会话保存前调用）
+     *
+     * @param onSummarized llm 模式下摘要文本生成后在摘要线程回调，由调用方写回并重新保存会话
+     */
+    public void compactIfNeeded(ConversationContext context, Consumer<String> onSummarized) {
+        if (MODE_OFF.equals(sessionConfig.getHistoryCompaction())) {
+            return;
+        }
+        MessageHistory history = context.getHistory();
+        if (history.getEstimatedTokens() <= sessionConfig.getHistoryTokenBudget()
+                && history.size() < history.capacity()) {
+            return;
+        }
+        int keepMessages = Math.max(1, sessionConfig.getHistoryKeepRounds()) * 2;
+        int foldCount = history.size() - keepMessages;
+        if (foldCount <= 0) {
+            return;
+        }
+
+        List<ConversationContext.Message> folded = history.dropOldest(foldCount);
+        if (context.getSummary() == null) {
+            context.setSummary(new ConversationSummary());
+        }
+        ConversationSummary summary = context.getSummary();
+        summary.addFoldedMessages(folded.size());
+        metrics.increment("history.compactions");
+        metrics.add("history.folded.messages", folded.size());
+        log.debug("[{}] 折叠早期对话: folded={}, remaining={}, tokens={}",
+                context.getTraceId(), folded.size(), history.size(), history.getEstimatedTokens());
+
+        if (MODE_LLM.equals(sessionConfig.getHistoryCompaction())) {
+            summarizeAsync(context.getSessionId(), summary, folded, onSummarized);
+        }
+    }
+
+    /**
+     * 异步生成摘要文本
+     *
+     * 同一会话已有任务时把折叠的消息排入其后，由该任务接着压缩；线程池已满时放弃，只保留确定性摘要
+     */
+    private void summarizeAsync(String sessionId, ConversationSummary summary,
+            List<ConversationContext.Message> folded, Consumer<String> onSummarized) {
+        boolean[] deferred = new boolean[1];
+        summarizing.compute(sessionId, (key, backlog) -> {
+            if (backlog == null) {
+                return new ArrayList<>();
+            }
+            backlog.addAll(folded);
+            if (backlog.size() > MAX_BACKLOG_MESSAGES) {
+                metrics.add("history.summary.backlog.dropped", backlog.size() - MAX_BACKLOG_MESSAGES);
+                backlog.subList(0, backlog.size() - MAX_BACKLOG_MESSAGES).clear();
+            }
+            deferred[0] = true;
+            return backlog;
+        });
+        if (deferred[0]) {
+            metrics.increment("history.summary.deferred");
+            return;
+        }
+        try {
+            summaryExecutor.execute(() -> {
+                List<ConversationContext.Message> batch = folded;
+                while (batch != null) {
+                    summarize(sessionId, summary, batch, onSummarized);
+                    batch = nextBatch(sessionId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            summarizing.remove(sessionId);
+            metrics.increment("history.summary.rejected");
+        }
+    }
+
+    /**
+     * 取出任务执行期间排入的折叠消息；没有时结束该会话的摘要任务，返回 null
+     */
+    private List<ConversationContext.Message> nextBatch(String sessionId) {
+        List<List<ConversationContext.Message>> next = new ArrayList<>(1);
+        summarizing.compute(sessionId, (key, backlog) -> {
+            if (backlog == null || backlog.isEmpty()) {
+                return null;
+            }
+            next.add(backlog);
+            return new ArrayList<>();
+        });
+        return next.isEmpty() ? null : next.get(0);
+    }
+
+    private void summarize(String sessionId, ConversationSummary summary, List<ConversationContext.Message> folded,
+            Consumer<String> onSummarized) {
+        try {
+            String prompt = buildSummaryPrompt(summary.getText(), folded);
+            LLMRequest request = LLMRequest.builder()
+                    .prompt(prompt)
+                    .maxTokens(sessionConfig.getHistorySummaryMaxChars())
+                    .temperature(0.3)
+                    .build();
+            LLMResponse response = llmClient.complete(request);
+            if (!response.isSuccess() || response.getContent() == null) {
+                metrics.increment("history.summary.failures");
+                return;
+            }
+            String text = response.getContent().trim();
+            int maxChars = sessionConfig.getHistorySummaryMaxChars();
+            if (text.length() > maxChars) {
+                text = text.substring(0, maxChars);
+            }
+            summary.setText(text);
+            metrics.increment("history.summary.llm");
+            onSummarized.accept(text);
+        } catch (Exception e) {
+            metrics.increment("history.summary.failures");
+            log.warn("生成对话摘要失败: sessionId={}, error={}", sessionId, e.getMessage());
+        }
+    }
+
+    private String buildSummaryPrompt(String previousText, List<ConversationContext.Message> folded) {
+        StringBuilder sb = new StringBuilder(256);
+        sb.append("你是一个对话摘要压缩助手。请把以下客服对话压缩成一段简短的摘要，")
+                .append("保留用户的诉求、已提供的关键信息和已办理的结果。\n\n");
+        if (previousText != null && !previousText.isEmpty()) {
+            sb.append("【已有摘要】：\n").append(previousText).append("\n");
+        }
+        sb.append("【待压缩对话】：\n");
+        for (ConversationContext.Message message : folded) {
+            sb.append(message.getRole()).append(": ").append(message.getContent()).append('\n');
+        }
+        sb.append("\n【输出要求】：\n")
+                .append("只输出摘要正文，不超过 ").append(sessionConfig.getHistorySummaryMaxChars())
+                .append(" 字，不要推断或补全任何信息");
+        return sb.toString();
+    }
+}
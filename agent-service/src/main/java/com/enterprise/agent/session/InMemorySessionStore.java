@@ -0,0 +1,39 @@
+package com.enterprise.agent.session;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 单节点内存会话存储（默认）
+ *
+ * 会话不跨节点共享，重启即丢失；多实例部署需使用粘性路由或 redis 存储。
+ */
+@Component
+@ConditionalOnProperty(prefix = "agent.session", name = "store", havingValue = "memory", matchIfMissing = true)
+public class InMemorySessionStore implements SessionStore {
+
+    private final Map<String, ConversationContext> sessions = new ConcurrentHashMap<>();
+
+    @Override
+    public ConversationContext get(String sessionId) {
+        return sessions.get(sessionId);
+    }
+
+    @Override
+    public void save(ConversationContext context) {
+        sessions.put(context.getSessionId(), context);
+    }
+
+    @Override
+    public void remove(String sessionId) {
+        sessions.remove(sessionId);
+    }
+
+    @Override
+    public ConversationContext expire(String sessionId) {
+        return sessions.remove(sessionId);
+    }
+}
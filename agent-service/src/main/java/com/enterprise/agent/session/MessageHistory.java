@@ -0,0 +1,236 @@
+package com.enterprise.agent.session;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 定长环形对话历史
+ *
+ * - 容量满后追加新消息时淘汰最旧的消息，单会话内存有上界
+ * - 同时增量维护最近 briefMessages 条消息的摘要文本（追加新行、删除最旧一行），
+ *   构建 Prompt 时直接读取，不再每次遍历历史拼接
+ * - 增量维护全部消息的估算 token 数，供历史压缩判断
+ *
+ * 只支持追加、从头部折叠与清空，不支持按下标修改或删除。非线程安全，与 ConversationContext 一致。
+ */
+public final class MessageHistory extends AbstractList<ConversationContext.Message> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    static final String EMPTY_BRIEF = "无历史对话";
+
+    /**
+     * 每条消息的固定 token 开销（角色、分隔符）
+     */
+    private static final int MESSAGE_OVERHEAD_TOKENS = 4;
+
+    private final ConversationContext.Message[] ring;
+    private final int briefMessages;
+    private int head;
+    private int size;
+    private int estimatedTokens;
+
+    /**
+     * 摘要文本及其中每行的长度（环形，与历史尾部对齐）
+     */
+    private transient StringBuilder brief;
+    private transient int[] briefLineLengths;
+    private transient int briefHead;
+    private transient int briefCount;
+    private transient String briefCache;
+
+    /**
+     * @param capacity      最大消息数
+     * @param briefMessages 摘要包含的最近消息数（不超过容量）
+     */
+    public MessageHistory(int capacity, int briefMessages) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("历史容量必须大于 0");
+        }
+        this.ring = new ConversationContext.Message[capacity];
+        this.briefMessages = Math.max(1, Math.min(briefMessages, capacity));
+    }
+
+    /**
+     * 追加消息，容量满时淘汰最旧的一条
+     */
+    @Override
+    public boolean add(ConversationContext.Message message) {
+        if (size == ring.length) {
+            estimatedTokens -= estimateTokens(ring[head]);
+            ring[head] = message;
+            head = (head + 1) % ring.length;
+        } else {
+            ring[(head + size) % ring.length] = message;
+            size++;
+        }
+        estimatedTokens += estimateTokens(message);
+        modCount++;
+        if (brief != null) {
+            appendBrief(message);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends ConversationContext.Message> messages) {
+        for (ConversationContext.Message message : messages) {
+            add(message);
+        }
+        return !messages.isEmpty();
+    }
+
+    @Override
+    public ConversationContext.Message get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+        }
+        return ring[(head + index) % ring.length];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            ring[(head + i) % ring.length] = null;
+        }
+        head = 0;
+        size = 0;
+        estimatedTokens = 0;
+        modCount++;
+        brief = null;
+    }
+
+    /**
+     * 从头部移除最旧的 count 条消息
+     *
+     * @return 被移除的消息（由旧到新）
+     */
+    public List<ConversationContext.Message> dropOldest(int count) {
+        int dropped = Math.min(Math.max(count, 0), size);
+        List<ConversationContext.Message> messages = new ArrayList<>(dropped);
+        for (int i = 0; i < dropped; i++) {
+            ConversationContext.Message message = ring[head];
+            messages.add(message);
+            estimatedTokens -= estimateTokens(message);
+            ring[head] = null;
+            head = (head + 1) % ring.length;
+        }
+        size -= dropped;
+        modCount++;
+        // 摘要只覆盖最近的消息，剩余消息不足摘要条数时才需要重建
+        if (brief != null && size < briefCount) {
+            brief = null;
+        }
+        return messages;
+    }
+
+    public int capacity() {
+        return ring.length;
+    }
+
+    /**
+     * 全部消息的估算 token 数
+     */
+    public int getEstimatedTokens() {
+        return estimatedTokens;
+    }
+
+    /**
+     * 估算 token 数：非 ASCII 字符（中文等）按 1 字 1 token，ASCII 按 4 字符 1 token
+     */
+    static int estimateTokens(String text) {
+        if (text == null) {
+            return 0;
+        }
+        int ascii = 0;
+        int other = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) < 0x80) {
+                ascii++;
+            } else {
+                other++;
+            }
+        }
+        return other + (ascii + 3) / 4;
+    }
+
+    private static int estimateTokens(ConversationContext.Message message) {
+        return MESSAGE_OVERHEAD_TOKENS + estimateTokens(message.getContent());
+    }
+
+    /**
+     * 最近 briefMessages 条消息的摘要（每行 "角色: 内容"）
+     */
+    public String getBrief() {
+        if (size == 0) {
+            return EMPTY_BRIEF;
+        }
+        if (brief == null) {
+            rebuildBrief();
+        }
+        if (briefCache == null) {
+            briefCache = brief.toString();
+        }
+        return briefCache;
+    }
+
+    /**
+     * 最近 messages 条消息的摘要；条数与增量维护的摘要一致时直接复用
+     */
+    public String getBrief(int messages) {
+        if (messages == briefMessages || (messages > briefMessages && size <= briefMessages)) {
+            return getBrief();
+        }
+        if (size == 0) {
+            return EMPTY_BRIEF;
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = Math.max(0, size - messages); i < size; i++) {
+            appendLine(sb, get(i));
+        }
+        return sb.toString();
+    }
+
+    private void rebuildBrief() {
+        brief = new StringBuilder();
+        briefLineLengths = new int[briefMessages];
+        briefHead = 0;
+        briefCount = 0;
+        for (int i = Math.max(0, size - briefMessages); i < size; i++) {
+            appendBrief(get(i));
+        }
+    }
+
+    private void appendBrief(ConversationContext.Message message) {
+        if (briefCount == briefMessages) {
+            brief.delete(0, briefLineLengths[briefHead]);
+            briefHead = (briefHead + 1) % briefMessages;
+            briefCount--;
+        }
+        int before = brief.length();
+        appendLine(brief, message);
+        briefLineLengths[(briefHead + briefCount) % briefMessages] = brief.length() - before;
+        briefCount++;
+        briefCache = null;
+    }
+
+    private static void appendLine(StringBuilder sb, ConversationContext.Message message) {
+        sb.append(message.getRole()).append(": ").append(message.getContent()).append('\n');
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        // 摘要不参与序列化，首次读取时重建
+        brief = null;
+    }
+}
@@ -0,0 +1,321 @@
+package com.enterprise.agent.session;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 堆外 slab 分配器（存放空闲会话的编码）
+ *
+ * - 直接内存按固定大小的 slab（页）申请，每个 slab 只服务一个大小级别（256B ~ 64KB，按 2 的幂），
+ *   切分为等长槽位；槽位内为 [长度 int][数据]
+ * - 句柄 = 级别(8 位) | slab 序号(32 位) | 槽位序号(24 位)，堆上只保留一个 long
+ * - 某级别利用率过低时标记最稀疏的 slab 待腾空：调用方用 relocate 把其中的数据搬到其他 slab，
+ *   腾空的 slab 回到空页池，可被任意级别复用（直接内存不归还给系统，总量受 maxBytes 限制）
+ *
+ * 线程安全：全部方法同步（分配只发生在降级线程，释放来自请求线程，竞争很低）。
+ */
+final class OffHeapArena {
+
+    private static final int MIN_SLOT_SHIFT = 8;
+    private static final int MAX_SLOT_SHIFT = 16;
+    private static final int LENGTH_BYTES = 4;
+
+    /**
+     * 可存放的最大数据长度
+     */
+    static final int MAX_PAYLOAD = (1 << MAX_SLOT_SHIFT) - LENGTH_BYTES;
+
+    private final int slabBytes;
+    private final long maxBytes;
+    private final SizeClass[] classes;
+    private final ArrayDeque<ByteBuffer> freePages = new ArrayDeque<>();
+
+    private long allocatedPages;
+    private long usedBytes;
+
+    OffHeapArena(int slabBytes, long maxBytes) {
+        this.slabBytes = Math.max(slabBytes, 1 << MAX_SLOT_SHIFT);
+        this.maxBytes = maxBytes;
+        this.classes = new SizeClass[MAX_SLOT_SHIFT - MIN_SLOT_SHIFT + 1];
+        for (int i = 0; i < classes.length; i++) {
+            classes[i] = new SizeClass(i, 1 << (MIN_SLOT_SHIFT + i));
+        }
+    }
+
+    /**
+     * 写入数据
+     *
+     * @return 句柄；数据过大或直接内存已达上限时返回 -1
+     */
+    synchronized long allocate(byte[] data) {
+        if (data.length > MAX_PAYLOAD) {
+            return -1;
+        }
+        SizeClass sizeClass = classes[classIndex(data.length + LENGTH_BYTES)];
+        long handle = sizeClass.allocate();
+        if (handle < 0) {
+            return -1;
+        }
+        ByteBuffer buffer = sizeClass.slot(handle);
+        buffer.putInt(data.length);
+        buffer.put(data);
+        usedBytes += sizeClass.slotBytes;
+        return handle;
+    }
+
+    /**
+     * 读取数据
+     */
+    synchronized byte[] read(long handle) {
+        ByteBuffer buffer = classOf(handle).slot(handle);
+        byte[] data = new byte[buffer.getInt()];
+        buffer.get(data);
+        return data;
+    }
+
+    /**
+     * 释放槽位
+     */
+    synchronized void free(long handle) {
+        SizeClass sizeClass = classOf(handle);
+        sizeClass.free(handle);
+        usedBytes -= sizeClass.slotBytes;
+    }
+
+    /**
+     * 句柄是否位于待腾空的 slab
+     */
+    synchronized boolean isEvacuating(long handle) {
+        return classOf(handle).slab(handle).evacuating;
+    }
+
+    /**
+     * 把数据搬到未标记腾空的 slab
+     *
+     * @return 新句柄；没有空间时返回 -1（原句柄保持有效）
+     */
+    synchronized long relocate(long handle) {
+        SizeClass sizeClass = classOf(handle);
+        long moved = sizeClass.allocate();
+        if (moved < 0) {
+            return -1;
+        }
+        ByteBuffer from = sizeClass.slot(handle);
+        from.limit(from.position() + LENGTH_BYTES + from.getInt(from.position()));
+        sizeClass.slot(moved).put(from);
+        sizeClass.free(handle);
+        return moved;
+    }
+
+    /**
+     * 标记利用率过低级别中的稀疏 slab 待腾空
+     *
+     * @return 被标记的 slab 数
+     */
+    synchronized int markEvacuation(double minUtilization) {
+        int marked = 0;
+        for (SizeClass sizeClass : classes) {
+            marked += sizeClass.markEvacuation(minUtilization);
+        }
+        return marked;
+    }
+
+    /**
+     * 腾空完成：空的 slab 回到空页池，未腾空的取消标记
+     */
+    synchronized void finishEvacuation() {
+        for (SizeClass sizeClass : classes) {
+            sizeClass.finishEvacuation();
+        }
+    }
+
+    synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    synchronized long getCapacityBytes() {
+        return allocatedPages * slabBytes;
+    }
+
+    synchronized int getFreePages() {
+        return freePages.size();
+    }
+
+    private SizeClass classOf(long handle) {
+        return classes[(int) (handle >>> 56)];
+    }
+
+    private static int classIndex(int bytes) {
+        int shift = 32 - Integer.numberOfLeadingZeros(bytes - 1);
+        return Math.max(0, shift - MIN_SLOT_SHIFT);
+    }
+
+    private ByteBuffer takePage() {
+        ByteBuffer page = freePages.pollFirst();
+        if (page != null) {
+            return page;
+        }
+        if ((allocatedPages + 1) * slabBytes > maxBytes) {
+            return null;
+        }
+        allocatedPages++;
+        return ByteBuffer.allocateDirect(slabBytes);
+    }
+
+    /**
+     * 单个大小级别
+     */
+    private final class SizeClass {
+
+        final int index;
+        final int slotBytes;
+        final int slotsPerSlab;
+
+        /**
+         * 下标即 slab 序号；腾空释放后置 null，序号由 freeSlabIds 复用
+         */
+        final List<Slab> slabs = new ArrayList<>();
+        final ArrayDeque<Integer> freeSlabIds = new ArrayDeque<>();
+
+        /**
+         * 优先从该 slab 分配，满了再查找其他有空位的 slab
+         */
+        Slab current;
+        long liveSlots;
+
+        SizeClass(int index, int slotBytes) {
+            this.index = index;
+            this.slotBytes = slotBytes;
+            this.slotsPerSlab = slabBytes / slotBytes;
+        }
+
+        long allocate() {
+            if (current == null || current.freeCount == 0 || current.evacuating) {
+                current = findAvailable();
+                if (current == null) {
+                    return -1;
+                }
+            }
+            int slot = current.freeSlots[--current.freeCount];
+            liveSlots++;
+            return ((long) index << 56) | ((long) current.id << 24) | slot;
+        }
+
+        void free(long handle) {
+            Slab slab = slab(handle);
+            slab.freeSlots[slab.freeCount++] = (int) (handle & 0xFFFFFF);
+            liveSlots--;
+        }
+
+        ByteBuffer slot(long handle) {
+            ByteBuffer buffer = slab(handle).buffer.duplicate();
+            int offset = (int) (handle & 0xFFFFFF) * slotBytes;
+            buffer.position(offset).limit(offset + slotBytes);
+            return buffer;
+        }
+
+        Slab slab(long handle) {
+            return slabs.get((int) ((handle >>> 24) & 0xFFFFFFFFL));
+        }
+
+        private Slab findAvailable() {
+            for (Slab slab : slabs) {
+                if (slab != null && slab.freeCount > 0 && !slab.evacuating) {
+                    return slab;
+                }
+            }
+            ByteBuffer page = takePage();
+            if (page == null) {
+                return null;
+            }
+            Integer id = freeSlabIds.pollFirst();
+            Slab slab = new Slab(id != null ? id : slabs.size(), page, slotsPerSlab);
+            if (id != null) {
+                slabs.set(id, slab);
+            } else {
+                slabs.add(slab);
+            }
+            return slab;
+        }
+
+        /**
+         * 利用率低于阈值时，按占用从少到多标记 slab，直到其余 slab 的空位放得下被标记 slab 中的数据
+         */
+        int markEvacuation(double minUtilization) {
+            List<Slab> live = new ArrayList<>();
+            for (Slab slab : slabs) {
+                if (slab != null) {
+                    live.add(slab);
+                }
+            }
+            if (live.size() < 2 || liveSlots >= minUtilization * live.size() * slotsPerSlab) {
+                return 0;
+            }
+            live.sort((a, b) -> Integer.compare(a.used(), b.used()));
+
+            long freeOutside = 0;
+            for (Slab slab : live) {
+                freeOutside += slab.freeCount;
+            }
+            long toMove = 0;
+            int marked = 0;
+            for (Slab slab : live.subList(0, live.size() - 1)) {
+                long freeAfter = freeOutside - slab.freeCount;
+                if (toMove + slab.used() > freeAfter) {
+                    break;
+                }
+                slab.evacuating = true;
+                freeOutside = freeAfter;
+                toMove += slab.used();
+                marked++;
+            }
+            if (current != null && current.evacuating) {
+                current = null;
+            }
+            return marked;
+        }
+
+        void finishEvacuation() {
+            for (int i = 0; i < slabs.size(); i++) {
+                Slab slab = slabs.get(i);
+                if (slab == null || !slab.evacuating) {
+                    continue;
+                }
+                if (slab.used() == 0) {
+                    slab.buffer.clear();
+                    freePages.addLast(slab.buffer);
+                    slabs.set(i, null);
+                    freeSlabIds.addLast(i);
+                } else {
+                    slab.evacuating = false;
+                }
+            }
+        }
+    }
+
+    private static final class Slab {
+
+        final int id;
+        final ByteBuffer buffer;
+        final int[] freeSlots;
+        int freeCount;
+        boolean evacuating;
+
+        Slab(int id, ByteBuffer buffer, int slots) {
+            this.id = id;
+            this.buffer = buffer;
+            this.freeSlots = new int[slots];
+            // 倒序入栈，先分配低地址槽位
+            for (int i = 0; i < slots; i++) {
+                freeSlots[i] = slots - 1 - i;
+            }
+            this.freeCount = slots;
+        }
+
+        int used() {
+            return freeSlots.length - freeCount;
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package com.enterprise.agent.session;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONException;
+import com.enterprise.agent.config.SessionConfig;
+import com.enterprise.agent.llm.cache.WTinyLfuCache;
+import com.enterprise.agent.log.MetricsCollector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redis 会话存储（多节点共享）
+ *
+ * 职责：
+ * - 会话经 SessionCodec 编码后存入 Redis，过期由 Redis TTL 处理（每次保存刷新）
+ * - 本地近端缓存热点会话，命中时不访问 Redis
+ * - save() 只在本地排队，由回写线程按固定间隔批量（pipeline）写入；
+ *   间隔内同一会话的多次保存只写最后一次
+ * - 本节点未落盘的保存对本节点的 get 立即可见
+ *
+ * 一致性：不使用粘性路由时，其他节点最多滞后 回写间隔 + 近端缓存有效期。
+ *
+ * 禁止：
+ * - 在请求线程上同步写 Redis
+ * - 回写失败时用旧数据覆盖之后的新保存
+ */
+@Component
+@ConditionalOnProperty(prefix = "agent.session", name = "store", havingValue = "redis")
+public class RedisSessionStore implements SessionStore {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisSessionStore.class);
+
+    /**
+     * 待删除标记
+     */
+    private static final byte[] TOMBSTONE = new byte[0];
+
+    /**
+     * 回写失败后的最大重试间隔（毫秒）
+     */
+    private static final long MAX_RETRY_BACKOFF_MILLIS = 5000;
+
+    private final StringRedisTemplate redisTemplate;
+    private final SessionCodec codec;
+    private final SessionConfig config;
+    private final MetricsCollector metrics;
+    private final WTinyLfuCache<String, ConversationContext> nearCache;
+
+    /**
+     * 待回写的会话（序列化快照，保存时生成，避免回写线程读到正在修改的对象）
+     */
+    private final Map<String, byte[]> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService writer;
+
+    /**
+     * 连续回写失败次数与下次重试时间（仅回写线程访问）
+     */
+    private int consecutiveFailures;
+    private long retryNotBeforeMillis;
+
+    @Autowired
+    public RedisSessionStore(StringRedisTemplate redisTemplate, SessionCodec codec,
+            SessionConfig config, MetricsCollector metrics) {
+        this.redisTemplate = redisTemplate;
+        this.codec = codec;
+        this.config = config;
+        this.metrics = metrics;
+        this.nearCache = new WTinyLfuCache<>(
+                config.getNearCacheMaxEntries(),
+                config.getNearCacheMaxEntries(),
+                config.getNearCacheTtlMillis(),
+                (key, context) -> 1);
+
+        this.writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "session-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = config.getWriteBehindIntervalMillis();
+        writer.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+
+        metrics.registerGauge("session.near.size", nearCache::size);
+        metrics.registerGauge("session.writebehind.pending", pending::size);
+        log.info("Redis 会话存储已启用: keyPrefix={}, ttl={}min, nearCache={}/{}ms, writeBehind={}ms",
+                config.getKeyPrefix(), config.getTimeoutMinutes(), config.getNearCacheMaxEntries(),
+                config.getNearCacheTtlMillis(), interval);
+    }
+
+    @Override
+    public ConversationContext get(String sessionId) {
+        ConversationContext context = nearCache.get(sessionId);
+        if (context != null) {
+            metrics.increment("session.near.hits");
+            return context;
+        }
+        metrics.increment("session.near.misses");
+
+        byte[] bytes = pending.get(sessionId);
+        if (bytes == null) {
+            try {
+                byte[] key = key(sessionId);
+                bytes = redisTemplate.execute((RedisCallback<byte[]>) connection -> connection.stringCommands().get(key));
+                metrics.increment("session.redis.reads");
+            } catch (DataAccessException e) {
+                log.warn("读取会话失败: sessionId={}, error={}", sessionId, e.getMessage());
+                metrics.increment("session.redis.failures");
+                return null;
+            }
+        }
+        if (bytes == null || bytes == TOMBSTONE) {
+            return null;
+        }
+
+        context = decode(sessionId, bytes);
+        if (context != null) {
+            nearCache.put(sessionId, context);
+        }
+        return context;
+    }
+
+    @Override
+    public void save(ConversationContext context) {
+        byte[] bytes = codec.encode(context);
+        nearCache.put(context.getSessionId(), context);
+        if (pending.put(context.getSessionId(), bytes) != null) {
+            metrics.increment("session.writebehind.coalesced");
+        }
+    }
+
+    @Override
+    public void remove(String sessionId) {
+        nearCache.invalidate(sessionId);
+        pending.put(sessionId, TOMBSTONE);
+    }
+
+    @Override
+    public ConversationContext expire(String sessionId) {
+        // 只释放近端缓存，Redis 中的会话可能仍在其他节点使用，由 TTL 过期
+        ConversationContext context = nearCache.get(sessionId);
+        nearCache.invalidate(sessionId);
+        return context;
+    }
+
+    /**
+     * 批量回写待写会话
+     */
+    void flush() {
+        if (System.currentTimeMillis() < retryNotBeforeMillis) {
+            return;
+        }
+        while (!pending.isEmpty()) {
+            List<String> sessionIds = new ArrayList<>();
+            List<byte[]> values = new ArrayList<>();
+            Iterator<Map.Entry<String, byte[]>> iterator = pending.entrySet().iterator();
+            while (iterator.hasNext() && sessionIds.size() < config.getWriteBehindMaxBatch()) {
+                Map.Entry<String, byte[]> entry = iterator.next();
+                // 只摘取本次看到的版本，期间的新保存留到下一批
+                if (pending.remove(entry.getKey(), entry.getValue())) {
+                    sessionIds.add(entry.getKey());
+                    values.add(entry.getValue());
+                }
+            }
+            if (sessionIds.isEmpty()) {
+                return;
+            }
+            if (!write(sessionIds, values)) {
+                return;
+            }
+        }
+    }
+
+    private boolean write(List<String> sessionIds, List<byte[]> values) {
+        Expiration ttl = Expiration.seconds(config.getTimeoutMinutes() * 60L);
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (int i = 0; i < sessionIds.size(); i++) {
+                    byte[] key = key(sessionIds.get(i));
+                    if (values.get(i) == TOMBSTONE) {
+                        connection.keyCommands().del(key);
+                    } else {
+                        connection.stringCommands().set(key, values.get(i), ttl, RedisStringCommands.SetOption.upsert());
+                    }
+                }
+                return null;
+            });
+            metrics.add("session.redis.writes", sessionIds.size());
+            if (consecutiveFailures > 0) {
+                log.info("会话回写恢复, 连续失败次数: {}", consecutiveFailures);
+                consecutiveFailures = 0;
+                retryNotBeforeMillis = 0;
+            }
+            return true;
+        } catch (Exception e) {
+            // 指数退避，避免 Redis 不可用期间按回写间隔持续重试
+            consecutiveFailures++;
+            long backoff = Math.min(MAX_RETRY_BACKOFF_MILLIS,
+                    config.getWriteBehindIntervalMillis() << Math.min(consecutiveFailures, 16));
+            retryNotBeforeMillis = System.currentTimeMillis() + backoff;
+            if (consecutiveFailures == 1) {
+                log.warn("会话回写失败, 退避重试: count={}, error={}", sessionIds.size(), e.getMessage());
+            }
+            metrics.increment("session.writebehind.failures");
+            for (int i = 0; i < sessionIds.size(); i++) {
+                pending.putIfAbsent(sessionIds.get(i), values.get(i));
+            }
+            return false;
+        }
+    }
+
+    private ConversationContext decode(String sessionId, byte[] bytes) {
+        try {
+            // 兼容早期以 JSON 写入、尚未过期的会话
+            if (bytes.length > 0 && bytes[0] == '{') {
+                return JSON.parseObject(bytes, ConversationContext.class);
+            }
+            return codec.decode(bytes);
+        } catch (JSONException | IllegalArgumentException e) {
+            log.warn("会话数据无法解析, 已忽略: sessionId={}, error={}", sessionId, e.getMessage());
+            metrics.increment("session.decode.failures");
+            return null;
+        }
+    }
+
+    private byte[] key(String sessionId) {
+        return (config.getKeyPrefix() + sessionId).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        retryNotBeforeMillis = 0;
+        flush();
+        log.info("Redis 会话存储已关闭, 未写入会话数: {}", pending.size());
+    }
+}
@@ -0,0 +1,886 @@
+package com.enterprise.agent.session;
+
+import com.enterprise.agent.config.SessionConfig;
+import com.enterprise.agent.intent.IntentResult;
+import com.enterprise.agent.intent.IntentType;
+import com.enterprise.agent.orchestrator.AgentState;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 会话二进制编解码器（Redis / 磁盘持久化）
+ *
+ * 格式（版本 1）：
+ * <pre>
+ * 头部：魔数 0xA7 | 版本号
+ * 字段：[字段号 varint][长度 varint][内容] ...，字段号 0 结束
+ * </pre>
+ * - 未知字段按长度跳过；列表元素、意图等记录同样带长度前缀，末尾新增的属性旧版本直接忽略
+ * - 整数为 varint（有符号数先 zigzag），字符串为 varint(字节数 + 1) + UTF-8，0 表示 null
+ * - 时间按 UTC 换算为 epoch 毫秒：创建时间存绝对值，其余存相对前一时间的增量
+ * - 消息角色、AgentState 为单字节码（码表只追加），对话历史超过阈值时整体 Deflate 压缩
+ *
+ * 兼容性：只做追加式变更（新字段号、记录末尾新属性、码表追加）时不升级版本号；
+ * 版本号只在不兼容变更时升级，读取方拒绝高于自身的版本。
+ *
+ * 禁止：
+ * - 修改或复用已分配的字段号、码值
+ */
+@Component
+public class SessionCodec {
+
+    private static final int MAGIC = 0xA7;
+    private static final int VERSION = 1;
+
+    // 会话字段号
+    private static final int F_SESSION_ID = 1;
+    private static final int F_USER_ID = 2;
+    private static final int F_TRACE_ID = 3;
+    private static final int F_STATE = 4;
+    private static final int F_PERMISSION_LEVEL = 5;
+    private static final int F_UNKNOWN_INTENT_COUNT = 6;
+    private static final int F_CREATE_TIME = 7;
+    private static final int F_LAST_ACTIVE_TIME = 8;
+    private static final int F_HISTORY = 9;
+    private static final int F_STATE_HISTORY = 10;
+    private static final int F_PENDING_INTENT = 11;
+    private static final int F_MAX_ROUNDS = 12;
+    private static final int F_SUMMARY = 13;
+
+    // 意图字段号
+    private static final int I_INTENT_TYPE = 1;
+    private static final int I_CONFIDENCE = 2;
+    private static final int I_RAW_INPUT = 3;
+    private static final int I_LLM_RAW_RESPONSE = 4;
+    private static final int I_SLOTS_EXTRACTED = 5;
+    private static final int I_SLOTS = 6;
+    private static final int I_MISSING_SLOTS = 7;
+
+    // 摘要字段号
+    private static final int S_INTENTS = 1;
+    private static final int S_SLOTS = 2;
+    private static final int S_TEXT = 3;
+    private static final int S_FOLDED_MESSAGES = 4;
+
+    // 对话历史编码方式
+    private static final int HISTORY_PLAIN = 0;
+    private static final int HISTORY_DEFLATE = 1;
+
+    // 槽位值类型
+    private static final int V_NULL = 0;
+    private static final int V_STRING = 1;
+    private static final int V_INT = 2;
+    private static final int V_LONG = 3;
+    private static final int V_DOUBLE = 4;
+    private static final int V_TRUE = 5;
+    private static final int V_FALSE = 6;
+    private static final int V_DECIMAL = 7;
+
+    private static final int NULL_CODE = 0xFF;
+
+    /**
+     * 状态码表（下标即码值，只追加）
+     */
+    private static final AgentState[] STATES = {
+            AgentState.INIT, AgentState.INTENT_RECOGNITION, AgentState.SLOT_EXTRACTION,
+            AgentState.SLOT_COMPLETE, AgentState.NEED_CLARIFY, AgentState.UNKNOWN_INTENT,
+            AgentState.FORBIDDEN, AgentState.TOOL_EXECUTION, AgentState.RESPONSE_GENERATION,
+            AgentState.ASK_USER, AgentState.FALLBACK, AgentState.HUMAN_HANDOFF,
+            AgentState.REJECT, AgentState.DONE, AgentState.ERROR
+    };
+    private static final byte[] STATE_CODES = new byte[AgentState.values().length];
+
+    /**
+     * 角色码表（下标即码值，只追加）；不在表中的角色写 NULL_CODE 后跟字符串
+     */
+    private static final String[] ROLES = {"user", "assistant", "system"};
+
+    /**
+     * 解压后历史数据的上限，防止损坏数据导致超大分配
+     */
+    private static final int MAX_HISTORY_BYTES = 64 * 1024 * 1024;
+
+    /**
+     * 历史容量上限，防止损坏数据导致超大分配
+     */
+    private static final int MAX_ROUNDS = 10_000;
+
+    static {
+        Arrays.fill(STATE_CODES, (byte) NULL_CODE);
+        for (int i = 0; i < STATES.length; i++) {
+            STATE_CODES[STATES[i].ordinal()] = (byte) i;
+        }
+        for (AgentState state : AgentState.values()) {
+            if (STATE_CODES[state.ordinal()] == (byte) NULL_CODE) {
+                throw new IllegalStateException("AgentState 未分配编码: " + state);
+            }
+        }
+    }
+
+    private final boolean compressHistory;
+    private final int compressMinBytes;
+
+    @Autowired
+    public SessionCodec(SessionConfig config) {
+        this(config.isCodecCompressHistory(), config.getCodecCompressMinBytes());
+    }
+
+    SessionCodec(boolean compressHistory, int compressMinBytes) {
+        this.compressHistory = compressHistory;
+        this.compressMinBytes = compressMinBytes;
+    }
+
+    // ==================== 编码 ====================
+
+    /**
+     * 编码会话
+     */
+    public byte[] encode(ConversationContext context) {
+        Output out = new Output(256);
+        out.writeByte(MAGIC);
+        out.writeByte(VERSION);
+
+        writeStringField(out, F_SESSION_ID, context.getSessionId());
+        writeStringField(out, F_USER_ID, context.getUserId());
+        writeStringField(out, F_TRACE_ID, context.getTraceId());
+
+        int start = out.beginField(F_STATE);
+        out.writeByte(stateCode(context.getState()));
+        out.endField(start);
+
+        start = out.beginField(F_PERMISSION_LEVEL);
+        out.writeZigzag(context.getPermissionLevel());
+        out.endField(start);
+
+        start = out.beginField(F_UNKNOWN_INTENT_COUNT);
+        out.writeZigzag(context.getUnknownIntentCount());
+        out.endField(start);
+
+        // 创建时间为其余时间的基准
+        long base = toMillis(context.getCreateTime(), 0);
+        start = out.beginField(F_CREATE_TIME);
+        writeTime(out, context.getCreateTime(), 0);
+        out.endField(start);
+
+        start = out.beginField(F_LAST_ACTIVE_TIME);
+        writeTime(out, context.getLastActiveTime(), base);
+        out.endField(start);
+
+        // 历史容量须在历史之前写出，解码时先按容量建环
+        start = out.beginField(F_MAX_ROUNDS);
+        out.writeVarint(context.getMaxConversationRounds());
+        out.endField(start);
+
+        if (context.getHistory() != null && !context.getHistory().isEmpty()) {
+            start = out.beginField(F_HISTORY);
+            writeHistory(out, context.getHistory(), base);
+            out.endField(start);
+        }
+
+        if (context.getStateHistory() != null && !context.getStateHistory().isEmpty()) {
+            start = out.beginField(F_STATE_HISTORY);
+            writeStateHistory(out, context.getStateHistory(), base);
+            out.endField(start);
+        }
+
+        if (context.getPendingIntent() != null) {
+            start = out.beginField(F_PENDING_INTENT);
+            writeIntent(out, context.getPendingIntent());
+            out.endField(start);
+        }
+
+        if (context.getSummary() != null) {
+            start = out.beginField(F_SUMMARY);
+            writeSummary(out, context.getSummary());
+            out.endField(start);
+        }
+
+        out.writeVarint(0);
+        return out.toByteArray();
+    }
+
+    private void writeHistory(Output out, List<ConversationContext.Message> history, long base) {
+        Output body = new Output(64 * history.size());
+        body.writeVarint(history.size());
+        long previous = base;
+        for (ConversationContext.Message message : history) {
+            int start = body.beginRecord();
+            writeRole(body, message.getRole());
+            writeTime(body, message.getTime(), previous);
+            body.writeString(message.getContent());
+            body.endRecord(start);
+            previous = toMillis(message.getTime(), previous);
+        }
+
+        if (compressHistory && body.size >= compressMinBytes) {
+            byte[] compressed = deflate(body);
+            if (compressed.length < body.size) {
+                out.writeByte(HISTORY_DEFLATE);
+                out.writeVarint(body.size);
+                out.writeBytes(compressed, 0, compressed.length);
+                return;
+            }
+        }
+        out.writeByte(HISTORY_PLAIN);
+        out.writeBytes(body.buf, 0, body.size);
+    }
+
+    private void writeStateHistory(Output out, StateHistory transitions, long base) {
+        out.writeVarint(transitions.size());
+        long previous = base;
+        for (int i = 0; i < transitions.size(); i++) {
+            int start = out.beginRecord();
+            out.writeByte(stateCode(transitions.fromAt(i)));
+            out.writeByte(stateCode(transitions.toAt(i)));
+            long millis = transitions.epochMillisAt(i);
+            out.writeVarint(zigzag(millis - previous) + 1);
+            out.endRecord(start);
+            previous = millis;
+        }
+    }
+
+    private void writeIntent(Output out, IntentResult intent) {
+        writeStringField(out, I_INTENT_TYPE, intent.getIntentType() != null ? intent.getIntentType().getCode() : null);
+
+        int start = out.beginField(I_CONFIDENCE);
+        out.writeDouble(intent.getConfidence());
+        out.endField(start);
+
+        writeStringField(out, I_RAW_INPUT, intent.getRawInput());
+        writeStringField(out, I_LLM_RAW_RESPONSE, intent.getLlmRawResponse());
+
+        start = out.beginField(I_SLOTS_EXTRACTED);
+        out.writeByte(intent.isSlotsExtracted() ? 1 : 0);
+        out.endField(start);
+
+        if (intent.getSlots() != null && !intent.getSlots().isEmpty()) {
+            start = out.beginField(I_SLOTS);
+            out.writeVarint(intent.getSlots().size());
+            for (Map.Entry<String, Object> entry : intent.getSlots().entrySet()) {
+                out.writeString(entry.getKey());
+                writeValue(out, entry.getValue());
+            }
+            out.endField(start);
+        }
+
+        if (intent.getMissingSlots() != null && !intent.getMissingSlots().isEmpty()) {
+            start = out.beginField(I_MISSING_SLOTS);
+            out.writeVarint(intent.getMissingSlots().size());
+            for (String slot : intent.getMissingSlots()) {
+                out.writeString(slot);
+            }
+            out.endField(start);
+        }
+        out.writeVarint(0);
+    }
+
+    private void writeSummary(Output out, ConversationSummary summary) {
+        if (!summary.getIntents().isEmpty()) {
+            int start = out.beginField(S_INTENTS);
+            out.writeVarint(summary.getIntents().size());
+            for (String intent : summary.getIntents()) {
+                out.writeString(intent);
+            }
+            out.endField(start);
+        }
+
+        if (!summary.getSlots().isEmpty()) {
+            int start = out.beginField(S_SLOTS);
+            out.writeVarint(summary.getSlots().size());
+            for (Map.Entry<String, Object> entry : summary.getSlots().entrySet()) {
+                out.writeString(entry.getKey());
+                writeValue(out, entry.getValue());
+            }
+            out.endField(start);
+        }
+
+        writeStringField(out, S_TEXT, summary.getText());
+
+        int start = out.beginField(S_FOLDED_MESSAGES);
+        out.writeVarint(summary.getFoldedMessages());
+        out.endField(start);
+        out.writeVarint(0);
+    }
+
+    /**
+     * 槽位值：常见类型保留类型，其余类型按字符串保存
+     */
+    private static void writeValue(Output out, Object value) {
+        if (value == null) {
+            out.writeByte(V_NULL);
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            out.writeByte(V_INT);
+            out.writeZigzag(((Number) value).intValue());
+        } else if (value instanceof Long) {
+            out.writeByte(V_LONG);
+            out.writeZigzag((Long) value);
+        } else if (value instanceof Double || value instanceof Float) {
+            out.writeByte(V_DOUBLE);
+            out.writeDouble(((Number) value).doubleValue());
+        } else if (value instanceof Boolean) {
+            out.writeByte((Boolean) value ? V_TRUE : V_FALSE);
+        } else if (value instanceof BigDecimal) {
+            out.writeByte(V_DECIMAL);
+            out.writeString(value.toString());
+        } else {
+            out.writeByte(V_STRING);
+            out.writeString(value.toString());
+        }
+    }
+
+    private static void writeStringField(Output out, int fieldId, String value) {
+        if (value == null) {
+            return;
+        }
+        int start = out.beginField(fieldId);
+        out.writeString(value);
+        out.endField(start);
+    }
+
+    private static void writeRole(Output out, String role) {
+        for (int i = 0; i < ROLES.length; i++) {
+            if (ROLES[i].equals(role)) {
+                out.writeByte(i);
+                return;
+            }
+        }
+        out.writeByte(NULL_CODE);
+        out.writeString(role);
+    }
+
+    /**
+     * 时间：0 表示 null，否则为 zigzag(毫秒 - 基准) + 1
+     */
+    private static void writeTime(Output out, LocalDateTime time, long base) {
+        if (time == null) {
+            out.writeVarint(0);
+        } else {
+            out.writeVarint(zigzag(toMillis(time, 0) - base) + 1);
+        }
+    }
+
+    private static int stateCode(AgentState state) {
+        return state != null ? STATE_CODES[state.ordinal()] & 0xFF : NULL_CODE;
+    }
+
+    private byte[] deflate(Output body) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        try {
+            deflater.setInput(body.buf, 0, body.size);
+            deflater.finish();
+            Output compressed = new Output(body.size / 2 + 64);
+            while (!deflater.finished()) {
+                compressed.ensureCapacity(compressed.size + 1024);
+                compressed.size += deflater.deflate(compressed.buf, compressed.size, compressed.buf.length - compressed.size);
+            }
+            return compressed.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    // ==================== 解码 ====================
+
+    /**
+     * 解码会话
+     *
+     * @throws IllegalArgumentException 数据损坏或版本不兼容
+     */
+    public ConversationContext decode(byte[] bytes) {
+        Input in = new Input(bytes, 0, bytes.length);
+        if (bytes.length < 2 || in.readByte() != MAGIC) {
+            throw new IllegalArgumentException("不是会话数据");
+        }
+        int version = in.readByte();
+        if (version > VERSION) {
+            throw new IllegalArgumentException("不支持的会话数据版本: " + version);
+        }
+
+        ConversationContext context = new ConversationContext();
+        long base = 0;
+        int fieldId;
+        while ((fieldId = (int) in.readVarint()) != 0) {
+            Input field = in.slice((int) in.readVarint());
+            switch (fieldId) {
+                case F_SESSION_ID:
+                    context.setSessionId(field.readString());
+                    break;
+                case F_USER_ID:
+                    context.setUserId(field.readString());
+                    break;
+                case F_TRACE_ID:
+                    context.setTraceId(field.readString());
+                    break;
+                case F_STATE:
+                    context.setState(state(field.readByte()));
+                    break;
+                case F_PERMISSION_LEVEL:
+                    context.setPermissionLevel((int) field.readZigzag());
+                    break;
+                case F_UNKNOWN_INTENT_COUNT:
+                    context.setUnknownIntentCount((int) field.readZigzag());
+                    break;
+                case F_CREATE_TIME:
+                    long createMillis = field.readTime(0);
+                    context.setCreateTime(createMillis != Long.MIN_VALUE ? toDateTime(createMillis) : null);
+                    base = createMillis != Long.MIN_VALUE ? createMillis : 0;
+                    break;
+                case F_LAST_ACTIVE_TIME:
+                    long lastActiveMillis = field.readTime(base);
+                    context.setLastActiveTime(lastActiveMillis != Long.MIN_VALUE ? toDateTime(lastActiveMillis) : null);
+                    break;
+                case F_HISTORY:
+                    context.setHistory(readHistory(field, base));
+                    break;
+                case F_STATE_HISTORY:
+                    context.getStateHistory().clear();
+                    readStateHistory(field, base, context.getStateHistory());
+                    break;
+                case F_PENDING_INTENT:
+                    context.setPendingIntent(readIntent(field));
+                    break;
+                case F_MAX_ROUNDS:
+                    context.setMaxConversationRounds((int) Math.min(field.readVarint(), MAX_ROUNDS));
+                    break;
+                case F_SUMMARY:
+                    context.setSummary(readSummary(field));
+                    break;
+                default:
+                    // 新版本追加的字段，跳过
+                    break;
+            }
+        }
+        return context;
+    }
+
+    private List<ConversationContext.Message> readHistory(Input in, long base) {
+        int encoding = in.readByte();
+        Input body;
+        if (encoding == HISTORY_DEFLATE) {
+            int rawLength = (int) in.readVarint();
+            body = inflate(in, rawLength);
+        } else if (encoding == HISTORY_PLAIN) {
+            body = in;
+        } else {
+            throw new IllegalArgumentException("未知的对话历史编码: " + encoding);
+        }
+
+        int count = body.readCount();
+        List<ConversationContext.Message> history = new ArrayList<>(count);
+        long previous = base;
+        for (int i = 0; i < count; i++) {
+            Input record = body.slice((int) body.readVarint());
+            int roleCode = record.readByte();
+            String role = roleCode < ROLES.length ? ROLES[roleCode] : record.readString();
+            long millis = record.readTime(previous);
+            String content = record.readString();
+            history.add(new ConversationContext.Message(role, content,
+                    millis != Long.MIN_VALUE ? toDateTime(millis) : null));
+            if (millis != Long.MIN_VALUE) {
+                previous = millis;
+            }
+        }
+        return history;
+    }
+
+    private void readStateHistory(Input in, long base, StateHistory transitions) {
+        int count = in.readCount();
+        long previous = base;
+        for (int i = 0; i < count; i++) {
+            Input record = in.slice((int) in.readVarint());
+            AgentState from = state(record.readByte());
+            AgentState to = state(record.readByte());
+            long millis = record.readTime(previous);
+            if (millis != Long.MIN_VALUE) {
+                previous = millis;
+            }
+            transitions.add(from, to, previous);
+        }
+    }
+
+    private IntentResult readIntent(Input in) {
+        IntentResult.Builder builder = IntentResult.builder();
+        boolean slotsExtracted = false;
+        int fieldId;
+        while ((fieldId = (int) in.readVarint()) != 0) {
+            Input field = in.slice((int) in.readVarint());
+            switch (fieldId) {
+                case I_INTENT_TYPE:
+                    builder.intentType(IntentType.fromCode(field.readString()));
+                    break;
+                case I_CONFIDENCE:
+                    builder.confidence(field.readDouble());
+                    break;
+                case I_RAW_INPUT:
+                    builder.rawInput(field.readString());
+                    break;
+                case I_LLM_RAW_RESPONSE:
+                    builder.llmRawResponse(field.readString());
+                    break;
+                case I_SLOTS_EXTRACTED:
+                    slotsExtracted = field.readByte() != 0;
+                    break;
+                case I_SLOTS:
+                    int slotCount = field.readCount();
+                    Map<String, Object> slots = new LinkedHashMap<>();
+                    for (int i = 0; i < slotCount; i++) {
+                        slots.put(field.readString(), readValue(field));
+                    }
+                    builder.slots(slots);
+                    break;
+                case I_MISSING_SLOTS:
+                    int missingCount = field.readCount();
+                    List<String> missingSlots = new ArrayList<>(missingCount);
+                    for (int i = 0; i < missingCount; i++) {
+                        missingSlots.add(field.readString());
+                    }
+                    builder.missingSlots(missingSlots);
+                    break;
+                default:
+                    break;
+            }
+        }
+        IntentResult intent = builder.build();
+        intent.setSlotsExtracted(slotsExtracted);
+        return intent;
+    }
+
+    private ConversationSummary readSummary(Input in) {
+        ConversationSummary summary = new ConversationSummary();
+        int fieldId;
+        while ((fieldId = (int) in.readVarint()) != 0) {
+            Input field = in.slice((int) in.readVarint());
+            switch (fieldId) {
+                case S_INTENTS:
+                    int intentCount = field.readCount();
+                    List<String> intents = new ArrayList<>(intentCount);
+                    for (int i = 0; i < intentCount; i++) {
+                        intents.add(field.readString());
+                    }
+                    summary.setIntents(intents);
+                    break;
+                case S_SLOTS:
+                    int slotCount = field.readCount();
+                    Map<String, Object> slots = new LinkedHashMap<>();
+                    for (int i = 0; i < slotCount; i++) {
+                        slots.put(field.readString(), readValue(field));
+                    }
+                    summary.setSlots(slots);
+                    break;
+                case S_TEXT:
+                    summary.setText(field.readString());
+                    break;
+                case S_FOLDED_MESSAGES:
+                    summary.setFoldedMessages((int) field.readVarint());
+                    break;
+                default:
+                    break;
+            }
+        }
+        return summary;
+    }
+
+    private static Object readValue(Input in) {
+        int type = in.readByte();
+        switch (type) {
+            case V_NULL:
+                return null;
+            case V_STRING:
+                return in.readString();
+            case V_INT:
+                return (int) in.readZigzag();
+            case V_LONG:
+                return in.readZigzag();
+            case V_DOUBLE:
+                return in.readDouble();
+            case V_TRUE:
+                return Boolean.TRUE;
+            case V_FALSE:
+                return Boolean.FALSE;
+            case V_DECIMAL:
+                return new BigDecimal(in.readString());
+            default:
+                throw new IllegalArgumentException("未知的槽位值类型: " + type);
+        }
+    }
+
+    /**
+     * 新版本追加的状态码按 INIT 处理，会话从头开始而不是整体丢弃
+     */
+    private static AgentState state(int code) {
+        if (code == NULL_CODE) {
+            return null;
+        }
+        return code < STATES.length ? STATES[code] : AgentState.INIT;
+    }
+
+    private static Input inflate(Input in, int rawLength) {
+        if (rawLength < 0 || rawLength > MAX_HISTORY_BYTES) {
+            throw new IllegalArgumentException("对话历史长度异常: " + rawLength);
+        }
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(in.buf, in.pos, in.limit - in.pos);
+            byte[] raw = new byte[rawLength];
+            int length = 0;
+            while (length < rawLength && !inflater.finished()) {
+                int n = inflater.inflate(raw, length, rawLength - length);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += n;
+            }
+            if (length != rawLength) {
+                throw new IllegalArgumentException("对话历史解压长度不一致");
+            }
+            in.pos = in.limit;
+            return new Input(raw, 0, rawLength);
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("对话历史解压失败: " + e.getMessage(), e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    // ==================== 基础类型 ====================
+
+    private static long toMillis(LocalDateTime time, long defaultValue) {
+        return time != null ? time.toInstant(ZoneOffset.UTC).toEpochMilli() : defaultValue;
+    }
+
+    private static LocalDateTime toDateTime(long millis) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000L),
+                (int) Math.floorMod(millis, 1000L) * 1_000_000, ZoneOffset.UTC);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    /**
+     * 可扩容的输出缓冲
+     */
+    private static final class Output {
+        byte[] buf;
+        int size;
+
+        Output(int capacity) {
+            this.buf = new byte[Math.max(capacity, 16)];
+        }
+
+        void ensureCapacity(int capacity) {
+            if (capacity > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(capacity, buf.length * 2));
+            }
+        }
+
+        void writeByte(int value) {
+            ensureCapacity(size + 1);
+            buf[size++] = (byte) value;
+        }
+
+        void writeBytes(byte[] bytes, int offset, int length) {
+            ensureCapacity(size + length);
+            System.arraycopy(bytes, offset, buf, size, length);
+            size += length;
+        }
+
+        void writeVarint(long value) {
+            ensureCapacity(size + 10);
+            while ((value & ~0x7FL) != 0) {
+                buf[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buf[size++] = (byte) value;
+        }
+
+        void writeZigzag(long value) {
+            writeVarint(zigzag(value));
+        }
+
+        void writeDouble(double value) {
+            long bits = Double.doubleToLongBits(value);
+            ensureCapacity(size + 8);
+            for (int i = 0; i < 8; i++) {
+                buf[size++] = (byte) (bits >>> (8 * i));
+            }
+        }
+
+        void writeString(String value) {
+            if (value == null) {
+                writeVarint(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(bytes.length + 1L);
+            writeBytes(bytes, 0, bytes.length);
+        }
+
+        /**
+         * 写字段号并预留 1 字节长度，返回长度位置
+         */
+        int beginField(int fieldId) {
+            writeVarint(fieldId);
+            return beginRecord();
+        }
+
+        void endField(int start) {
+            endRecord(start);
+        }
+
+        int beginRecord() {
+            writeByte(0);
+            return size - 1;
+        }
+
+        /**
+         * 回填长度；超过 1 字节时将内容后移
+         */
+        void endRecord(int start) {
+            int length = size - start - 1;
+            int lengthBytes = varintSize(length);
+            if (lengthBytes > 1) {
+                ensureCapacity(size + lengthBytes - 1);
+                System.arraycopy(buf, start + 1, buf, start + lengthBytes, length);
+                size += lengthBytes - 1;
+            }
+            int position = start;
+            int value = length;
+            while ((value & ~0x7F) != 0) {
+                buf[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buf[position] = (byte) value;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buf, size);
+        }
+
+        private static int varintSize(int value) {
+            int bytes = 1;
+            while ((value & ~0x7F) != 0) {
+                value >>>= 7;
+                bytes++;
+            }
+            return bytes;
+        }
+    }
+
+    /**
+     * 输入视图（越界即视为数据损坏）
+     */
+    private static final class Input {
+        final byte[] buf;
+        int pos;
+        final int limit;
+
+        Input(byte[] buf, int pos, int limit) {
+            this.buf = buf;
+            this.pos = pos;
+            this.limit = limit;
+        }
+
+        int readByte() {
+            require(1);
+            return buf[pos++] & 0xFF;
+        }
+
+        long readVarint() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("varint 过长");
+        }
+
+        long readZigzag() {
+            long value = readVarint();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        double readDouble() {
+            require(8);
+            long bits = 0;
+            for (int i = 0; i < 8; i++) {
+                bits |= (long) (buf[pos++] & 0xFF) << (8 * i);
+            }
+            return Double.longBitsToDouble(bits);
+        }
+
+        String readString() {
+            long encoded = readVarint();
+            if (encoded == 0) {
+                return null;
+            }
+            int length = checkedLength(encoded - 1);
+            require(length);
+            String value = new String(buf, pos, length, StandardCharsets.UTF_8);
+            pos += length;
+            return value;
+        }
+
+        /**
+         * 读取时间，null 返回 Long.MIN_VALUE
+         */
+        long readTime(long base) {
+            long encoded = readVarint();
+            if (encoded == 0) {
+                return Long.MIN_VALUE;
+            }
+            long delta = encoded - 1;
+            return base + ((delta >>> 1) ^ -(delta & 1));
+        }
+
+        /**
+         * 读取元素个数（每个元素至少 1 字节，个数不会超过剩余字节数）
+         */
+        int readCount() {
+            long count = readVarint();
+            if (count > limit - pos) {
+                throw new IllegalArgumentException("元素个数异常: " + count);
+            }
+            return (int) count;
+        }
+
+        /**
+         * 截取后续 length 字节作为子视图，并跳过这些字节
+         */
+        Input slice(int length) {
+            require(length);
+            Input slice = new Input(buf, pos, pos + length);
+            pos += length;
+            return slice;
+        }
+
+        private int checkedLength(long length) {
+            if (length < 0 || length > limit - pos) {
+                throw new IllegalArgumentException("长度越界: " + length);
+            }
+            return (int) length;
+        }
+
+        private void require(int length) {
+            if (length < 0 || pos + length > limit) {
+                throw new IllegalArgumentException("会话数据已截断");
+            }
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.enterprise.agent.session;
+
+/**
+ * 会话过期回调
+ *
+ * 会话在本节点过期、被释放后调用（如归档对话历史）。回调在过期线程上执行，应尽快返回；
+ * 抛出的异常只记录日志，不影响其他回调。
+ */
+public interface SessionExpiryListener {
+
+    /**
+     * @param sessionId 会话ID
+     * @param context   本节点持有的会话副本；共享存储下本节点没有副本时为 null
+     */
+    void onExpired(String sessionId, ConversationContext context);
+}
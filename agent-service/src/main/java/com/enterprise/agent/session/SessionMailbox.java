@@ -0,0 +1,160 @@
+package com.enterprise.agent.session;
+
+import com.enterprise.agent.config.SessionConfig;
+import com.enterprise.agent.log.MetricsCollector;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * 会话邮箱：同一会话的请求串行执行
+ *
+ * - 每个会话一个公平锁，同会话请求按到达顺序逐个执行（加载会话 → 编排 → 保存），不同会话互不影响
+ * - 异步任务（submit）不持锁：每个请求挂在同会话上一个请求的 future 之后，排队期间不占用线程
+ * - 每个会话排队的请求数有上限，超出时立即拒绝；同步执行时排队超过等待时间同样拒绝，不长期占用请求线程
+ * - 邮箱只在有请求时存在，最后一个请求结束后移除
+ *
+ * 禁止：
+ * - 使用全局锁
+ * - 在邮箱内执行的任务中再次进入同一会话的邮箱
+ */
+@Component
+public class SessionMailbox {
+
+    private final SessionConfig sessionConfig;
+    private final MetricsCollector metrics;
+    private final ConcurrentHashMap<String, Mailbox> mailboxes = new ConcurrentHashMap<>();
+
+    @Autowired
+    public SessionMailbox(SessionConfig sessionConfig, MetricsCollector metrics) {
+        this.sessionConfig = sessionConfig;
+        this.metrics = metrics;
+        metrics.registerGauge("session.mailbox.active", mailboxes::size);
+    }
+
+    /**
+     * 在会话邮箱中执行任务
+     *
+     * @throws RejectedExecutionException 会话排队已满或等待超时
+     */
+    public <T> T execute(String sessionId, Supplier<T> task) {
+        Mailbox mailbox = enter(sessionId);
+        if (mailbox == null) {
+            metrics.increment("session.mailbox.rejected");
+            throw new RejectedExecutionException("会话请求排队已满: " + sessionId);
+        }
+        try {
+            if (!acquire(mailbox)) {
+                metrics.increment("session.mailbox.timeout");
+                throw new RejectedExecutionException("会话请求排队超时: " + sessionId);
+            }
+            try {
+                return task.get();
+            } finally {
+                mailbox.lock.unlock();
+            }
+        } finally {
+            leave(sessionId);
+        }
+    }
+
+    /**
+     * 在会话邮箱中执行异步任务：上一个请求的 future 完成后才调用 task
+     *
+     * 排队不设等待时间（不占用线程），由调用方的请求超时兜底。
+     * 不可与同一会话的 execute 混用（两者的串行机制相互独立）。
+     *
+     * @return task 返回的 future 完成时完成
+     * @throws RejectedExecutionException 会话排队已满
+     */
+    public <T> CompletableFuture<T> submit(String sessionId, Supplier<CompletableFuture<T>> task) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        CompletableFuture<?>[] previous = new CompletableFuture<?>[1];
+        Mailbox mailbox = enter(sessionId, mailboxEntry -> {
+            previous[0] = mailboxEntry.tail;
+            mailboxEntry.tail = done;
+        });
+        if (mailbox == null) {
+            metrics.increment("session.mailbox.rejected");
+            throw new RejectedExecutionException("会话请求排队已满: " + sessionId);
+        }
+
+        CompletableFuture<?> ready = previous[0] != null ? previous[0] : CompletableFuture.completedFuture(null);
+        CompletableFuture<T> result = ready
+                .handle((ignored, error) -> null)
+                .thenCompose(ignored -> task.get());
+        result.whenComplete((value, error) -> {
+            leave(sessionId);
+            done.complete(null);
+        });
+        return result;
+    }
+
+    private Mailbox enter(String sessionId) {
+        return enter(sessionId, mailbox -> {
+        });
+    }
+
+    /**
+     * 登记一个请求，排队已满时返回 null
+     *
+     * @param onAdmitted 登记成功时在 compute 内回调（与同会话的其他登记互斥）
+     */
+    private Mailbox enter(String sessionId, Consumer<Mailbox> onAdmitted) {
+        int capacity = Math.max(0, sessionConfig.getMailboxCapacity());
+        // 0：拒绝，1：直接执行，2：排队
+        int[] admission = new int[1];
+        Mailbox mailbox = mailboxes.compute(sessionId, (key, existing) -> {
+            Mailbox current = existing != null ? existing : new Mailbox();
+            // 正在执行的一个 + 排队的 capacity 个
+            if (current.pending <= capacity) {
+                admission[0] = current.pending == 0 ? 1 : 2;
+                current.pending++;
+                onAdmitted.accept(current);
+            }
+            return current;
+        });
+        if (admission[0] == 2) {
+            metrics.increment("session.mailbox.queued");
+        }
+        return admission[0] != 0 ? mailbox : null;
+    }
+
+    private void leave(String sessionId) {
+        mailboxes.computeIfPresent(sessionId, (key, mailbox) -> --mailbox.pending == 0 ? null : mailbox);
+    }
+
+    private boolean acquire(Mailbox mailbox) {
+        try {
+            return mailbox.lock.tryLock(sessionConfig.getMailboxWaitMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static final class Mailbox {
+
+        /**
+         * 公平锁保证同会话请求先到先执行
+         */
+        final ReentrantLock lock = new ReentrantLock(true);
+
+        /**
+         * 执行中与排队中的请求数（只在 ConcurrentHashMap.compute 内修改）
+         */
+        int pending;
+
+        /**
+         * 最后一个异步请求结束时完成的 future（只在 ConcurrentHashMap.compute 内修改）
+         */
+        CompletableFuture<?> tail;
+    }
+}
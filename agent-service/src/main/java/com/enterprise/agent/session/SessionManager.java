@@ -1,24 +1,92 @@
 package com.enterprise.agent.session;
 
+import com.enterprise.agent.config.AgentConfig;
+import com.enterprise.agent.config.SessionConfig;
+import com.enterprise.agent.log.MetricsCollector;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.time.LocalDateTime;
-import java.util.Map;
+import java.util.List;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 /**
  * 会话管理器
+ *
+ * 会话存取委托给 SessionStore（agent.session.store 选择 memory / redis），保存前由 HistoryCompactor 折叠过长的对话历史，
+ * 异步生成的 LLM 摘要经 SessionMailbox 与同会话请求串行写回并重新保存。
+ * 会话过期由分层时间轮驱动：每次访问 O(1) 重设到期时间，到期后释放本节点持有的会话并触发 SessionExpiryListener。
+ * 启用快照时会话变更登记到 SessionSnapshotter，启动时从本地快照恢复未过期的会话。
  */
 @Component
 public class SessionManager {
 
     private static final Logger log = LoggerFactory.getLogger(SessionManager.class);
 
-    private final Map<String, ConversationContext> localCache = new ConcurrentHashMap<>();
-    private static final int SESSION_TIMEOUT_MINUTES = 30;
+    private final SessionStore sessionStore;
+    private final SessionConfig sessionConfig;
+    private final AgentConfig agentConfig;
+    private final HistoryCompactor historyCompactor;
+    private final SessionSnapshotter snapshotter;
+    private final SessionMailbox sessionMailbox;
+    private final List<SessionExpiryListener> expiryListeners;
+    private final TimingWheel<String> expiryWheel;
+    private final ScheduledExecutorService expiryTicker;
+
+    @Autowired
+    public SessionManager(SessionStore sessionStore, SessionConfig sessionConfig, AgentConfig agentConfig,
+            HistoryCompactor historyCompactor, SessionSnapshotter snapshotter, SessionMailbox sessionMailbox,
+            ObjectProvider<SessionExpiryListener> expiryListeners, MetricsCollector metrics) {
+        this.sessionStore = sessionStore;
+        this.sessionConfig = sessionConfig;
+        this.agentConfig = agentConfig;
+        this.historyCompactor = historyCompactor;
+        this.snapshotter = snapshotter;
+        this.sessionMailbox = sessionMailbox;
+        this.expiryListeners = expiryListeners.orderedStream().collect(Collectors.toList());
+        this.expiryWheel = new TimingWheel<>(sessionConfig.getExpiryTickMillis(), System.currentTimeMillis());
+
+        metrics.registerGauge("session.live", expiryWheel::size);
+        metrics.registerGauge("session.expired", expiryWheel::expiredCount);
+        metrics.registerGauge("session.rescheduled", expiryWheel::rescheduledCount);
+
+        this.expiryTicker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "session-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long tick = sessionConfig.getExpiryTickMillis();
+        expiryTicker.scheduleAtFixedRate(this::expireSessions, tick, tick, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 从本地快照恢复会话（已过期的会话直接丢弃）
+     */
+    @PostConstruct
+    public void recover() {
+        snapshotter.recover(context -> {
+            if (context.getSessionId() == null) {
+                return;
+            }
+            if (isExpired(context)) {
+                snapshotter.markRemoved(context.getSessionId());
+                return;
+            }
+            sessionStore.save(context);
+            scheduleExpiry(context.getSessionId());
+        });
+    }
 
     /**
      * 获取或创建会话
@@ -31,6 +99,7 @@ public class SessionManager {
         } else {
             context.setLastActiveTime(LocalDateTime.now());
             context.setTraceId(generateTraceId());
+            scheduleExpiry(sessionId);
         }
 
         return context;
@@ -40,11 +109,12 @@ public class SessionManager {
      * 获取会话
      */
     public ConversationContext get(String sessionId) {
-        ConversationContext context = localCache.get(sessionId);
+        ConversationContext context = sessionStore.get(sessionId);
 
         if (context != null && isExpired(context)) {
             log.info("会话已过期: {}", sessionId);
             remove(sessionId);
+            notifyExpired(sessionId, context);
             return null;
         }
 
@@ -61,21 +131,69 @@ public class SessionManager {
         context.setSessionId(sessionId);
         context.setUserId(userId);
         context.setTraceId(generateTraceId());
+        context.setMaxConversationRounds(agentConfig.getMaxConversationRounds());
 
-        localCache.put(sessionId, context);
+        sessionStore.save(context);
+        scheduleExpiry(sessionId);
+        snapshotter.markSaved(sessionId);
 
         return context;
     }
 
     /**
-     * 保存会话
+     * 保存会话（保存前按需折叠早期对话）
      */
     public void save(ConversationContext context) {
         if (context == null || context.getSessionId() == null) {
             return;
         }
         context.setLastActiveTime(LocalDateTime.now());
-        localCache.put(context.getSessionId(), context);
+        String sessionId = context.getSessionId();
+        historyCompactor.compactIfNeeded(context, text -> saveSummary(sessionId, text));
+        sessionStore.save(context);
+        scheduleExpiry(sessionId);
+        snapshotter.markSaved(sessionId);
+    }
+
+    /**
+     * 写回异步生成的摘要文本并重新保存会话（摘要线程回调）
+     *
+     * 经会话邮箱执行：不与同会话请求同时修改、编码会话；不刷新活跃时间（摘要不算用户访问）。
+     * 邮箱已满时放弃重新保存，摘要文本已写入会话对象，随下一次保存持久化。
+     */
+    private void saveSummary(String sessionId, String text) {
+        try {
+            if (agentConfig.isAsyncPipeline()) {
+                sessionMailbox.submit(sessionId, () -> {
+                    applySummary(sessionId, text);
+                    return CompletableFuture.completedFuture(null);
+                });
+            } else {
+                sessionMailbox.execute(sessionId, () -> {
+                    applySummary(sessionId, text);
+                    return null;
+                });
+            }
+        } catch (RejectedExecutionException e) {
+            log.debug("会话请求排队中, 摘要随下一次保存写入: sessionId={}", sessionId);
+        }
+    }
+
+    private void applySummary(String sessionId, String text) {
+        try {
+            ConversationContext context = sessionStore.get(sessionId);
+            if (context == null) {
+                return;
+            }
+            if (context.getSummary() == null) {
+                context.setSummary(new ConversationSummary());
+            }
+            context.getSummary().setText(text);
+            sessionStore.save(context);
+            snapshotter.markSaved(sessionId);
+        } catch (RuntimeException e) {
+            log.warn("写回对话摘要失败: sessionId={}, error={}", sessionId, e.getMessage());
+        }
     }
 
     /**
@@ -83,7 +201,49 @@ public class SessionManager {
      */
     public void remove(String sessionId) {
         log.info("删除会话: {}", sessionId);
-        localCache.remove(sessionId);
+        sessionStore.remove(sessionId);
+        expiryWheel.cancel(sessionId);
+        snapshotter.markRemoved(sessionId);
+    }
+
+    /**
+     * 处理时间轮中到期的会话（过期线程按 tick 调用）
+     */
+    private void expireSessions() {
+        List<String> expired;
+        try {
+            expired = expiryWheel.advance(System.currentTimeMillis());
+        } catch (RuntimeException e) {
+            log.error("会话过期处理异常: {}", e.getMessage(), e);
+            return;
+        }
+        for (String sessionId : expired) {
+            ConversationContext context = sessionStore.expire(sessionId);
+            // 到期与访问并发：会话刚被访问过，放回并重新计时
+            if (context != null && !isExpired(context)) {
+                sessionStore.save(context);
+                scheduleExpiry(sessionId);
+                continue;
+            }
+            log.info("会话已过期: {}", sessionId);
+            snapshotter.markRemoved(sessionId);
+            notifyExpired(sessionId, context);
+        }
+    }
+
+    private void scheduleExpiry(String sessionId) {
+        expiryWheel.schedule(sessionId, System.currentTimeMillis() + sessionConfig.getTimeoutMinutes() * 60_000L);
+    }
+
+    private void notifyExpired(String sessionId, ConversationContext context) {
+        for (SessionExpiryListener listener : expiryListeners) {
+            try {
+                listener.onExpired(sessionId, context);
+            } catch (Exception e) {
+                log.warn("会话过期回调异常: sessionId={}, listener={}, error={}",
+                        sessionId, listener.getClass().getSimpleName(), e.getMessage());
+            }
+        }
     }
 
     private boolean isExpired(ConversationContext context) {
@@ -91,7 +251,7 @@ public class SessionManager {
             return true;
         }
         LocalDateTime expireTime = context.getLastActiveTime()
-                .plusMinutes(SESSION_TIMEOUT_MINUTES);
+                .plusMinutes(sessionConfig.getTimeoutMinutes());
         return LocalDateTime.now().isAfter(expireTime);
     }
 
@@ -99,10 +259,8 @@ public class SessionManager {
         return UUID.randomUUID().toString().replace("-", "").substring(0, 16);
     }
 
-    /**
-     * 清理过期会话
-     */
-    public void cleanExpiredSessions() {
-        localCache.entrySet().removeIf(entry -> isExpired(entry.getValue()));
+    @PreDestroy
+    public void shutdown() {
+        expiryTicker.shutdownNow();
     }
 }
@@ -0,0 +1,352 @@
+package com.enterprise.agent.session;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * 会话快照日志：本地磁盘上只追加、内存映射的分段日志
+ *
+ * 记录格式：[长度 int][CRC32 int][类型 byte][会话ID长度 short][会话ID UTF-8][会话编码]，
+ * 长度为其后全部字节数，0 表示段内已无记录（段文件预分配，未写部分为 0）。
+ * 启动时按段号顺序扫描，同一会话以最后一条记录为准；遇到 CRC 不符或截断的记录视为崩溃时的残缺写入，
+ * 该段其后内容忽略。
+ *
+ * 失效记录占比过高时把每个会话的最新记录复制到新段后删除旧段（压缩）；
+ * 压缩中途崩溃时新旧段同时存在，按段号重放结果不变。
+ *
+ * 非线程安全：只由快照线程（及启动时的重放）访问。
+ */
+final class SessionSnapshotLog implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionSnapshotLog.class);
+
+    static final byte PUT = 1;
+    static final byte DELETE = 2;
+
+    private static final String SEGMENT_PREFIX = "sessions-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    /**
+     * 长度、CRC、类型、会话ID长度
+     */
+    private static final int HEADER_BYTES = 4 + 4 + 1 + 2;
+
+    private final Path dir;
+    private final int segmentBytes;
+    private final List<Segment> segments = new ArrayList<>();
+
+    /**
+     * 会话ID → 最新 PUT 记录位置（段号 << 32 | 段内偏移）
+     */
+    private final Map<String, Long> index = new HashMap<>();
+
+    private Segment active;
+    private long liveBytes;
+    private long totalBytes;
+
+    SessionSnapshotLog(Path dir, int segmentBytes) {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+    }
+
+    /**
+     * 打开日志并重放：扫描全部段建立索引，再把每个会话的最新编码交给 consumer
+     */
+    void open(BiConsumer<String, ByteBuffer> consumer) throws IOException {
+        Files.createDirectories(dir);
+        List<Integer> seqs = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    seqs.add(Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    log.warn("忽略无法识别的快照文件: {}", file);
+                }
+            }
+        }
+        seqs.sort(null);
+
+        for (int seq : seqs) {
+            Segment segment = Segment.open(segmentPath(seq), seq, 0);
+            segments.add(segment);
+            scan(segment);
+        }
+        if (segments.isEmpty()) {
+            roll(0);
+        } else {
+            active = segments.get(segments.size() - 1);
+        }
+
+        for (Map.Entry<String, Long> entry : index.entrySet()) {
+            consumer.accept(entry.getKey(), payload(entry.getValue()));
+        }
+    }
+
+    /**
+     * 追加会话的最新编码
+     */
+    void put(String sessionId, byte[] encoded) throws IOException {
+        byte[] id = sessionId.getBytes(StandardCharsets.UTF_8);
+        if (id.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("会话ID过长");
+        }
+        long location = append(PUT, id, encoded, 0, encoded.length);
+        Long previous = index.put(sessionId, location);
+        if (previous != null) {
+            liveBytes -= recordBytes(previous);
+        }
+        liveBytes += HEADER_BYTES + id.length + encoded.length;
+    }
+
+    /**
+     * 追加删除标记（日志中没有该会话时不写）
+     */
+    void delete(String sessionId) throws IOException {
+        Long previous = index.remove(sessionId);
+        if (previous == null) {
+            return;
+        }
+        liveBytes -= recordBytes(previous);
+        append(DELETE, sessionId.getBytes(StandardCharsets.UTF_8), null, 0, 0);
+    }
+
+    /**
+     * 把已写入的内容刷到磁盘
+     */
+    void force() {
+        active.buffer.force();
+    }
+
+    /**
+     * 失效记录超过一半且日志超过一个段时需要压缩
+     */
+    boolean needsCompaction() {
+        return totalBytes > segmentBytes && liveBytes * 2 < totalBytes;
+    }
+
+    /**
+     * 压缩：最新记录复制到新段，随后删除旧段
+     */
+    void compact() throws IOException {
+        List<Segment> old = new ArrayList<>(segments);
+        old.get(old.size() - 1).buffer.force();
+        roll(active.seq + 1);
+
+        long copied = 0;
+        for (Map.Entry<String, Long> entry : index.entrySet()) {
+            ByteBuffer record = record(entry.getValue());
+            int idLength = record.getShort(record.position() + 9);
+            byte[] id = new byte[idLength];
+            record.position(record.position() + HEADER_BYTES);
+            record.get(id);
+            byte[] payload = new byte[record.remaining()];
+            record.get(payload);
+            entry.setValue(append(PUT, id, payload, 0, payload.length));
+            copied += HEADER_BYTES + id.length + payload.length;
+        }
+        force();
+
+        for (Segment segment : old) {
+            segments.remove(segment);
+            totalBytes -= segment.position;
+            // Java 8 没有公开的解除映射接口，旧段的映射随缓冲区被回收时释放
+            Files.deleteIfExists(segment.path);
+        }
+        liveBytes = copied;
+    }
+
+    long getTotalBytes() {
+        return totalBytes;
+    }
+
+    long getLiveBytes() {
+        return liveBytes;
+    }
+
+    int size() {
+        return index.size();
+    }
+
+    @Override
+    public void close() {
+        for (Segment segment : segments) {
+            segment.buffer.force();
+        }
+        segments.clear();
+    }
+
+    private long append(byte type, byte[] id, byte[] payload, int offset, int length) throws IOException {
+        int recordBytes = HEADER_BYTES + id.length + length;
+        // 末尾至少留 4 字节 0 作为结束标记
+        if (active.position + recordBytes + 4 > active.buffer.capacity()) {
+            active.buffer.force();
+            roll(active.seq + 1, recordBytes + 4);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update((id.length >>> 8) & 0xFF);
+        crc.update(id.length & 0xFF);
+        crc.update(id, 0, id.length);
+        if (length > 0) {
+            crc.update(payload, offset, length);
+        }
+
+        MappedByteBuffer buffer = active.buffer;
+        int start = active.position;
+        buffer.position(start + 4);
+        buffer.putInt((int) crc.getValue());
+        buffer.put(type);
+        buffer.putShort((short) id.length);
+        buffer.put(id);
+        if (length > 0) {
+            buffer.put(payload, offset, length);
+        }
+        // 长度最后写入：进程崩溃时记录要么完整、要么长度仍为 0；掉电造成的页面乱序由 CRC 识别
+        buffer.putInt(start, recordBytes - 4);
+        active.position = start + recordBytes;
+        totalBytes += recordBytes;
+        return ((long) active.seq << 32) | start;
+    }
+
+    /**
+     * 扫描一个段，更新索引；返回时 segment.position 为第一条无效记录的位置
+     */
+    private void scan(Segment segment) {
+        MappedByteBuffer buffer = segment.buffer;
+        int position = 0;
+        CRC32 crc = new CRC32();
+        while (position + HEADER_BYTES <= buffer.capacity()) {
+            int length = buffer.getInt(position);
+            if (length < HEADER_BYTES - 4 || position + 4 + length > buffer.capacity()) {
+                break;
+            }
+            int storedCrc = buffer.getInt(position + 4);
+            ByteBuffer body = buffer.duplicate();
+            body.position(position + 8).limit(position + 4 + length);
+            crc.reset();
+            crc.update(body.duplicate());
+            if ((int) crc.getValue() != storedCrc) {
+                log.warn("快照记录校验失败，忽略段 {} 偏移 {} 之后的内容", segment.seq, position);
+                break;
+            }
+
+            byte type = body.get();
+            int idLength = body.getShort();
+            if (idLength < 0 || idLength > body.remaining()) {
+                break;
+            }
+            byte[] id = new byte[idLength];
+            body.get(id);
+            String sessionId = new String(id, StandardCharsets.UTF_8);
+            long location = ((long) segment.seq << 32) | position;
+
+            Long previous;
+            if (type == PUT) {
+                previous = index.put(sessionId, location);
+                liveBytes += 4 + length;
+            } else {
+                previous = index.remove(sessionId);
+            }
+            if (previous != null) {
+                liveBytes -= recordBytes(previous);
+            }
+            position += 4 + length;
+        }
+        segment.position = position;
+        totalBytes += position;
+    }
+
+    private ByteBuffer record(long location) {
+        Segment segment = segment((int) (location >>> 32));
+        int position = (int) location;
+        ByteBuffer record = segment.buffer.duplicate();
+        record.position(position).limit(position + 4 + segment.buffer.getInt(position));
+        return record;
+    }
+
+    private ByteBuffer payload(long location) {
+        ByteBuffer record = record(location);
+        int idLength = record.getShort(record.position() + 9);
+        record.position(record.position() + HEADER_BYTES + idLength);
+        return record.slice();
+    }
+
+    private int recordBytes(long location) {
+        Segment segment = segment((int) (location >>> 32));
+        return 4 + segment.buffer.getInt((int) location);
+    }
+
+    private Segment segment(int seq) {
+        for (int i = segments.size() - 1; i >= 0; i--) {
+            if (segments.get(i).seq == seq) {
+                return segments.get(i);
+            }
+        }
+        throw new IllegalStateException("快照段不存在: " + seq);
+    }
+
+    private void roll(int seq) throws IOException {
+        roll(seq, 0);
+    }
+
+    private void roll(int seq, int minBytes) throws IOException {
+        Segment segment = Segment.open(segmentPath(seq), seq, Math.max(segmentBytes, minBytes));
+        segments.add(segment);
+        active = segment;
+    }
+
+    private Path segmentPath(int seq) {
+        return dir.resolve(String.format("%s%010d%s", SEGMENT_PREFIX, seq, SEGMENT_SUFFIX));
+    }
+
+    /**
+     * 日志段：整个文件映射到内存
+     */
+    private static final class Segment {
+
+        final Path path;
+        final int seq;
+        final MappedByteBuffer buffer;
+        int position;
+
+        private Segment(Path path, int seq, MappedByteBuffer buffer) {
+            this.path = path;
+            this.seq = seq;
+            this.buffer = buffer;
+        }
+
+        /**
+         * 打开（或按 size 预分配创建）段文件；size 为 0 时使用文件现有大小
+         */
+        static Segment open(Path path, int seq, int size) throws IOException {
+            try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw");
+                 FileChannel channel = file.getChannel()) {
+                long length = size > 0 ? size : channel.size();
+                if (channel.size() < length) {
+                    file.setLength(length);
+                }
+                // 映射在通道关闭后仍然有效
+                return new Segment(path, seq, channel.map(FileChannel.MapMode.READ_WRITE, 0, length));
+            }
+        }
+    }
+}
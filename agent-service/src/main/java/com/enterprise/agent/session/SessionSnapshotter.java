@@ -0,0 +1,229 @@
+package com.enterprise.agent.session;
+
+import com.enterprise.agent.config.SessionConfig;
+import com.enterprise.agent.log.MetricsCollector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * 会话快照器：增量快照到本地磁盘，重启后热恢复
+ *
+ * 职责：
+ * - 请求线程只登记变更的会话 ID（O(1)），快照线程按间隔批量编码并追加到 SessionSnapshotLog
+ * - 启动时重放快照日志，并行解码后交给 SessionManager 恢复会话
+ * - 记录快照延迟（最早未落盘变更距今的时间）与重放耗时
+ *
+ * 快照线程编码时会话可能正被请求修改：编码失败的会话重新登记，下一轮重试；
+ * 编码成功但不一致的快照会被该请求结束时的 save 再次登记覆盖。
+ *
+ * 禁止：
+ * - 在请求线程上编码或写盘
+ */
+@Component
+public class SessionSnapshotter {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionSnapshotter.class);
+
+    private final SessionConfig sessionConfig;
+    private final SessionStore sessionStore;
+    private final SessionCodec sessionCodec;
+    private final MetricsCollector metrics;
+
+    /**
+     * 待快照的会话：true 为保存，false 为删除（后登记的覆盖先登记的）
+     */
+    private final ConcurrentHashMap<String, Boolean> dirty = new ConcurrentHashMap<>();
+
+    /**
+     * 最早一次未快照变更的时间（毫秒），0 表示没有
+     */
+    private final AtomicLong oldestDirtyMillis = new AtomicLong();
+
+    private volatile long replayMillis;
+    private SessionSnapshotLog snapshotLog;
+    private ScheduledExecutorService snapshotter;
+
+    @Autowired
+    public SessionSnapshotter(SessionConfig sessionConfig, SessionStore sessionStore,
+            SessionCodec sessionCodec, MetricsCollector metrics) {
+        this.sessionConfig = sessionConfig;
+        this.sessionStore = sessionStore;
+        this.sessionCodec = sessionCodec;
+        this.metrics = metrics;
+        if (sessionConfig.isSnapshotEnabled()) {
+            metrics.registerGauge("session.snapshot.lag.millis", () -> {
+                long oldest = oldestDirtyMillis.get();
+                return oldest == 0 ? 0 : System.currentTimeMillis() - oldest;
+            });
+            metrics.registerGauge("session.snapshot.pending", dirty::size);
+            metrics.registerGauge("session.replay.millis", () -> replayMillis);
+        }
+    }
+
+    /**
+     * 登记会话已保存
+     */
+    public void markSaved(String sessionId) {
+        mark(sessionId, Boolean.TRUE);
+    }
+
+    /**
+     * 登记会话已删除或过期
+     */
+    public void markRemoved(String sessionId) {
+        mark(sessionId, Boolean.FALSE);
+    }
+
+    private void mark(String sessionId, Boolean saved) {
+        if (!sessionConfig.isSnapshotEnabled() || sessionId == null) {
+            return;
+        }
+        dirty.put(sessionId, saved);
+        oldestDirtyMillis.compareAndSet(0, System.currentTimeMillis());
+    }
+
+    /**
+     * 重放快照日志恢复会话，之后启动快照线程（启动时调用一次）
+     *
+     * @param sink 恢复出的会话；重放在 sink 全部返回后结束
+     */
+    public void recover(Consumer<ConversationContext> sink) {
+        if (!sessionConfig.isSnapshotEnabled() || snapshotLog != null) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        SessionSnapshotLog openedLog = new SessionSnapshotLog(Paths.get(sessionConfig.getSnapshotDir()),
+                sessionConfig.getSnapshotSegmentMb() * 1024 * 1024);
+        List<ByteBuffer> encoded = new ArrayList<>();
+        try {
+            openedLog.open((sessionId, payload) -> encoded.add(payload));
+        } catch (IOException e) {
+            log.error("打开会话快照失败，本次不恢复也不快照: dir={}, error={}",
+                    sessionConfig.getSnapshotDir(), e.getMessage(), e);
+            return;
+        }
+
+        // 解码并行执行，恢复（写入存储、登记过期）由调用方顺序处理
+        ConversationContext[] contexts = new ConversationContext[encoded.size()];
+        IntStream.range(0, contexts.length).parallel().forEach(i -> {
+            ByteBuffer payload = encoded.get(i);
+            byte[] bytes = new byte[payload.remaining()];
+            payload.get(bytes);
+            try {
+                contexts[i] = sessionCodec.decode(bytes);
+            } catch (IllegalArgumentException e) {
+                metrics.increment("session.replay.failures");
+            }
+        });
+        int recovered = 0;
+        for (ConversationContext context : contexts) {
+            if (context != null) {
+                sink.accept(context);
+                recovered++;
+            }
+        }
+
+        replayMillis = System.currentTimeMillis() - start;
+        metrics.add("session.replay.sessions", recovered);
+        log.info("会话快照重放完成: sessions={}, recovered={}, logBytes={}, elapsed={}ms",
+                contexts.length, recovered, openedLog.getTotalBytes(), replayMillis);
+
+        snapshotLog = openedLog;
+        snapshotter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "session-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = sessionConfig.getSnapshotIntervalMillis();
+        snapshotter.scheduleWithFixedDelay(this::snapshot, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 一轮增量快照（快照线程）
+     */
+    private void snapshot() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        // 先清空最早变更时间：本轮开始后的新登记会重新设置它
+        oldestDirtyMillis.set(0);
+        int written = 0;
+        int deleted = 0;
+        try {
+            for (String sessionId : dirty.keySet()) {
+                Boolean saved = dirty.remove(sessionId);
+                if (saved == null) {
+                    continue;
+                }
+                ConversationContext context = saved ? sessionStore.peek(sessionId) : null;
+                if (context == null) {
+                    snapshotLog.delete(sessionId);
+                    deleted++;
+                    continue;
+                }
+                byte[] bytes;
+                try {
+                    bytes = sessionCodec.encode(context);
+                } catch (RuntimeException e) {
+                    // 会话正被请求修改，下一轮重试
+                    mark(sessionId, Boolean.TRUE);
+                    continue;
+                }
+                snapshotLog.put(sessionId, bytes);
+                metrics.add("session.snapshot.bytes", bytes.length);
+                written++;
+            }
+            snapshotLog.force();
+
+            if (snapshotLog.needsCompaction()) {
+                long compactStart = System.currentTimeMillis();
+                snapshotLog.compact();
+                metrics.increment("session.snapshot.compactions");
+                log.info("会话快照已压缩: sessions={}, logBytes={}, elapsed={}ms",
+                        snapshotLog.size(), snapshotLog.getTotalBytes(), System.currentTimeMillis() - compactStart);
+            }
+        } catch (IOException | RuntimeException e) {
+            metrics.increment("session.snapshot.failures");
+            log.error("会话快照失败: {}", e.getMessage(), e);
+        }
+        metrics.add("session.snapshot.records", written);
+        metrics.add("session.snapshot.deletes", deleted);
+        metrics.add("session.snapshot.pass.micros", (System.nanoTime() - start) / 1000);
+        metrics.increment("session.snapshot.passes");
+    }
+
+    /**
+     * 停机前把剩余变更写入快照
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (snapshotter == null) {
+            return;
+        }
+        snapshotter.shutdown();
+        try {
+            snapshotter.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        snapshot();
+        snapshotLog.close();
+    }
+}
@@ -0,0 +1,42 @@
+package com.enterprise.agent.session;
+
+/**
+ * 会话存储
+ *
+ * 只负责会话的存取；过期判断、traceId 生成等会话语义由 SessionManager 处理。
+ */
+public interface SessionStore {
+
+    /**
+     * 读取会话
+     *
+     * @return 会话；不存在时返回 null
+     */
+    ConversationContext get(String sessionId);
+
+    /**
+     * 读取会话，不改变其在存储中的层级或缓存状态（后台线程读取用）
+     */
+    default ConversationContext peek(String sessionId) {
+        return get(sessionId);
+    }
+
+    /**
+     * 保存会话（可异步落盘，但之后本节点的 get 必须读到本次保存的内容）
+     */
+    void save(ConversationContext context);
+
+    /**
+     * 删除会话
+     */
+    void remove(String sessionId);
+
+    /**
+     * 会话在本节点过期：释放本节点持有的会话
+     *
+     * 单节点存储直接删除；共享存储只清理本地副本，远端数据由其自身的 TTL 处理。
+     *
+     * @return 本节点持有的会话副本；没有时返回 null
+     */
+    ConversationContext expire(String sessionId);
+}
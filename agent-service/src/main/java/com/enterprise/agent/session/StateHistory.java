@@ -0,0 +1,197 @@
+package com.enterprise.agent.session;
+
+import com.enterprise.agent.orchestrator.AgentState;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.AbstractList;
+import java.util.Collection;
+
+/**
+ * 定长环形状态转换日志
+ *
+ * - 每条转换压缩为一个 long：from 序号(8 位) | to 序号(8 位) | 相对基准时间的微秒偏移(48 位，有符号)，
+ *   记录转换时不分配对象；容量满后覆盖最旧的记录
+ * - 基准为创建时的本地时间（毫秒），偏移由 System.nanoTime() 计算；反序列化后按当前时钟重新对齐
+ * - 以 List&lt;StateTransition&gt; 只读视图对外，get 时才构造 StateTransition（调试、序列化用）
+ *
+ * 只支持追加与清空。非线程安全，与 ConversationContext 一致。
+ */
+public final class StateHistory extends AbstractList<ConversationContext.StateTransition> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final AgentState[] STATES = AgentState.values();
+
+    private static final int STATE_BITS = 8;
+    private static final int OFFSET_BITS = 64 - 2 * STATE_BITS;
+    private static final long OFFSET_MASK = (1L << OFFSET_BITS) - 1;
+
+    private final long[] ring;
+    private int head;
+    private int size;
+
+    /**
+     * 基准时间（本地时间按 UTC 换算的毫秒数，与 SessionCodec 的时间表示一致）
+     */
+    private final long baseMillis;
+
+    /**
+     * 基准时间对应的 System.nanoTime()（仅本进程有效）
+     */
+    private transient long baseNanos;
+
+    /**
+     * @param capacity 最多保留的转换条数
+     */
+    public StateHistory(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("状态历史容量必须大于 0");
+        }
+        this.ring = new long[capacity];
+        this.baseMillis = nowMillis();
+        this.baseNanos = System.nanoTime();
+    }
+
+    /**
+     * 记录一次发生在当前时刻的转换
+     */
+    public void add(AgentState from, AgentState to) {
+        append(pack(from, to, (System.nanoTime() - baseNanos) / 1000));
+    }
+
+    /**
+     * 记录一次指定时间的转换（恢复会话用）
+     *
+     * @param epochMillis 本地时间按 UTC 换算的毫秒数
+     */
+    public void add(AgentState from, AgentState to, long epochMillis) {
+        append(pack(from, to, (epochMillis - baseMillis) * 1000));
+    }
+
+    @Override
+    public boolean add(ConversationContext.StateTransition transition) {
+        LocalDateTime time = transition.getTime();
+        add(transition.getFrom(), transition.getTo(),
+                time != null ? time.toInstant(ZoneOffset.UTC).toEpochMilli() : baseMillis);
+        return true;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends ConversationContext.StateTransition> transitions) {
+        for (ConversationContext.StateTransition transition : transitions) {
+            add(transition);
+        }
+        return !transitions.isEmpty();
+    }
+
+    @Override
+    public ConversationContext.StateTransition get(int index) {
+        long entry = entry(index);
+        return new ConversationContext.StateTransition(from(entry), to(entry), toDateTime(epochMillis(entry)));
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        head = 0;
+        size = 0;
+        modCount++;
+    }
+
+    public int capacity() {
+        return ring.length;
+    }
+
+    /**
+     * 第 index 条转换的起始状态（不构造视图对象）
+     */
+    public AgentState fromAt(int index) {
+        return from(entry(index));
+    }
+
+    /**
+     * 第 index 条转换的目标状态（不构造视图对象）
+     */
+    public AgentState toAt(int index) {
+        return to(entry(index));
+    }
+
+    /**
+     * 第 index 条转换的时间（本地时间按 UTC 换算的毫秒数，不构造视图对象）
+     */
+    public long epochMillisAt(int index) {
+        return epochMillis(entry(index));
+    }
+
+    private void append(long entry) {
+        if (size == ring.length) {
+            ring[head] = entry;
+            head = (head + 1) % ring.length;
+        } else {
+            ring[(head + size) % ring.length] = entry;
+            size++;
+        }
+        modCount++;
+    }
+
+    private long entry(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+        }
+        return ring[(head + index) % ring.length];
+    }
+
+    private long epochMillis(long entry) {
+        // 符号扩展 48 位偏移
+        long micros = (entry << (2 * STATE_BITS)) >> (2 * STATE_BITS);
+        return baseMillis + Math.floorDiv(micros, 1000L);
+    }
+
+    /**
+     * 状态序号 + 1 存储，0 表示 null
+     */
+    private static long pack(AgentState from, AgentState to, long micros) {
+        return ((long) code(from) << (OFFSET_BITS + STATE_BITS))
+                | ((long) code(to) << OFFSET_BITS)
+                | (micros & OFFSET_MASK);
+    }
+
+    private static int code(AgentState state) {
+        return state != null ? state.ordinal() + 1 : 0;
+    }
+
+    private static AgentState from(long entry) {
+        return state((int) (entry >>> (OFFSET_BITS + STATE_BITS)));
+    }
+
+    private static AgentState to(long entry) {
+        return state((int) (entry >>> OFFSET_BITS) & 0xFF);
+    }
+
+    private static AgentState state(int code) {
+        return code > 0 && code <= STATES.length ? STATES[code - 1] : null;
+    }
+
+    private static long nowMillis() {
+        return LocalDateTime.now().toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static LocalDateTime toDateTime(long millis) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000L),
+                (int) Math.floorMod(millis, 1000L) * 1_000_000, ZoneOffset.UTC);
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        // nanoTime 只在本进程内有意义，按当前时钟与基准时间的差重新对齐
+        baseNanos = System.nanoTime() - (nowMillis() - baseMillis) * 1_000_000L;
+    }
+}
@@ -0,0 +1,247 @@
+package com.enterprise.agent.session;
+
+import com.enterprise.agent.config.SessionConfig;
+import com.enterprise.agent.log.MetricsCollector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 分层内存会话存储（单节点）
+ *
+ * 职责：
+ * - 活跃会话以对象形式留在堆上
+ * - 空闲超过 tieredIdleSeconds 的会话由后台线程经 SessionCodec 编码后移入堆外 slab（OffHeapArena），
+ *   堆上只剩会话 ID 与一个 long 句柄；再次访问时解码并移回堆上
+ * - 堆外某级别利用率过低时腾空稀疏的 slab，空页回到页池复用
+ *
+ * 每个会话在映射表中的值要么是 ConversationContext（热），要么是 Long 句柄（冷），
+ * 升降级都在 ConcurrentHashMap.compute 内完成，与同一会话的保存、删除互斥。
+ *
+ * 禁止：
+ * - 在请求线程上编码降级（请求线程只做按需解码）
+ * - 降级正在被请求持有的会话后丢失其修改（请求结束时的 save 以堆上对象覆盖冷数据）
+ */
+@Component
+@ConditionalOnProperty(prefix = "agent.session", name = "store", havingValue = "tiered")
+public class TieredSessionStore implements SessionStore {
+
+    private static final Logger log = LoggerFactory.getLogger(TieredSessionStore.class);
+
+    /**
+     * 级别利用率低于该值时腾空稀疏 slab
+     */
+    private static final double MIN_ARENA_UTILIZATION = 0.5;
+
+    private final SessionCodec codec;
+    private final SessionConfig config;
+    private final MetricsCollector metrics;
+    private final OffHeapArena arena;
+
+    /**
+     * 会话 ID → ConversationContext（热）或 Long 堆外句柄（冷）
+     */
+    private final ConcurrentHashMap<String, Object> sessions = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService demoter;
+
+    private final AtomicInteger coldCount = new AtomicInteger();
+
+    @Autowired
+    public TieredSessionStore(SessionCodec codec, SessionConfig config, MetricsCollector metrics) {
+        this.codec = codec;
+        this.config = config;
+        this.metrics = metrics;
+        this.arena = new OffHeapArena(config.getOffHeapSlabKb() * 1024, config.getOffHeapMaxMb() * 1024L * 1024L);
+
+        metrics.registerGauge("session.tiered.cold", coldCount::get);
+        metrics.registerGauge("session.tiered.hot", () -> sessions.size() - coldCount.get());
+        metrics.registerGauge("session.offheap.used.bytes", arena::getUsedBytes);
+        metrics.registerGauge("session.offheap.capacity.bytes", arena::getCapacityBytes);
+
+        this.demoter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "session-tiering");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = config.getTieredScanIntervalMillis();
+        demoter.scheduleWithFixedDelay(this::demoteIdle, interval, interval, TimeUnit.MILLISECONDS);
+        log.info("分层会话存储已启用: idle={}s, slab={}KB, offHeapMax={}MB",
+                config.getTieredIdleSeconds(), config.getOffHeapSlabKb(), config.getOffHeapMaxMb());
+    }
+
+    @Override
+    public ConversationContext get(String sessionId) {
+        Object value = sessions.get(sessionId);
+        if (value == null || value instanceof ConversationContext) {
+            return (ConversationContext) value;
+        }
+        Object promoted = sessions.computeIfPresent(sessionId, (key, current) -> {
+            if (current instanceof ConversationContext) {
+                return current;
+            }
+            ConversationContext context = decode(sessionId, (Long) current);
+            arena.free((Long) current);
+            coldCount.decrementAndGet();
+            metrics.increment("session.tiered.promotions");
+            return context;
+        });
+        return (ConversationContext) promoted;
+    }
+
+    /**
+     * 冷会话只解码，不移回堆上（快照线程读取用）
+     */
+    @Override
+    public ConversationContext peek(String sessionId) {
+        Object value = sessions.get(sessionId);
+        if (value == null || value instanceof ConversationContext) {
+            return (ConversationContext) value;
+        }
+        // 在 compute 内读取，避免句柄被并发升级释放后读到复用的槽位
+        ConversationContext[] peeked = new ConversationContext[1];
+        sessions.computeIfPresent(sessionId, (key, current) -> {
+            peeked[0] = current instanceof ConversationContext
+                    ? (ConversationContext) current
+                    : decode(sessionId, (Long) current);
+            return current;
+        });
+        return peeked[0];
+    }
+
+    @Override
+    public void save(ConversationContext context) {
+        sessions.compute(context.getSessionId(), (key, current) -> {
+            release(current);
+            return context;
+        });
+    }
+
+    @Override
+    public void remove(String sessionId) {
+        sessions.computeIfPresent(sessionId, (key, current) -> {
+            release(current);
+            return null;
+        });
+    }
+
+    @Override
+    public ConversationContext expire(String sessionId) {
+        ConversationContext[] expired = new ConversationContext[1];
+        sessions.computeIfPresent(sessionId, (key, current) -> {
+            expired[0] = current instanceof ConversationContext
+                    ? (ConversationContext) current
+                    : decode(sessionId, (Long) current);
+            release(current);
+            return null;
+        });
+        return expired[0];
+    }
+
+    /**
+     * 降级空闲会话，并在需要时整理堆外空间（降级线程）
+     */
+    private void demoteIdle() {
+        try {
+            LocalDateTime idleBefore = LocalDateTime.now().minusSeconds(config.getTieredIdleSeconds());
+            for (Map.Entry<String, Object> entry : sessions.entrySet()) {
+                Object value = entry.getValue();
+                if (value instanceof ConversationContext && isIdle((ConversationContext) value, idleBefore)) {
+                    sessions.computeIfPresent(entry.getKey(), (key, current) ->
+                            current instanceof ConversationContext && isIdle((ConversationContext) current, idleBefore)
+                                    ? demote((ConversationContext) current)
+                                    : current);
+                }
+            }
+
+            if (arena.markEvacuation(MIN_ARENA_UTILIZATION) > 0) {
+                compact();
+            }
+        } catch (RuntimeException e) {
+            log.error("会话降级异常: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 编码并写入堆外；失败（过大、堆外已满、编码时正被修改）时留在堆上
+     */
+    private Object demote(ConversationContext context) {
+        long handle;
+        try {
+            handle = arena.allocate(codec.encode(context));
+        } catch (RuntimeException e) {
+            handle = -1;
+        }
+        if (handle < 0) {
+            metrics.increment("session.tiered.demote.skipped");
+            return context;
+        }
+        coldCount.incrementAndGet();
+        metrics.increment("session.tiered.demotions");
+        return handle;
+    }
+
+    /**
+     * 把待腾空 slab 中的冷会话搬走，空 slab 回到页池
+     */
+    private void compact() {
+        long relocated = 0;
+        for (Map.Entry<String, Object> entry : sessions.entrySet()) {
+            Object value = entry.getValue();
+            if (!(value instanceof Long) || !arena.isEvacuating((Long) value)) {
+                continue;
+            }
+            Object moved = sessions.computeIfPresent(entry.getKey(), (key, current) -> {
+                if (!(current instanceof Long) || !arena.isEvacuating((Long) current)) {
+                    return current;
+                }
+                long handle = arena.relocate((Long) current);
+                return handle < 0 ? current : handle;
+            });
+            if (moved != null && !moved.equals(value)) {
+                relocated++;
+            }
+        }
+        arena.finishEvacuation();
+        metrics.increment("session.offheap.compactions");
+        metrics.add("session.offheap.relocations", relocated);
+    }
+
+    private ConversationContext decode(String sessionId, long handle) {
+        try {
+            return codec.decode(arena.read(handle));
+        } catch (IllegalArgumentException e) {
+            log.warn("堆外会话解码失败，丢弃: sessionId={}, error={}", sessionId, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 释放冷会话占用的堆外槽位（在 compute 内调用）
+     */
+    private void release(Object value) {
+        if (value instanceof Long) {
+            arena.free((Long) value);
+            coldCount.decrementAndGet();
+        }
+    }
+
+    private static boolean isIdle(ConversationContext context, LocalDateTime idleBefore) {
+        return context.getLastActiveTime() != null && context.getLastActiveTime().isBefore(idleBefore);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        demoter.shutdownNow();
+    }
+}
@@ -0,0 +1,191 @@
+package com.enterprise.agent.session;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分层时间轮（按 key 去重的定时过期）
+ *
+ * - 4 层、每层 64 槽，第 0 层每槽 1 个 tick，第 n 层每槽 64^n 个 tick，覆盖 2^24 个 tick
+ * - schedule：从当前槽摘下后按剩余 tick 数挂入对应层级的槽，O(1)
+ * - advance：每个 tick 处理第 0 层的一个槽；第 0 层转满一圈时把上一层当前槽的条目下放（级联），摊还 O(1)
+ * - 超出覆盖范围的条目先挂在最远处，到点后按真实到期 tick 重新挂入
+ *
+ * 所有操作在对象锁内完成；到期的 key 由 advance 返回，回调由调用方在锁外执行。
+ */
+final class TimingWheel<K> {
+
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 4;
+    private static final long MAX_DELTA = (1L << (WHEEL_BITS * LEVELS)) - 1;
+
+    private final long tickMillis;
+
+    /**
+     * 各层各槽的哨兵节点（双向循环链表）
+     */
+    private final Node<K>[][] wheels;
+    private final Map<K, Node<K>> nodes = new HashMap<>();
+    private long currentTick;
+
+    private long rescheduledCount;
+    private long expiredCount;
+
+    TimingWheel(long tickMillis, long nowMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tickMillis 必须大于 0");
+        }
+        this.tickMillis = tickMillis;
+        this.currentTick = nowMillis / tickMillis;
+        @SuppressWarnings("unchecked")
+        Node<K>[][] slots = (Node<K>[][]) new Node<?>[LEVELS][WHEEL_SIZE];
+        this.wheels = slots;
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < WHEEL_SIZE; slot++) {
+                wheels[level][slot] = Node.sentinel();
+            }
+        }
+    }
+
+    /**
+     * 设置（或重设）key 的到期时间
+     */
+    synchronized void schedule(K key, long deadlineMillis) {
+        // 向上取整，且至少在下一个 tick 到期（当前 tick 的槽已处理过）
+        long expireTick = Math.max((deadlineMillis + tickMillis - 1) / tickMillis, currentTick + 1);
+        Node<K> node = nodes.get(key);
+        if (node == null) {
+            node = new Node<>(key);
+            nodes.put(key, node);
+        } else {
+            node.unlink();
+            rescheduledCount++;
+        }
+        node.expireTick = expireTick;
+        insert(node);
+    }
+
+    /**
+     * 取消 key 的定时
+     */
+    synchronized boolean cancel(K key) {
+        Node<K> node = nodes.remove(key);
+        if (node == null) {
+            return false;
+        }
+        node.unlink();
+        return true;
+    }
+
+    /**
+     * 推进到 nowMillis，返回期间到期的 key（已从时间轮移除）
+     */
+    synchronized List<K> advance(long nowMillis) {
+        List<K> expired = new ArrayList<>();
+        long targetTick = nowMillis / tickMillis;
+        while (currentTick < targetTick) {
+            currentTick++;
+            int index = (int) (currentTick & WHEEL_MASK);
+            if (index == 0) {
+                cascade(1);
+            }
+            Node<K> head = wheels[0][index];
+            Node<K> node = head.next;
+            while (node != head) {
+                Node<K> next = node.next;
+                node.unlink();
+                if (node.expireTick > currentTick) {
+                    insert(node);
+                } else {
+                    nodes.remove(node.key);
+                    expired.add(node.key);
+                }
+                node = next;
+            }
+        }
+        expiredCount += expired.size();
+        return expired;
+    }
+
+    synchronized int size() {
+        return nodes.size();
+    }
+
+    synchronized long rescheduledCount() {
+        return rescheduledCount;
+    }
+
+    synchronized long expiredCount() {
+        return expiredCount;
+    }
+
+    /**
+     * 将第 level 层当前槽的条目下放到更低层
+     */
+    private void cascade(int level) {
+        int index = (int) ((currentTick >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+        Node<K> head = wheels[level][index];
+        Node<K> node = head.next;
+        while (node != head) {
+            Node<K> next = node.next;
+            node.unlink();
+            insert(node);
+            node = next;
+        }
+        if (index == 0 && level + 1 < LEVELS) {
+            cascade(level + 1);
+        }
+    }
+
+    private void insert(Node<K> node) {
+        long delta = Math.min(node.expireTick - currentTick, MAX_DELTA);
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (WHEEL_BITS * (level + 1))) {
+            level++;
+        }
+        long slotTick = currentTick + delta;
+        int index = (int) ((slotTick >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+        node.linkBefore(wheels[level][index]);
+    }
+
+    /**
+     * 链表节点
+     */
+    private static final class Node<K> {
+        final K key;
+        long expireTick;
+        Node<K> prev;
+        Node<K> next;
+
+        Node(K key) {
+            this.key = key;
+        }
+
+        static <K> Node<K> sentinel() {
+            Node<K> head = new Node<>(null);
+            head.prev = head;
+            head.next = head;
+            return head;
+        }
+
+        void linkBefore(Node<K> head) {
+            prev = head.prev;
+            next = head;
+            head.prev.next = this;
+            head.prev = this;
+        }
+
+        void unlink() {
+            if (prev != null) {
+                prev.next = next;
+                next.prev = prev;
+                prev = null;
+                next = null;
+            }
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.enterprise.agent.tool;
 
+import com.enterprise.agent.common.RequestDeadline;
+
 import java.io.Serializable;
 
 /**
@@ -36,6 +38,11 @@ public class ToolContext implements Serializable {
      */
     private boolean debug;
 
+    /**
+     * 请求截止时间（工具据此收紧查询超时）
+     */
+    private transient RequestDeadline deadline;
+
     private ToolContext() {
     }
 
@@ -65,6 +72,10 @@ public class ToolContext implements Serializable {
         return debug;
     }
 
+    public RequestDeadline getDeadline() {
+        return deadline != null ? deadline : RequestDeadline.NONE;
+    }
+
     // ==================== Builder ====================
 
     public static class Builder {
@@ -95,6 +106,11 @@ public class ToolContext implements Serializable {
             return this;
         }
 
+        public Builder deadline(RequestDeadline deadline) {
+            context.deadline = deadline;
+            return this;
+        }
+
         public ToolContext build() {
             return context;
         }
@@ -1,15 +1,20 @@
 package com.enterprise.agent.tool;
 
+import com.enterprise.agent.intent.IntentResult;
 import com.enterprise.agent.intent.IntentType;
 import com.enterprise.agent.tool.impl.sql.OrderQueryTool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * 工具执行器
@@ -17,8 +22,10 @@ import java.util.Map;
  * 职责：
  * - 根据意图类型从 ToolRegistry 中选择对应的 Tool
  * - 校验工具所需参数是否完整
+ * - 请求预算已耗尽时不再执行（工具可从 ToolContext 取剩余预算收紧查询超时）
  * - 调用 Tool.execute() 并获取结构化执行结果
  * - 对执行结果进行后校验（脱敏、行数限制）
+ * - 多意图消息的各工具在有界线程池中并发执行
  * 
  * 禁止：
  * - 让 LLM 决定调用哪个工具
@@ -32,6 +39,7 @@ public class ToolExecutor {
     private static final Logger log = LoggerFactory.getLogger(ToolExecutor.class);
 
     private final Map<String, Tool> toolRegistry = new HashMap<>();
+    private final Executor toolExecutor;
 
     /**
      * 意图与工具的映射关系
@@ -47,7 +55,8 @@ public class ToolExecutor {
     }
 
     @Autowired
-    public ToolExecutor(List<Tool> tools) {
+    public ToolExecutor(List<Tool> tools, @Qualifier("toolExecutor") Executor toolExecutor) {
+        this.toolExecutor = toolExecutor;
         // 注册所有工具
         for (Tool tool : tools) {
             toolRegistry.put(tool.getName(), tool);
@@ -76,7 +85,13 @@ public class ToolExecutor {
             return ToolResult.fail("PARAM_INVALID", "缺少必要参数: " + missing);
         }
 
-        // 3. 执行工具
+        // 3. 请求预算已耗尽时不再执行
+        if (context.getDeadline().isExpired()) {
+            log.warn("[{}] 请求预算耗尽, 跳过工具: tool={}", traceId, tool.getName());
+            return ToolResult.fail("TIMEOUT", "处理超时");
+        }
+
+        // 4. 执行工具
         long startTime = System.currentTimeMillis();
         try {
             ToolResult result = tool.execute(params, context);
@@ -94,6 +109,40 @@ public class ToolExecutor {
         }
     }
 
+    /**
+     * 意图是否有对应的工具
+     */
+    public boolean supports(IntentType intentType) {
+        return selectTool(intentType) != null;
+    }
+
+    /**
+     * 并发执行多个意图的工具，结果与 intents 顺序一致
+     *
+     * 只有一个意图时在调用线程上直接执行；线程池已满时由调用线程执行。
+     */
+    public CompletableFuture<List<ToolResult>> executeAll(List<IntentResult> intents, ToolContext context) {
+        if (intents.size() == 1) {
+            IntentResult intent = intents.get(0);
+            List<ToolResult> results = new ArrayList<>(1);
+            results.add(execute(intent.getIntentType(), intent.getSlots(), context));
+            return CompletableFuture.completedFuture(results);
+        }
+
+        List<CompletableFuture<ToolResult>> futures = new ArrayList<>(intents.size());
+        for (IntentResult intent : intents) {
+            futures.add(CompletableFuture.supplyAsync(
+                    () -> execute(intent.getIntentType(), intent.getSlots(), context), toolExecutor));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+            List<ToolResult> results = new ArrayList<>(futures.size());
+            for (CompletableFuture<ToolResult> future : futures) {
+                results.add(future.join());
+            }
+            return results;
+        });
+    }
+
     /**
      * 选择工具
      */
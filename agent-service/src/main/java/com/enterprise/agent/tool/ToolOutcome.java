@@ -0,0 +1,25 @@
+package com.enterprise.agent.tool;
+
+import com.enterprise.agent.intent.IntentResult;
+
+/**
+ * 一个意图及其工具执行结果（多意图消息合并生成回复时按意图逐项传递）
+ */
+public class ToolOutcome {
+
+    private final IntentResult intentResult;
+    private final ToolResult toolResult;
+
+    public ToolOutcome(IntentResult intentResult, ToolResult toolResult) {
+        this.intentResult = intentResult;
+        this.toolResult = toolResult;
+    }
+
+    public IntentResult getIntentResult() {
+        return intentResult;
+    }
+
+    public ToolResult getToolResult() {
+        return toolResult;
+    }
+}
@@ -0,0 +1,84 @@
+package com.enterprise.agent.cluster;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConsistentHashRingTest {
+
+    private static final int VIRTUAL_NODES = 160;
+    private static final int SAMPLE_KEYS = 200_000;
+
+    @Test
+    void identicalRingsMoveNothing() {
+        ConsistentHashRing ring = ConsistentHashRing.build(nodes(3), VIRTUAL_NODES);
+        ConsistentHashRing same = ConsistentHashRing.build(nodes(3), VIRTUAL_NODES);
+
+        assertEquals(0.0, ring.movedFraction(same), 0.0);
+    }
+
+    @Test
+    void emptyRingMovesEverything() {
+        ConsistentHashRing empty = ConsistentHashRing.build(Collections.<ClusterNode>emptyList(), VIRTUAL_NODES);
+        ConsistentHashRing ring = ConsistentHashRing.build(nodes(3), VIRTUAL_NODES);
+
+        assertEquals(0.0, empty.movedFraction(empty), 0.0);
+        assertEquals(1.0, empty.movedFraction(ring), 0.0);
+        assertEquals(1.0, ring.movedFraction(empty), 0.0);
+    }
+
+    @Test
+    void addingNodeMovesAboutItsShareAndMatchesSampling() {
+        ConsistentHashRing before = ConsistentHashRing.build(nodes(3), VIRTUAL_NODES);
+        ConsistentHashRing after = ConsistentHashRing.build(nodes(4), VIRTUAL_NODES);
+
+        double fraction = before.movedFraction(after);
+        assertTrue(fraction > 0.15 && fraction < 0.35, "fraction=" + fraction);
+        assertEquals(fraction, after.movedFraction(before), 1e-9);
+        assertEquals(fraction, sampledMovedFraction(before, after), 0.01);
+    }
+
+    @Test
+    void onlyKeysOfRemovedNodeMove() {
+        ConsistentHashRing before = ConsistentHashRing.build(nodes(4), VIRTUAL_NODES);
+        List<ClusterNode> remaining = new ArrayList<>(nodes(4));
+        ClusterNode removed = remaining.remove(1);
+        ConsistentHashRing after = ConsistentHashRing.build(remaining, VIRTUAL_NODES);
+
+        int owned = 0;
+        for (int i = 0; i < SAMPLE_KEYS; i++) {
+            String key = "session-" + i;
+            String ownerBefore = before.locate(key).getId();
+            if (ownerBefore.equals(removed.getId())) {
+                owned++;
+            } else {
+                assertEquals(ownerBefore, after.locate(key).getId(), key);
+            }
+        }
+        assertEquals((double) owned / SAMPLE_KEYS, before.movedFraction(after), 0.01);
+    }
+
+    private static double sampledMovedFraction(ConsistentHashRing before, ConsistentHashRing after) {
+        int moved = 0;
+        for (int i = 0; i < SAMPLE_KEYS; i++) {
+            String key = "session-" + i;
+            if (!before.locate(key).getId().equals(after.locate(key).getId())) {
+                moved++;
+            }
+        }
+        return (double) moved / SAMPLE_KEYS;
+    }
+
+    private static List<ClusterNode> nodes(int count) {
+        List<ClusterNode> nodes = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            nodes.add(new ClusterNode("node-" + i, "http://10.0.0." + (i + 1) + ":8080"));
+        }
+        return nodes;
+    }
+}
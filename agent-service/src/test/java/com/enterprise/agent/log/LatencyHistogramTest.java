@@ -0,0 +1,72 @@
+package com.enterprise.agent.log;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+    @Test
+    void smallValuesHaveExactBuckets() {
+        for (long value = 0; value < 128; value++) {
+            int index = LatencyHistogram.indexOf(value);
+            assertEquals(value, index);
+            assertEquals(value, LatencyHistogram.upperBoundOf(index));
+        }
+    }
+
+    @Test
+    void bucketsAreContiguousUpToMaxValue() {
+        int last = LatencyHistogram.indexOf(LatencyHistogram.MAX_VALUE_MICROS);
+        assertEquals(LatencyHistogram.MAX_VALUE_MICROS, LatencyHistogram.upperBoundOf(last));
+        for (int index = 0; index < last; index++) {
+            long upper = LatencyHistogram.upperBoundOf(index);
+            assertEquals(index, LatencyHistogram.indexOf(upper));
+            assertEquals(index + 1, LatencyHistogram.indexOf(upper + 1));
+        }
+    }
+
+    @Test
+    void bucketWidthWithinOneSixtyFourth() {
+        int last = LatencyHistogram.indexOf(LatencyHistogram.MAX_VALUE_MICROS);
+        for (int index = 128; index <= last; index++) {
+            long lower = LatencyHistogram.upperBoundOf(index - 1) + 1;
+            long width = LatencyHistogram.upperBoundOf(index) - lower + 1;
+            assertTrue(width * 64 <= lower, "index=" + index);
+        }
+    }
+
+    @Test
+    void percentilesUseBucketUpperBoundCappedByMax() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 1_000; micros++) {
+            histogram.recordMicros(micros);
+        }
+
+        assertEquals(1_000, histogram.getCount());
+        assertEquals(1_000, histogram.getMaxMicros());
+        long p50 = histogram.valueAtPercentile(50);
+        assertTrue(p50 >= 500 && p50 <= 500 + 500 / 64, "p50=" + p50);
+        assertEquals(1_000, histogram.valueAtPercentile(100));
+        assertEquals(1, histogram.valueAtPercentile(0));
+    }
+
+    @Test
+    void clampsOutOfRangeValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.recordMicros(-5);
+        histogram.recordMicros(Long.MAX_VALUE);
+
+        assertEquals(2, histogram.getCount());
+        assertEquals(LatencyHistogram.MAX_VALUE_MICROS, histogram.getMaxMicros());
+        assertArrayEquals(new long[]{0, LatencyHistogram.MAX_VALUE_MICROS},
+                histogram.valuesAtPercentiles(50, 100));
+    }
+
+    @Test
+    void emptyHistogramReportsZero() {
+        assertArrayEquals(new long[]{0, 0}, new LatencyHistogram().valuesAtPercentiles(50, 99));
+    }
+}
@@ -0,0 +1,177 @@
+package com.enterprise.agent.orchestrator;
+
+import com.enterprise.agent.common.RequestDeadline;
+import com.enterprise.agent.config.AgentConfig;
+import com.enterprise.agent.controller.dto.ChatResponse;
+import com.enterprise.agent.fallback.FallbackManager;
+import com.enterprise.agent.fallback.HumanHandoffService;
+import com.enterprise.agent.intent.FastPathClassifier;
+import com.enterprise.agent.intent.IntentRecognizer;
+import com.enterprise.agent.intent.IntentResult;
+import com.enterprise.agent.intent.IntentType;
+import com.enterprise.agent.intent.JointIntentRecognizer;
+import com.enterprise.agent.intent.LocalIntentClassifier;
+import com.enterprise.agent.intent.SlotExtractor;
+import com.enterprise.agent.intent.SpeculativeIntentRecognizer;
+import com.enterprise.agent.log.AgentLogger;
+import com.enterprise.agent.log.MetricsCollector;
+import com.enterprise.agent.response.ResponseGenerator;
+import com.enterprise.agent.security.PermissionChecker;
+import com.enterprise.agent.security.SensitiveWordFilter;
+import com.enterprise.agent.session.ConversationContext;
+import com.enterprise.agent.session.HistoryCompactor;
+import com.enterprise.agent.tool.ToolExecutor;
+import com.enterprise.agent.tool.ToolResult;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 状态机在轮次之间的衔接：拒绝（无权限、敏感词）之后的下一轮能正常转换并统计阶段耗时
+ */
+class AgentOrchestratorTest {
+
+    private final SensitiveWordFilter sensitiveWordFilter = mock(SensitiveWordFilter.class);
+    private final FastPathClassifier fastPathClassifier = mock(FastPathClassifier.class);
+    private final SlotExtractor slotExtractor = mock(SlotExtractor.class);
+    private final PermissionChecker permissionChecker = mock(PermissionChecker.class);
+    private final ToolExecutor toolExecutor = mock(ToolExecutor.class);
+    private final ResponseGenerator responseGenerator = mock(ResponseGenerator.class);
+
+    private StageLatencyRecorder latencyRecorder;
+    private AgentOrchestrator orchestrator;
+
+    @BeforeEach
+    void setUp() {
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        beans.addBean("meterRegistry", new SimpleMeterRegistry());
+        latencyRecorder = new StageLatencyRecorder(beans.getBeanProvider(MeterRegistry.class));
+
+        orchestrator = new AgentOrchestrator(new StateMachine(latencyRecorder),
+                fastPathClassifier,
+                mock(LocalIntentClassifier.class),
+                mock(IntentRecognizer.class),
+                mock(JointIntentRecognizer.class),
+                mock(SpeculativeIntentRecognizer.class),
+                slotExtractor,
+                toolExecutor,
+                responseGenerator,
+                permissionChecker,
+                sensitiveWordFilter,
+                mock(FallbackManager.class),
+                mock(HumanHandoffService.class),
+                mock(HistoryCompactor.class),
+                new AgentConfig(),
+                mock(AgentLogger.class),
+                mock(MetricsCollector.class),
+                Runnable::run);
+
+        when(sensitiveWordFilter.containsSensitiveWord("滚")).thenReturn(true);
+        when(sensitiveWordFilter.filter(anyString())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(fastPathClassifier.classify(anyString())).thenAnswer(invocation -> IntentResult.builder()
+                .intentType(IntentType.QUERY_ORDER_STATUS)
+                .confidence(0.95)
+                .rawInput(invocation.getArgument(0))
+                .build());
+        when(slotExtractor.extractSlots(any(IntentResult.class), any(RequestDeadline.class))).thenAnswer(invocation -> {
+            IntentResult intent = invocation.getArgument(0);
+            intent.setSlots(Collections.<String, Object>singletonMap("order_id", "ORD-2026-000123"));
+            intent.setMissingSlots(Collections.<String>emptyList());
+            intent.setSlotsExtracted(true);
+            return intent;
+        });
+        Map<String, Object> order = Collections.<String, Object>singletonMap("status", "已发货");
+        when(toolExecutor.executeAll(anyList(), any())).thenReturn(
+                CompletableFuture.completedFuture(Collections.singletonList(ToolResult.success(order, "test"))));
+        when(responseGenerator.generate(anyList(), any(RequestDeadline.class))).thenReturn("订单已发货");
+    }
+
+    @Test
+    void forbiddenTurnIsFollowedByNormalTurn() {
+        ConversationContext context = newContext();
+        when(permissionChecker.checkPermission(anyString(), any(IntentResult.class))).thenReturn(false, true);
+
+        ChatResponse forbidden = orchestrator.process(context, "查一下 ORD-2026-000123");
+        assertEquals(403, forbidden.getCode());
+        assertEquals(AgentState.DONE, context.getState());
+        assertTrue(hasTransition(context, AgentState.FORBIDDEN, AgentState.REJECT));
+        assertTrue(hasTransition(context, AgentState.REJECT, AgentState.DONE));
+
+        ChatResponse answered = orchestrator.process(context, "查一下 ORD-2026-000123");
+        assertEquals("订单已发货", answered.getReply());
+        assertEquals(AgentState.DONE, context.getState());
+        assertTrue(latencyRecorder.snapshot().containsKey("TOOL_EXECUTION/query_order_status"));
+        assertIdleNotRecorded();
+    }
+
+    @Test
+    void sensitiveWordRejectIsRecordedAndFollowedByNormalTurn() {
+        ConversationContext context = newContext();
+        when(permissionChecker.checkPermission(anyString(), any(IntentResult.class))).thenReturn(true);
+
+        ChatResponse rejected = orchestrator.process(context, "滚");
+        assertEquals(400, rejected.getCode());
+        assertTrue(hasTransition(context, AgentState.INIT, AgentState.REJECT));
+        assertEquals(AgentState.DONE, context.getState());
+
+        assertEquals("订单已发货", orchestrator.process(context, "查一下 ORD-2026-000123").getReply());
+        orchestrator.process(context, "滚");
+        assertTrue(hasTransition(context, AgentState.DONE, AgentState.REJECT));
+        assertEquals(AgentState.DONE, context.getState());
+        assertIdleNotRecorded();
+    }
+
+    @Test
+    void sessionLeftInRejectRecovers() {
+        ConversationContext context = newContext();
+        context.setState(AgentState.REJECT);
+        when(permissionChecker.checkPermission(anyString(), any(IntentResult.class))).thenReturn(true);
+
+        assertEquals("订单已发货", orchestrator.process(context, "查一下 ORD-2026-000123").getReply());
+        assertEquals(AgentState.DONE, context.getState());
+        assertTrue(hasTransition(context, AgentState.REJECT, AgentState.INTENT_RECOGNITION));
+        assertTrue(latencyRecorder.snapshot().containsKey("TOOL_EXECUTION/query_order_status"));
+        assertFalse(latencyRecorder.snapshot().containsKey("REJECT/none"));
+    }
+
+    private static ConversationContext newContext() {
+        ConversationContext context = new ConversationContext();
+        context.setSessionId("s-1");
+        context.setUserId("U100234");
+        context.setTraceId("trace-1");
+        return context;
+    }
+
+    private static boolean hasTransition(ConversationContext context, AgentState from, AgentState to) {
+        for (ConversationContext.StateTransition transition : context.getStateHistory()) {
+            if (transition.getFrom() == from && transition.getTo() == to) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 轮次结束时所处的状态（INIT / DONE）到下一轮开始之间为空闲，不计入停留时长
+     */
+    private void assertIdleNotRecorded() {
+        for (String key : latencyRecorder.snapshot().keySet()) {
+            assertFalse(key.startsWith("INIT/") || key.startsWith("DONE/"), key);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.enterprise.agent.session;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OffHeapArenaTest {
+
+    private static final int SLAB_BYTES = 64 * 1024;
+
+    @Test
+    void allocateReadAndFree() {
+        OffHeapArena arena = new OffHeapArena(SLAB_BYTES, 1024 * 1024);
+        byte[] small = payload(10, 1);
+        byte[] medium = payload(300, 2);
+        byte[] large = payload(5_000, 3);
+
+        long smallHandle = arena.allocate(small);
+        long mediumHandle = arena.allocate(medium);
+        long largeHandle = arena.allocate(large);
+
+        assertArrayEquals(small, arena.read(smallHandle));
+        assertArrayEquals(medium, arena.read(mediumHandle));
+        assertArrayEquals(large, arena.read(largeHandle));
+        // 槽位按 长度 + 4 字节向上取 2 的幂：256 / 512 / 8192
+        assertEquals(256 + 512 + 8192, arena.getUsedBytes());
+
+        arena.free(smallHandle);
+        arena.free(mediumHandle);
+        arena.free(largeHandle);
+        assertEquals(0, arena.getUsedBytes());
+    }
+
+    @Test
+    void freedSlotIsReused() {
+        OffHeapArena arena = new OffHeapArena(SLAB_BYTES, 1024 * 1024);
+        long first = arena.allocate(payload(100, 1));
+        arena.free(first);
+
+        long second = arena.allocate(payload(100, 2));
+        assertEquals(first, second);
+        assertArrayEquals(payload(100, 2), arena.read(second));
+    }
+
+    @Test
+    void rejectsOversizedPayloadAndRespectsLimit() {
+        OffHeapArena arena = new OffHeapArena(SLAB_BYTES, SLAB_BYTES);
+        assertEquals(-1, arena.allocate(new byte[OffHeapArena.MAX_PAYLOAD + 1]));
+
+        long full = arena.allocate(payload(OffHeapArena.MAX_PAYLOAD, 1));
+        assertNotEquals(-1, full);
+        assertEquals(-1, arena.allocate(payload(10, 2)));
+
+        arena.free(full);
+        assertEquals(SLAB_BYTES, arena.getCapacityBytes());
+    }
+
+    @Test
+    void relocateEvacuatesSparseSlab() {
+        OffHeapArena arena = new OffHeapArena(SLAB_BYTES, 1024 * 1024);
+        int slotsPerSlab = SLAB_BYTES / 256;
+        long[] handles = new long[slotsPerSlab * 2];
+        for (int i = 0; i < handles.length; i++) {
+            handles[i] = arena.allocate(payload(100, i));
+        }
+        assertEquals(2L * SLAB_BYTES, arena.getCapacityBytes());
+
+        // 两个 slab 各保留 10 条，利用率约 4%
+        List<Integer> kept = new ArrayList<>();
+        for (int i = 0; i < handles.length; i++) {
+            if (i % slotsPerSlab < 10) {
+                kept.add(i);
+            } else {
+                arena.free(handles[i]);
+            }
+        }
+
+        assertEquals(1, arena.markEvacuation(0.5));
+        int relocated = 0;
+        for (int i : kept) {
+            if (arena.isEvacuating(handles[i])) {
+                long moved = arena.relocate(handles[i]);
+                assertNotEquals(-1, moved);
+                assertFalse(arena.isEvacuating(moved));
+                handles[i] = moved;
+                relocated++;
+            }
+        }
+        assertEquals(10, relocated);
+
+        arena.finishEvacuation();
+        assertEquals(1, arena.getFreePages());
+        assertEquals(kept.size() * 256L, arena.getUsedBytes());
+        for (int i : kept) {
+            assertArrayEquals(payload(100, i), arena.read(handles[i]));
+        }
+
+        // 腾空的页可被其他级别复用，不再申请新的直接内存
+        long reused = arena.allocate(payload(5_000, 7));
+        assertTrue(reused >= 0);
+        assertEquals(0, arena.getFreePages());
+        assertEquals(2L * SLAB_BYTES, arena.getCapacityBytes());
+    }
+
+    private static byte[] payload(int length, int seed) {
+        byte[] data = new byte[length];
+        Arrays.fill(data, (byte) seed);
+        data[0] = (byte) (seed >>> 8);
+        return data;
+    }
+}
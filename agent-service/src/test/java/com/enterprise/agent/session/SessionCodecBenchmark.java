@@ -0,0 +1,155 @@
+package com.enterprise.agent.session;
+
+import com.alibaba.fastjson2.JSON;
+import com.enterprise.agent.intent.IntentResult;
+import com.enterprise.agent.intent.IntentType;
+import com.enterprise.agent.orchestrator.AgentState;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 会话编码对比基准（SessionCodec / Java 序列化 / fastjson2）
+ *
+ * 手动运行的基准程序，位于测试源码中，不随应用打包。用法：
+ * <pre>
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/classes:target/test-classes:$(cat target/cp.txt) \
+ *     com.enterprise.agent.session.SessionCodecBenchmark [对话轮数 10] [测量轮次 5]
+ * </pre>
+ *
+ * 每种编码先预热再分轮测量，输出编码大小与编码 / 解码的平均耗时（取各轮最小值）。
+ * 结果仅用于相对比较，正式评估请在目标机器上运行。
+ */
+public final class SessionCodecBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 20_000;
+    private static final int MEASURE_ITERATIONS = 20_000;
+
+    /**
+     * 防止结果被 JIT 消除
+     */
+    private static volatile long sink;
+
+    private SessionCodecBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int trials = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        ConversationContext context = sampleContext(rounds);
+
+        SessionCodec codec = new SessionCodec(false, Integer.MAX_VALUE);
+        SessionCodec deflateCodec = new SessionCodec(true, 512);
+
+        System.out.printf("会话: %d 轮对话, %d 条状态转换%n", rounds, context.getStateHistory().size());
+        System.out.printf("%-22s %10s %14s %14s%n", "编码", "字节数", "编码 ns/op", "解码 ns/op");
+        run("SessionCodec", context, codec::encode, codec::decode, trials);
+        run("SessionCodec+Deflate", context, deflateCodec::encode, deflateCodec::decode, trials);
+        run("Java 序列化", context, SessionCodecBenchmark::javaSerialize, SessionCodecBenchmark::javaDeserialize, trials);
+        run("fastjson2", context, JSON::toJSONBytes,
+                bytes -> JSON.parseObject(bytes, ConversationContext.class), trials);
+    }
+
+    private static void run(String name, ConversationContext context,
+            Function<ConversationContext, byte[]> encoder,
+            Function<byte[], ConversationContext> decoder,
+            int trials) {
+        byte[] encoded = encoder.apply(context);
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            sink += encoder.apply(context).length;
+            sink += decoder.apply(encoded).getHistory().size();
+        }
+
+        long[] encodeNanos = new long[trials];
+        long[] decodeNanos = new long[trials];
+        for (int t = 0; t < trials; t++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < MEASURE_ITERATIONS; i++) {
+                sink += encoder.apply(context).length;
+            }
+            encodeNanos[t] = (System.nanoTime() - start) / MEASURE_ITERATIONS;
+
+            start = System.nanoTime();
+            for (int i = 0; i < MEASURE_ITERATIONS; i++) {
+                sink += decoder.apply(encoded).getHistory().size();
+            }
+            decodeNanos[t] = (System.nanoTime() - start) / MEASURE_ITERATIONS;
+        }
+        System.out.printf("%-22s %10d %14d %14d%n", name, encoded.length,
+                Arrays.stream(encodeNanos).min().getAsLong(), Arrays.stream(decodeNanos).min().getAsLong());
+    }
+
+    /**
+     * 典型会话：多轮订单查询，含状态转换与待补充意图
+     */
+    static ConversationContext sampleContext(int rounds) {
+        ConversationContext context = new ConversationContext();
+        context.setMaxConversationRounds(Math.max(rounds, 1));
+        context.setSessionId("c9f1d7a2-5b4e-4f0a-9e37-1d2c8b6a4f10");
+        context.setUserId("U100234");
+        context.setTraceId("4f8a2c1e9b7d6a03");
+        LocalDateTime time = LocalDateTime.now().minusMinutes(rounds);
+        context.setCreateTime(time);
+
+        for (int i = 0; i < rounds; i++) {
+            context.getHistory().add(new ConversationContext.Message("user",
+                    "帮我查一下订单 ORD-2024-" + String.format("%06d", 100 + i) + " 现在到哪了，什么时候能送到？", time));
+            time = time.plusSeconds(3);
+            context.getHistory().add(new ConversationContext.Message("assistant",
+                    "您的订单 ORD-2024-" + String.format("%06d", 100 + i) + " 当前状态为「已发货」，订单金额 299.0 元，"
+                            + "最近更新于 2024-01-16 08:00:00。\n商品信息：商品A x 2, 商品B x 1\n收货人：张三（138****5678）\n\n"
+                            + "请问还有其他问题吗？", time));
+            for (AgentState state : new AgentState[]{AgentState.INTENT_RECOGNITION, AgentState.SLOT_EXTRACTION,
+                    AgentState.SLOT_COMPLETE, AgentState.TOOL_EXECUTION, AgentState.RESPONSE_GENERATION, AgentState.DONE}) {
+                context.addStateHistory(context.getState(), state);
+                context.setState(state);
+            }
+            time = time.plusSeconds(30);
+        }
+        context.setLastActiveTime(time);
+
+        Map<String, Object> slots = new LinkedHashMap<>();
+        slots.put("order_id", "ORD-2024-000123");
+        slots.put("quantity", 2);
+        context.setPendingIntent(IntentResult.builder()
+                .intentType(IntentType.REQUEST_REFUND)
+                .confidence(0.93)
+                .slots(slots)
+                .missingSlots(Arrays.asList("refund_reason"))
+                .rawInput("我要退款 ORD-2024-000123")
+                .build());
+        return context;
+    }
+
+    private static byte[] javaSerialize(ConversationContext context) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+            try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                out.writeObject(context);
+            }
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static ConversationContext javaDeserialize(byte[] bytes) {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return (ConversationContext) in.readObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
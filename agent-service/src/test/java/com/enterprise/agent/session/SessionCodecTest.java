@@ -0,0 +1,175 @@
+package com.enterprise.agent.session;
+
+import com.enterprise.agent.intent.IntentResult;
+import com.enterprise.agent.intent.IntentType;
+import com.enterprise.agent.orchestrator.AgentState;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionCodecTest {
+
+    private static final LocalDateTime CREATED = LocalDateTime.of(2026, 3, 1, 9, 30, 0);
+
+    @Test
+    void roundTripPreservesSession() {
+        SessionCodec codec = new SessionCodec(false, Integer.MAX_VALUE);
+        ConversationContext context = sampleContext(3);
+
+        ConversationContext decoded = codec.decode(codec.encode(context));
+
+        assertEquals(context.getSessionId(), decoded.getSessionId());
+        assertEquals(context.getUserId(), decoded.getUserId());
+        assertEquals(context.getTraceId(), decoded.getTraceId());
+        assertEquals(context.getState(), decoded.getState());
+        assertEquals(context.getPermissionLevel(), decoded.getPermissionLevel());
+        assertEquals(context.getUnknownIntentCount(), decoded.getUnknownIntentCount());
+        assertEquals(context.getMaxConversationRounds(), decoded.getMaxConversationRounds());
+        assertEquals(context.getCreateTime(), decoded.getCreateTime());
+        assertEquals(context.getLastActiveTime(), decoded.getLastActiveTime());
+        assertHistoryEquals(context, decoded);
+
+        assertEquals(context.getStateHistory().size(), decoded.getStateHistory().size());
+        for (int i = 0; i < context.getStateHistory().size(); i++) {
+            ConversationContext.StateTransition expected = context.getStateHistory().get(i);
+            ConversationContext.StateTransition actual = decoded.getStateHistory().get(i);
+            assertEquals(expected.getFrom(), actual.getFrom());
+            assertEquals(expected.getTo(), actual.getTo());
+            assertEquals(expected.getTime(), actual.getTime());
+        }
+
+        IntentResult pending = decoded.getPendingIntent();
+        assertEquals(IntentType.REQUEST_REFUND, pending.getIntentType());
+        assertEquals(0.93, pending.getConfidence(), 1e-9);
+        assertEquals("ORD-2026-000123", pending.getSlots().get("order_id"));
+        assertEquals(2, ((Number) pending.getSlots().get("quantity")).intValue());
+        assertEquals(Arrays.asList("refund_reason"), pending.getMissingSlots());
+    }
+
+    @Test
+    void roundTripWithCompressedHistory() {
+        SessionCodec plain = new SessionCodec(false, Integer.MAX_VALUE);
+        SessionCodec deflate = new SessionCodec(true, 64);
+        ConversationContext context = sampleContext(10);
+
+        byte[] compressed = deflate.encode(context);
+        assertTrue(compressed.length < plain.encode(context).length);
+        assertHistoryEquals(context, deflate.decode(compressed));
+        // 压缩与否由写入方决定，读取方只看历史字段内的编码标记
+        assertHistoryEquals(context, plain.decode(compressed));
+    }
+
+    @Test
+    void roundTripEmptySession() {
+        SessionCodec codec = new SessionCodec(false, Integer.MAX_VALUE);
+        ConversationContext context = new ConversationContext();
+        context.setSessionId("s-1");
+
+        ConversationContext decoded = codec.decode(codec.encode(context));
+
+        assertEquals("s-1", decoded.getSessionId());
+        assertNull(decoded.getUserId());
+        assertNull(decoded.getPendingIntent());
+        assertTrue(decoded.getHistory().isEmpty());
+    }
+
+    @Test
+    void rejectsForeignData() {
+        SessionCodec codec = new SessionCodec(false, Integer.MAX_VALUE);
+
+        assertThrows(IllegalArgumentException.class, () -> codec.decode(new byte[0]));
+        assertThrows(IllegalArgumentException.class, () -> codec.decode("{\"sessionId\":\"s-1\"}".getBytes()));
+    }
+
+    @Test
+    void rejectsNewerVersion() {
+        SessionCodec codec = new SessionCodec(false, Integer.MAX_VALUE);
+        byte[] bytes = codec.encode(sampleContext(1));
+        bytes[1]++;
+
+        assertThrows(IllegalArgumentException.class, () -> codec.decode(bytes));
+    }
+
+    @Test
+    void rejectsFieldLongerThanData() {
+        SessionCodec codec = new SessionCodec(false, Integer.MAX_VALUE);
+        byte[] header = codec.encode(sampleContext(1));
+        byte[] corrupt = {header[0], header[1], 1, 100, 'a'};
+
+        assertThrows(IllegalArgumentException.class, () -> codec.decode(corrupt));
+    }
+
+    @Test
+    void rejectsEveryTruncation() {
+        SessionCodec codec = new SessionCodec(true, 64);
+        byte[] bytes = codec.encode(sampleContext(5));
+
+        for (int length = 0; length < bytes.length; length++) {
+            byte[] truncated = Arrays.copyOf(bytes, length);
+            assertThrows(IllegalArgumentException.class, () -> codec.decode(truncated), "length=" + length);
+        }
+    }
+
+    private static void assertHistoryEquals(ConversationContext expected, ConversationContext actual) {
+        assertEquals(expected.getHistory().size(), actual.getHistory().size());
+        for (int i = 0; i < expected.getHistory().size(); i++) {
+            ConversationContext.Message message = expected.getHistory().get(i);
+            ConversationContext.Message decoded = actual.getHistory().get(i);
+            assertEquals(message.getRole(), decoded.getRole());
+            assertEquals(message.getContent(), decoded.getContent());
+            assertEquals(message.getTime(), decoded.getTime());
+        }
+    }
+
+    /**
+     * 时间取整到秒：编码精度为毫秒
+     */
+    private static ConversationContext sampleContext(int rounds) {
+        ConversationContext context = new ConversationContext();
+        context.setMaxConversationRounds(Math.max(rounds, 1));
+        context.setSessionId("c9f1d7a2-5b4e-4f0a-9e37-1d2c8b6a4f10");
+        context.setUserId("U100234");
+        context.setTraceId("4f8a2c1e9b7d6a03");
+        context.setPermissionLevel(2);
+        context.setUnknownIntentCount(1);
+        context.setState(AgentState.DONE);
+        context.setCreateTime(CREATED);
+
+        LocalDateTime time = CREATED;
+        List<ConversationContext.StateTransition> transitions = new ArrayList<>();
+        for (int i = 0; i < rounds; i++) {
+            String orderId = "ORD-2026-" + String.format("%06d", 100 + i);
+            context.getHistory().add(new ConversationContext.Message("user", "帮我查一下订单 " + orderId + " 到哪了", time));
+            time = time.plusSeconds(3);
+            context.getHistory().add(new ConversationContext.Message("assistant",
+                    "您的订单 " + orderId + " 当前状态为「已发货」，请问还有其他问题吗？", time));
+            transitions.add(new ConversationContext.StateTransition(AgentState.DONE, AgentState.INTENT_RECOGNITION, time));
+            transitions.add(new ConversationContext.StateTransition(AgentState.INTENT_RECOGNITION, AgentState.DONE, time));
+            time = time.plusSeconds(30);
+        }
+        context.setStateHistory(transitions);
+        context.setLastActiveTime(time);
+
+        Map<String, Object> slots = new LinkedHashMap<>();
+        slots.put("order_id", "ORD-2026-000123");
+        slots.put("quantity", 2);
+        context.setPendingIntent(IntentResult.builder()
+                .intentType(IntentType.REQUEST_REFUND)
+                .confidence(0.93)
+                .slots(slots)
+                .missingSlots(Arrays.asList("refund_reason"))
+                .rawInput("我要退款 ORD-2026-000123")
+                .build());
+        return context;
+    }
+}
@@ -0,0 +1,147 @@
+package com.enterprise.agent.session;
+
+import com.enterprise.agent.config.SessionConfig;
+import com.enterprise.agent.log.MetricsCollector;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 分层会话存储浸泡测试（memory / tiered 对比）
+ *
+ * 手动运行的浸泡程序，位于测试源码中，不随应用打包。用法（两种模式分别在独立 JVM 中运行，堆参数保持一致）：
+ * <pre>
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -Xmx8g -cp target/classes:target/test-classes:$(cat target/cp.txt) \
+ *     com.enterprise.agent.session.TieredSessionStoreSoak memory [会话数 1000000] [对话轮数 4] [负载秒数 60]
+ * java -Xmx8g -cp target/classes:target/test-classes:$(cat target/cp.txt) \
+ *     com.enterprise.agent.session.TieredSessionStoreSoak tiered [会话数 1000000] [对话轮数 4] [负载秒数 60]
+ * </pre>
+ *
+ * 先写入全部会话（tiered 模式下等待它们全部降级到堆外），完整 GC 后记录堆占用；
+ * 随后在持续分配短期对象、随机访问少量会话的负载下运行指定时间，输出各收集器的次数与累计停顿，
+ * 最后再计时一次完整 GC。
+ */
+public final class TieredSessionStoreSoak {
+
+    /**
+     * 负载中每次分配的短期对象大小
+     */
+    private static final int GARBAGE_BYTES = 512;
+
+    /**
+     * 负载中保留的中期对象个数（使部分对象晋升老年代）
+     */
+    private static final int RETAINED_WINDOW = 200_000;
+
+    private static volatile long sink;
+
+    private TieredSessionStoreSoak() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        String mode = args.length > 0 ? args[0] : "tiered";
+        int sessions = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 60;
+
+        SessionConfig config = new SessionConfig();
+        config.setTieredIdleSeconds(0);
+        config.setTieredScanIntervalMillis(200);
+        config.setOffHeapMaxMb(16 * 1024);
+        MetricsCollector metrics = new MetricsCollector();
+        SessionStore store = "memory".equals(mode)
+                ? new InMemorySessionStore()
+                : new TieredSessionStore(new SessionCodec(config), config, metrics);
+
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < sessions; i++) {
+            store.save(sessionAt(i, rounds));
+        }
+        if (store instanceof TieredSessionStore) {
+            while (((Number) metrics.snapshot().get("session.tiered.cold")).intValue() < sessions) {
+                Thread.sleep(100);
+            }
+        }
+        System.out.printf("模式: %s, 会话: %d, 每会话 %d 轮, 写入耗时 %d ms%n",
+                mode, sessions, rounds, System.currentTimeMillis() - start);
+
+        long heapBytes = heapUsedAfterGc();
+        System.out.printf("完整 GC 后堆占用: %d MB, 每会话 %d 字节%n",
+                heapBytes >> 20, heapBytes / Math.max(sessions, 1));
+        if (store instanceof TieredSessionStore) {
+            System.out.printf("堆外占用: %d MB, 堆外申请: %d MB%n",
+                    ((Number) metrics.snapshot().get("session.offheap.used.bytes")).longValue() >> 20,
+                    ((Number) metrics.snapshot().get("session.offheap.capacity.bytes")).longValue() >> 20);
+        }
+
+        long[] before = gcSnapshot();
+        runLoad(store, sessions, seconds);
+        long[] after = gcSnapshot();
+        List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+        System.out.printf("负载 %d 秒:%n", seconds);
+        for (int i = 0; i < collectors.size(); i++) {
+            System.out.printf("  %-24s 次数 %6d, 累计停顿 %6d ms%n", collectors.get(i).getName(),
+                    after[i * 2] - before[i * 2], after[i * 2 + 1] - before[i * 2 + 1]);
+        }
+
+        start = System.nanoTime();
+        System.gc();
+        System.out.printf("完整 GC 停顿: %d ms%n", (System.nanoTime() - start) / 1_000_000);
+        if (store instanceof TieredSessionStore) {
+            ((TieredSessionStore) store).shutdown();
+        }
+    }
+
+    private static ConversationContext sessionAt(int i, int rounds) {
+        ConversationContext context = SessionCodecBenchmark.sampleContext(rounds);
+        context.setSessionId("soak-" + i);
+        return context;
+    }
+
+    /**
+     * 持续分配短期对象，并按约 1% 的比例随机读写会话
+     */
+    private static void runLoad(SessionStore store, int sessions, int seconds) {
+        Object[] retained = new Object[RETAINED_WINDOW];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long deadline = System.currentTimeMillis() + seconds * 1000L;
+        long iteration = 0;
+        while (System.currentTimeMillis() < deadline) {
+            byte[] garbage = new byte[GARBAGE_BYTES];
+            garbage[random.nextInt(GARBAGE_BYTES)] = 1;
+            retained[random.nextInt(RETAINED_WINDOW)] = garbage;
+            if (++iteration % 100 == 0 && sessions > 0) {
+                ConversationContext context = store.get("soak-" + random.nextInt(sessions));
+                if (context != null) {
+                    sink += context.getHistory().size();
+                    store.save(context);
+                }
+            }
+        }
+        sink += retained.length;
+    }
+
+    private static long heapUsedAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * 各收集器的 [次数, 累计停顿毫秒]
+     */
+    private static long[] gcSnapshot() {
+        List<GarbageCollectorMXBean> collectors = new ArrayList<>(ManagementFactory.getGarbageCollectorMXBeans());
+        long[] values = new long[collectors.size() * 2];
+        for (int i = 0; i < collectors.size(); i++) {
+            values[i * 2] = collectors.get(i).getCollectionCount();
+            values[i * 2 + 1] = collectors.get(i).getCollectionTime();
+        }
+        return values;
+    }
+}
@@ -0,0 +1,73 @@
+package com.enterprise.agent.session;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimingWheelTest {
+
+    @Test
+    void expiresOnTheTickContainingTheDeadline() {
+        TimingWheel<String> wheel = new TimingWheel<>(10, 0);
+        wheel.schedule("a", 55);
+
+        assertTrue(wheel.advance(50).isEmpty());
+        assertEquals(Collections.singletonList("a"), wheel.advance(60));
+        assertEquals(0, wheel.size());
+        assertEquals(1, wheel.expiredCount());
+    }
+
+    @Test
+    void pastDeadlineExpiresOnNextTick() {
+        TimingWheel<String> wheel = new TimingWheel<>(1, 1_000);
+        wheel.schedule("late", 500);
+
+        assertEquals(Collections.singletonList("late"), wheel.advance(1_001));
+    }
+
+    @Test
+    void cascadesFromUpperLevelsWithoutExpiringEarly() {
+        // 起点不在槽边界上，第 1 / 2 层的条目都要经过级联下放
+        TimingWheel<String> wheel = new TimingWheel<>(1, 1_000);
+        long level1 = 1_000 + 100;
+        long level2 = 1_000 + 3 * 64 * 64 + 17;
+        wheel.schedule("level1", level1);
+        wheel.schedule("level2", level2);
+
+        assertTrue(wheel.advance(level1 - 1).isEmpty());
+        assertEquals(Collections.singletonList("level1"), wheel.advance(level1));
+        assertTrue(wheel.advance(level2 - 1).isEmpty());
+        assertEquals(Collections.singletonList("level2"), wheel.advance(level2));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void rescheduleReplacesDeadline() {
+        TimingWheel<String> wheel = new TimingWheel<>(1, 0);
+        wheel.schedule("later", 100);
+        wheel.schedule("later", 5_000);
+        wheel.schedule("sooner", 5_000);
+        wheel.schedule("sooner", 100);
+
+        assertEquals(2, wheel.size());
+        assertEquals(2, wheel.rescheduledCount());
+        assertEquals(Collections.singletonList("sooner"), wheel.advance(100));
+        assertTrue(wheel.advance(4_999).isEmpty());
+        assertEquals(Collections.singletonList("later"), wheel.advance(5_000));
+    }
+
+    @Test
+    void cancelRemovesKey() {
+        TimingWheel<String> wheel = new TimingWheel<>(1, 0);
+        wheel.schedule("a", 10);
+
+        assertTrue(wheel.cancel("a"));
+        assertFalse(wheel.cancel("a"));
+        assertTrue(wheel.advance(100).isEmpty());
+        assertEquals(0, wheel.size());
+    }
+}